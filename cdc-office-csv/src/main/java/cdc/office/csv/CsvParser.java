@@ -16,6 +16,10 @@ import cdc.office.tables.RowLocation;
 import cdc.office.tables.TableHandler;
 import cdc.office.tables.TableSection;
 import cdc.office.tables.TablesHandler;
+import cdc.office.tables.jfr.JfrTableMetrics;
+import cdc.office.tables.metrics.MeteredInputStream;
+import cdc.office.tables.metrics.MeteredTableHandler;
+import cdc.office.tables.metrics.TableMetrics;
 import cdc.util.function.Evaluation;
 import cdc.util.lang.Checks;
 import cdc.util.lang.ImplementationException;
@@ -34,6 +38,7 @@ public class CsvParser {
     private boolean verbose = false;
     private boolean countRows = false;
     private boolean voidHandler = false;
+    private TableMetrics metrics = null;
 
     /**
      * Creates a parser with ';' separator.
@@ -67,6 +72,21 @@ public class CsvParser {
         return this;
     }
 
+    /**
+     * Sets the metrics that must be recorded.
+     *
+     * @param metrics The metrics. If {@code null}, no metrics are recorded.
+     * @return This parser.
+     */
+    public CsvParser setMetrics(TableMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
     CsvParser setVoidHandler() {
         this.voidHandler = true;
         return this;
@@ -96,10 +116,11 @@ public class CsvParser {
     private LinesHandler createLinesHandler(TableHandler handler,
                                             int headers,
                                             int numberOfRows) {
+        final TableHandler h = JfrTableMetrics.wrap(MeteredTableHandler.wrap(handler, metrics), "Csv");
         if (voidHandler) {
-            return new VoidHandler(handler, headers, numberOfRows);
+            return new VoidHandler(h, headers, numberOfRows);
         } else {
-            return new Handler(handler, headers, numberOfRows);
+            return new Handler(h, headers, numberOfRows);
         }
     }
 
@@ -161,7 +182,7 @@ public class CsvParser {
         } else {
             numberOfRows = -1;
         }
-        LinesParser.parse(in,
+        LinesParser.parse(MeteredInputStream.wrap(in, metrics),
                           systemId,
                           charset,
                           createLinesHandler(handler, headers, numberOfRows));
@@ -211,6 +232,9 @@ public class CsvParser {
         LinesParser.parse(file,
                           charset,
                           createLinesHandler(handler, headers, numberORows));
+        if (metrics != null) {
+            metrics.recordBytes(file.length());
+        }
         TablesHandler.processEndTables(handler, file.getPath());
         traceEnd();
     }
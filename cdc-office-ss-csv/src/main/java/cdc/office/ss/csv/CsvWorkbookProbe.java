@@ -0,0 +1,108 @@
+package cdc.office.ss.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of WorkbookProbe for CSV files.
+ * <p>
+ * A CSV file is described as one sheet whose name is {@code null}, as done by {@link CsvSheetParser}.<br>
+ * Characters are scanned once, without building values: only separators, quotes and line terminators
+ * are taken into account. The number of columns is the maximum number of fields of a line.
+ * <p>
+ * There are no document properties.
+ *
+ * @author Damien Carbonne
+ */
+public class CsvWorkbookProbe implements WorkbookProbe {
+    private final Charset charset;
+    private final char separator;
+
+    public CsvWorkbookProbe(Charset charset,
+                            char separator) {
+        this.charset = charset == null ? Charset.defaultCharset() : charset;
+        this.separator = separator;
+    }
+
+    public CsvWorkbookProbe(SheetParserFactory factory,
+                            WorkbookKind kind) {
+        this(factory.getCharset(),
+             factory.getSeparator());
+    }
+
+    @Override
+    public WorkbookInfo probe(File file) throws IOException {
+        Checks.isNotNull(file, "file");
+        try (final InputStream in = Files.newInputStream(file.toPath())) {
+            return probe(in, file.getPath(), WorkbookKind.CSV);
+        }
+    }
+
+    @Override
+    public WorkbookInfo probe(InputStream in,
+                              String systemId,
+                              WorkbookKind kind) throws IOException {
+        Checks.isNotNull(in, "in");
+        // Do not close reader, as this would close in
+        final Reader reader = new InputStreamReader(in, charset);
+        final char[] buffer = new char[8192];
+        int rows = 0;
+        int columns = 0;
+        // Number of fields of current line, or 0 if current line is empty
+        int fields = 0;
+        boolean quoted = false;
+        char previous = 0;
+        int n;
+        while ((n = reader.read(buffer)) > 0) {
+            for (int index = 0; index < n; index++) {
+                final char c = buffer[index];
+                if (c == '"') {
+                    // An escaped quote toggles twice
+                    quoted = !quoted;
+                    fields = Math.max(fields, 1);
+                } else if (quoted) {
+                    // Ignore
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' || previous != '\r') {
+                        rows++;
+                        columns = Math.max(columns, fields);
+                        fields = 0;
+                    }
+                } else if (c == separator) {
+                    fields = Math.max(fields, 1) + 1;
+                } else {
+                    fields = Math.max(fields, 1);
+                }
+                previous = c;
+            }
+        }
+        if (fields > 0) {
+            rows++;
+            columns = Math.max(columns, fields);
+        }
+        return WorkbookInfo.builder()
+                           .systemId(systemId)
+                           .kind(kind)
+                           .sheet(new SheetInfo(0,
+                                                null,
+                                                rows == 0
+                                                        ? null
+                                                        : new CellAddressRange(0, rows - 1, 0, Math.max(0, columns - 1)),
+                                                rows,
+                                                columns))
+                           .build();
+    }
+}
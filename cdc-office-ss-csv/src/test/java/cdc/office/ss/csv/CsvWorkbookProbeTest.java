@@ -0,0 +1,59 @@
+package cdc.office.ss.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.tables.MemoryTableHandler;
+
+class CsvWorkbookProbeTest {
+    private static SheetInfo probe(String content) throws IOException {
+        final CsvWorkbookProbe probe = new CsvWorkbookProbe(StandardCharsets.UTF_8, ';');
+        final WorkbookInfo info = probe.probe(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                                              "test.csv",
+                                              WorkbookKind.CSV);
+        assertEquals(1, info.getSheets().size());
+        return info.getSheets().get(0);
+    }
+
+    @Test
+    void testFile() throws IOException {
+        final File file = new File("src/test/resources/file1.csv");
+        final SheetParserFactory factory = new SheetParserFactory();
+        final WorkbookInfo info = factory.createProbe(file).probe(file);
+        assertEquals(WorkbookKind.CSV, info.getKind());
+        assertEquals(file.getPath(), info.getSystemId());
+        assertTrue(info.getProperties().isEmpty());
+
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        factory.create(file).parse(file, null, 0, 0, handler);
+        final SheetInfo sheet = info.getSheets().get(0);
+        assertNull(sheet.getName());
+        assertEquals(handler.getRowsCount(), sheet.getNumberOfRows());
+        assertEquals(handler.getRow(0).size(), sheet.getNumberOfColumns());
+        assertEquals(new CellAddressRange(0, 3, 0, 4), sheet.getDimension());
+    }
+
+    @Test
+    void testScan() throws IOException {
+        assertEquals(new SheetInfo(0, null, null, 0, 0), probe(""));
+        assertEquals(new SheetInfo(0, null, new CellAddressRange(0, 0, 0, 0), 1, 1), probe("a"));
+        assertEquals(new SheetInfo(0, null, new CellAddressRange(0, 1, 0, 2), 2, 3), probe("a;b\r\n;;\r\n"));
+        // Separators and line terminators in quotes are ignored
+        assertEquals(new SheetInfo(0, null, new CellAddressRange(0, 1, 0, 1), 2, 2), probe("\"a;\"\"b\nc\";d\ne"));
+        // Empty lines are rows
+        assertEquals(new SheetInfo(0, null, new CellAddressRange(0, 2, 0, 1), 3, 2), probe("a;b\n\nc"));
+    }
+}
@@ -0,0 +1,506 @@
+package cdc.office.ss.excel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import cdc.office.ss.jfr.SharedStringsCacheEvent;
+import cdc.util.lang.Checks;
+import cdc.util.lang.ExceptionWrapper;
+
+/**
+ * Read-only implementation of {@link SharedStrings} that can handle huge numbers of unique strings.
+ * <p>
+ * The shared strings part is parsed once. Strings are encoded as UTF-8 bytes in a temporary file,
+ * which is memory-mapped, and an offset table is kept in memory. Heap usage is thus around 8 bytes per string,
+ * plus a cache of recently used strings.<br>
+ * Formatting and phonetic runs are ignored.
+ * <p>
+ * Cache hits and misses are counted. They are emitted in a {@link SharedStringsCacheEvent} when this object is closed.
+ * <p>
+ * This class is thread-safe. It must be closed to delete the temporary file.
+ *
+ * @author Damien Carbonne
+ */
+public final class CompactSharedStrings implements SharedStrings, Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(CompactSharedStrings.class);
+    private static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+    private static final byte[] EMPTY = "<sst/>".getBytes(StandardCharsets.UTF_8);
+
+    private final File file;
+    /** Offsets of strings in file. Offset at {@code size} is the file size. */
+    private final long[] offsets;
+    private final int size;
+    private final int count;
+    private final int uniqueCount;
+    /** Offsets of segments in file. */
+    private final long[] segmentOffsets;
+    /** Mapped segments. */
+    private ByteBuffer[] segments;
+    private final Entry[] cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static final class Entry {
+        final int index;
+        final String value;
+
+        Entry(int index,
+              String value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Creates a CompactSharedStrings from the content of a shared strings part.
+     *
+     * @param in The shared strings part content. It is not closed.
+     * @param cacheSize The number of cached strings. It is rounded to a power of 2. If 0, no cache is used.
+     * @throws IOException When an IO error occurs.
+     * @throws SAXException When {@code in} can not be parsed.
+     * @throws IllegalArgumentException When {@code in} is {@code null} or {@code cacheSize} is negative.
+     */
+    public CompactSharedStrings(InputStream in,
+                                int cacheSize)
+            throws IOException, SAXException {
+        this(in, cacheSize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    CompactSharedStrings(InputStream in,
+                         int cacheSize,
+                         long segmentSize)
+            throws IOException, SAXException {
+        Checks.isNotNull(in, "in");
+        Checks.isTrue(cacheSize >= 0, "Invalid cacheSize");
+
+        this.file = Files.createTempFile("cdc-office-sst", ".bin").toFile();
+        boolean done = false;
+        try {
+            final Writer writer = new Writer(file, segmentSize);
+            try (writer) {
+                final XMLReader reader = XMLHelper.newXMLReader();
+                reader.setContentHandler(writer);
+                reader.parse(new InputSource(in));
+            } catch (final ParserConfigurationException e) {
+                throw new SAXException("SAX parser appears to be broken - " + e.getMessage());
+            }
+            this.size = writer.size;
+            this.offsets = Arrays.copyOf(writer.offsets, size + 1);
+            this.offsets[size] = writer.position;
+            this.count = writer.count < 0 ? size : writer.count;
+            this.uniqueCount = writer.uniqueCount < 0 ? size : writer.uniqueCount;
+            this.segmentOffsets = Arrays.copyOf(writer.segmentOffsets, writer.segmentsCount);
+            this.segments = map(file, segmentOffsets, writer.position);
+            done = true;
+        } finally {
+            if (!done) {
+                delete(file);
+            }
+        }
+        this.cache = cacheSize == 0 ? null : new Entry[Integer.highestOneBit(Math.min(cacheSize, 1 << 24) * 2 - 1)];
+    }
+
+    /**
+     * Creates a CompactSharedStrings from the shared strings part of a package.
+     *
+     * @param pkg The package.
+     * @param cacheSize The number of cached strings. It is rounded to a power of 2. If 0, no cache is used.
+     * @return A new CompactSharedStrings. If {@code pkg} has no shared strings part, it is empty.
+     * @throws IOException When an IO error occurs.
+     * @throws SAXException When the shared strings part can not be parsed.
+     */
+    public static CompactSharedStrings load(OPCPackage pkg,
+                                            int cacheSize) throws IOException, SAXException {
+        Checks.isNotNull(pkg, "pkg");
+        try {
+            final List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (parts.isEmpty()) {
+                return new CompactSharedStrings(new ByteArrayInputStream(EMPTY), cacheSize);
+            } else {
+                try (final InputStream in = parts.get(0).getInputStream()) {
+                    return new CompactSharedStrings(in, cacheSize);
+                }
+            }
+        } catch (final IOException | SAXException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw ExceptionWrapper.wrap(e);
+        }
+    }
+
+    private static ByteBuffer[] map(File file,
+                                    long[] segmentOffsets,
+                                    long length) throws IOException {
+        final ByteBuffer[] result = new ByteBuffer[segmentOffsets.length];
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r");
+                final FileChannel channel = raf.getChannel()) {
+            for (int index = 0; index < segmentOffsets.length; index++) {
+                final long end = index + 1 < segmentOffsets.length ? segmentOffsets[index + 1] : length;
+                result[index] = channel.map(FileChannel.MapMode.READ_ONLY, segmentOffsets[index], end - segmentOffsets[index]);
+            }
+        }
+        return result;
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (final IOException e) {
+            // May happen on some platforms as long as mapped buffers are not garbage collected
+            LOGGER.debug("Failed to delete {}", file);
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * @return The number of strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of bytes used to store strings.
+     */
+    public long getStoreSize() {
+        return offsets[size];
+    }
+
+    /**
+     * Returns the string at an index.
+     *
+     * @param index The index.
+     * @return The string at {@code index}.
+     * @throws IndexOutOfBoundsException When {@code index} is invalid.
+     * @throws IllegalStateException When this CompactSharedStrings is closed.
+     */
+    public String getString(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid shared string index: " + index);
+        }
+        if (cache == null) {
+            misses.increment();
+            return read(index);
+        }
+        final int slot = index & (cache.length - 1);
+        final Entry entry = cache[slot];
+        if (entry != null && entry.index == index) {
+            hits.increment();
+            return entry.value;
+        } else {
+            misses.increment();
+            final String value = read(index);
+            cache[slot] = new Entry(index, value);
+            return value;
+        }
+    }
+
+    private String read(int index) {
+        final ByteBuffer[] s = segments;
+        if (s == null) {
+            throw new IllegalStateException("Closed");
+        }
+        final long offset = offsets[index];
+        int segment = Arrays.binarySearch(segmentOffsets, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        final byte[] bytes = new byte[(int) (offsets[index + 1] - offset)];
+        final ByteBuffer buffer = s[segment].duplicate();
+        buffer.position((int) (offset - segmentOffsets[segment]));
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new SharedString(getString(idx));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    @Override
+    public void close() {
+        if (segments != null) {
+            segments = null;
+            LOGGER.debug("Closed {} strings, {} bytes, cache hits: {} misses: {}",
+                         size,
+                         getStoreSize(),
+                         getCacheHits(),
+                         getCacheMisses());
+            final SharedStringsCacheEvent event = new SharedStringsCacheEvent();
+            if (event.shouldCommit()) {
+                event.uniqueCount = size;
+                event.storeSize = getStoreSize();
+                event.cacheSize = cache == null ? 0 : cache.length;
+                event.cacheHits = getCacheHits();
+                event.cacheMisses = getCacheMisses();
+                event.commit();
+            }
+            delete(file);
+        }
+    }
+
+    /**
+     * Decodes {@code _xHHHH_} escape sequences.
+     *
+     * @param s The string.
+     * @return The decoded string.
+     */
+    static String decode(String s) {
+        int index = s.indexOf("_x");
+        if (index < 0) {
+            return s;
+        }
+        final StringBuilder builder = new StringBuilder(s.length());
+        int from = 0;
+        while (index >= 0) {
+            if (index + 7 <= s.length() && s.charAt(index + 6) == '_' && isHex(s, index + 2, index + 6)) {
+                builder.append(s, from, index);
+                builder.append((char) Integer.parseInt(s.substring(index + 2, index + 6), 16));
+                from = index + 7;
+                index = s.indexOf("_x", from);
+            } else {
+                index = s.indexOf("_x", index + 1);
+            }
+        }
+        builder.append(s, from, s.length());
+        return builder.toString();
+    }
+
+    private static boolean isHex(String s,
+                                 int from,
+                                 int to) {
+        for (int index = from; index < to; index++) {
+            if (Character.digit(s.charAt(index), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * SAX handler that writes strings to a file.
+     */
+    private static final class Writer extends DefaultHandler implements Closeable {
+        private final OutputStream out;
+        private final long segmentSize;
+        private final StringBuilder text = new StringBuilder();
+        private long[] offsets = new long[1024];
+        private int size = 0;
+        private long position = 0L;
+        private long[] segmentOffsets = new long[1];
+        private int segmentsCount = 1;
+        private int count = -1;
+        private int uniqueCount = -1;
+        private boolean inT = false;
+        /** Depth of phonetic runs. */
+        private int rph = 0;
+
+        Writer(File file,
+               long segmentSize) throws IOException {
+            this.out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+            this.segmentSize = segmentSize;
+        }
+
+        private static String getName(String localName,
+                                      String qName) {
+            return localName == null || localName.isEmpty() ? qName : localName;
+        }
+
+        private static int parseCount(String s) {
+            try {
+                return s == null ? -1 : Integer.parseInt(s);
+            } catch (final NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private void write(String s) throws IOException {
+            final byte[] bytes = decode(s).getBytes(StandardCharsets.UTF_8);
+            if (position + bytes.length > segmentOffsets[segmentsCount - 1] + segmentSize) {
+                // Start a new segment, so that a string never crosses segments
+                if (segmentsCount == segmentOffsets.length) {
+                    segmentOffsets = Arrays.copyOf(segmentOffsets, segmentsCount * 2);
+                }
+                segmentOffsets[segmentsCount] = position;
+                segmentsCount++;
+            }
+            if (size + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size] = position;
+            size++;
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        @Override
+        public void startElement(String uri,
+                                 String localName,
+                                 String qName,
+                                 Attributes attributes) {
+            final String name = getName(localName, qName);
+            if ("si".equals(name)) {
+                text.setLength(0);
+            } else if ("t".equals(name)) {
+                inT = true;
+            } else if ("rPh".equals(name)) {
+                rph++;
+            } else if ("sst".equals(name)) {
+                count = parseCount(attributes.getValue("count"));
+                uniqueCount = parseCount(attributes.getValue("uniqueCount"));
+            }
+        }
+
+        @Override
+        public void endElement(String uri,
+                               String localName,
+                               String qName) throws SAXException {
+            final String name = getName(localName, qName);
+            if ("si".equals(name)) {
+                try {
+                    write(text.toString());
+                } catch (final IOException e) {
+                    throw new SAXException(e);
+                }
+            } else if ("t".equals(name)) {
+                inT = false;
+            } else if ("rPh".equals(name)) {
+                rph--;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch,
+                               int start,
+                               int length) {
+            if (inT && rph == 0) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Read-only RichTextString without formatting.
+     */
+    private static final class SharedString implements RichTextString {
+        private final String value;
+
+        SharedString(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public void applyFont(int startIndex,
+                              int endIndex,
+                              short fontIndex) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void applyFont(int startIndex,
+                              int endIndex,
+                              Font font) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void applyFont(Font font) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void applyFont(short fontIndex) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clearFormatting() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getString() {
+            return value;
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public int numFormattingRuns() {
+            return 0;
+        }
+
+        @Override
+        public int getIndexOfFormattingRun(int index) {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
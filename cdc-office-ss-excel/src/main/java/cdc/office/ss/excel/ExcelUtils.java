@@ -4,10 +4,14 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -18,6 +22,7 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.jfr.WorkbookOpenEvent;
 import cdc.util.lang.Checks;
 import cdc.util.lang.UnexpectedValueException;
 
@@ -65,6 +70,53 @@ public final class ExcelUtils {
         }
     }
 
+    /**
+     * Opens an {@link OPCPackage} in read mode and emits a {@link WorkbookOpenEvent}.
+     *
+     * @param file The file.
+     * @return The opened package.
+     * @throws InvalidFormatException When {@code file} is invalid.
+     */
+    public static OPCPackage openPackage(File file) throws InvalidFormatException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+        event.end();
+        if (event.shouldCommit()) {
+            final WorkbookKind kind = WorkbookKind.from(file);
+            event.systemId = file.getPath();
+            event.kind = kind == null ? null : kind.name();
+            event.size = file.length();
+            event.commit();
+        }
+        return pkg;
+    }
+
+    /**
+     * Opens an {@link OPCPackage} and emits a {@link WorkbookOpenEvent}.
+     *
+     * @param in The input stream.
+     * @param systemId The system id.
+     * @param kind The workbook kind.
+     * @return The opened package.
+     * @throws InvalidFormatException When {@code in} is invalid.
+     * @throws IOException When an IO error occurs.
+     */
+    public static OPCPackage openPackage(InputStream in,
+                                         String systemId,
+                                         WorkbookKind kind) throws InvalidFormatException, IOException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final OPCPackage pkg = OPCPackage.open(in);
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.kind = kind == null ? null : kind.name();
+            event.commit();
+        }
+        return pkg;
+    }
+
     public static void save(Workbook workbook,
                             File file) throws IOException {
         try (final FileOutputStream fos = new FileOutputStream(file);
@@ -40,6 +40,8 @@ import cdc.office.ss.WorkbookKind;
 import cdc.office.ss.WorkbookWriter;
 import cdc.office.ss.WorkbookWriterFactory;
 import cdc.office.ss.WorkbookWriterFeatures;
+import cdc.office.ss.jfr.AutoSizeEvent;
+import cdc.office.ss.jfr.SheetWriteEvent;
 import cdc.office.tables.TableSection;
 import cdc.util.lang.DateUtils;
 import cdc.util.lang.UnexpectedValueException;
@@ -70,6 +72,8 @@ public class ExcelWorkbookWriter implements WorkbookWriter<ExcelWorkbookWriter>
     private int columnIndex = -1;
     /** Max column index in current sheet. */
     private int maxColumnIndex = -1;
+    /** JFR event of current sheet. */
+    private SheetWriteEvent sheetEvent = null;
 
     private final CellStyle styleText;
     private final CellStyle styleInt;
@@ -198,17 +202,45 @@ public class ExcelWorkbookWriter implements WorkbookWriter<ExcelWorkbookWriter>
 
     private void autosizeColumns() {
         if (features.isEnabled(WorkbookWriterFeatures.Feature.AUTO_SIZE_COLUMNS) && sheet != null) {
+            final AutoSizeEvent event = new AutoSizeEvent();
+            event.begin();
             for (int column = 0; column <= maxColumnIndex; column++) {
                 sheet.autoSizeColumn(column);
             }
+            event.end();
+            if (event.shouldCommit()) {
+                event.sheet = sheet.getSheetName();
+                event.columns = maxColumnIndex + 1L;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Ends current sheet: autosizes its columns and emits its JFR event.
+     */
+    private void endSheet() {
+        autosizeColumns();
+        if (sheetEvent != null) {
+            sheetEvent.end();
+            if (sheetEvent.shouldCommit()) {
+                sheetEvent.writer = getClass().getSimpleName();
+                sheetEvent.sheet = sheet.getSheetName();
+                sheetEvent.rows = rowIndex + 1L;
+                sheetEvent.columns = maxColumnIndex + 1L;
+                sheetEvent.commit();
+            }
+            sheetEvent = null;
         }
     }
 
     @Override
     public ExcelWorkbookWriter beginSheet(String name) {
         // autosize columns of previous sheet
-        autosizeColumns();
+        endSheet();
 
+        sheetEvent = new SheetWriteEvent();
+        sheetEvent.begin();
         sheet = workbook.createSheet(name);
         if (features.isEnabled(WorkbookWriterFeatures.Feature.AUTO_SIZE_COLUMNS)
                 && sheet instanceof SXSSFSheet) {
@@ -548,7 +580,7 @@ public class ExcelWorkbookWriter implements WorkbookWriter<ExcelWorkbookWriter>
     @Override
     public void close() throws IOException {
         // autosize columns of last sheet
-        autosizeColumns();
+        endSheet();
 
         if (file != null) {
             ExcelUtils.save(workbook, file);
@@ -0,0 +1,540 @@
+package cdc.office.ss.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.SheetParserFactory.Feature;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.TypedRow;
+import cdc.office.tables.jfr.JfrTableMetrics;
+import cdc.util.lang.Checks;
+
+/**
+ * Lightweight implementation of SheetParser for Excel files, that does not use POI package and object models.
+ * <p>
+ * It can be used with xlsx/xlsm formats.<br>
+ * Zip entries are read with Commons Compress, and XML parts with StAX.
+ * Produced values are those of {@link PoiStreamSheetParser}: numbers are formatted with a {@link DataFormatter}
+ * and the number format of their style. Cached values of formulas are used.
+ * <p>
+ * If {@link Feature#TYPED_ROWS} is enabled, rows are {@link TypedRow TypedRows}, whose numbers and dates
+ * are only formatted when their string value is needed.
+ * <p>
+ * If a {@link SheetParserFactory#getRegion() region} is set, rows before it and cells outside it are skipped
+ * without decoding them, and parsing of a sheet stops at the first row after it.
+ *
+ * @author Damien Carbonne
+ */
+public class NativeSheetParser implements SheetParser {
+    private static final String PARSER = "Native";
+    private final boolean disableVulnerabilityDetections;
+    private final int sharedStringsCacheSize;
+    private final boolean typedRows;
+    private final CellAddressRange region;
+
+    private static final String FILE = "file";
+    private static final String HANDLER = "handler";
+    private static final String IN = "in";
+    private static final String KIND = "kind";
+    private static final String SHEET_NAME = "sheetName";
+
+    public NativeSheetParser() {
+        this.disableVulnerabilityDetections = false;
+        this.sharedStringsCacheSize = -1;
+        this.typedRows = false;
+        this.region = null;
+    }
+
+    public NativeSheetParser(SheetParserFactory factory,
+                             WorkbookKind kind) {
+        this.disableVulnerabilityDetections = factory.isEnabled(Feature.DISABLE_VULNERABILITY_PROTECTIONS);
+        this.sharedStringsCacheSize = factory.isEnabled(Feature.COMPACT_SHARED_STRINGS)
+                ? factory.getSharedStringsCacheSize()
+                : -1;
+        this.typedRows = factory.isEnabled(Feature.TYPED_ROWS);
+        this.region = factory.getRegion();
+    }
+
+    private NativeWorkbook open(File file) throws IOException {
+        return NativeWorkbook.open(file, !disableVulnerabilityDetections, sharedStringsCacheSize);
+    }
+
+    private NativeWorkbook open(InputStream in,
+                                String systemId,
+                                WorkbookKind kind) throws IOException {
+        return NativeWorkbook.open(in, systemId, kind, !disableVulnerabilityDetections, sharedStringsCacheSize);
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(file)) {
+            parse(file.getPath(), workbook, headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isNotNull(kind, KIND);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(in, systemId, kind)) {
+            parse(systemId, workbook, headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(sheetName, SHEET_NAME);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(file)) {
+            parse(file.getPath(), workbook, getSheetIndex(workbook, sheetName), headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(file)) {
+            parse(file.getPath(), workbook, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isNotNull(kind, KIND);
+        Checks.isNotNull(sheetName, SHEET_NAME);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(in, systemId, kind)) {
+            parse(systemId, workbook, getSheetIndex(workbook, sheetName), headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isNotNull(kind, KIND);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (NativeWorkbook workbook = open(in, systemId, kind)) {
+            parse(systemId, workbook, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
+        }
+    }
+
+    private static int getSheetIndex(NativeWorkbook workbook,
+                                     String sheetName) {
+        final int index = workbook.getSheetNames().indexOf(sheetName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid sheet name: " + sheetName);
+        }
+        return index;
+    }
+
+    private void parse(String systemId,
+                       NativeWorkbook workbook,
+                       int headers,
+                       TablesHandler handler) throws IOException {
+        handler.processBeginTables(systemId);
+        for (int index = 0; index < workbook.getSheetNames().size(); index++) {
+            parseSheet(workbook, index, headers, handler);
+        }
+        handler.processEndTables(systemId);
+    }
+
+    private void parse(String systemId,
+                       NativeWorkbook workbook,
+                       int sheetIndex,
+                       int headers,
+                       TableHandler handler) throws IOException {
+        if (sheetIndex < 0 || sheetIndex >= workbook.getSheetNames().size()) {
+            throw new IllegalArgumentException("Invalid sheet index: " + sheetIndex);
+        }
+        TablesHandler.processBeginTables(handler, systemId);
+        parseSheet(workbook, sheetIndex, headers, handler);
+        TablesHandler.processEndTables(handler, systemId);
+    }
+
+    private void parseSheet(NativeWorkbook workbook,
+                            int sheetIndex,
+                            int headers,
+                            TableHandler handler) throws IOException {
+        final String name = workbook.getSheetNames().get(sheetIndex);
+        try (final InputStream in = SheetDimension.markable(workbook.openSheet(sheetIndex))) {
+            handler.processBeginTable(name, SheetDimension.estimateRows(in, region));
+            new SheetReader(workbook, headers, handler, typedRows, region).read(in);
+            handler.processEndTable(name);
+        } catch (final XMLStreamException e) {
+            throw new IOException("Failed to parse sheet " + name, e);
+        }
+    }
+
+    /**
+     * Reader of a sheet part.
+     */
+    private static final class SheetReader {
+        private final NativeWorkbook workbook;
+        private final int headers;
+        private final TableHandler handler;
+        private final DataFormatter formatter = new DataFormatter();
+        private final Row.Builder row = Row.builder();
+        /** Builder of typed rows, or {@code null}. */
+        private final TypedRow.Builder typedRow;
+        private final RowLocation.Builder location = RowLocation.builder();
+        private final StringBuilder value = new StringBuilder();
+        /** Region of the sheet that must be read, or {@code null}. */
+        private final CellAddressRange region;
+        private final int firstRow;
+        private final int firstColumn;
+        private int previousRowIndex;
+        private int nextRowIndex = 0;
+        /** Index of last added cell, relatively to first column. */
+        private int currentCol = -1;
+        /** Absolute index of next cell, used when its reference is missing. */
+        private int nextCol = 0;
+        private boolean active = true;
+
+        // State of current cell
+        /** Index of current cell, relatively to first column. */
+        private int col;
+        private String type;
+        private int styleIndex;
+        private boolean inValue = false;
+        private boolean inInlineString = false;
+        private boolean hasValue = false;
+        /** Depth of phonetic runs. */
+        private int rph = 0;
+
+        SheetReader(NativeWorkbook workbook,
+                    int headers,
+                    TableHandler handler,
+                    boolean typed,
+                    CellAddressRange region) {
+            this.workbook = workbook;
+            this.headers = headers;
+            this.handler = handler;
+            this.region = region;
+            this.firstRow = region == null ? 0 : Math.max(0, region.getFirstRow());
+            this.firstColumn = region == null ? 0 : Math.max(0, region.getFirstColumn());
+            this.previousRowIndex = firstRow - 1;
+            this.typedRow = typed
+                    ? TypedRow.builder(newFormatter(workbook.getFormatIndices(), workbook.getFormatStrings()))
+                    : null;
+        }
+
+        /**
+         * Creates the formatter of typed rows.
+         * <p>
+         * Typed rows may be kept after parsing: the formatter only references format arrays,
+         * and not the workbook and its shared strings.
+         *
+         * @param formatIndices The format index of each style.
+         * @param formatStrings The format string of each style.
+         * @return A new formatter.
+         */
+        private static TypedRow.Formatter newFormatter(short[] formatIndices,
+                                                       String[] formatStrings) {
+            final DataFormatter formatter = new DataFormatter();
+            return (type,
+                    value,
+                    style) -> formatter.formatRawCellContents(value,
+                                                              style < formatIndices.length ? formatIndices[style] : -1,
+                                                              style < formatStrings.length ? formatStrings[style] : null);
+        }
+
+        /**
+         * @param ref The cell reference.
+         * @return The column index of {@code ref}.
+         */
+        private static int getColumn(String ref) {
+            int column = 0;
+            for (int index = 0; index < ref.length(); index++) {
+                final char c = ref.charAt(index);
+                if (c >= 'A' && c <= 'Z') {
+                    column = column * 26 + (c - 'A' + 1);
+                } else if (c != '$') {
+                    break;
+                }
+            }
+            return column - 1;
+        }
+
+        /**
+         * Skips current element and its content.
+         *
+         * @param reader The reader, positioned on a start element.
+         * @throws XMLStreamException When a parsing error occurs.
+         */
+        private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        void read(InputStream in) throws IOException, XMLStreamException {
+            final XMLStreamReader reader = NativeWorkbook.newReader(in);
+            try {
+                while (active && reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        startElement(reader);
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        endElement(reader.getLocalName());
+                    } else if (inValue && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                            || event == XMLStreamConstants.SPACE)) {
+                        value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) throws XMLStreamException {
+            final String name = reader.getLocalName();
+            switch (name) {
+            case "row":
+                final String r = NativeWorkbook.getAttribute(reader, "r");
+                final int rowIndex = r == null ? nextRowIndex : Integer.parseInt(r) - 1;
+                nextRowIndex = rowIndex + 1;
+                nextCol = 0;
+                if (region != null && region.isAfterLastRow(rowIndex)) {
+                    active = false;
+                } else if (region != null && !region.containsRow(rowIndex)) {
+                    skipElement(reader);
+                } else {
+                    startRow(rowIndex);
+                }
+                break;
+            case "c":
+                final String ref = NativeWorkbook.getAttribute(reader, "r");
+                final int column = ref == null ? nextCol : getColumn(ref);
+                nextCol = column + 1;
+                if (region != null && !region.containsColumn(column)) {
+                    skipElement(reader);
+                    break;
+                }
+                col = column - firstColumn;
+                type = NativeWorkbook.getAttribute(reader, "t");
+                final String s = NativeWorkbook.getAttribute(reader, "s");
+                styleIndex = s == null ? 0 : Integer.parseInt(s);
+                value.setLength(0);
+                hasValue = false;
+                break;
+            case "v":
+                inValue = true;
+                break;
+            case "is":
+                inInlineString = true;
+                break;
+            case "t":
+                inValue = inInlineString && rph == 0;
+                break;
+            case "rPh":
+                rph++;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void endElement(String name) {
+            switch (name) {
+            case "row":
+                endRow();
+                break;
+            case "c":
+                if (hasValue) {
+                    if (typedRow == null) {
+                        cell(format());
+                    } else {
+                        typedCell();
+                    }
+                }
+                break;
+            case "v":
+                inValue = false;
+                hasValue = true;
+                break;
+            case "is":
+                inInlineString = false;
+                hasValue = true;
+                break;
+            case "t":
+                inValue = false;
+                break;
+            case "rPh":
+                rph--;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private String format() {
+            final String text = value.toString();
+            if (type == null || "n".equals(type)) {
+                final String formatString = workbook.getFormatString(styleIndex);
+                if (formatString != null && !text.isEmpty()) {
+                    return formatter.formatRawCellContents(Double.parseDouble(text),
+                                                           workbook.getFormatIndex(styleIndex),
+                                                           formatString);
+                } else {
+                    return text;
+                }
+            }
+            switch (type) {
+            case "b":
+                return text.isEmpty() || text.charAt(0) == '0' ? "FALSE" : "TRUE";
+            case "e":
+                return "ERROR:" + text;
+            case "s":
+                return workbook.getSharedString(Integer.parseInt(text.trim()));
+            case "inlineStr":
+                return CompactSharedStrings.decode(text);
+            default:
+                return text;
+            }
+        }
+
+        /**
+         * Adds a typed cell to current row.
+         * <p>
+         * Numbers and dates are formatted lazily, when their style has a format.
+         */
+        private void typedCell() {
+            addMissingCells();
+            final String text = value.toString();
+            if (type == null || "n".equals(type)) {
+                if (text.isEmpty()) {
+                    typedRow.addString(text);
+                } else if (workbook.getFormatString(styleIndex) == null) {
+                    typedRow.addNumber(Double.parseDouble(text), text);
+                } else if (workbook.isDateFormat(styleIndex)) {
+                    typedRow.addDate(Double.parseDouble(text), styleIndex);
+                } else {
+                    typedRow.addNumber(Double.parseDouble(text), styleIndex);
+                }
+                return;
+            }
+            switch (type) {
+            case "b":
+                typedRow.addBoolean(!text.isEmpty() && text.charAt(0) != '0');
+                break;
+            case "e":
+                typedRow.addError("ERROR:" + text);
+                break;
+            case "s":
+                typedRow.addString(workbook.getSharedString(Integer.parseInt(text.trim())));
+                break;
+            case "inlineStr":
+                typedRow.addString(CompactSharedStrings.decode(text));
+                break;
+            default:
+                typedRow.addString(text);
+                break;
+            }
+        }
+
+        private void clearRow() {
+            if (typedRow == null) {
+                row.clear();
+            } else {
+                typedRow.clear();
+            }
+        }
+
+        private Row buildRow() {
+            return typedRow == null ? row.build() : typedRow.build();
+        }
+
+        private void startRow(int rowIndex) {
+            clearRow();
+            for (int index = previousRowIndex; active && index < rowIndex - 1; index++) {
+                location.incrementNumbers(headers);
+                active = TableHandler.processRow(handler, buildRow(), location.build()).isContinue();
+            }
+            location.incrementNumbers(headers);
+            previousRowIndex = rowIndex;
+            currentCol = -1;
+        }
+
+        private void endRow() {
+            if (active) {
+                active = TableHandler.processRow(handler, buildRow(), location.build()).isContinue();
+            }
+        }
+
+        private void addMissingCells() {
+            for (int index = currentCol + 1; index < col; index++) {
+                if (typedRow == null) {
+                    row.addValue(null);
+                } else {
+                    typedRow.addEmpty();
+                }
+            }
+            currentCol = col;
+        }
+
+        private void cell(String content) {
+            addMissingCells();
+            row.addValue(content);
+        }
+    }
+}
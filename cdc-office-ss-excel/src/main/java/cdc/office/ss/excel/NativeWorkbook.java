@@ -0,0 +1,596 @@
+package cdc.office.ss.excel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.xml.sax.SAXException;
+
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.jfr.SharedStringsLoadEvent;
+import cdc.office.ss.jfr.WorkbookOpenEvent;
+
+/**
+ * Read-only access to the parts of an xlsx or xlsm workbook that are needed to extract cell values.
+ * <p>
+ * Zip entries are read with Commons Compress and XML parts with StAX. No POI object model is built:
+ * only sheet names, sheet part names, shared strings and number formats of cell styles are loaded.
+ *
+ * @author Damien Carbonne
+ */
+final class NativeWorkbook implements Closeable {
+    private static final String REL_TYPE_OFFICE_DOCUMENT = "/officeDocument";
+    private static final String REL_TYPE_WORKSHEET = "/worksheet";
+    private static final String REL_TYPE_SHARED_STRINGS = "/sharedStrings";
+    private static final String REL_TYPE_STYLES = "/styles";
+    /** Entries smaller than this are not checked against zip bombs. */
+    private static final long GRACE_ENTRY_SIZE = 100L * 1024L;
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private final Source source;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<String> sheetParts = new ArrayList<>();
+    private final List<String> strings = new ArrayList<>();
+    private CompactSharedStrings compactStrings = null;
+    /** Format index of each style, indexed by style index. */
+    private short[] formatIndices = new short[0];
+    /** Format string of each style, indexed by style index. */
+    private String[] formatStrings = new String[0];
+    /** {@code true} for styles that have a date format, indexed by style index. */
+    private boolean[] dateFormats = new boolean[0];
+
+    private NativeWorkbook(Source source) {
+        this.source = source;
+    }
+
+    private static XMLInputFactory newFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Opens a workbook file.
+     *
+     * @param file The file.
+     * @param checkInflateRatio If {@code true}, the inflate ratio of entries is checked to detect zip bombs.
+     * @param sharedStringsCacheSize The cache size of compact shared strings, or -1 to load shared strings in memory.
+     * @return The opened workbook.
+     * @throws IOException When an IO error occurs or {@code file} is not a valid workbook.
+     */
+    static NativeWorkbook open(File file,
+                               boolean checkInflateRatio,
+                               int sharedStringsCacheSize) throws IOException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final NativeWorkbook workbook = new NativeWorkbook(new FileSource(file, checkInflateRatio));
+        workbook.load(file.getPath(), sharedStringsCacheSize);
+        event.end();
+        if (event.shouldCommit()) {
+            final WorkbookKind kind = WorkbookKind.from(file);
+            event.systemId = file.getPath();
+            event.kind = kind == null ? null : kind.name();
+            event.size = file.length();
+            event.commit();
+        }
+        return workbook;
+    }
+
+    /**
+     * Opens a workbook stream.
+     * <p>
+     * All entries are loaded in memory.
+     *
+     * @param in The input stream. It is not closed.
+     * @param systemId The system id.
+     * @param kind The workbook kind.
+     * @param checkInflateRatio If {@code true}, the inflate ratio of entries is checked to detect zip bombs.
+     * @param sharedStringsCacheSize The cache size of compact shared strings, or -1 to load shared strings in memory.
+     * @return The opened workbook.
+     * @throws IOException When an IO error occurs or {@code in} is not a valid workbook.
+     */
+    static NativeWorkbook open(InputStream in,
+                               String systemId,
+                               WorkbookKind kind,
+                               boolean checkInflateRatio,
+                               int sharedStringsCacheSize) throws IOException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final NativeWorkbook workbook = new NativeWorkbook(new StreamSource(in, checkInflateRatio));
+        workbook.load(systemId, sharedStringsCacheSize);
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.kind = kind == null ? null : kind.name();
+            event.commit();
+        }
+        return workbook;
+    }
+
+    /**
+     * @return The names of sheets, in workbook order.
+     */
+    List<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    /**
+     * Opens the content of a sheet.
+     *
+     * @param index The sheet index.
+     * @return The content of sheet at {@code index}.
+     * @throws IOException When an IO error occurs.
+     */
+    InputStream openSheet(int index) throws IOException {
+        final InputStream in = source.open(sheetParts.get(index));
+        if (in == null) {
+            throw new IOException("Missing sheet part: " + sheetParts.get(index));
+        }
+        return in;
+    }
+
+    /**
+     * @param index The index.
+     * @return The shared string at {@code index}.
+     * @throws IndexOutOfBoundsException When {@code index} is invalid.
+     */
+    String getSharedString(int index) {
+        return compactStrings == null ? strings.get(index) : compactStrings.getString(index);
+    }
+
+    /**
+     * @return The number of cell styles.
+     */
+    int getNumCellStyles() {
+        return formatIndices.length;
+    }
+
+    /**
+     * @return The format index of each style, indexed by style index. It must not be modified.
+     */
+    short[] getFormatIndices() {
+        return formatIndices;
+    }
+
+    /**
+     * @return The format string of each style, indexed by style index. It must not be modified.
+     */
+    String[] getFormatStrings() {
+        return formatStrings;
+    }
+
+    /**
+     * @param styleIndex The style index.
+     * @return The format index of style at {@code styleIndex}, or -1.
+     */
+    short getFormatIndex(int styleIndex) {
+        return styleIndex < formatIndices.length ? formatIndices[styleIndex] : -1;
+    }
+
+    /**
+     * @param styleIndex The style index.
+     * @return The format string of style at {@code styleIndex}, or {@code null}.
+     */
+    String getFormatString(int styleIndex) {
+        return styleIndex < formatStrings.length ? formatStrings[styleIndex] : null;
+    }
+
+    /**
+     * @param styleIndex The style index.
+     * @return {@code true} if style at {@code styleIndex} has a date format.
+     */
+    boolean isDateFormat(int styleIndex) {
+        return styleIndex < dateFormats.length && dateFormats[styleIndex];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactStrings != null) {
+            compactStrings.close();
+        }
+        source.close();
+    }
+
+    /**
+     * Creates an XML reader.
+     *
+     * @param in The XML content.
+     * @return A new XMLStreamReader.
+     * @throws IOException When the reader can not be created.
+     */
+    static XMLStreamReader newReader(InputStream in) throws IOException {
+        try {
+            return FACTORY.createXMLStreamReader(in);
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param reader The reader.
+     * @param localName The attribute local name.
+     * @return The value of first attribute named {@code localName}, in any namespace, or {@code null}.
+     */
+    static String getAttribute(XMLStreamReader reader,
+                               String localName) {
+        for (int index = 0; index < reader.getAttributeCount(); index++) {
+            if (localName.equals(reader.getAttributeLocalName(index))) {
+                return reader.getAttributeValue(index);
+            }
+        }
+        return null;
+    }
+
+    private void load(String systemId,
+                      int sharedStringsCacheSize) throws IOException {
+        boolean done = false;
+        try {
+            final Map<String, String> rootRels = loadRelationships("");
+            String workbookPart = null;
+            for (final Map.Entry<String, String> entry : rootRels.entrySet()) {
+                if (entry.getKey().endsWith(REL_TYPE_OFFICE_DOCUMENT)) {
+                    workbookPart = entry.getValue();
+                }
+            }
+            if (workbookPart == null) {
+                workbookPart = "xl/workbook.xml";
+            }
+
+            final Map<String, String> workbookRels = new HashMap<>();
+            String sharedStringsPart = null;
+            String stylesPart = null;
+            try (final InputStream in = source.open(relsPart(workbookPart))) {
+                if (in != null) {
+                    final XMLStreamReader reader = newReader(in);
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT
+                                && "Relationship".equals(reader.getLocalName())) {
+                            final String type = getAttribute(reader, "Type");
+                            final String target = resolve(workbookPart, getAttribute(reader, "Target"));
+                            workbookRels.put(getAttribute(reader, "Id"), target);
+                            if (type != null && type.endsWith(REL_TYPE_SHARED_STRINGS)) {
+                                sharedStringsPart = target;
+                            } else if (type != null && type.endsWith(REL_TYPE_STYLES)) {
+                                stylesPart = target;
+                            }
+                        }
+                    }
+                }
+            }
+
+            loadSheets(workbookPart, workbookRels);
+            loadSharedStrings(systemId, sharedStringsPart, sharedStringsCacheSize);
+            loadStyles(stylesPart);
+            done = true;
+        } catch (final XMLStreamException | SAXException e) {
+            throw new IOException("Invalid workbook " + systemId, e);
+        } finally {
+            if (!done) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * @param part The part name.
+     * @return The name of the relationships part of {@code part}.
+     */
+    static String relsPart(String part) {
+        final int pos = part.lastIndexOf('/');
+        return part.substring(0, pos + 1) + "_rels/" + part.substring(pos + 1) + ".rels";
+    }
+
+    /**
+     * Resolves the target of a relationship.
+     *
+     * @param sourcePart The source part name.
+     * @param target The target, relative to {@code sourcePart} directory, or absolute.
+     * @return The target part name.
+     */
+    static String resolve(String sourcePart,
+                          String target) {
+        if (target.startsWith("/")) {
+            return target.substring(1);
+        }
+        final List<String> segments = new ArrayList<>();
+        final String[] base = sourcePart.split("/");
+        for (int index = 0; index < base.length - 1; index++) {
+            segments.add(base[index]);
+        }
+        for (final String segment : target.split("/")) {
+            if ("..".equals(segment)) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else if (!".".equals(segment) && !segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * Loads the package relationships.
+     *
+     * @param part The source part name.
+     * @return A map from relationship types to target part names.
+     */
+    private Map<String, String> loadRelationships(String part) throws IOException, XMLStreamException {
+        final Map<String, String> result = new HashMap<>();
+        try (final InputStream in = source.open(part.isEmpty() ? "_rels/.rels" : relsPart(part))) {
+            if (in != null) {
+                final XMLStreamReader reader = newReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && "Relationship".equals(reader.getLocalName())) {
+                        result.put(getAttribute(reader, "Type"), resolve(part, getAttribute(reader, "Target")));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void loadSheets(String workbookPart,
+                            Map<String, String> workbookRels) throws IOException, XMLStreamException {
+        try (final InputStream in = source.open(workbookPart)) {
+            if (in == null) {
+                throw new IOException("Missing workbook part: " + workbookPart);
+            }
+            final XMLStreamReader reader = newReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                    final String part = workbookRels.get(getAttribute(reader, "id"));
+                    if (part != null) {
+                        sheetNames.add(getAttribute(reader, "name"));
+                        sheetParts.add(part);
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadSharedStrings(String systemId,
+                                   String part,
+                                   int cacheSize) throws IOException, XMLStreamException, SAXException {
+        if (part == null) {
+            return;
+        }
+        final SharedStringsLoadEvent event = new SharedStringsLoadEvent();
+        event.begin();
+        try (final InputStream in = source.open(part)) {
+            if (in != null) {
+                if (cacheSize >= 0) {
+                    compactStrings = new CompactSharedStrings(in, cacheSize);
+                } else {
+                    loadSharedStrings(in);
+                }
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.uniqueCount = compactStrings == null ? strings.size() : compactStrings.size();
+            event.commit();
+        }
+    }
+
+    private void loadSharedStrings(InputStream in) throws IOException, XMLStreamException {
+        final XMLStreamReader reader = newReader(in);
+        final StringBuilder text = new StringBuilder();
+        boolean inT = false;
+        int rph = 0;
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final String name = reader.getLocalName();
+                if ("si".equals(name)) {
+                    text.setLength(0);
+                } else if ("t".equals(name)) {
+                    inT = true;
+                } else if ("rPh".equals(name)) {
+                    rph++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                final String name = reader.getLocalName();
+                if ("si".equals(name)) {
+                    strings.add(CompactSharedStrings.decode(text.toString()));
+                } else if ("t".equals(name)) {
+                    inT = false;
+                } else if ("rPh".equals(name)) {
+                    rph--;
+                }
+            } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) && inT && rph == 0) {
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    private void loadStyles(String part) throws IOException, XMLStreamException {
+        if (part == null) {
+            return;
+        }
+        try (final InputStream in = source.open(part)) {
+            if (in == null) {
+                return;
+            }
+            final Map<Integer, String> numFmts = new HashMap<>();
+            final List<Integer> xfs = new ArrayList<>();
+            boolean inCellXfs = false;
+            final XMLStreamReader reader = newReader(in);
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    if ("numFmt".equals(name)) {
+                        numFmts.put(Integer.valueOf(getAttribute(reader, "numFmtId")), getAttribute(reader, "formatCode"));
+                    } else if ("cellXfs".equals(name)) {
+                        inCellXfs = true;
+                    } else if (inCellXfs && "xf".equals(name)) {
+                        final String id = getAttribute(reader, "numFmtId");
+                        xfs.add(id == null ? 0 : Integer.parseInt(id));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(reader.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+            formatIndices = new short[xfs.size()];
+            formatStrings = new String[xfs.size()];
+            dateFormats = new boolean[xfs.size()];
+            for (int index = 0; index < xfs.size(); index++) {
+                final int id = xfs.get(index);
+                formatIndices[index] = (short) id;
+                final String format = numFmts.get(id);
+                formatStrings[index] = format == null ? BuiltinFormats.getBuiltinFormat(id) : format;
+                dateFormats[index] = formatStrings[index] != null && DateUtil.isADateFormat(id, formatStrings[index]);
+            }
+        }
+    }
+
+    /**
+     * Access to zip entries.
+     */
+    interface Source extends Closeable {
+        /**
+         * @param name The entry name.
+         * @return The content of entry named {@code name}, or {@code null}.
+         * @throws IOException When an IO error occurs.
+         */
+        public InputStream open(String name) throws IOException;
+    }
+
+    /**
+     * Source based on a ZipFile.
+     */
+    static final class FileSource implements Source {
+        private final ZipFile zip;
+        private final boolean checkInflateRatio;
+
+        FileSource(File file,
+                   boolean checkInflateRatio) throws IOException {
+            this.zip = new ZipFile(file);
+            this.checkInflateRatio = checkInflateRatio;
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            final ZipArchiveEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                return null;
+            }
+            final InputStream in = zip.getInputStream(entry);
+            return checkInflateRatio && in instanceof InputStreamStatistics
+                    ? new RatioInputStream(in, name, (InputStreamStatistics) in)
+                    : in;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    /**
+     * Source based on a ZipArchiveInputStream. All entries are loaded in memory.
+     */
+    private static final class StreamSource implements Source {
+        private final Map<String, byte[]> entries = new HashMap<>();
+
+        StreamSource(InputStream in,
+                     boolean checkInflateRatio) throws IOException {
+            final ZipArchiveInputStream zip = new ZipArchiveInputStream(in);
+            final byte[] buffer = new byte[8192];
+            ZipArchiveEntry entry;
+            while ((entry = zip.getNextZipEntry()) != null) {
+                final InputStream data = checkInflateRatio ? new RatioInputStream(zip, entry.getName(), zip) : zip;
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int n;
+                while ((n = data.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                entries.put(entry.getName(), out.toByteArray());
+            }
+        }
+
+        @Override
+        public InputStream open(String name) {
+            final byte[] bytes = entries.get(name);
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public void close() {
+            entries.clear();
+        }
+    }
+
+    /**
+     * InputStream that detects zip bombs, using the same ratio and criteria as POI.
+     * <p>
+     * Ratio of compressed to uncompressed bytes read so far is checked after each read.
+     */
+    static final class RatioInputStream extends FilterInputStream {
+        private final String name;
+        private final InputStreamStatistics statistics;
+
+        RatioInputStream(InputStream in,
+                         String name,
+                         InputStreamStatistics statistics) {
+            super(in);
+            this.name = name;
+            this.statistics = statistics;
+        }
+
+        private void check() throws IOException {
+            final long size = statistics.getUncompressedCount();
+            final long compressedSize = statistics.getCompressedCount();
+            if (size > GRACE_ENTRY_SIZE && (double) compressedSize / size < ExcelUtils.DEFAULT_MIN_INFLATE_RATIO) {
+                throw new IOException("Zip bomb detected in entry " + name + ": " + compressedSize + " compressed bytes, "
+                        + size + " uncompressed bytes.");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                check();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b,
+                        int off,
+                        int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                check();
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package cdc.office.ss.excel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TablesHandler;
+import cdc.util.function.Evaluation;
+
+/**
+ * Utility used to parse the sheets of an xlsx or xlsm workbook concurrently.
+ * <p>
+ * Each sheet is an independent part of the package. Sheets are parsed by a pool of threads,
+ * sharing read-only shared strings and styles.<br>
+ * Rows can be:
+ * <ul>
+ * <li>Passed to a {@link TablesHandler}, in the calling thread and in sheet order. Rows of a sheet are buffered
+ * by batches in a bounded queue until all rows of previous sheets have been passed.
+ * <li>Passed to a dedicated {@link TableHandler} for each sheet, in the thread that parses that sheet.
+ * </ul>
+ *
+ * @author Damien Carbonne
+ */
+final class ParallelSheets {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private ParallelSheets() {
+    }
+
+    /**
+     * Interface implemented by parsers of one sheet.
+     */
+    @FunctionalInterface
+    interface SheetProcessor {
+        /**
+         * Parses a sheet.
+         *
+         * @param in The sheet part content.
+         * @param handler The handler that must receive rows of the sheet.
+         * @throws Exception When an error occurs.
+         */
+        public void process(InputStream in,
+                            TableHandler handler) throws Exception;
+    }
+
+    /**
+     * Opens all sheets of a workbook.
+     *
+     * @param reader The reader.
+     * @param region The region of sheets that is parsed, possibly {@code null}.
+     * @param names The list that is filled with sheet names.
+     * @param rows The list that is filled with estimated numbers of rows of sheets.
+     * @return The list of sheet contents.
+     * @throws Exception When an error occurs.
+     */
+    private static List<InputStream> open(XSSFReader reader,
+                                          CellAddressRange region,
+                                          List<String> names,
+                                          List<Integer> rows) throws Exception {
+        final List<InputStream> streams = new ArrayList<>();
+        try {
+            final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                final InputStream in = SheetDimension.markable(sheets.next());
+                streams.add(in);
+                names.add(sheets.getSheetName());
+                rows.add(SheetDimension.estimateRows(in, region));
+            }
+        } catch (final Exception e) {
+            close(streams);
+            throw e;
+        }
+        return streams;
+    }
+
+    private static void close(List<InputStream> streams) throws IOException {
+        IOException exception = null;
+        for (final InputStream in : streams) {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static Exception rethrow(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            return (Exception) t;
+        }
+    }
+
+    /**
+     * Parses all sheets of a workbook and passes their rows, in sheet order, to a handler.
+     * <p>
+     * {@code handler} is only called by the calling thread.
+     * {@link TablesHandler#processBeginTables(String)} and {@link TablesHandler#processEndTables(String)}
+     * are not called.
+     *
+     * @param reader The reader.
+     * @param parallelism The maximum number of sheets parsed concurrently.
+     * @param region The region of sheets that is parsed by {@code processor}, possibly {@code null}.
+     * @param processor The sheet processor. It must be thread-safe.
+     * @param handler The handler.
+     * @throws Exception When an error occurs.
+     */
+    static void parse(XSSFReader reader,
+                      int parallelism,
+                      CellAddressRange region,
+                      SheetProcessor processor,
+                      TablesHandler handler) throws Exception {
+        final List<String> names = new ArrayList<>();
+        final List<Integer> rows = new ArrayList<>();
+        final List<InputStream> streams = open(reader, region, names, rows);
+        final List<Sheet> sheets = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, streams.size())));
+        try {
+            for (int index = 0; index < streams.size(); index++) {
+                final Sheet sheet = new Sheet(streams.get(index), processor);
+                sheets.add(sheet);
+                executor.execute(sheet);
+            }
+            for (int index = 0; index < sheets.size(); index++) {
+                handler.processBeginTable(names.get(index), rows.get(index));
+                sheets.get(index).deliver(handler);
+                handler.processEndTable(names.get(index));
+            }
+        } finally {
+            for (final Sheet sheet : sheets) {
+                sheet.cancelled = true;
+            }
+            executor.shutdownNow();
+            close(streams);
+        }
+    }
+
+    /**
+     * Parses all sheets of a workbook and passes their rows to a dedicated handler per sheet.
+     * <p>
+     * {@code handlers} is called in the calling thread, in sheet order.
+     * Each created handler is called by the thread that parses its sheet.
+     *
+     * @param reader The reader.
+     * @param parallelism The maximum number of sheets parsed concurrently.
+     *            If less than 2, sheets are parsed sequentially in the calling thread.
+     * @param region The region of sheets that is parsed by {@code processor}, possibly {@code null}.
+     * @param processor The sheet processor. It must be thread-safe.
+     * @param handlers The function that creates the handler of a sheet, from its name.
+     * @throws Exception When an error occurs.
+     */
+    static void parse(XSSFReader reader,
+                      int parallelism,
+                      CellAddressRange region,
+                      SheetProcessor processor,
+                      Function<String, ? extends TableHandler> handlers) throws Exception {
+        final List<String> names = new ArrayList<>();
+        final List<Integer> rows = new ArrayList<>();
+        final List<InputStream> streams = open(reader, region, names, rows);
+        try {
+            if (parallelism < 2) {
+                for (int index = 0; index < streams.size(); index++) {
+                    process(names.get(index), rows.get(index), streams.get(index), processor, handlers.apply(names.get(index)));
+                }
+            } else {
+                final ExecutorService executor =
+                        Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, streams.size())));
+                try {
+                    final List<Future<?>> futures = new ArrayList<>();
+                    for (int index = 0; index < streams.size(); index++) {
+                        final String name = names.get(index);
+                        final int numberOfRows = rows.get(index);
+                        final InputStream in = streams.get(index);
+                        final TableHandler handler = handlers.apply(name);
+                        futures.add(executor.submit(() -> {
+                            process(name, numberOfRows, in, processor, handler);
+                            return null;
+                        }));
+                    }
+                    for (final Future<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (final ExecutionException e) {
+                            throw rethrow(e.getCause());
+                        }
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            close(streams);
+        }
+    }
+
+    private static void process(String name,
+                                int numberOfRows,
+                                InputStream in,
+                                SheetProcessor processor,
+                                TableHandler handler) throws Exception {
+        handler.processBeginTable(name, numberOfRows);
+        processor.process(in, handler);
+        handler.processEndTable(name);
+    }
+
+    /**
+     * Batch of rows.
+     */
+    private static final class Batch {
+        final Row[] rows;
+        final RowLocation[] locations;
+        int size = 0;
+        /** {@code true} for the last batch of a sheet. */
+        boolean last = false;
+        /** The error that occurred while parsing the sheet, or {@code null}. */
+        Throwable error = null;
+
+        Batch(int capacity) {
+            this.rows = new Row[capacity];
+            this.locations = new RowLocation[capacity];
+        }
+    }
+
+    /**
+     * Parsing of a sheet, that buffers rows in a bounded queue.
+     */
+    private static final class Sheet implements Runnable, TableHandler {
+        private final InputStream in;
+        private final SheetProcessor processor;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private Batch batch = new Batch(BATCH_SIZE);
+        /** Set to {@code true} when rows are no more needed. */
+        volatile boolean cancelled = false;
+
+        Sheet(InputStream in,
+              SheetProcessor processor) {
+            this.in = in;
+            this.processor = processor;
+        }
+
+        private void put(Batch b) throws InterruptedException {
+            if (!cancelled) {
+                queue.put(b);
+            }
+        }
+
+        private Evaluation add(Row row,
+                               RowLocation location) {
+            if (cancelled) {
+                return Evaluation.PRUNE;
+            }
+            batch.rows[batch.size] = row;
+            batch.locations[batch.size] = location;
+            batch.size++;
+            if (batch.size == BATCH_SIZE) {
+                try {
+                    put(batch);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled = true;
+                    return Evaluation.PRUNE;
+                }
+                batch = new Batch(BATCH_SIZE);
+            }
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            return add(header, location);
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            return add(data, location);
+        }
+
+        @Override
+        public void run() {
+            try {
+                processor.process(in, this);
+            } catch (final Throwable t) {
+                batch.error = t;
+            }
+            batch.last = true;
+            try {
+                // Last batch is always needed
+                queue.put(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Passes rows of this sheet to a handler, as they are parsed.
+         * <p>
+         * If handler stops processing, remaining rows are ignored.
+         *
+         * @param handler The handler.
+         * @throws Exception When an error occurred while parsing this sheet.
+         * @throws InterruptedException When the calling thread is interrupted.
+         */
+        void deliver(TableHandler handler) throws Exception {
+            boolean active = true;
+            while (true) {
+                final Batch b = queue.take();
+                for (int index = 0; active && index < b.size; index++) {
+                    active = TableHandler.processRow(handler, b.rows[index], b.locations[index]).isContinue();
+                }
+                if (!active) {
+                    cancelled = true;
+                }
+                if (b.last) {
+                    if (b.error != null) {
+                        throw rethrow(b.error);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
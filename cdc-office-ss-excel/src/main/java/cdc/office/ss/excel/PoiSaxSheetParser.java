@@ -3,15 +3,16 @@ package cdc.office.ss.excel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.function.Function;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.util.CellAddress;
@@ -27,24 +28,33 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import cdc.office.ss.CellAddressRange;
 import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
 import cdc.office.ss.SheetParserFactory.Feature;
 import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.jfr.SharedStringsLoadEvent;
 import cdc.office.tables.Row;
 import cdc.office.tables.RowLocation;
 import cdc.office.tables.TableHandler;
 import cdc.office.tables.TablesHandler;
+import cdc.office.tables.jfr.JfrTableMetrics;
 import cdc.util.function.Evaluation;
 import cdc.util.lang.Checks;
 import cdc.util.lang.ExceptionWrapper;
 
 public class PoiSaxSheetParser implements SheetParser {
     protected static final Logger LOGGER = LogManager.getLogger(PoiSaxSheetParser.class);
+    private static final String PARSER = "PoiSax";
     private final boolean disableVulnerabilityDetections;
+    private final boolean compactSharedStrings;
+    private final int sharedStringsCacheSize;
+    private final int parallelism;
+    private final CellAddressRange region;
 
     private static final String FILE = "file";
     private static final String HANDLER = "handler";
+    private static final String HANDLERS = "handlers";
     private static final String IN = "in";
     private static final String KIND = "kind";
     private static final String SHEET_NAME = "sheetName";
@@ -65,12 +75,19 @@ public class PoiSaxSheetParser implements SheetParser {
 
     public PoiSaxSheetParser() {
         this.disableVulnerabilityDetections = false;
+        this.compactSharedStrings = false;
+        this.sharedStringsCacheSize = 0;
+        this.parallelism = 1;
+        this.region = null;
     }
 
     public PoiSaxSheetParser(SheetParserFactory factory,
                              WorkbookKind kind) {
         this.disableVulnerabilityDetections = factory.isEnabled(Feature.DISABLE_VULNERABILITY_PROTECTIONS);
-        LOGGER.warn("Cannot estimate number of rows");
+        this.compactSharedStrings = factory.isEnabled(Feature.COMPACT_SHARED_STRINGS);
+        this.sharedStringsCacheSize = factory.getSharedStringsCacheSize();
+        this.parallelism = factory.getParallelism();
+        this.region = factory.getRegion();
     }
 
     @Override
@@ -82,8 +99,30 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(handler, HANDLER);
 
         pre();
-        try (OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            parse(file.getPath(), pkg, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(file)) {
+            parse(file.getPath(), pkg, headers, JfrTableMetrics.wrap(handler, PARSER));
+            // Do this to avoid POI to generate a warning message
+            pkg.revert();
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw ExceptionWrapper.wrap(e);
+        } finally {
+            post();
+        }
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      Function<String, ? extends TableHandler> handlers) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(handlers, HANDLERS);
+
+        pre();
+        try (OPCPackage pkg = ExcelUtils.openPackage(file)) {
+            parse(file.getPath(), pkg, headers, handlers);
             // Do this to avoid POI to generate a warning message
             pkg.revert();
         } catch (final IOException e) {
@@ -107,8 +146,8 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(handler, HANDLER);
 
         pre();
-        try (OPCPackage pkg = OPCPackage.open(in)) {
-            parse(systemId, pkg, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(in, systemId, kind)) {
+            parse(systemId, pkg, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -129,8 +168,8 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(handler, HANDLER);
 
         pre();
-        try (OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            parse(file.getPath(), pkg, sheetName, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(file)) {
+            parse(file.getPath(), pkg, sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
             // Do this to avoid POI to generate a warning message
             pkg.revert();
         } catch (final IOException e) {
@@ -151,8 +190,8 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(file, FILE);
         Checks.isNotNull(handler, HANDLER);
         pre();
-        try (OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            parse(file.getPath(), pkg, sheetIndex, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(file)) {
+            parse(file.getPath(), pkg, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
             // Do this to avoid POI to generate a warning message
             pkg.revert();
         } catch (final IOException e) {
@@ -178,8 +217,8 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(handler, HANDLER);
 
         pre();
-        try (OPCPackage pkg = OPCPackage.open(in)) {
-            parse(systemId, pkg, sheetName, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(in, systemId, kind)) {
+            parse(systemId, pkg, sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -202,8 +241,8 @@ public class PoiSaxSheetParser implements SheetParser {
         Checks.isNotNull(handler, HANDLER);
 
         pre();
-        try (OPCPackage pkg = OPCPackage.open(in)) {
-            parse(systemId, pkg, sheetIndex, headers, handler);
+        try (OPCPackage pkg = ExcelUtils.openPackage(in, systemId, kind)) {
+            parse(systemId, pkg, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -224,31 +263,59 @@ public class PoiSaxSheetParser implements SheetParser {
         }
     }
 
-    private static void parse(String systemId,
-                              OPCPackage pkg,
-                              int headers,
-                              TablesHandler handler) throws IOException {
+    private SharedStrings loadSharedStrings(String systemId,
+                                            OPCPackage pkg,
+                                            XSSFReader reader) throws IOException, InvalidFormatException, SAXException {
+        final SharedStringsLoadEvent event = new SharedStringsLoadEvent();
+        event.begin();
+        final SharedStrings sst = compactSharedStrings
+                ? CompactSharedStrings.load(pkg, sharedStringsCacheSize)
+                : reader.getSharedStringsTable();
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.uniqueCount = sst == null ? 0 : sst.getUniqueCount();
+            event.commit();
+        }
+        return sst;
+    }
+
+    private static void close(SharedStrings sst) {
+        if (sst instanceof CompactSharedStrings) {
+            ((CompactSharedStrings) sst).close();
+        }
+    }
+
+    private void parse(String systemId,
+                       OPCPackage pkg,
+                       int headers,
+                       TablesHandler handler) throws IOException {
+        SharedStrings sst = null;
         try {
             final XSSFReader r = new XSSFReader(pkg);
-            final SharedStrings sst = r.getSharedStringsTable();
+            sst = loadSharedStrings(systemId, pkg, r);
             final StylesTable styles = r.getStylesTable();
 
             show(styles);
 
             handler.processBeginTables(systemId);
 
-            final XMLReader parser = fetchSheetParser(headers, handler, sst, styles);
-
-            final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) r.getSheetsData();
-            while (sheets.hasNext()) {
-                LOGGER.debug("Processing new sheet");
-                try (InputStream sheet = sheets.next()) {
-                    final InputSource sheetSource = new InputSource(sheet);
-                    handler.processBeginTable(sheets.getSheetName(), -1);
-                    parser.parse(sheetSource);
-                    handler.processEndTable(sheets.getSheetName());
+            if (parallelism > 1) {
+                ParallelSheets.parse(r, parallelism, region, newSheetProcessor(headers, sst, styles, region), handler);
+            } else {
+                final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) r.getSheetsData();
+                while (sheets.hasNext()) {
+                    LOGGER.debug("Processing new sheet");
+                    try (InputStream sheet = sheets.next()) {
+                        final InputStream in = SheetDimension.markable(sheet);
+                        final InputSource sheetSource = new InputSource(in);
+                        handler.processBeginTable(sheets.getSheetName(), SheetDimension.estimateRows(in, region));
+                        // Row numbering must restart with each sheet
+                        fetchSheetParser(headers, handler, sst, styles, region).parse(sheetSource);
+                        handler.processEndTable(sheets.getSheetName());
+                    }
+                    LOGGER.debug("Processed sheet");
                 }
-                LOGGER.debug("Processed sheet");
             }
 
             handler.processEndTables(systemId);
@@ -257,24 +324,53 @@ public class PoiSaxSheetParser implements SheetParser {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
+        } finally {
+            close(sst);
         }
     }
 
-    private static void parse(String systemId,
-                              OPCPackage pkg,
-                              String sheetName,
-                              int headers,
-                              TableHandler handler) throws IOException {
+    private void parse(String systemId,
+                       OPCPackage pkg,
+                       int headers,
+                       Function<String, ? extends TableHandler> handlers) throws IOException {
+        SharedStrings sst = null;
+        try {
+            final XSSFReader r = new XSSFReader(pkg);
+            sst = loadSharedStrings(systemId, pkg, r);
+            final StylesTable styles = r.getStylesTable();
+
+            show(styles);
+
+            ParallelSheets.parse(r,
+                                 parallelism,
+                                 region,
+                                 newSheetProcessor(headers, sst, styles, region),
+                                 name -> JfrTableMetrics.wrap(handlers.apply(name), PARSER));
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw ExceptionWrapper.wrap(e);
+        } finally {
+            close(sst);
+        }
+    }
+
+    private void parse(String systemId,
+                       OPCPackage pkg,
+                       String sheetName,
+                       int headers,
+                       TableHandler handler) throws IOException {
+        SharedStrings sst = null;
         try {
             TablesHandler.processBeginTables(handler, systemId);
 
             final XSSFReader r = new XSSFReader(pkg);
-            final SharedStrings sst = r.getSharedStringsTable();
+            sst = loadSharedStrings(systemId, pkg, r);
             final StylesTable styles = r.getStylesTable();
 
             show(styles);
 
-            final XMLReader parser = fetchSheetParser(headers, handler, sst, styles);
+            final XMLReader parser = fetchSheetParser(headers, handler, sst, styles, region);
 
             final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) r.getSheetsData();
             boolean found = false;
@@ -285,8 +381,9 @@ public class PoiSaxSheetParser implements SheetParser {
                         if (sheetName != null) {
                             found = true;
                         }
-                        final InputSource sheetSource = new InputSource(sheet);
-                        handler.processBeginTable(sheets.getSheetName(), -1);
+                        final InputStream in = SheetDimension.markable(sheet);
+                        final InputSource sheetSource = new InputSource(in);
+                        handler.processBeginTable(sheets.getSheetName(), SheetDimension.estimateRows(in, region));
                         parser.parse(sheetSource);
                         handler.processEndTable(sheets.getSheetName());
                     }
@@ -302,24 +399,27 @@ public class PoiSaxSheetParser implements SheetParser {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
+        } finally {
+            close(sst);
         }
     }
 
-    private static void parse(String systemId,
-                              OPCPackage pkg,
-                              int sheetIndex,
-                              int headers,
-                              TableHandler handler) throws IOException {
+    private void parse(String systemId,
+                       OPCPackage pkg,
+                       int sheetIndex,
+                       int headers,
+                       TableHandler handler) throws IOException {
+        SharedStrings sst = null;
         try {
             TablesHandler.processBeginTables(handler, systemId);
 
             final XSSFReader r = new XSSFReader(pkg);
-            final SharedStrings sst = r.getSharedStringsTable();
+            sst = loadSharedStrings(systemId, pkg, r);
             final StylesTable styles = r.getStylesTable();
 
             show(styles);
 
-            final XMLReader parser = fetchSheetParser(headers, handler, sst, styles);
+            final XMLReader parser = fetchSheetParser(headers, handler, sst, styles, region);
 
             final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) r.getSheetsData();
             int index = -1;
@@ -330,8 +430,9 @@ public class PoiSaxSheetParser implements SheetParser {
                 try (InputStream sheet = sheets.next()) {
                     if (index == sheetIndex) {
                         found = true;
-                        final InputSource sheetSource = new InputSource(sheet);
-                        handler.processBeginTable(sheets.getSheetName(), -1);
+                        final InputStream in = SheetDimension.markable(sheet);
+                        final InputSource sheetSource = new InputSource(in);
+                        handler.processBeginTable(sheets.getSheetName(), SheetDimension.estimateRows(in, region));
                         parser.parse(sheetSource);
                         handler.processEndTable(sheets.getSheetName());
                     }
@@ -347,59 +448,64 @@ public class PoiSaxSheetParser implements SheetParser {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
+        } finally {
+            close(sst);
         }
     }
 
     private static XMLReader fetchSheetParser(int headers,
                                               TableHandler handler,
                                               SharedStrings sst,
-                                              Styles styles) throws SAXException, ParserConfigurationException {
-        final XMLReader parser = XMLHelper.newXMLReader();
+                                              Styles styles,
+                                              CellAddressRange region) throws SAXException, ParserConfigurationException {
+        final XMLReader parser = SheetRegionFilter.wrap(XMLHelper.newXMLReader(), region);
         final SheetHandler sheetHandler = new SheetHandler(headers, handler, sst, styles);
         parser.setContentHandler(sheetHandler);
         return parser;
     }
 
+    private static ParallelSheets.SheetProcessor newSheetProcessor(int headers,
+                                                                   SharedStrings sst,
+                                                                   Styles styles,
+                                                                   CellAddressRange region) {
+        return (in,
+                handler) -> fetchSheetParser(headers, handler, sst, styles, region).parse(new InputSource(in));
+    }
+
+    /**
+     * SAX handler of a sheet.
+     * <p>
+     * This is the innermost loop of xlsx parsing. Allocations are avoided as much as possible:
+     * <ul>
+     * <li>Characters are accumulated in a reusable buffer.
+     * <li>Cell references and style indices are decoded arithmetically.
+     * <li>Shared string indices are parsed from the buffer.
+     * <li>Shared strings are cached by {@link CompactSharedStrings}, when it is used.
+     * </ul>
+     */
     private static class SheetHandler extends DefaultHandler {
         private final int headers;
         private final TableHandler handler;
         private final SharedStrings sst;
+        /** {@link #sst} if it is a {@link CompactSharedStrings}, {@code null} otherwise. */
+        private final CompactSharedStrings compactSst;
         private final Styles styles;
-        private String lastContents; // TODO Use StringBuilder
+        /** Buffer of characters of current element. */
+        private char[] buffer = new char[64];
+        /** Number of characters in {@link #buffer}. */
+        private int length = 0;
         private boolean nextIsString;
         private boolean inlineStr;
-        private final LruCache<Integer, String> lruCache = new LruCache<>(50);
-        private short formatIndex = -1;
-        private String formatString = null;
         private int previousRowIndex = -1;
         private int previousColumnIndex = -1;
+        /** Row index decoded by last call to {@link #decodeAddress(String)}. */
+        private int rowIndex;
+        /** Column index decoded by last call to {@link #decodeAddress(String)}. */
+        private int columnIndex;
         private final Row.Builder r = Row.builder();
         private final RowLocation.Builder location = RowLocation.builder();
         private boolean active = true;
 
-        private static class LruCache<A, B> extends LinkedHashMap<A, B> {
-            private static final long serialVersionUID = 1L;
-            private final int maxEntries;
-
-            public LruCache(int maxEntries) {
-                super(maxEntries + 1, 1.0f, true);
-                this.maxEntries = maxEntries;
-            }
-
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<A, B> eldest) {
-                return super.size() > maxEntries;
-            }
-        }
-
-        // private static String toString(Attributes atts) {
-        // final StringBuilder builder = new StringBuilder();
-        // for (int index = 0; index < atts.getLength(); index++) {
-        // builder.append(" " + atts.getLocalName(index) + ":" + atts.getValue(index));
-        // }
-        // return builder.toString();
-        // }
-
         public SheetHandler(int headers,
                             TableHandler handler,
                             SharedStrings sst,
@@ -407,9 +513,136 @@ public class PoiSaxSheetParser implements SheetParser {
             this.headers = headers;
             this.handler = handler;
             this.sst = sst;
+            this.compactSst = sst instanceof CompactSharedStrings ? (CompactSharedStrings) sst : null;
             this.styles = styles;
         }
 
+        private static boolean is(String name,
+                                  char c) {
+            return name.length() == 1 && name.charAt(0) == c;
+        }
+
+        /**
+         * Decodes a cell reference such as {@code AB12} into {@link #rowIndex} and {@link #columnIndex}.
+         * <p>
+         * If {@code ref} is {@code null}, the cell follows the previous one, on the same row.
+         *
+         * @param ref The cell reference.
+         * @throws SAXException When {@code ref} is invalid.
+         */
+        private void decodeAddress(String ref) throws SAXException {
+            if (ref == null) {
+                rowIndex = Math.max(previousRowIndex, 0);
+                columnIndex = previousRowIndex == rowIndex ? previousColumnIndex + 1 : 0;
+                return;
+            }
+            int column = 0;
+            int row = 0;
+            final int len = ref.length();
+            int index = 0;
+            if (index < len && ref.charAt(index) == '$') {
+                index++;
+            }
+            for (; index < len; index++) {
+                final char c = ref.charAt(index);
+                if (c >= 'A' && c <= 'Z') {
+                    column = column * 26 + (c - 'A' + 1);
+                } else if (c >= 'a' && c <= 'z') {
+                    column = column * 26 + (c - 'a' + 1);
+                } else {
+                    break;
+                }
+            }
+            if (index < len && ref.charAt(index) == '$') {
+                index++;
+            }
+            final int first = index;
+            for (; index < len; index++) {
+                final char c = ref.charAt(index);
+                if (c >= '0' && c <= '9') {
+                    row = row * 10 + (c - '0');
+                } else {
+                    break;
+                }
+            }
+            if (column == 0 || index == first || index != len) {
+                throw new SAXException("Invalid cell reference: '" + ref + "'");
+            }
+            this.rowIndex = row - 1;
+            this.columnIndex = column - 1;
+        }
+
+        /**
+         * @param s The string to parse.
+         * @return The non-negative integer contained in {@code s}, or -1 if {@code s} is {@code null}.
+         * @throws SAXException When {@code s} is not a non-negative integer.
+         */
+        private static int parseIndex(String s) throws SAXException {
+            if (s == null) {
+                return -1;
+            }
+            int result = 0;
+            final int len = s.length();
+            for (int index = 0; index < len; index++) {
+                final char c = s.charAt(index);
+                if (c < '0' || c > '9') {
+                    throw new SAXException("Invalid index: '" + s + "'");
+                }
+                result = result * 10 + (c - '0');
+            }
+            return len == 0 ? -1 : result;
+        }
+
+        /**
+         * @return The non-negative integer contained in {@link #buffer}, ignoring surrounding white spaces.
+         * @throws SAXException When {@link #buffer} does not contain a non-negative integer.
+         */
+        private int parseBufferIndex() throws SAXException {
+            int begin = 0;
+            int end = length;
+            while (begin < end && Character.isWhitespace(buffer[begin])) {
+                begin++;
+            }
+            while (end > begin && Character.isWhitespace(buffer[end - 1])) {
+                end--;
+            }
+            if (begin == end) {
+                throw new SAXException("Missing shared string index");
+            }
+            int result = 0;
+            for (int index = begin; index < end; index++) {
+                final char c = buffer[index];
+                if (c < '0' || c > '9') {
+                    throw new SAXException("Invalid shared string index: '" + new String(buffer, 0, length) + "'");
+                }
+                result = result * 10 + (c - '0');
+            }
+            return result;
+        }
+
+        private String getSharedString(int idx) {
+            return compactSst == null
+                    ? sst.getItemAt(idx).toString()
+                    : compactSst.getString(idx);
+        }
+
+        /**
+         * Logs the format of a style.
+         *
+         * @param styleIndex The style index.
+         */
+        private void logFormat(int styleIndex) {
+            final XSSFCellStyle style = styles.getStyleAt(styleIndex);
+            if (style != null) {
+                final short formatIndex = style.getDataFormat();
+                String formatString = style.getDataFormatString();
+                if (formatString == null) {
+                    formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                }
+                LOGGER.debug("format: {} '{}'", formatIndex, formatString);
+            }
+        }
+
         private void addCell(String content) {
             if (content == null) {
                 r.addValue(null);
@@ -433,30 +666,26 @@ public class PoiSaxSheetParser implements SheetParser {
                                  String name,
                                  Attributes attributes) throws SAXException {
             // c => cell
-            if (name.equals("c")) {
-                // Print the cell reference
-                final String cellTypeStr = attributes.getValue("t");
-                final XssfDataType cellType = XssfDataType.from(cellTypeStr);
-                final String cellRefStr = attributes.getValue("r");
-                final CellAddress addr = new CellAddress(cellRefStr);
-                final String cellStyleStr = attributes.getValue("s");
-                final int rowIndex = addr.getRow();
-                final int columnIndex = addr.getColumn();
+            if (is(name, 'c')) {
+                final XssfDataType cellType = XssfDataType.from(attributes.getValue("t"));
+                decodeAddress(attributes.getValue("r"));
+                final int styleIndex = parseIndex(attributes.getValue("s"));
                 if (previousRowIndex != rowIndex) {
                     if (active && location.getGlobalNumber() > 0) {
                         active = publishRow().isContinue();
                     }
-                    location.incrementNumbers(headers);
                     r.clear();
                     this.previousColumnIndex = -1;
-                }
-                for (int index = previousRowIndex; active && index < rowIndex - 1; index++) {
-                    LOGGER.debug("Added missing row");
+                    for (int index = previousRowIndex; active && index < rowIndex - 1; index++) {
+                        LOGGER.debug("Added missing row");
+                        location.incrementNumbers(headers);
+                        active = publishRow().isContinue();
+                    }
+                    // Number current row after missing rows
                     location.incrementNumbers(headers);
-                    active = publishRow().isContinue();
                 }
 
-                if (previousRowIndex != rowIndex && previousRowIndex % 10000 == 0) {
+                if (previousRowIndex != rowIndex && previousRowIndex % 10000 == 0 && LOGGER.isDebugEnabled()) {
                     LOGGER.debug("processed: {}", previousRowIndex);
                 }
                 previousRowIndex = rowIndex;
@@ -466,7 +695,9 @@ public class PoiSaxSheetParser implements SheetParser {
                     addCell(null);
                 }
 
-                LOGGER.debug("{} ({})", addr, cellType);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("{} ({})", new CellAddress(rowIndex, columnIndex), cellType);
+                }
                 if (cellType == null) {
                     this.previousColumnIndex++;
                     addCell(null);
@@ -477,29 +708,12 @@ public class PoiSaxSheetParser implements SheetParser {
                 nextIsString = cellType == XssfDataType.SST_STRING;
                 inlineStr = cellType == XssfDataType.INLINE_STRING;
 
-                if (cellType == XssfDataType.NUMBER && styles != null) {
-                    final XSSFCellStyle style;
-                    if (cellStyleStr != null) {
-                        final int styleIndex = Integer.parseInt(cellStyleStr);
-                        style = styles.getStyleAt(styleIndex);
-                    } else if (styles.getNumCellStyles() > 0) {
-                        style = styles.getStyleAt(0);
-                    } else {
-                        style = null;
-                    }
-
-                    if (style != null) {
-                        this.formatIndex = style.getDataFormat();
-                        this.formatString = style.getDataFormatString();
-                        if (this.formatString == null) {
-                            this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
-                        }
-                        LOGGER.debug("format: {} '{}'", formatIndex, formatString);
-                    }
+                if (cellType == XssfDataType.NUMBER && styles != null && LOGGER.isDebugEnabled()) {
+                    logFormat(Math.max(styleIndex, 0));
                 }
             }
-            // Clear contents cache
-            lastContents = "";
+            // Clear contents buffer
+            length = 0;
         }
 
         @Override
@@ -508,21 +722,17 @@ public class PoiSaxSheetParser implements SheetParser {
                                String name) throws SAXException {
             // Process the last contents as required.
             // Do now, as characters() may be called more than once
+            String contents = null;
             if (nextIsString) {
-                final Integer idx = Integer.valueOf(lastContents);
-                lastContents = lruCache.get(idx);
-                if (lastContents == null && !lruCache.containsKey(idx)) {
-                    lastContents = sst.getItemAt(idx).toString();
-                    lruCache.put(idx, lastContents);
-                }
+                contents = getSharedString(parseBufferIndex());
                 nextIsString = false;
             }
 
             // v => contents of a cell
             // Output after we've seen the string contents
-            if (name.equals("v") || (inlineStr && name.equals("c"))) {
+            if (is(name, 'v') || (inlineStr && is(name, 'c'))) {
                 // TODO format content
-                addCell(lastContents);
+                addCell(contents == null ? new String(buffer, 0, length) : contents);
             }
         }
 
@@ -530,7 +740,12 @@ public class PoiSaxSheetParser implements SheetParser {
         public void characters(char[] ch,
                                int start,
                                int length) throws SAXException {
-            lastContents += new String(ch, start, length);
+            final int required = this.length + length;
+            if (required > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(required, 2 * buffer.length));
+            }
+            System.arraycopy(ch, start, buffer, this.length, length);
+            this.length = required;
         }
 
         @Override
@@ -541,4 +756,4 @@ public class PoiSaxSheetParser implements SheetParser {
             }
         }
     }
-}
\ No newline at end of file
+}
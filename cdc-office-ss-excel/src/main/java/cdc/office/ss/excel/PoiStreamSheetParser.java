@@ -3,6 +3,7 @@ package cdc.office.ss.excel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.function.Function;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -10,24 +11,22 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.util.XMLHelper;
-import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
 import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.xssf.model.Styles;
-import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
+import cdc.office.ss.CellAddressRange;
 import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
 import cdc.office.ss.SheetParserFactory.Feature;
@@ -36,6 +35,7 @@ import cdc.office.tables.Row;
 import cdc.office.tables.RowLocation;
 import cdc.office.tables.TableHandler;
 import cdc.office.tables.TablesHandler;
+import cdc.office.tables.jfr.JfrTableMetrics;
 import cdc.util.lang.ExceptionWrapper;
 
 /**
@@ -48,7 +48,19 @@ import cdc.util.lang.ExceptionWrapper;
  */
 public class PoiStreamSheetParser implements SheetParser {
     protected static final Logger LOGGER = LogManager.getLogger(PoiStreamSheetParser.class);
+    private static final String PARSER = "PoiStream";
     private final boolean disableVulnerabilityDetections;
+    private final boolean compactSharedStrings;
+    private final boolean cacheParts;
+    private final int sharedStringsCacheSize;
+    private final int parallelism;
+    private final CellAddressRange region;
+    /** Path of the file whose parts are cached. */
+    private String cachedPath = null;
+    private long cachedLastModified = 0L;
+    private long cachedLength = 0L;
+    /** Parts of the last parsed file. */
+    private WorkbookParts cachedParts = null;
 
     private void pre() {
         if (disableVulnerabilityDetections) {
@@ -66,11 +78,73 @@ public class PoiStreamSheetParser implements SheetParser {
 
     public PoiStreamSheetParser() {
         this.disableVulnerabilityDetections = false;
+        this.compactSharedStrings = false;
+        this.cacheParts = false;
+        this.sharedStringsCacheSize = 0;
+        this.parallelism = 1;
+        this.region = null;
     }
 
     public PoiStreamSheetParser(SheetParserFactory factory,
                                 WorkbookKind kind) {
         this.disableVulnerabilityDetections = factory.isEnabled(Feature.DISABLE_VULNERABILITY_PROTECTIONS);
+        this.compactSharedStrings = factory.isEnabled(Feature.COMPACT_SHARED_STRINGS);
+        this.cacheParts = factory.isEnabled(Feature.CACHE_WORKBOOK_PARTS);
+        this.sharedStringsCacheSize = factory.getSharedStringsCacheSize();
+        this.parallelism = factory.getParallelism();
+        this.region = factory.getRegion();
+    }
+
+    private WorkbookParts newParts(String systemId) {
+        return new WorkbookParts(systemId, compactSharedStrings ? sharedStringsCacheSize : -1);
+    }
+
+    /**
+     * Returns the parts of a file.
+     * <p>
+     * If {@link Feature#CACHE_WORKBOOK_PARTS} is enabled, parts of the last parsed file are kept,
+     * so that successive parsings of sheets of the same file load shared strings and styles once.
+     * They are released by {@link #clearCache()}.<br>
+     * Compact shared strings use a temporary file that is deleted when parts are closed. They are not cached.
+     *
+     * @param file The file.
+     * @return The (possibly cached) parts of {@code file}.
+     */
+    private synchronized WorkbookParts getParts(File file) {
+        if (!cacheParts || compactSharedStrings) {
+            return newParts(file.getPath());
+        }
+        final String path = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        if (cachedParts == null
+                || !path.equals(cachedPath)
+                || lastModified != cachedLastModified
+                || length != cachedLength) {
+            cachedPath = path;
+            cachedLastModified = lastModified;
+            cachedLength = length;
+            cachedParts = newParts(file.getPath());
+        }
+        return cachedParts;
+    }
+
+    /**
+     * Releases parts of the last parsed file, and its shared strings and styles.
+     */
+    @Override
+    public synchronized void clearCache() {
+        cachedPath = null;
+        cachedLastModified = 0L;
+        cachedLength = 0L;
+        cachedParts = null;
+    }
+
+    /**
+     * @return The parts of the last parsed file, or {@code null}.
+     */
+    synchronized WorkbookParts getCachedParts() {
+        return cachedParts;
     }
 
     @Override
@@ -79,9 +153,10 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TablesHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(file.getPath(), headers, handler);
+        final WorkbookParts parts = getParts(file);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(file)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(file.getPath(), headers, JfrTableMetrics.wrap(handler, PARSER));
             // Do this to avoid POI to generate a warning message
             opcPackage.revert();
         } catch (final IOException e) {
@@ -89,6 +164,29 @@ public class PoiStreamSheetParser implements SheetParser {
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
+            post();
+        }
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      Function<String, ? extends TableHandler> handlers) throws IOException {
+        pre();
+        final WorkbookParts parts = getParts(file);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(file)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(file.getPath(), headers, handlers);
+            // Do this to avoid POI to generate a warning message
+            opcPackage.revert();
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw ExceptionWrapper.wrap(e);
+        } finally {
+            parts.close();
             post();
         }
     }
@@ -101,14 +199,16 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TablesHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(in)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(systemId, headers, handler);
+        final WorkbookParts parts = newParts(systemId);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(in, systemId, kind)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(systemId, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
             post();
         }
     }
@@ -120,9 +220,10 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(file.getPath(), sheetName, headers, handler);
+        final WorkbookParts parts = getParts(file);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(file)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(file.getPath(), sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
             // Do this to avoid POI to generate a warning message
             opcPackage.revert();
         } catch (final IOException e) {
@@ -130,6 +231,7 @@ public class PoiStreamSheetParser implements SheetParser {
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
             post();
         }
     }
@@ -141,9 +243,10 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(file.getPath(), PackageAccess.READ)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(file.getPath(), sheetIndex, headers, handler);
+        final WorkbookParts parts = getParts(file);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(file)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(file.getPath(), sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
             // Do this to avoid POI to generate a warning message
             opcPackage.revert();
         } catch (final IOException e) {
@@ -151,6 +254,7 @@ public class PoiStreamSheetParser implements SheetParser {
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
             post();
         }
     }
@@ -164,14 +268,16 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(in)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(systemId, sheetName, headers, handler);
+        final WorkbookParts parts = newParts(systemId);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(in, systemId, kind)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(systemId, sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
             post();
         }
     }
@@ -185,65 +291,88 @@ public class PoiStreamSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         pre();
-        try (OPCPackage opcPackage = OPCPackage.open(in)) {
-            final StreamParser parser = new StreamParser(opcPackage);
-            parser.process(systemId, sheetIndex, headers, handler);
+        final WorkbookParts parts = newParts(systemId);
+        try (OPCPackage opcPackage = ExcelUtils.openPackage(in, systemId, kind)) {
+            final StreamParser parser = new StreamParser(opcPackage, parts, parallelism, region);
+            parser.process(systemId, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
             throw ExceptionWrapper.wrap(e);
         } finally {
+            parts.close();
             post();
         }
     }
 
     private static class StreamParser {
         private final OPCPackage opcPackage;
+        private final WorkbookParts parts;
+        private final int parallelism;
+        private final CellAddressRange region;
 
-        public StreamParser(OPCPackage opcPackage) {
+        public StreamParser(OPCPackage opcPackage,
+                            WorkbookParts parts,
+                            int parallelism,
+                            CellAddressRange region) {
             this.opcPackage = opcPackage;
-            LOGGER.warn("Cannot estimate number of rows");
+            this.parts = parts;
+            this.parallelism = parallelism;
+            this.region = region;
         }
 
         public void process(String systemId,
                             int headers,
-                            TablesHandler handler) throws IOException, SAXException, OpenXML4JException {
+                            TablesHandler handler) throws Exception {
             handler.processBeginTables(systemId);
 
-            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(this.opcPackage);
+            final SharedStrings strings = parts.lazySharedStrings(opcPackage);
+            final Styles styles = parts.lazyStyles(opcPackage);
             final XSSFReader xssfReader = new XSSFReader(this.opcPackage);
-            final StylesTable styles = xssfReader.getStylesTable();
-            final XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
-            while (iter.hasNext()) {
-                try (final InputStream stream = iter.next()) {
-                    handler.processBeginTable(iter.getSheetName(), -1);
-                    processSheet(styles,
-                                 strings,
-                                 new ExcelSheetHandler(headers, handler),
-                                 stream);
-                    handler.processEndTable(iter.getSheetName());
+            if (parallelism > 1) {
+                ParallelSheets.parse(xssfReader, parallelism, region, newSheetProcessor(headers, styles, strings), handler);
+            } else {
+                final XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+                while (iter.hasNext()) {
+                    try (final InputStream stream = SheetDimension.markable(iter.next())) {
+                        handler.processBeginTable(iter.getSheetName(), SheetDimension.estimateRows(stream, region));
+                        processSheet(styles,
+                                     strings,
+                                     new ExcelSheetHandler(headers, handler),
+                                     stream);
+                        handler.processEndTable(iter.getSheetName());
+                    }
                 }
             }
             handler.processEndTables(systemId);
         }
 
+        public void process(String systemId,
+                            int headers,
+                            Function<String, ? extends TableHandler> handlers) throws Exception {
+            final XSSFReader xssfReader = new XSSFReader(this.opcPackage);
+            ParallelSheets.parse(xssfReader,
+                                 parallelism,
+                                 region,
+                                 newSheetProcessor(headers, parts.lazyStyles(opcPackage), parts.lazySharedStrings(opcPackage)),
+                                 name -> JfrTableMetrics.wrap(handlers.apply(name), PARSER));
+        }
+
         public void process(String systemId,
                             String sheetName,
                             int headers,
                             TableHandler handler) throws IOException, SAXException, OpenXML4JException {
             TablesHandler.processBeginTables(handler, systemId);
-            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(this.opcPackage);
+            boolean found = false;
             final XSSFReader xssfReader = new XSSFReader(this.opcPackage);
-            final StylesTable styles = xssfReader.getStylesTable();
             final XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
-            boolean found = false;
             while (!found && iter.hasNext()) {
-                try (final InputStream stream = iter.next()) {
+                try (final InputStream stream = SheetDimension.markable(iter.next())) {
                     if (sheetName.equals(iter.getSheetName())) {
                         found = true;
-                        handler.processBeginTable(iter.getSheetName(), -1);
-                        processSheet(styles,
-                                     strings,
+                        handler.processBeginTable(iter.getSheetName(), SheetDimension.estimateRows(stream, region));
+                        processSheet(parts.lazyStyles(opcPackage),
+                                     parts.lazySharedStrings(opcPackage),
                                      new ExcelSheetHandler(headers, handler),
                                      stream);
                         handler.processEndTable(iter.getSheetName());
@@ -261,19 +390,17 @@ public class PoiStreamSheetParser implements SheetParser {
                             int headers,
                             TableHandler handler) throws IOException, SAXException, OpenXML4JException {
             TablesHandler.processBeginTables(handler, systemId);
-            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(this.opcPackage);
+            boolean found = false;
             final XSSFReader xssfReader = new XSSFReader(this.opcPackage);
-            final StylesTable styles = xssfReader.getStylesTable();
             final XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
-            boolean found = false;
             int index = 0;
             while (!found && iter.hasNext()) {
-                try (final InputStream stream = iter.next()) {
+                try (final InputStream stream = SheetDimension.markable(iter.next())) {
                     if (sheetIndex == index) {
                         found = true;
-                        handler.processBeginTable(iter.getSheetName(), -1);
-                        processSheet(styles,
-                                     strings,
+                        handler.processBeginTable(iter.getSheetName(), SheetDimension.estimateRows(stream, region));
+                        processSheet(parts.lazyStyles(opcPackage),
+                                     parts.lazySharedStrings(opcPackage),
                                      new ExcelSheetHandler(headers, handler),
                                      stream);
                         handler.processEndTable(iter.getSheetName());
@@ -287,14 +414,21 @@ public class PoiStreamSheetParser implements SheetParser {
             TablesHandler.processEndTables(handler, systemId);
         }
 
-        private static void processSheet(Styles styles,
-                                         SharedStrings strings,
-                                         SheetContentsHandler sheetHandler,
-                                         InputStream sheetInputStream) throws IOException, SAXException {
+        private ParallelSheets.SheetProcessor newSheetProcessor(int headers,
+                                                                Styles styles,
+                                                                SharedStrings strings) {
+            return (in,
+                    handler) -> processSheet(styles, strings, new ExcelSheetHandler(headers, handler), in);
+        }
+
+        private void processSheet(Styles styles,
+                                  SharedStrings strings,
+                                  SheetContentsHandler sheetHandler,
+                                  InputStream sheetInputStream) throws IOException, SAXException {
             final DataFormatter formatter = new DataFormatter();
             final InputSource sheetSource = new InputSource(sheetInputStream);
             try {
-                final XMLReader sheetParser = XMLHelper.newXMLReader();
+                final XMLReader sheetParser = SheetRegionFilter.wrap(XMLHelper.newXMLReader(), region);
                 final ContentHandler handler =
                         new XSSFSheetXMLHandler(styles,
                                                 null,
@@ -0,0 +1,447 @@
+package cdc.office.ss.excel;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import cdc.office.ss.CellAddressRange;
+
+/**
+ * Cheap estimation of the number of rows of an xlsx sheet part.
+ * <p>
+ * Only the beginning of the sheet part is read, and the stream is then reset so that it can be parsed normally:
+ * <ul>
+ * <li>The {@code ref} attribute of the {@code <dimension>} element, that precedes {@code <sheetData>}, is used.
+ * <li>If there is no usable dimension and the whole part fits in the prefix,
+ * the {@code r} attribute of {@code <row>} elements is used, if they all have one.
+ * <li>Otherwise, the number of rows is unknown.
+ * </ul>
+ * The prefix is scanned as bytes, in a buffer that is reused by all sheets parsed in a thread.
+ * Rows are numbered from 1, and parsers generate missing rows. So the estimation is the number of the last row.
+ * <p>
+ * The range of used cells can be read in the same way.
+ *
+ * @author Damien Carbonne
+ */
+final class SheetDimension {
+    /** Maximum number of bytes read to find the dimension. */
+    static final int PREFIX_SIZE = 64 * 1024;
+
+    /** Buffers used to read prefixes, reused by all sheets parsed in a thread. */
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[PREFIX_SIZE]);
+
+    private SheetDimension() {
+    }
+
+    /**
+     * @param in The input stream.
+     * @return {@code in} if it supports mark, or a buffered stream wrapping it.
+     */
+    static InputStream markable(InputStream in) {
+        return in.markSupported() ? in : new BufferedInputStream(in, PREFIX_SIZE);
+    }
+
+    /**
+     * Estimates the number of rows of a sheet part.
+     * <p>
+     * On return, {@code in} is reset to its position on entry.
+     *
+     * @param in The sheet part content. It must support mark.
+     * @return The number of rows of the sheet, or -1 if it can not be estimated.
+     * @throws IOException When an IO error occurs.
+     */
+    static int estimateRows(InputStream in) throws IOException {
+        final byte[] buffer = BUFFERS.get();
+        in.mark(PREFIX_SIZE);
+        final int length = read(in, buffer);
+        in.reset();
+        return estimateRows(buffer, length, length < PREFIX_SIZE);
+    }
+
+    /**
+     * Reads the beginning of a stream.
+     *
+     * @param in The input stream.
+     * @param buffer The buffer.
+     * @return The number of bytes read into {@code buffer}.
+     *         It is less than {@code buffer.length} when the end of {@code in} is reached.
+     * @throws IOException When an IO error occurs.
+     */
+    static int read(InputStream in,
+                    byte[] buffer) throws IOException {
+        int length = 0;
+        int n = 0;
+        while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) >= 0) {
+            length += n;
+        }
+        return length;
+    }
+
+    /**
+     * Estimates the number of rows of a region of a sheet part.
+     * <p>
+     * On return, {@code in} is reset to its position on entry.
+     *
+     * @param in The sheet part content. It must support mark.
+     * @param region The region, possibly {@code null}.
+     * @return The number of rows of the sheet that are in {@code region}, or -1 if it can not be estimated.
+     * @throws IOException When an IO error occurs.
+     */
+    static int estimateRows(InputStream in,
+                            CellAddressRange region) throws IOException {
+        final int rows = estimateRows(in);
+        return region == null ? rows : region.getNumberOfRows(rows);
+    }
+
+    /**
+     * Estimates the number of rows of a sheet part, from its beginning.
+     * <p>
+     * If there is no usable dimension and {@code prefix} is the whole sheet part,
+     * the {@code r} attribute of all {@code <row>} elements is used.
+     * If one of them has no {@code r} attribute, the number of rows is unknown.
+     *
+     * @param prefix The beginning of the sheet part.
+     * @param length The number of bytes of {@code prefix}.
+     * @param complete {@code true} if {@code prefix} is the whole sheet part.
+     * @return The number of rows of the sheet, or -1 if it can not be estimated.
+     */
+    static int estimateRows(byte[] prefix,
+                            int length,
+                            boolean complete) {
+        final String ref = getDimensionRef(prefix, length);
+        if (ref != null) {
+            final int rows = getLastRow(ref);
+            // A single cell dimension is also used for empty sheets, and by some writers when it is unknown
+            if (rows > 1) {
+                return rows;
+            }
+        }
+        if (complete) {
+            int rows = 0;
+            for (int tag = findElement(prefix, 0, length, "row"); tag >= 0; tag = findElement(prefix, tag + 1, length, "row")) {
+                final int value = findAttribute(prefix, tag, length, "r");
+                final int row = value < 0 ? -1 : getRow(prefix, value, getValueEnd(prefix, value, length));
+                if (row < 0) {
+                    return -1;
+                }
+                rows = Math.max(rows, row);
+            }
+            return rows;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the range of used cells of a sheet part, from its beginning.
+     * <p>
+     * The {@code ref} attribute of the {@code <dimension>} element is used, unless it is {@code A1},
+     * which is also used for empty sheets and by some writers when the dimension is unknown.
+     * If there is no usable dimension and {@code prefix} is the whole sheet part,
+     * the {@code r} attribute of all {@code <c>} elements is used.
+     * If one of them has no {@code r} attribute, the range is unknown.
+     *
+     * @param prefix The beginning of the sheet part.
+     * @param length The number of bytes of {@code prefix}.
+     * @param complete {@code true} if {@code prefix} is the whole sheet part.
+     * @return The range of used cells of the sheet, or {@code null} if it is unknown or the sheet is empty.
+     */
+    static CellAddressRange getDimension(byte[] prefix,
+                                         int length,
+                                         boolean complete) {
+        final String ref = getDimensionRef(prefix, length);
+        if (ref != null) {
+            final CellAddressRange range = getRange(ref);
+            if (range != null && (range.getLastRow() > 0 || range.getLastColumn() > 0)) {
+                return range;
+            }
+        }
+        if (complete) {
+            int firstRow = Integer.MAX_VALUE;
+            int lastRow = -1;
+            int firstColumn = Integer.MAX_VALUE;
+            int lastColumn = -1;
+            for (int tag = findElement(prefix, 0, length, "c"); tag >= 0; tag = findElement(prefix, tag + 1, length, "c")) {
+                final int value = findAttribute(prefix, tag, length, "r");
+                if (value < 0) {
+                    return null;
+                }
+                final int end = getValueEnd(prefix, value, length);
+                final int row = getRow(prefix, value, end) - 1;
+                final int column = getColumn(prefix, value, end);
+                if (row >= 0 && column >= 0) {
+                    firstRow = Math.min(firstRow, row);
+                    lastRow = Math.max(lastRow, row);
+                    firstColumn = Math.min(firstColumn, column);
+                    lastColumn = Math.max(lastColumn, column);
+                }
+            }
+            return lastRow < 0 ? null : new CellAddressRange(firstRow, lastRow, firstColumn, lastColumn);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @param prefix The beginning of the sheet part.
+     * @param length The number of bytes of {@code prefix}.
+     * @return The {@code ref} attribute of the {@code <dimension>} element that precedes {@code <sheetData>}, or {@code null}.
+     */
+    private static String getDimensionRef(byte[] prefix,
+                                          int length) {
+        final int sheetData = findElement(prefix, 0, length, "sheetData");
+        final int end = sheetData >= 0 ? sheetData : length;
+        final int tag = findElement(prefix, 0, end, "dimension");
+        final int value = tag < 0 ? -1 : findAttribute(prefix, tag, end, "ref");
+        if (value < 0) {
+            return null;
+        } else {
+            return new String(prefix, value, getValueEnd(prefix, value, end) - value, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Finds the next start tag of an element, whatever its namespace prefix.
+     *
+     * @param b The bytes.
+     * @param from The index where search starts.
+     * @param to The index where search ends.
+     * @param name The local name of the element.
+     * @return The index of the {@code '<'} of the next start tag of {@code name}, or -1.
+     */
+    private static int findElement(byte[] b,
+                                   int from,
+                                   int to,
+                                   String name) {
+        for (int index = from; index < to; index++) {
+            if (b[index] == '<') {
+                int start = index + 1;
+                int end = skipName(b, start, to);
+                if (end < to && b[end] == ':') {
+                    start = end + 1;
+                    end = skipName(b, start, to);
+                }
+                if (end < to
+                        && (isSpace(b[end]) || b[end] == '/' || b[end] == '>')
+                        && matches(b, start, end, name)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds an attribute value in a start tag.
+     *
+     * @param b The bytes.
+     * @param tag The index of the {@code '<'} of the start tag.
+     * @param to The index where search ends.
+     * @param name The attribute name.
+     * @return The index of the first byte of the value of {@code name}, or -1.
+     *         The byte that precedes it is the opening quote.
+     */
+    private static int findAttribute(byte[] b,
+                                     int tag,
+                                     int to,
+                                     String name) {
+        int index = tag + 1;
+        while (index < to && !isSpace(b[index]) && b[index] != '/' && b[index] != '>') {
+            index++;
+        }
+        while (index < to) {
+            while (index < to && isSpace(b[index])) {
+                index++;
+            }
+            if (index >= to || b[index] == '/' || b[index] == '>') {
+                return -1;
+            }
+            final int nameStart = index;
+            while (index < to && !isSpace(b[index]) && b[index] != '=' && b[index] != '>') {
+                index++;
+            }
+            final int nameEnd = index;
+            while (index < to && isSpace(b[index])) {
+                index++;
+            }
+            if (index >= to || b[index] != '=') {
+                return -1;
+            }
+            index++;
+            while (index < to && isSpace(b[index])) {
+                index++;
+            }
+            if (index >= to || b[index] != '"' && b[index] != '\'') {
+                return -1;
+            }
+            final int value = index + 1;
+            index = getValueEnd(b, value, to);
+            if (index >= to) {
+                return -1;
+            }
+            if (matches(b, nameStart, nameEnd, name)) {
+                return value;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * @param b The bytes.
+     * @param value The index of the first byte of an attribute value.
+     * @param to The index where search ends.
+     * @return The index of the closing quote of the value, or {@code to}.
+     */
+    private static int getValueEnd(byte[] b,
+                                   int value,
+                                   int to) {
+        final byte quote = b[value - 1];
+        int index = value;
+        while (index < to && b[index] != quote) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipName(byte[] b,
+                                int from,
+                                int to) {
+        int index = from;
+        while (index < to
+                && (b[index] >= 'a' && b[index] <= 'z'
+                        || b[index] >= 'A' && b[index] <= 'Z'
+                        || b[index] >= '0' && b[index] <= '9'
+                        || b[index] == '_' || b[index] == '.' || b[index] == '-')) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean matches(byte[] b,
+                                   int from,
+                                   int to,
+                                   String s) {
+        if (to - from != s.length()) {
+            return false;
+        }
+        for (int index = 0; index < s.length(); index++) {
+            if (b[from + index] != s.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * @param b The bytes.
+     * @param from The index of the first byte of a row number or cell reference, such as {@code 12} or {@code $AB$12}.
+     * @param to The index of the byte that follows it.
+     * @return The row number, or -1.
+     */
+    private static int getRow(byte[] b,
+                              int from,
+                              int to) {
+        int index = from;
+        while (index < to && (b[index] == '$' || b[index] >= 'A' && b[index] <= 'Z')) {
+            index++;
+        }
+        if (index == to) {
+            return -1;
+        }
+        long row = 0;
+        for (; index < to; index++) {
+            if (b[index] < '0' || b[index] > '9') {
+                return -1;
+            }
+            row = row * 10 + (b[index] - '0');
+            if (row > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) row;
+    }
+
+    /**
+     * @param b The bytes.
+     * @param from The index of the first byte of a cell reference, such as {@code $AB$12}.
+     * @param to The index of the byte that follows it.
+     * @return The 0-based column index, or -1.
+     */
+    private static int getColumn(byte[] b,
+                                 int from,
+                                 int to) {
+        int column = 0;
+        for (int index = from; index < to; index++) {
+            if (b[index] >= 'A' && b[index] <= 'Z') {
+                column = column * 26 + (b[index] - 'A' + 1);
+            } else if (b[index] != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+
+    /**
+     * @param ref A cell or range reference, such as {@code A1} or {@code A1:Z123}.
+     * @return The 0-based range corresponding to {@code ref}, or {@code null}.
+     */
+    static CellAddressRange getRange(String ref) {
+        final int colon = ref.indexOf(':');
+        final String first = colon >= 0 ? ref.substring(0, colon) : ref;
+        final String last = colon >= 0 ? ref.substring(colon + 1) : ref;
+        final int firstRow = getLastRow(first) - 1;
+        final int lastRow = getLastRow(last) - 1;
+        final int firstColumn = getColumn(first);
+        final int lastColumn = getColumn(last);
+        if (firstRow < 0 || lastRow < firstRow || firstColumn < 0 || lastColumn < firstColumn) {
+            return null;
+        } else {
+            return new CellAddressRange(firstRow, lastRow, firstColumn, lastColumn);
+        }
+    }
+
+    /**
+     * @param ref A cell reference, such as {@code AB12}.
+     * @return The 0-based column index of {@code ref}, or -1.
+     */
+    private static int getColumn(String ref) {
+        int column = 0;
+        for (int index = 0; index < ref.length(); index++) {
+            final char c = ref.charAt(index);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+
+    /**
+     * @param ref A cell or range reference, such as {@code A1} or {@code A1:Z123}.
+     * @return The row number of the last cell of {@code ref}, or -1.
+     */
+    static int getLastRow(String ref) {
+        final int colon = ref.lastIndexOf(':');
+        final String last = colon >= 0 ? ref.substring(colon + 1) : ref;
+        int index = 0;
+        while (index < last.length() && !Character.isDigit(last.charAt(index))) {
+            index++;
+        }
+        return index == last.length() ? -1 : parse(last.substring(index));
+    }
+
+    private static int parse(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package cdc.office.ss.excel;
+
+import java.io.IOException;
+
+import org.apache.poi.ss.util.CellReference;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import cdc.office.ss.CellAddressRange;
+
+/**
+ * SAX filter of a sheet part that only passes a region of the sheet to its content handler.
+ * <p>
+ * <ul>
+ * <li>{@code <row>} elements that are before the region, and {@code <c>} elements that are outside
+ * the region columns, are skipped with their content. No event is passed to the content handler.
+ * <li>Row and cell references of passed elements are translated, so that the region seems to start at {@code A1}.
+ * They are added when they are missing.
+ * <li>Parsing stops at the first {@code <row>} element that is after the region.
+ * {@code endDocument()} is then called on the content handler.
+ * </ul>
+ *
+ * @author Damien Carbonne
+ */
+final class SheetRegionFilter extends XMLFilterImpl {
+    private static final String R = "r";
+    private final CellAddressRange region;
+    private final int firstRow;
+    private final int firstColumn;
+    /** Depth of skipped elements, 0 when elements are passed. */
+    private int skipDepth = 0;
+    private int rowIndex = -1;
+    private int nextRowIndex = 0;
+    private int nextColumnIndex = 0;
+
+    /**
+     * Exception used to stop parsing.
+     */
+    private static final class StopException extends SAXException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private SheetRegionFilter(XMLReader parent,
+                              CellAddressRange region) {
+        super(parent);
+        this.region = region;
+        this.firstRow = Math.max(0, region.getFirstRow());
+        this.firstColumn = Math.max(0, region.getFirstColumn());
+    }
+
+    /**
+     * @param reader The reader.
+     * @param region The region, possibly {@code null}.
+     * @return {@code reader} if {@code region} is {@code null}, or a filter of {@code reader}.
+     */
+    static XMLReader wrap(XMLReader reader,
+                          CellAddressRange region) {
+        return region == null ? reader : new SheetRegionFilter(reader, region);
+    }
+
+    private static String getName(String localName,
+                                  String qName) {
+        return localName == null || localName.isEmpty() ? qName : localName;
+    }
+
+    /**
+     * @param ref The cell reference.
+     * @return The column index of {@code ref}.
+     */
+    private static int getColumn(String ref) {
+        int column = 0;
+        for (int index = 0; index < ref.length(); index++) {
+            final char c = ref.charAt(index);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+
+    private static Attributes set(Attributes attributes,
+                                  String value) {
+        final AttributesImpl result = new AttributesImpl(attributes);
+        final int index = result.getIndex(R);
+        if (index >= 0) {
+            result.setValue(index, value);
+        } else {
+            result.addAttribute("", R, R, "CDATA", value);
+        }
+        return result;
+    }
+
+    @Override
+    public void parse(InputSource input) throws SAXException, IOException {
+        skipDepth = 0;
+        rowIndex = -1;
+        nextRowIndex = 0;
+        nextColumnIndex = 0;
+        try {
+            super.parse(input);
+        } catch (final StopException e) {
+            // Ignore
+        }
+    }
+
+    @Override
+    public void startElement(String uri,
+                             String localName,
+                             String qName,
+                             Attributes atts) throws SAXException {
+        if (skipDepth > 0) {
+            skipDepth++;
+            return;
+        }
+        final String name = getName(localName, qName);
+        Attributes attributes = atts;
+        if ("row".equals(name)) {
+            final String r = atts.getValue(R);
+            rowIndex = r == null ? nextRowIndex : Integer.parseInt(r) - 1;
+            nextRowIndex = rowIndex + 1;
+            nextColumnIndex = 0;
+            if (region.isAfterLastRow(rowIndex)) {
+                super.endDocument();
+                throw new StopException();
+            } else if (!region.containsRow(rowIndex)) {
+                skipDepth = 1;
+                return;
+            }
+            attributes = set(atts, Integer.toString(rowIndex - firstRow + 1));
+        } else if ("c".equals(name)) {
+            final String r = atts.getValue(R);
+            final int columnIndex = r == null ? nextColumnIndex : getColumn(r);
+            nextColumnIndex = columnIndex + 1;
+            if (!region.containsColumn(columnIndex)) {
+                skipDepth = 1;
+                return;
+            }
+            attributes = set(atts,
+                             CellReference.convertNumToColString(columnIndex - firstColumn) + (rowIndex - firstRow + 1));
+        }
+        super.startElement(uri, localName, qName, attributes);
+    }
+
+    @Override
+    public void endElement(String uri,
+                           String localName,
+                           String qName) throws SAXException {
+        if (skipDepth > 0) {
+            skipDepth--;
+        } else {
+            super.endElement(uri, localName, qName);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch,
+                           int start,
+                           int length) throws SAXException {
+        if (skipDepth == 0) {
+            super.characters(ch, start, length);
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch,
+                                    int start,
+                                    int length) throws SAXException {
+        if (skipDepth == 0) {
+            super.ignorableWhitespace(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package cdc.office.ss.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellFill;
+import org.xml.sax.SAXException;
+
+import cdc.office.ss.jfr.SharedStringsLoadEvent;
+import cdc.util.lang.ExceptionWrapper;
+
+/**
+ * Shared strings and styles of a workbook, loaded on first use.
+ * <p>
+ * Parts are loaded from the package passed to {@link #getSharedStrings(OPCPackage)} or {@link #getStyles(OPCPackage)}.
+ * Once loaded, they don't depend on that package anymore, so that they can be reused by several parsings
+ * of the same workbook.<br>
+ * This class is thread-safe.
+ *
+ * @author Damien Carbonne
+ */
+final class WorkbookParts implements Closeable {
+    private final String systemId;
+    /** Cache size of compact shared strings, or -1 to use ReadOnlySharedStringsTable. */
+    private final int sharedStringsCacheSize;
+    private volatile SharedStrings strings = null;
+    private volatile Styles styles = null;
+
+    /** Styles used when the workbook has no styles part. */
+    private static final Styles NO_STYLES = new StylesTable() {
+        @Override
+        public XSSFCellStyle getStyleAt(int idx) {
+            return null;
+        }
+
+        @Override
+        public int getNumCellStyles() {
+            return 0;
+        }
+    };
+
+    public WorkbookParts(String systemId,
+                         int sharedStringsCacheSize) {
+        this.systemId = systemId;
+        this.sharedStringsCacheSize = sharedStringsCacheSize;
+    }
+
+    /**
+     * @return {@code true} if shared strings have been loaded.
+     */
+    public boolean isSharedStringsLoaded() {
+        return strings != null;
+    }
+
+    /**
+     * @return {@code true} if styles have been loaded.
+     */
+    public boolean isStylesLoaded() {
+        return styles != null;
+    }
+
+    /**
+     * Returns the shared strings, loading them from {@code opcPackage} if necessary.
+     *
+     * @param opcPackage The package.
+     * @return The shared strings.
+     * @throws IOException When an IO error occurs.
+     * @throws SAXException When a parsing error occurs.
+     */
+    public SharedStrings getSharedStrings(OPCPackage opcPackage) throws IOException, SAXException {
+        SharedStrings result = strings;
+        if (result == null) {
+            synchronized (this) {
+                result = strings;
+                if (result == null) {
+                    final SharedStringsLoadEvent event = new SharedStringsLoadEvent();
+                    event.begin();
+                    result = sharedStringsCacheSize >= 0
+                            ? CompactSharedStrings.load(opcPackage, sharedStringsCacheSize)
+                            : new ReadOnlySharedStringsTable(opcPackage);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.systemId = systemId;
+                        event.uniqueCount = result.getUniqueCount();
+                        event.commit();
+                    }
+                    strings = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the styles, loading them from {@code opcPackage} if necessary.
+     *
+     * @param opcPackage The package.
+     * @return The styles.
+     * @throws IOException When an IO error occurs.
+     * @throws OpenXML4JException When the package is invalid.
+     */
+    public Styles getStyles(OPCPackage opcPackage) throws IOException, OpenXML4JException {
+        Styles result = styles;
+        if (result == null) {
+            synchronized (this) {
+                result = styles;
+                if (result == null) {
+                    final StylesTable table = new XSSFReader(opcPackage).getStylesTable();
+                    result = table == null ? NO_STYLES : table;
+                    styles = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of shared strings that loads them from {@code opcPackage} on first access.
+     *
+     * @param opcPackage The package.
+     * @return A lazy view of shared strings.
+     */
+    public SharedStrings lazySharedStrings(OPCPackage opcPackage) {
+        return new LazySharedStrings(opcPackage);
+    }
+
+    /**
+     * Returns a view of styles that loads them from {@code opcPackage} on first access.
+     *
+     * @param opcPackage The package.
+     * @return A lazy view of styles.
+     */
+    public Styles lazyStyles(OPCPackage opcPackage) {
+        return new LazyStyles(opcPackage);
+    }
+
+    @Override
+    public void close() {
+        final SharedStrings s = strings;
+        if (s instanceof CompactSharedStrings) {
+            ((CompactSharedStrings) s).close();
+        }
+    }
+
+    private final class LazySharedStrings implements SharedStrings {
+        private final OPCPackage opcPackage;
+
+        LazySharedStrings(OPCPackage opcPackage) {
+            this.opcPackage = opcPackage;
+        }
+
+        private SharedStrings get() {
+            try {
+                return getSharedStrings(opcPackage);
+            } catch (final IOException | SAXException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        @Override
+        public RichTextString getItemAt(int idx) {
+            return get().getItemAt(idx);
+        }
+
+        @Override
+        public int getCount() {
+            return get().getCount();
+        }
+
+        @Override
+        public int getUniqueCount() {
+            return get().getUniqueCount();
+        }
+    }
+
+    private final class LazyStyles implements Styles {
+        private final OPCPackage opcPackage;
+
+        LazyStyles(OPCPackage opcPackage) {
+            this.opcPackage = opcPackage;
+        }
+
+        private Styles get() {
+            try {
+                return getStyles(opcPackage);
+            } catch (final IOException | OpenXML4JException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        @Override
+        public String getNumberFormatAt(short fmtId) {
+            return get().getNumberFormatAt(fmtId);
+        }
+
+        @Override
+        public int putNumberFormat(String fmt) {
+            return get().putNumberFormat(fmt);
+        }
+
+        @Override
+        public void putNumberFormat(short index,
+                                    String fmt) {
+            get().putNumberFormat(index, fmt);
+        }
+
+        @Override
+        public boolean removeNumberFormat(short index) {
+            return get().removeNumberFormat(index);
+        }
+
+        @Override
+        public boolean removeNumberFormat(String fmt) {
+            return get().removeNumberFormat(fmt);
+        }
+
+        @Override
+        public XSSFFont getFontAt(int idx) {
+            return get().getFontAt(idx);
+        }
+
+        @Override
+        public int putFont(XSSFFont font,
+                           boolean forceRegistration) {
+            return get().putFont(font, forceRegistration);
+        }
+
+        @Override
+        public int putFont(XSSFFont font) {
+            return get().putFont(font);
+        }
+
+        @Override
+        public XSSFCellStyle getStyleAt(int idx) {
+            return get().getStyleAt(idx);
+        }
+
+        @Override
+        public int putStyle(XSSFCellStyle style) {
+            return get().putStyle(style);
+        }
+
+        @Override
+        public XSSFCellBorder getBorderAt(int idx) {
+            return get().getBorderAt(idx);
+        }
+
+        @Override
+        public int putBorder(XSSFCellBorder border) {
+            return get().putBorder(border);
+        }
+
+        @Override
+        public XSSFCellFill getFillAt(int idx) {
+            return get().getFillAt(idx);
+        }
+
+        @Override
+        public int putFill(XSSFCellFill fill) {
+            return get().putFill(fill);
+        }
+
+        @Override
+        public int getNumCellStyles() {
+            return get().getNumCellStyles();
+        }
+
+        @Override
+        public int getNumDataFormats() {
+            return get().getNumDataFormats();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package cdc.office.ss.excel;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.poi.hpsf.NoPropertySetStreamException;
+import org.apache.poi.hpsf.PropertySet;
+import org.apache.poi.hpsf.PropertySetFactory;
+import org.apache.poi.hpsf.SummaryInformation;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.util.lang.BlackHole;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of WorkbookProbe for xls files.
+ * <p>
+ * Records of the workbook stream are read with the POI event API, and no object model is built.
+ * Reading stops after the {@code DIMENSIONS} record of the last sheet.
+ * Document properties are read from the summary information stream.
+ * <p>
+ * Encrypted workbooks are not supported.
+ *
+ * @author Damien Carbonne
+ */
+public class XlsWorkbookProbe implements WorkbookProbe {
+    /** Java time of a null FILETIME. */
+    private static final long NULL_FILETIME = -11_644_473_600_000L;
+
+    public XlsWorkbookProbe() {
+        super();
+    }
+
+    public XlsWorkbookProbe(SheetParserFactory factory,
+                            WorkbookKind kind) {
+        BlackHole.discard(factory);
+        BlackHole.discard(kind);
+    }
+
+    @Override
+    public WorkbookInfo probe(File file) throws IOException {
+        Checks.isNotNull(file, "file");
+        try (final POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            return probe(fs, file.getPath(), WorkbookKind.from(file));
+        }
+    }
+
+    @Override
+    public WorkbookInfo probe(InputStream in,
+                              String systemId,
+                              WorkbookKind kind) throws IOException {
+        Checks.isNotNull(in, "in");
+        try (final POIFSFileSystem fs = new POIFSFileSystem(in)) {
+            return probe(fs, systemId, kind);
+        }
+    }
+
+    private static WorkbookInfo probe(POIFSFileSystem fs,
+                                      String systemId,
+                                      WorkbookKind kind) throws IOException {
+        final Listener listener = new Listener();
+        final HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+        try {
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+        } catch (final HSSFUserException e) {
+            throw new IOException("Invalid workbook " + systemId, e);
+        }
+
+        final WorkbookInfo.Builder builder = WorkbookInfo.builder().systemId(systemId).kind(kind);
+        for (int index = 0; index < listener.sheets.size(); index++) {
+            final DimensionsRecord dimensions = listener.dimensions == null ? null : listener.dimensions[index];
+            final String name = listener.sheets.get(index).getSheetname();
+            if (dimensions == null) {
+                builder.sheet(new SheetInfo(index, name, null, -1, -1));
+            } else if (listener.empty[index]
+                    || dimensions.getLastRow() <= dimensions.getFirstRow()
+                    || dimensions.getLastCol() <= dimensions.getFirstCol()) {
+                builder.sheet(new SheetInfo(index, name, null, 0, 0));
+            } else {
+                // Last row and column of DIMENSIONS are exclusive
+                builder.sheet(new SheetInfo(index,
+                                            name,
+                                            new CellAddressRange(dimensions.getFirstRow(),
+                                                                 dimensions.getLastRow() - 1,
+                                                                 dimensions.getFirstCol(),
+                                                                 dimensions.getLastCol() - 1),
+                                            dimensions.getLastRow(),
+                                            dimensions.getLastCol()));
+            }
+        }
+        loadProperties(fs, builder);
+        return builder.build();
+    }
+
+    private static void loadProperties(POIFSFileSystem fs,
+                                       WorkbookInfo.Builder builder) throws IOException {
+        final PropertySet set;
+        try {
+            set = PropertySetFactory.create(fs.getRoot(), SummaryInformation.DEFAULT_STREAM_NAME);
+        } catch (final FileNotFoundException | NoPropertySetStreamException e) {
+            return;
+        }
+        if (set instanceof SummaryInformation) {
+            final SummaryInformation info = (SummaryInformation) set;
+            builder.property(WorkbookInfo.Property.TITLE, info.getTitle())
+                   .property(WorkbookInfo.Property.SUBJECT, info.getSubject())
+                   .property(WorkbookInfo.Property.DESCRIPTION, info.getComments())
+                   .property(WorkbookInfo.Property.KEYWORDS, info.getKeywords())
+                   .property(WorkbookInfo.Property.CREATOR, info.getAuthor())
+                   .property(WorkbookInfo.Property.LAST_MODIFIED_BY, info.getLastAuthor())
+                   .property(WorkbookInfo.Property.CREATED, toString(info.getCreateDateTime()))
+                   .property(WorkbookInfo.Property.MODIFIED, toString(info.getLastSaveDateTime()))
+                   .property(WorkbookInfo.Property.APPLICATION, info.getApplicationName());
+        }
+    }
+
+    /**
+     * @param date The date.
+     * @return The ISO 8601 representation of {@code date}, or {@code null} if it is {@code null} or not set.
+     */
+    private static String toString(Date date) {
+        // Some writers store a null FILETIME, which is 1601-01-01
+        return date == null || date.getTime() <= NULL_FILETIME ? null : date.toInstant().toString();
+    }
+
+    /**
+     * Listener that collects sheets and their dimensions.
+     * <p>
+     * The workbook stream is made of the workbook globals substream, followed by one substream per sheet,
+     * in the order of {@link BoundSheetRecord#getPositionOfBof()}. Substreams may contain nested substreams
+     * (embedded charts), whose records are ignored.
+     * <p>
+     * An {@code A1} dimension is also used for empty sheets. In that case, records of the sheet
+     * are read till its first cell or its end.
+     */
+    private static final class Listener extends AbortableHSSFListener {
+        private static final short CONTINUE = 0;
+        private static final short ABORT = 1;
+        /** Sheets in workbook order. */
+        final List<BoundSheetRecord> sheets = new ArrayList<>();
+        /** Dimensions of sheets in workbook order. */
+        DimensionsRecord[] dimensions;
+        /** {@code true} for empty sheets, in workbook order. */
+        boolean[] empty;
+        /** Indices of sheets, in substream order. */
+        private int[] order;
+        /** Index of current top level substream. 0 is the workbook globals. */
+        private int substream = -1;
+        private int depth = 0;
+        /** {@code true} when the current sheet has an {@code A1} dimension and no cell was found yet. */
+        private boolean pending = false;
+
+        Listener() {
+            super();
+        }
+
+        private boolean isSheet() {
+            return depth == 1 && substream >= 1 && substream <= order.length;
+        }
+
+        private boolean isLastSheet() {
+            return substream == order.length;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record rec) {
+            if (rec instanceof BOFRecord) {
+                depth++;
+                if (depth == 1) {
+                    substream++;
+                    if (substream == 1) {
+                        initOrder();
+                    }
+                }
+            } else if (rec instanceof EOFRecord) {
+                if (pending && isSheet()) {
+                    empty[order[substream - 1]] = true;
+                    pending = false;
+                    depth--;
+                    return isLastSheet() ? ABORT : CONTINUE;
+                }
+                depth--;
+            } else if (rec instanceof BoundSheetRecord) {
+                sheets.add((BoundSheetRecord) rec);
+            } else if (rec instanceof DimensionsRecord && isSheet()) {
+                final DimensionsRecord d = (DimensionsRecord) rec;
+                dimensions[order[substream - 1]] = d;
+                pending = d.getFirstRow() == 0 && d.getLastRow() <= 1 && d.getFirstCol() == 0 && d.getLastCol() <= 1;
+                // Stop reading after the last sheet
+                return !pending && isLastSheet() ? ABORT : CONTINUE;
+            } else if (rec instanceof CellValueRecordInterface && pending && isSheet()) {
+                pending = false;
+                return isLastSheet() ? ABORT : CONTINUE;
+            }
+            return CONTINUE;
+        }
+
+        private void initOrder() {
+            final BoundSheetRecord[] ordered = BoundSheetRecord.orderByBofPosition(sheets);
+            order = new int[ordered.length];
+            for (int pos = 0; pos < ordered.length; pos++) {
+                order[pos] = sheets.indexOf(ordered[pos]);
+            }
+            dimensions = new DimensionsRecord[sheets.size()];
+            empty = new boolean[sheets.size()];
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package cdc.office.ss.excel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.util.lang.BlackHole;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of WorkbookProbe for xlsx and xlsm files.
+ * <p>
+ * Only package relationships, the workbook part, document properties parts ({@code docProps/core.xml}
+ * and {@code docProps/app.xml}) and the beginning of each sheet part are read.
+ * Shared strings, styles and cells are not read.
+ * <ul>
+ * <li>The dimension of a sheet is the {@code ref} attribute of its {@code <dimension>} element.
+ * If it is missing or {@code A1} and the sheet part is small, cell references are used.
+ * <li>The number of rows (resp. columns) of a sheet is the index of its last used row (resp. column) plus 1.
+ * </ul>
+ * When a stream is probed, it is read till its end, but only the beginning of large entries is kept in memory.
+ *
+ * @author Damien Carbonne
+ */
+public class XlsxWorkbookProbe implements WorkbookProbe {
+    private static final Logger LOGGER = LogManager.getLogger(XlsxWorkbookProbe.class);
+    private static final String REL_TYPE_OFFICE_DOCUMENT = "/officeDocument";
+    private static final String REL_TYPE_CORE_PROPERTIES = "/core-properties";
+    private static final String REL_TYPE_EXTENDED_PROPERTIES = "/extended-properties";
+
+    private final boolean disableVulnerabilityDetections;
+
+    public XlsxWorkbookProbe() {
+        this.disableVulnerabilityDetections = false;
+    }
+
+    public XlsxWorkbookProbe(SheetParserFactory factory,
+                             WorkbookKind kind) {
+        this.disableVulnerabilityDetections = factory.isEnabled(SheetParserFactory.Feature.DISABLE_VULNERABILITY_PROTECTIONS);
+        BlackHole.discard(kind);
+    }
+
+    @Override
+    public WorkbookInfo probe(File file) throws IOException {
+        Checks.isNotNull(file, "file");
+        try (final NativeWorkbook.Source source = new NativeWorkbook.FileSource(file, !disableVulnerabilityDetections)) {
+            return probe(source, file.getPath(), WorkbookKind.from(file));
+        }
+    }
+
+    @Override
+    public WorkbookInfo probe(InputStream in,
+                              String systemId,
+                              WorkbookKind kind) throws IOException {
+        Checks.isNotNull(in, "in");
+        try (final NativeWorkbook.Source source = new PrefixSource(in, !disableVulnerabilityDetections)) {
+            return probe(source, systemId, kind);
+        }
+    }
+
+    private static WorkbookInfo probe(NativeWorkbook.Source source,
+                                      String systemId,
+                                      WorkbookKind kind) throws IOException {
+        try {
+            final Map<String, String> rootRels = loadRelationships(source, "", "_rels/.rels");
+            final String workbookPart = getTarget(rootRels, REL_TYPE_OFFICE_DOCUMENT, "xl/workbook.xml");
+            final Map<String, String> workbookRels =
+                    loadRelationships(source, workbookPart, NativeWorkbook.relsPart(workbookPart));
+
+            final WorkbookInfo.Builder builder = WorkbookInfo.builder().systemId(systemId).kind(kind);
+            loadSheets(source, workbookPart, workbookRels, builder);
+            loadCoreProperties(source, getTarget(rootRels, REL_TYPE_CORE_PROPERTIES, "docProps/core.xml"), builder);
+            loadExtendedProperties(source, getTarget(rootRels, REL_TYPE_EXTENDED_PROPERTIES, "docProps/app.xml"), builder);
+            return builder.build();
+        } catch (final XMLStreamException e) {
+            throw new IOException("Invalid workbook " + systemId, e);
+        }
+    }
+
+    private static String getTarget(Map<String, String> rels,
+                                    String typeSuffix,
+                                    String def) {
+        for (final Map.Entry<String, String> entry : rels.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().endsWith(typeSuffix)) {
+                return entry.getValue();
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Loads relationships.
+     *
+     * @param source The source.
+     * @param part The source part name.
+     * @param relsPart The relationships part name.
+     * @return A map from relationship types (for package relationships) or ids (for other parts) to target part names.
+     */
+    private static Map<String, String> loadRelationships(NativeWorkbook.Source source,
+                                                         String part,
+                                                         String relsPart) throws IOException, XMLStreamException {
+        final Map<String, String> result = new HashMap<>();
+        try (final InputStream in = source.open(relsPart)) {
+            if (in != null) {
+                final XMLStreamReader reader = NativeWorkbook.newReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && "Relationship".equals(reader.getLocalName())) {
+                        final String key = NativeWorkbook.getAttribute(reader, part.isEmpty() ? "Type" : "Id");
+                        result.put(key, NativeWorkbook.resolve(part, NativeWorkbook.getAttribute(reader, "Target")));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void loadSheets(NativeWorkbook.Source source,
+                                   String workbookPart,
+                                   Map<String, String> workbookRels,
+                                   WorkbookInfo.Builder builder) throws IOException, XMLStreamException {
+        final List<String> names = new ArrayList<>();
+        final List<String> parts = new ArrayList<>();
+        try (final InputStream in = source.open(workbookPart)) {
+            if (in == null) {
+                throw new IOException("Missing workbook part: " + workbookPart);
+            }
+            final XMLStreamReader reader = NativeWorkbook.newReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                    // Same selection as NativeWorkbook, so that indices match
+                    final String part = workbookRels.get(NativeWorkbook.getAttribute(reader, "id"));
+                    if (part != null) {
+                        names.add(NativeWorkbook.getAttribute(reader, "name"));
+                        parts.add(part);
+                    }
+                }
+            }
+        }
+
+        final byte[] buffer = new byte[SheetDimension.PREFIX_SIZE];
+        for (int index = 0; index < names.size(); index++) {
+            try (final InputStream in = source.open(parts.get(index))) {
+                if (in == null) {
+                    builder.sheet(new SheetInfo(index, names.get(index), null, -1, -1));
+                } else {
+                    final int length = SheetDimension.read(in, buffer);
+                    final boolean complete = length < buffer.length;
+                    final CellAddressRange dimension = SheetDimension.getDimension(buffer, length, complete);
+                    if (dimension == null) {
+                        final int rows = SheetDimension.estimateRows(buffer, length, complete);
+                        builder.sheet(new SheetInfo(index, names.get(index), null, rows, rows == 0 ? 0 : -1));
+                    } else {
+                        builder.sheet(new SheetInfo(index,
+                                                    names.get(index),
+                                                    dimension,
+                                                    dimension.getLastRow() + 1,
+                                                    dimension.getLastColumn() + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void loadCoreProperties(NativeWorkbook.Source source,
+                                           String part,
+                                           WorkbookInfo.Builder builder) throws IOException, XMLStreamException {
+        try (final InputStream in = source.open(part)) {
+            if (in != null) {
+                final XMLStreamReader reader = NativeWorkbook.newReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        final WorkbookInfo.Property property = getCoreProperty(reader.getLocalName());
+                        if (property != null) {
+                            try {
+                                builder.property(property, reader.getElementText().trim());
+                            } catch (final XMLStreamException e) {
+                                // Mixed content: the property is ignored
+                                LOGGER.warn("Ignored {} property of {}: {}", property, part, e.getMessage());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static WorkbookInfo.Property getCoreProperty(String localName) {
+        switch (localName) {
+        case "title":
+            return WorkbookInfo.Property.TITLE;
+        case "subject":
+            return WorkbookInfo.Property.SUBJECT;
+        case "description":
+            return WorkbookInfo.Property.DESCRIPTION;
+        case "keywords":
+            return WorkbookInfo.Property.KEYWORDS;
+        case "creator":
+            return WorkbookInfo.Property.CREATOR;
+        case "lastModifiedBy":
+            return WorkbookInfo.Property.LAST_MODIFIED_BY;
+        case "created":
+            return WorkbookInfo.Property.CREATED;
+        case "modified":
+            return WorkbookInfo.Property.MODIFIED;
+        default:
+            return null;
+        }
+    }
+
+    private static void loadExtendedProperties(NativeWorkbook.Source source,
+                                               String part,
+                                               WorkbookInfo.Builder builder) throws IOException, XMLStreamException {
+        try (final InputStream in = source.open(part)) {
+            if (in != null) {
+                final XMLStreamReader reader = NativeWorkbook.newReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Application".equals(reader.getLocalName())) {
+                        builder.property(WorkbookInfo.Property.APPLICATION, reader.getElementText().trim());
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Source based on a ZipArchiveInputStream.
+     * <p>
+     * Relationships, workbook and document properties parts are loaded in memory.
+     * Only the beginning of sheet parts, resolved from the workbook relationships, is loaded.
+     * XML parts that precede the workbook relationships are loaded in the same way, and discarded
+     * once they are known not to be sheets. Other entries are ignored.
+     */
+    static final class PrefixSource implements NativeWorkbook.Source {
+        private final Map<String, byte[]> entries = new HashMap<>();
+        /** Names of entries that are fully loaded. */
+        private final Set<String> full = new HashSet<>();
+        /** Names of sheet parts, or {@code null} if they are not yet known. */
+        private Set<String> sheetParts = null;
+
+        PrefixSource(InputStream in,
+                     boolean checkInflateRatio) throws IOException {
+            final ZipArchiveInputStream zip = new ZipArchiveInputStream(in);
+            final byte[] buffer = new byte[8192];
+            ZipArchiveEntry entry;
+            while ((entry = zip.getNextZipEntry()) != null) {
+                final String name = entry.getName();
+                final boolean isFull = name.endsWith(".rels")
+                        || name.startsWith("docProps/")
+                        || name.endsWith("workbook.xml");
+                if (isFull || name.endsWith(".xml") && (sheetParts == null || sheetParts.contains(name))) {
+                    final InputStream data =
+                            checkInflateRatio ? new NativeWorkbook.RatioInputStream(zip, name, zip) : zip;
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    int n;
+                    while ((isFull || out.size() < SheetDimension.PREFIX_SIZE)
+                            && (n = data.read(buffer, 0, isFull
+                                    ? buffer.length
+                                    : Math.min(buffer.length, SheetDimension.PREFIX_SIZE - out.size()))) > 0) {
+                        out.write(buffer, 0, n);
+                    }
+                    entries.put(name, out.toByteArray());
+                    if (isFull) {
+                        full.add(name);
+                    }
+                    if (sheetParts == null && name.endsWith(".rels")) {
+                        resolveSheetParts();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Once root and workbook relationships are loaded, sets the names of sheet parts
+         * and discards other prefixes.
+         */
+        private void resolveSheetParts() throws IOException {
+            try {
+                if (entries.containsKey("_rels/.rels")) {
+                    final String workbookPart =
+                            getTarget(loadRelationships(this, "", "_rels/.rels"), REL_TYPE_OFFICE_DOCUMENT, "xl/workbook.xml");
+                    final String relsPart = NativeWorkbook.relsPart(workbookPart);
+                    if (entries.containsKey(relsPart)) {
+                        final Set<String> parts = new HashSet<>();
+                        try (final InputStream in = open(relsPart)) {
+                            final XMLStreamReader reader = NativeWorkbook.newReader(in);
+                            while (reader.hasNext()) {
+                                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                                        && "Relationship".equals(reader.getLocalName())) {
+                                    final String type = NativeWorkbook.getAttribute(reader, "Type");
+                                    // worksheet, chartsheet, dialogsheet, xlMacrosheet, ...
+                                    if (type != null && type.endsWith("sheet")) {
+                                        parts.add(NativeWorkbook.resolve(workbookPart,
+                                                                         NativeWorkbook.getAttribute(reader, "Target")));
+                                    }
+                                }
+                            }
+                        }
+                        sheetParts = parts;
+                        entries.keySet().removeIf(name -> !full.contains(name) && !parts.contains(name));
+                    }
+                }
+            } catch (final XMLStreamException e) {
+                throw new IOException("Invalid relationships", e);
+            }
+        }
+
+        @Override
+        public InputStream open(String name) {
+            final byte[] bytes = entries.get(name);
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public void close() {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+class CompactSharedStringsTest {
+    private static CompactSharedStrings load(String xml,
+                                             int cacheSize,
+                                             long segmentSize) throws IOException, SAXException {
+        return new CompactSharedStrings(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                                        cacheSize,
+                                        segmentSize);
+    }
+
+    @Test
+    void testBasic() throws IOException, SAXException {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"10\" uniqueCount=\"5\">"
+                + "<si><t>Hello</t></si>"
+                + "<si><r><rPr><b/></rPr><t>Rich </t></r><r><t>text</t></r></si>"
+                + "<si><t>été 中</t><rPh sb=\"0\" eb=\"1\"><t>phonetic</t></rPh></si>"
+                + "<si><t/></si>"
+                + "<si><t>A_x000D_B_x_</t></si>"
+                + "</sst>";
+        try (final CompactSharedStrings sst = load(xml, 8, 1L << 30)) {
+            assertEquals(5, sst.size());
+            assertEquals(10, sst.getCount());
+            assertEquals(5, sst.getUniqueCount());
+            assertEquals("Hello", sst.getString(0));
+            assertEquals("Rich text", sst.getString(1));
+            assertEquals("été 中", sst.getString(2));
+            assertEquals("", sst.getString(3));
+            assertEquals("A\rB_x_", sst.getString(4));
+            assertEquals("Hello", sst.getItemAt(0).getString());
+            assertEquals("Hello", sst.getItemAt(0).toString());
+            assertEquals(2, sst.getCacheHits());
+            assertEquals(5, sst.getCacheMisses());
+            assertThrows(IndexOutOfBoundsException.class, () -> sst.getString(5));
+        }
+    }
+
+    @Test
+    void testSegments() throws IOException, SAXException {
+        final StringBuilder xml = new StringBuilder("<sst>");
+        for (int index = 0; index < 1000; index++) {
+            xml.append("<si><t>String ").append(index).append("</t></si>");
+        }
+        xml.append("</sst>");
+        try (final CompactSharedStrings sst = load(xml.toString(), 0, 100L)) {
+            assertEquals(1000, sst.size());
+            assertEquals(1000, sst.getUniqueCount());
+            for (int index = 999; index >= 0; index--) {
+                assertEquals("String " + index, sst.getString(index));
+            }
+            assertEquals(0, sst.getCacheHits());
+        }
+    }
+
+    @Test
+    void testClosed() throws IOException, SAXException {
+        final CompactSharedStrings sst = load("<sst><si><t>A</t></si></sst>", 0, 1L << 30);
+        sst.close();
+        assertThrows(IllegalStateException.class, () -> sst.getString(0));
+    }
+}
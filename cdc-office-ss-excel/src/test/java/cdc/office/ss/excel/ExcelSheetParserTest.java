@@ -1,18 +1,32 @@
 package cdc.office.ss.excel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookWriterFeatures;
 import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableSection;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.metrics.BasicTableMetrics;
+import cdc.util.function.Evaluation;
 
 class ExcelSheetParserTest {
     private static final Logger LOGGER = LogManager.getLogger(ExcelSheetParserTest.class);
@@ -95,4 +109,205 @@ class ExcelSheetParserTest {
                    1,
                    SheetParserFactory.Feature.POI_SAX);
     }
-}
\ No newline at end of file
+
+    private static List<Row> load(File file,
+                                  SheetParserFactory.Feature... features) throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setSharedStringsCacheSize(16);
+        for (final SheetParserFactory.Feature feature : features) {
+            factory.setEnabled(feature, true);
+        }
+        final MemoryTableHandler handler = new MemoryTableHandler(false);
+        factory.create(file).parse(file, null, 0, 1, handler);
+        return handler.getRows();
+    }
+
+    private static void check(List<Row> expected,
+                              List<Row> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            assertEquals(expected.get(index).getValues(), actual.get(index).getValues(), "row " + index);
+        }
+    }
+
+    private static File createSparse() throws IOException {
+        final File file = new File("target/" + ExcelSheetParserTest.class.getSimpleName() + "-sparse.xlsx");
+        try (final ExcelWorkbookWriter writer = new ExcelWorkbookWriter(file, WorkbookWriterFeatures.DEFAULT, false)) {
+            writer.beginSheet("Sheet");
+            writer.beginRow(TableSection.HEADER);
+            writer.addCell("K");
+            writer.addCell("V1");
+            writer.addCell("V2");
+            for (int index = 0; index < 1000; index++) {
+                writer.beginRow(TableSection.DATA);
+                if (index % 7 != 0) {
+                    writer.addCell("K" + index);
+                    writer.addCell("V" + (index % 300));
+                    writer.addCell("W" + (index * 31 % 500));
+                }
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void testPoiSaxSparse() throws IOException {
+        final File file = createSparse();
+        check(load(file, SheetParserFactory.Feature.POI_STREAMING),
+              load(file, SheetParserFactory.Feature.POI_SAX));
+    }
+
+    @Test
+    void testCompactSharedStrings() throws IOException {
+        final File file = createSparse();
+        final List<Row> expected = load(file, SheetParserFactory.Feature.POI_STREAMING);
+        check(expected,
+              load(file, SheetParserFactory.Feature.POI_STREAMING, SheetParserFactory.Feature.COMPACT_SHARED_STRINGS));
+        check(expected,
+              load(file, SheetParserFactory.Feature.POI_SAX, SheetParserFactory.Feature.COMPACT_SHARED_STRINGS));
+    }
+
+    private static File createSheets() throws IOException {
+        final File file = new File("target/" + ExcelSheetParserTest.class.getSimpleName() + "-sheets.xlsx");
+        try (final ExcelWorkbookWriter writer = new ExcelWorkbookWriter(file, WorkbookWriterFeatures.DEFAULT, true)) {
+            for (int sheet = 0; sheet < 6; sheet++) {
+                writer.beginSheet("Sheet" + sheet);
+                writer.beginRow(TableSection.HEADER);
+                writer.addCell("K");
+                writer.addCell("V");
+                for (int index = 0; index < 1000 * (sheet + 1); index++) {
+                    writer.beginRow(TableSection.DATA);
+                    writer.addCell("K" + sheet + "-" + index);
+                    writer.addCell("V" + index % 100);
+                }
+            }
+        }
+        return file;
+    }
+
+    private static List<String> loadAll(File file,
+                                        int parallelism,
+                                        SheetParserFactory.Feature feature) throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(feature, true);
+        factory.setParallelism(parallelism);
+        final List<String> events = new ArrayList<>();
+        factory.create(file).parse(file, null, 1, new TablesHandler() {
+            @Override
+            public void processBeginTable(String name,
+                                          int numberOfRows) {
+                events.add("begin " + name);
+            }
+
+            @Override
+            public Evaluation processHeader(Row header,
+                                            RowLocation location) {
+                events.add("header " + header.getValues());
+                return Evaluation.CONTINUE;
+            }
+
+            @Override
+            public Evaluation processData(Row data,
+                                          RowLocation location) {
+                events.add(location.getGlobalNumber() + " " + data.getValues());
+                return Evaluation.CONTINUE;
+            }
+
+            @Override
+            public void processEndTable(String name) {
+                events.add("end " + name);
+            }
+        });
+        return events;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "POI_SAX", "POI_STREAMING" })
+    void testParallelSheets(String feature) throws IOException {
+        final File file = createSheets();
+        final SheetParserFactory.Feature f = SheetParserFactory.Feature.valueOf(feature);
+        final List<String> expected = loadAll(file, 1, f);
+        assertEquals(expected, loadAll(file, 4, f));
+
+        final Map<String, MemoryTableHandler> handlers = new ConcurrentHashMap<>();
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(f, true);
+        factory.setParallelism(4);
+        factory.create(file).parse(file, null, 1, name -> handlers.computeIfAbsent(name, n -> new MemoryTableHandler(false)));
+        assertEquals(6, handlers.size());
+        for (int sheet = 0; sheet < 6; sheet++) {
+            final MemoryTableHandler handler = handlers.get("Sheet" + sheet);
+            assertEquals(1000 * (sheet + 1), handler.getDataRowsCount());
+            assertEquals("K" + sheet + "-999", handler.getRow(1000).getValue(0));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "POI_SAX", "POI_STREAMING" })
+    void testParallelSheetsMetrics(String feature) throws IOException {
+        final File file = createSheets();
+        final BasicTableMetrics metrics = new BasicTableMetrics();
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.valueOf(feature), true);
+        factory.setParallelism(4);
+        factory.setMetrics(metrics);
+        factory.create(file).parse(file, null, 1, name -> new MemoryTableHandler(false) {
+            @Override
+            public Evaluation processData(Row data,
+                                          RowLocation location) {
+                threads.add(Thread.currentThread());
+                return super.processData(data, location);
+            }
+        });
+        // Sheets are still parsed concurrently
+        assertTrue(threads.stream().anyMatch(t -> t != Thread.currentThread()), threads.toString());
+        assertEquals(6L, metrics.getTablesCount());
+        assertEquals(6L, metrics.getHeaderRowsCount());
+        assertEquals(21000L, metrics.getDataRowsCount());
+        assertEquals(file.length(), metrics.getBytesCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "POI_SAX", "POI_STREAMING", "NATIVE" })
+    void testNumberOfRows(String feature) throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.valueOf(feature), true);
+        for (final File file : new File[] { createSparse(), createSheets(), new File("src/test/resources/file1.xlsx") }) {
+            for (final int parallelism : new int[] { 1, 4 }) {
+                factory.setParallelism(parallelism);
+                final List<String> expected = new ArrayList<>();
+                final List<String> actual = new ArrayList<>();
+                factory.create(file).parse(file, null, 1, new TablesHandler() {
+                    private final MemoryTableHandler delegate = new MemoryTableHandler(false);
+
+                    @Override
+                    public void processBeginTable(String name,
+                                                  int numberOfRows) {
+                        actual.add(name + " " + numberOfRows);
+                        delegate.processBeginTable(name, numberOfRows);
+                    }
+
+                    @Override
+                    public Evaluation processHeader(Row header,
+                                                    RowLocation location) {
+                        return delegate.processHeader(header, location);
+                    }
+
+                    @Override
+                    public Evaluation processData(Row data,
+                                                  RowLocation location) {
+                        return delegate.processData(data, location);
+                    }
+
+                    @Override
+                    public void processEndTable(String name) {
+                        delegate.processEndTable(name);
+                        expected.add(name + " " + delegate.getRowsCount());
+                    }
+                });
+                assertEquals(expected, actual, file.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookWriterTestSupport;
+import cdc.office.tables.CellType;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.TypedRow;
+import cdc.util.function.Evaluation;
+
+class NativeSheetParserTest extends WorkbookWriterTestSupport {
+    private static class Recorder implements TablesHandler {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void processBeginTable(String name,
+                                      int numberOfRows) {
+            events.add("begin " + name);
+        }
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            events.add("header " + location.getGlobalNumber() + " " + header.getValues());
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            events.add("data " + location.getGlobalNumber() + " " + data.getValues());
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public void processEndTable(String name) {
+            events.add("end " + name);
+        }
+    }
+
+    private static SheetParser create(SheetParserFactory.Feature... features) {
+        final SheetParserFactory factory = new SheetParserFactory();
+        for (final SheetParserFactory.Feature feature : features) {
+            factory.setEnabled(feature, true);
+        }
+        return factory.create(WorkbookKind.XLSX);
+    }
+
+    private static List<String> parse(SheetParser parser,
+                                      File file) throws IOException {
+        final Recorder recorder = new Recorder();
+        parser.parse(file, null, 1, recorder);
+        return recorder.events;
+    }
+
+    private static void check(File file) throws IOException {
+        final List<String> expected = parse(create(SheetParserFactory.Feature.POI_STREAMING), file);
+        final SheetParser parser = create(SheetParserFactory.Feature.NATIVE);
+        assertEquals(NativeSheetParser.class, parser.getClass());
+        assertEquals(expected, parse(parser, file));
+        assertEquals(expected,
+                     parse(create(SheetParserFactory.Feature.NATIVE, SheetParserFactory.Feature.COMPACT_SHARED_STRINGS),
+                           file));
+
+        // Typed rows have the same values
+        final SheetParser typed = create(SheetParserFactory.Feature.NATIVE, SheetParserFactory.Feature.TYPED_ROWS);
+        assertEquals(expected, parse(typed, file));
+
+        final Recorder recorder = new Recorder();
+        try (final InputStream in = new FileInputStream(file)) {
+            parser.parse(in, file.getPath(), WorkbookKind.from(file), null, 1, recorder);
+        }
+        assertEquals(expected, recorder.events);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "normal.xlsx", "file1.xlsx", "file1.xlsm", "file2.xlsx" })
+    void testResources(String filename) throws IOException {
+        check(new File("src/test/resources", filename));
+    }
+
+    @Test
+    void testTypes() throws IOException {
+        final File file = new File("target/" + NativeSheetParserTest.class.getSimpleName() + "-types.xlsx");
+        testTypesFile(file, 3, 100);
+        check(file);
+    }
+
+    @Test
+    void testSheet() throws IOException {
+        final File file = new File("src/test/resources/file1.xlsx");
+        final SheetParser expected = create(SheetParserFactory.Feature.POI_STREAMING);
+        final SheetParser parser = create(SheetParserFactory.Feature.NATIVE);
+        final Recorder r1 = new Recorder();
+        final Recorder r2 = new Recorder();
+        expected.parse(file, null, 0, 1, r1);
+        parser.parse(file, null, 0, 1, r2);
+        assertEquals(r1.events, r2.events);
+
+        final String name = r1.events.get(0).substring("begin ".length());
+        final Recorder r3 = new Recorder();
+        parser.parse(file, null, name, 1, r3);
+        assertEquals(r1.events, r3.events);
+
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(file, null, "?", 1, new Recorder()));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(file, null, 100, 1, new Recorder()));
+    }
+
+    @Test
+    void testResolve() {
+        assertEquals("xl/workbook.xml", NativeWorkbook.resolve("", "xl/workbook.xml"));
+        assertEquals("xl/worksheets/sheet1.xml", NativeWorkbook.resolve("xl/workbook.xml", "worksheets/sheet1.xml"));
+        assertEquals("xl/worksheets/sheet1.xml", NativeWorkbook.resolve("xl/workbook.xml", "/xl/worksheets/sheet1.xml"));
+        assertEquals("sst.xml", NativeWorkbook.resolve("xl/workbook.xml", "../sst.xml"));
+    }
+
+    @Test
+    void testTypedRows() throws IOException {
+        final File file = new File("target/" + NativeSheetParserTest.class.getSimpleName() + "-typed.xlsx");
+        testTypesFile(file, 1, 10);
+        final MemoryTableHandler expected = new MemoryTableHandler(false);
+        create(SheetParserFactory.Feature.NATIVE).parse(file, null, 0, 1, expected);
+        final MemoryTableHandler actual = new MemoryTableHandler(false);
+        create(SheetParserFactory.Feature.NATIVE, SheetParserFactory.Feature.TYPED_ROWS).parse(file, null, 0, 1, actual);
+        assertEquals(expected.getRows(), actual.getRows());
+
+        final Set<CellType> types = EnumSet.noneOf(CellType.class);
+        for (final Row row : actual.getRows()) {
+            assertTrue(row instanceof TypedRow);
+            final TypedRow typed = (TypedRow) row;
+            for (int column = 0; column < typed.size(); column++) {
+                types.add(typed.getType(column));
+                if (typed.getType(column) == CellType.NUMBER) {
+                    assertEquals(typed.getNumber(column), typed.getValueAsDouble(column, null));
+                }
+            }
+        }
+        assertTrue(types.contains(CellType.STRING));
+        assertTrue(types.contains(CellType.NUMBER));
+    }
+}
@@ -0,0 +1,102 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.ss.CellAddressRange;
+
+class SheetDimensionTest {
+    private static final String BEGIN =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?><worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">";
+
+    private static int estimateRows(String prefix,
+                                    boolean complete) {
+        final byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return SheetDimension.estimateRows(bytes, bytes.length, complete);
+    }
+
+    private static CellAddressRange getDimension(String prefix,
+                                                 boolean complete) {
+        final byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return SheetDimension.getDimension(bytes, bytes.length, complete);
+    }
+
+    @Test
+    void testGetLastRow() {
+        assertEquals(10, SheetDimension.getLastRow("A1:B10"));
+        assertEquals(123456, SheetDimension.getLastRow("$A$1:$Z$123456"));
+        assertEquals(1, SheetDimension.getLastRow("A1"));
+        assertEquals(-1, SheetDimension.getLastRow("A:B"));
+        assertEquals(-1, SheetDimension.getLastRow(""));
+    }
+
+    @Test
+    void testEstimateRows() {
+        assertEquals(100,
+                     estimateRows(BEGIN + "<dimension ref=\"A1:C100\"/><sheetData>", false));
+        assertEquals(100,
+                     estimateRows(BEGIN.replace("<worksheet", "<x:worksheet")
+                             + "<x:dimension ref='B3:C100'/><x:sheetData>", false));
+        // Dimension after sheetData is ignored
+        assertEquals(-1,
+                     estimateRows(BEGIN + "<sheetData><row r=\"1\"></row><dimension ref=\"A1:C100\"/>", false));
+        // Single cell dimension
+        assertEquals(-1,
+                     estimateRows(BEGIN + "<dimension ref=\"A1\"/><sheetData><row r=\"1\">", false));
+        assertEquals(3,
+                     estimateRows(BEGIN + "<dimension ref=\"A1\"/><sheetData><row r=\"1\"/><row r=\"3\"/>"
+                             + "</sheetData></worksheet>", true));
+        assertEquals(2,
+                     estimateRows(BEGIN + "<sheetData><row spans=\"1:2\" r=\"2\"/></sheetData></worksheet>",
+                                                 true));
+        assertEquals(0,
+                     estimateRows(BEGIN + "<dimension ref=\"A1\"/><sheetData/></worksheet>", true));
+        // Rows without r attribute
+        assertEquals(-1,
+                     estimateRows(BEGIN + "<sheetData><row><c><v>1</v></c></row><row/></sheetData></worksheet>", true));
+        assertEquals(-1,
+                     estimateRows(BEGIN + "<sheetData><row r=\"1\"/><row/></sheetData></worksheet>", true));
+    }
+
+    @Test
+    void testGetDimension() {
+        assertEquals(new CellAddressRange(2, 99, 1, 2),
+                     getDimension(BEGIN + "<dimension ref=\"$B$3:$C$100\"/><sheetData>", false));
+        assertEquals(null,
+                     getDimension(BEGIN + "<dimension ref=\"A1\"/><sheetData><row r=\"1\">", false));
+        assertEquals(new CellAddressRange(1, 2, 0, 27),
+                     getDimension(BEGIN + "<dimension ref=\"A1\"/><sheetData><row r=\"2\"><c r=\"A2\" t=\"s\"><v>0</v></c></row>"
+                             + "<row r=\"3\"><c s='1' r='AB3'/></row></sheetData></worksheet>", true));
+        // Cells without r attribute
+        assertEquals(null,
+                     getDimension(BEGIN + "<sheetData><row r=\"1\"><c><v>1</v></c></row></sheetData></worksheet>", true));
+    }
+
+    @Test
+    void testStreamIsReset() throws IOException {
+        final StringBuilder builder = new StringBuilder(BEGIN);
+        builder.append("<dimension ref=\"A1:A5000\"/><sheetData>");
+        for (int index = 1; index <= 5000; index++) {
+            builder.append("<row r=\"").append(index).append("\"><c r=\"A").append(index).append("\"><v>")
+                   .append(index).append("</v></c></row>");
+        }
+        builder.append("</sheetData></worksheet>");
+        final byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        final InputStream in = SheetDimension.markable(new ByteArrayInputStream(bytes) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        });
+        assertEquals(5000, SheetDimension.estimateRows(in));
+        assertArrayEquals(bytes, in.readAllBytes());
+    }
+}
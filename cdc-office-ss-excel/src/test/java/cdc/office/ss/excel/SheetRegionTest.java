@@ -0,0 +1,229 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+
+class SheetRegionTest {
+    private static final File FILE = new File("target/" + SheetRegionTest.class.getSimpleName() + ".xlsx");
+
+    /**
+     * Creates a workbook with 2 sheets, with missing rows and cells.
+     *
+     * @param file The file.
+     * @throws IOException When an IO error occurs.
+     */
+    private static void create(File file) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            for (int s = 0; s < 2; s++) {
+                final Sheet sheet = workbook.createSheet("Sheet" + s);
+                for (int r = 0; r < 60; r++) {
+                    if (r % 7 == 3) {
+                        continue;
+                    }
+                    final org.apache.poi.ss.usermodel.Row row = sheet.createRow(r);
+                    for (int c = 0; c < 10; c++) {
+                        if ((r + c) % 5 == 1) {
+                            continue;
+                        }
+                        if (c % 2 == 0) {
+                            row.createCell(c).setCellValue("S" + s + "-" + r + "-" + c);
+                        } else {
+                            row.createCell(c).setCellValue(r * 100.0 + c);
+                        }
+                    }
+                }
+            }
+            try (final OutputStream out = Files.newOutputStream(file.toPath())) {
+                workbook.write(out);
+            }
+        }
+    }
+
+    private static SheetParserFactory factory(SheetParserFactory.Feature feature,
+                                              int parallelism,
+                                              CellAddressRange region) {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(feature, true);
+        factory.setParallelism(parallelism);
+        factory.setRegion(region);
+        return factory;
+    }
+
+    private static List<Row> normalize(List<Row> rows) {
+        final List<Row> result = new ArrayList<>();
+        for (final Row row : rows) {
+            int size = row.size();
+            while (size > 0 && row.getValue(size - 1) == null) {
+                size--;
+            }
+            result.add(Row.builder().addValues(row.getValues().subList(0, size)).build());
+        }
+        while (!result.isEmpty() && result.get(result.size() - 1).isEmpty()) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    private static List<Row> restrict(List<Row> rows,
+                                      CellAddressRange region) {
+        final List<Row> result = new ArrayList<>();
+        for (int index = 0; index < rows.size(); index++) {
+            if (region.containsRow(index)) {
+                final Row row = rows.get(index);
+                final Row.Builder builder = Row.builder();
+                for (int column = region.getFirstColumn(); column < row.size() && region.containsColumn(column); column++) {
+                    builder.addValue(row.getValue(column));
+                }
+                result.add(builder.build());
+            }
+        }
+        return normalize(result);
+    }
+
+    private static Stream<Arguments> args() {
+        final List<Arguments> list = new ArrayList<>();
+        for (final SheetParserFactory.Feature feature : new SheetParserFactory.Feature[] {
+                SheetParserFactory.Feature.POI_STANDARD,
+                SheetParserFactory.Feature.POI_STREAMING,
+                SheetParserFactory.Feature.POI_SAX,
+                SheetParserFactory.Feature.NATIVE }) {
+            for (final CellAddressRange region : new CellAddressRange[] {
+                    new CellAddressRange(0, 9, 0, -1),
+                    new CellAddressRange(10, 19, 0, -1),
+                    new CellAddressRange(3, 30, 2, 5),
+                    new CellAddressRange(25, -1, 1, 1),
+                    new CellAddressRange(100, 200, 0, -1) }) {
+                list.add(Arguments.of(feature, region));
+            }
+        }
+        return list.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("args")
+    void testRegion(SheetParserFactory.Feature feature,
+                    CellAddressRange region) throws IOException {
+        create(FILE);
+        final SheetParser full = factory(feature, 1, null).create(FILE);
+        final MemoryTableHandler expected = new MemoryTableHandler();
+        full.parse(FILE, null, 1, 0, expected);
+
+        for (final int parallelism : new int[] { 1, 2 }) {
+            final SheetParser parser = factory(feature, parallelism, region).create(FILE);
+
+            final MemoryTableHandler byIndex = new MemoryTableHandler();
+            parser.parse(FILE, null, 1, 1, byIndex);
+            assertEquals(restrict(expected.getRows(), region), normalize(byIndex.getRows()));
+            assertEquals(byIndex.getRowsCount() > 0 ? 1 : 0, byIndex.getHeaderRowsCount());
+
+            final MemoryTableHandler byName = new MemoryTableHandler();
+            parser.parse(FILE, null, "Sheet1", 1, byName);
+            assertEquals(byIndex.getRows(), byName.getRows());
+
+            final MemoryTableHandler byStream = new MemoryTableHandler();
+            try (final InputStream in = new FileInputStream(FILE)) {
+                parser.parse(in, FILE.getPath(), WorkbookKind.XLSX, null, 1, 1, byStream);
+            }
+            assertEquals(byIndex.getRows(), byStream.getRows());
+
+            final List<List<Row>> all = new ArrayList<>();
+            parser.parse(FILE, null, 0, name -> {
+                final MemoryTableHandler handler = new MemoryTableHandler();
+                synchronized (all) {
+                    all.add(handler.getRows());
+                }
+                return handler;
+            });
+            assertEquals(2, all.size());
+            assertEquals(byIndex.getRows(), all.get(1));
+        }
+    }
+
+    /**
+     * Replaces the value of cells A1 and A10 of the first sheet by an invalid shared string index.
+     *
+     * @param file The file.
+     * @throws IOException When an IO error occurs.
+     */
+    private static void corrupt(File file) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (final ZipInputStream in = new ZipInputStream(new FileInputStream(file));
+                final ZipOutputStream out = new ZipOutputStream(buffer)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] content = in.readAllBytes();
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    final String xml = new String(content, StandardCharsets.UTF_8);
+                    content = xml.replaceAll("(<c r=\"A(1|10)\" t=\"s\"[^>]*><v>)\\d+", "$1999999").getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        Files.write(file.toPath(), buffer.toByteArray());
+    }
+
+    @Test
+    void testSkipAndStop() throws IOException {
+        final File file = new File("target/" + SheetRegionTest.class.getSimpleName() + "-corrupted.xlsx");
+        create(file);
+        corrupt(file);
+        for (final SheetParserFactory.Feature feature : new SheetParserFactory.Feature[] {
+                SheetParserFactory.Feature.POI_STREAMING,
+                SheetParserFactory.Feature.POI_SAX,
+                SheetParserFactory.Feature.NATIVE }) {
+            final SheetParser full = factory(feature, 1, null).create(file);
+            assertThrows(RuntimeException.class, () -> full.parse(file, null, 0, 0, new MemoryTableHandler()));
+
+            // Rows 0 and 9 are neither decoded nor built
+            final SheetParser parser = new SheetParserFactory().setEnabled(feature, true).setRows(1, 9).create(file);
+            final MemoryTableHandler handler = new MemoryTableHandler();
+            parser.parse(file, null, 0, 0, handler);
+            assertEquals(8, handler.getRowsCount());
+            assertEquals("S0-1-2", handler.getRow(0).getValue(2));
+            assertEquals("S0-8-2", handler.getRow(7).getValue(2));
+        }
+    }
+
+    @Test
+    void testCellAddressRange() {
+        final CellAddressRange region = new CellAddressRange(10, 19, 2, -1);
+        assertEquals(10, region.getNumberOfRows(100));
+        assertEquals(5, region.getNumberOfRows(15));
+        assertEquals(0, region.getNumberOfRows(5));
+        assertEquals(-1, region.getNumberOfRows(-1));
+        assertEquals(90, new CellAddressRange(10, -1, 0, -1).getNumberOfRows(100));
+        assertThrows(IllegalArgumentException.class, () -> new SheetParserFactory().setRows(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SheetParserFactory().setRows(10, 10));
+    }
+}
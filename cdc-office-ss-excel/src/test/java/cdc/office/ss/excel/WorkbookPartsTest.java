@@ -0,0 +1,127 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import cdc.office.ss.MeteredSheetParser;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.metrics.BasicTableMetrics;
+
+class WorkbookPartsTest {
+    private static File createFile() throws IOException {
+        final File file = new File("target/" + WorkbookPartsTest.class.getSimpleName() + ".xlsx");
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final Sheet numbers = workbook.createSheet("Numbers");
+            final Sheet strings = workbook.createSheet("Strings");
+            for (int index = 0; index < 10; index++) {
+                numbers.createRow(index).createCell(0).setCellValue(index);
+                strings.createRow(index).createCell(0).setCellValue("S" + index);
+            }
+            try (final OutputStream out = Files.newOutputStream(file.toPath())) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+
+    private static PoiStreamSheetParser create(boolean cacheParts) {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.POI_STREAMING, true);
+        factory.setEnabled(SheetParserFactory.Feature.CACHE_WORKBOOK_PARTS, cacheParts);
+        return new PoiStreamSheetParser(factory, WorkbookKind.XLSX);
+    }
+
+    private static PoiStreamSheetParser create() {
+        return create(true);
+    }
+
+    @Test
+    void testNoCache() throws IOException {
+        final File file = createFile();
+        final PoiStreamSheetParser parser = create(false);
+        final MemoryTableHandler strings = new MemoryTableHandler();
+        parser.parse(file, null, "Strings", 0, strings);
+        assertEquals("S9", strings.getRows().get(9).getValue(0));
+        assertNull(parser.getCachedParts());
+    }
+
+    @Test
+    void testLazyLoading() throws IOException {
+        final File file = createFile();
+        final PoiStreamSheetParser parser = create();
+
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(file, null, "?", 0, new MemoryTableHandler()));
+        final WorkbookParts parts = parser.getCachedParts();
+        assertFalse(parts.isSharedStringsLoaded());
+        assertFalse(parts.isStylesLoaded());
+
+        final MemoryTableHandler numbers = new MemoryTableHandler();
+        parser.parse(file, null, "Numbers", 0, numbers);
+        assertEquals(10, numbers.getRows().size());
+        assertEquals("9", numbers.getRows().get(9).getValue(0));
+        assertSame(parts, parser.getCachedParts());
+        assertFalse(parts.isSharedStringsLoaded());
+
+        final MemoryTableHandler strings = new MemoryTableHandler();
+        parser.parse(file, null, 1, 0, strings);
+        assertEquals(10, strings.getRows().size());
+        assertEquals("S9", strings.getRows().get(9).getValue(0));
+        assertSame(parts, parser.getCachedParts());
+        assertTrue(parts.isSharedStringsLoaded());
+
+        // Shared strings are reused
+        final MemoryTableHandler again = new MemoryTableHandler();
+        parser.parse(file, null, "Strings", 0, again);
+        assertEquals(strings.getRows(), again.getRows());
+        assertSame(parts, parser.getCachedParts());
+    }
+
+    @Test
+    void testInvalidation() throws IOException {
+        final File file = createFile();
+        final PoiStreamSheetParser parser = create();
+        parser.parse(file, null, "Strings", 0, new MemoryTableHandler());
+        final WorkbookParts parts = parser.getCachedParts();
+        assertTrue(parts.isSharedStringsLoaded());
+
+        assertTrue(file.setLastModified(file.lastModified() - 10000L));
+        parser.parse(file, null, "Numbers", 0, new MemoryTableHandler());
+        assertNotSame(parts, parser.getCachedParts());
+        assertFalse(parser.getCachedParts().isSharedStringsLoaded());
+    }
+
+    @Test
+    void testClearCache() throws IOException {
+        final File file = createFile();
+        final PoiStreamSheetParser parser = create();
+        final SheetParser metered = new MeteredSheetParser(parser, new BasicTableMetrics());
+        metered.parse(file, null, "Strings", 0, new MemoryTableHandler());
+        final WorkbookParts parts = parser.getCachedParts();
+        assertTrue(parts.isSharedStringsLoaded());
+
+        metered.clearCache();
+        assertNull(parser.getCachedParts());
+
+        final MemoryTableHandler strings = new MemoryTableHandler();
+        parser.parse(file, null, "Strings", 0, strings);
+        assertEquals("S9", strings.getRows().get(9).getValue(0));
+        assertNotSame(parts, parser.getCachedParts());
+    }
+}
@@ -0,0 +1,185 @@
+package cdc.office.ss.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+
+class WorkbookProbeTest {
+    private static File create(WorkbookKind kind) throws IOException {
+        final File file = new File("target/" + WorkbookProbeTest.class.getSimpleName() + "." + kind.getExtension());
+        try (final Workbook workbook = kind == WorkbookKind.XLS ? new HSSFWorkbook() : new XSSFWorkbook()) {
+            final Sheet data = workbook.createSheet("Data");
+            for (int r = 2; r < 10; r++) {
+                final org.apache.poi.ss.usermodel.Row row = data.createRow(r);
+                for (int c = 1; c < 4; c++) {
+                    row.createCell(c).setCellValue("R" + r + "C" + c);
+                }
+            }
+            workbook.createSheet("Empty");
+            workbook.createSheet("Single").createRow(0).createCell(0).setCellValue(1.0);
+            if (workbook instanceof XSSFWorkbook) {
+                ((XSSFWorkbook) workbook).getProperties().getCoreProperties().setTitle("Title");
+                ((XSSFWorkbook) workbook).getProperties().getCoreProperties().setCreator("Creator");
+            } else {
+                ((HSSFWorkbook) workbook).createInformationProperties();
+                ((HSSFWorkbook) workbook).getSummaryInformation().setTitle("Title");
+                ((HSSFWorkbook) workbook).getSummaryInformation().setAuthor("Creator");
+            }
+            try (final OutputStream out = Files.newOutputStream(file.toPath())) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Copies an xlsx file, writing its entries in reverse order and replacing a text in one of them, if not {@code null}.
+     */
+    private static File rewrite(File file,
+                                String name,
+                                String target,
+                                String replacement) throws IOException {
+        final File result = new File("target/" + WorkbookProbeTest.class.getSimpleName() + "-rewritten.xlsx");
+        try (final ZipFile in = new ZipFile(file);
+                final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(result.toPath()))) {
+            final List<? extends ZipEntry> entries = Collections.list(in.entries());
+            Collections.reverse(entries);
+            for (final ZipEntry entry : entries) {
+                String content = new String(in.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+                if (entry.getName().equals(name)) {
+                    assertTrue(content.contains(target));
+                    content = content.replace(target, replacement);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return result;
+    }
+
+    private static void check(WorkbookInfo info,
+                              File file,
+                              WorkbookKind kind) {
+        assertEquals(file.getPath(), info.getSystemId());
+        assertEquals(kind, info.getKind());
+        assertEquals(List.of("Data", "Empty", "Single"), info.getSheetNames());
+        final SheetInfo data = info.getSheet("Data");
+        // HSSF declares a dimension that starts at A1
+        assertEquals(kind == WorkbookKind.XLS ? new CellAddressRange(0, 9, 0, 3) : new CellAddressRange(2, 9, 1, 3),
+                     data.getDimension());
+        assertEquals(10, data.getNumberOfRows());
+        assertEquals(4, data.getNumberOfColumns());
+        assertEquals(new SheetInfo(1, "Empty", null, 0, 0), info.getSheet("Empty"));
+        assertEquals(new SheetInfo(2, "Single", new CellAddressRange(0, 0, 0, 0), 1, 1), info.getSheet("Single"));
+        assertNull(info.getSheet("?"));
+        assertEquals("Title", info.getProperty(WorkbookInfo.Property.TITLE));
+        assertEquals("Creator", info.getProperty(WorkbookInfo.Property.CREATOR));
+        assertNull(info.getProperty(WorkbookInfo.Property.SUBJECT));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "XLS", "XLSX", "XLSM" })
+    void testProbe(WorkbookKind kind) throws IOException {
+        final File file = create(kind);
+        final WorkbookProbe probe = new SheetParserFactory().createProbe(file);
+        assertEquals(kind == WorkbookKind.XLS ? XlsWorkbookProbe.class : XlsxWorkbookProbe.class, probe.getClass());
+
+        check(probe.probe(file), file, kind);
+        try (final InputStream in = new FileInputStream(file)) {
+            check(probe.probe(in, file.getPath(), kind), file, kind);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "file1.xls", "file1.xlsx", "file1.xlsm", "file2.xls", "file2.xlsx", "normal.xlsx" })
+    void testCompare(String filename) throws IOException {
+        final File file = new File("src/test/resources", filename);
+        final SheetParserFactory factory = new SheetParserFactory();
+        final WorkbookInfo info = factory.createProbe(file).probe(file);
+
+        final SheetParser parser = factory.create(file);
+        for (final SheetInfo sheet : info.getSheets()) {
+            final MemoryTableHandler handler = new MemoryTableHandler(false);
+            parser.parse(file, null, sheet.getIndex(), 0, handler);
+            assertEquals(handler.getRowsCount(), sheet.getNumberOfRows());
+            assertEquals(handler.getRows().stream().mapToInt(Row::size).max().orElse(0), sheet.getNumberOfColumns());
+        }
+        final List<String> names = new ArrayList<>();
+        parser.parse(file, null, 0, name -> {
+            names.add(name);
+            return new MemoryTableHandler();
+        });
+        assertEquals(names, info.getSheetNames());
+    }
+
+    @Test
+    void testPrefixSource() throws IOException {
+        final File file = create(WorkbookKind.XLSX);
+        // Reversed entries: sheets precede relationships
+        for (final File f : List.of(file, rewrite(file, null, null, null))) {
+            try (final InputStream in = new FileInputStream(f);
+                    final XlsxWorkbookProbe.PrefixSource source = new XlsxWorkbookProbe.PrefixSource(in, true)) {
+                assertNotNull(source.open("xl/workbook.xml"));
+                assertNotNull(source.open("xl/worksheets/sheet1.xml"));
+                assertNotNull(source.open("docProps/core.xml"));
+                assertNull(source.open("xl/sharedStrings.xml"));
+                assertNull(source.open("xl/styles.xml"));
+            }
+        }
+    }
+
+    @Test
+    void testMixedContentProperty() throws IOException {
+        final File file = rewrite(create(WorkbookKind.XLSX), "docProps/core.xml", "Title<", "Ti<b>t</b>le<");
+        final WorkbookProbe probe = new XlsxWorkbookProbe();
+        try (final InputStream in = new FileInputStream(file)) {
+            for (final WorkbookInfo info : List.of(probe.probe(file), probe.probe(in, file.getPath(), WorkbookKind.XLSX))) {
+                assertEquals(List.of("Data", "Empty", "Single"), info.getSheetNames());
+                assertNull(info.getProperty(WorkbookInfo.Property.TITLE));
+                assertEquals("Creator", info.getProperty(WorkbookInfo.Property.CREATOR));
+            }
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        final File file = new File("src/test/resources/file1.xls");
+        final WorkbookProbe probe = new XlsxWorkbookProbe();
+        assertThrows(IOException.class, () -> probe.probe(file));
+    }
+}
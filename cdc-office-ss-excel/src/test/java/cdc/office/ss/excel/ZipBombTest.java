@@ -4,16 +4,37 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
 import cdc.office.tables.VoidTablesHandler;
 
 class ZipBombTest {
     private static final File FILE = new File("src/test/resources/ZipBomb.xlsx");
+    /** A workbook whose bomb is in its sheet. */
+    private static final File SHEET_BOMB = new File("src/test/resources/ZipBombSheet.xlsx");
+    private double minInflateRatio;
+
+    @BeforeEach
+    void saveMinInflateRatio() {
+        minInflateRatio = ZipSecureFile.getMinInflateRatio();
+    }
+
+    @AfterEach
+    void restoreMinInflateRatio() {
+        ZipSecureFile.setMinInflateRatio(minInflateRatio);
+    }
 
     @Test
     void testZipBombDetectionEnabledPoiStandard() throws IOException {
@@ -30,13 +51,27 @@ class ZipBombTest {
     void testZipBombDetectionEnabledPoiStream() throws IOException {
         final SheetParserFactory factory = new SheetParserFactory();
         factory.setEnabled(SheetParserFactory.Feature.POI_STREAMING, true);
-        final SheetParser parser = factory.create(FILE);
+        final SheetParser parser = factory.create(SHEET_BOMB);
         assertThrows(Exception.class,
                      () -> {
-                         parser.parse(FILE, null, 0, VoidTablesHandler.INSTANCE);
+                         parser.parse(SHEET_BOMB, null, 0, VoidTablesHandler.INSTANCE);
                      });
     }
 
+    @Test
+    void testZipBombDetectionEnabledPoiStreamStyles() throws IOException, InvalidFormatException {
+        // Styles of FILE, that contain the bomb, are only loaded when needed
+        ZipSecureFile.setMinInflateRatio(ExcelUtils.DEFAULT_MIN_INFLATE_RATIO);
+        try (final OPCPackage pkg = ExcelUtils.openPackage(FILE)) {
+            final WorkbookParts parts = new WorkbookParts(FILE.getPath(), -1);
+            assertThrows(Exception.class,
+                         () -> {
+                             parts.getStyles(pkg);
+                         });
+            pkg.revert();
+        }
+    }
+
     @Test
     void testZipBombDetectionEnabledPoiSax() throws IOException {
         final SheetParserFactory factory = new SheetParserFactory();
@@ -65,6 +100,7 @@ class ZipBombTest {
         factory.setEnabled(SheetParserFactory.Feature.DISABLE_VULNERABILITY_PROTECTIONS, true);
         final SheetParser parser = factory.create(FILE);
         parser.parse(FILE, null, 0, VoidTablesHandler.INSTANCE);
+        parser.parse(SHEET_BOMB, null, 0, VoidTablesHandler.INSTANCE);
         assertTrue(true);
     }
 
@@ -77,4 +113,38 @@ class ZipBombTest {
         parser.parse(FILE, null, 0, VoidTablesHandler.INSTANCE);
         assertTrue(true);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testZipBombDetectionEnabledNative() throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.NATIVE, true);
+        final SheetParser parser = factory.create(FILE);
+        assertThrows(Exception.class,
+                     () -> {
+                         parser.parse(FILE, null, 0, VoidTablesHandler.INSTANCE);
+                     });
+    }
+
+    @Test
+    void testZipBombDetectionEnabledNativeStream() throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.NATIVE, true);
+        final SheetParser parser = factory.create(FILE);
+        assertThrows(Exception.class,
+                     () -> {
+                         try (final InputStream in = new FileInputStream(FILE)) {
+                             parser.parse(in, FILE.getPath(), WorkbookKind.XLSX, null, 0, VoidTablesHandler.INSTANCE);
+                         }
+                     });
+    }
+
+    @Test
+    void testZipBombDetectionDisabledNative() throws IOException {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.NATIVE, true);
+        factory.setEnabled(SheetParserFactory.Feature.DISABLE_VULNERABILITY_PROTECTIONS, true);
+        final SheetParser parser = factory.create(FILE);
+        parser.parse(FILE, null, 0, VoidTablesHandler.INSTANCE);
+        assertTrue(true);
+    }
+}
@@ -15,10 +15,12 @@ import org.odftoolkit.odfdom.doc.table.OdfTableRow;
 import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
 import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.jfr.WorkbookOpenEvent;
 import cdc.office.tables.Row;
 import cdc.office.tables.RowLocation;
 import cdc.office.tables.TableHandler;
 import cdc.office.tables.TablesHandler;
+import cdc.office.tables.jfr.JfrTableMetrics;
 import cdc.util.lang.ExceptionWrapper;
 
 /**
@@ -29,6 +31,7 @@ import cdc.util.lang.ExceptionWrapper;
  */
 public class OdsSheetParser implements SheetParser {
     private static final Logger LOGGER = LogManager.getLogger(OdsSheetParser.class);
+    private static final String PARSER = "Ods";
 
     public OdsSheetParser() {
         super();
@@ -45,8 +48,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TablesHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(file)) {
-            parse(file.getPath(), doc, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(file)) {
+            parse(file.getPath(), doc, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -62,8 +65,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TablesHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(in)) {
-            parse(systemId, doc, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(in, systemId)) {
+            parse(systemId, doc, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -78,8 +81,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(file)) {
-            parse(file.getPath(), doc, sheetName, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(file)) {
+            parse(file.getPath(), doc, sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -94,8 +97,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(file)) {
-            parse(file.getPath(), doc, sheetIndex, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(file)) {
+            parse(file.getPath(), doc, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -112,8 +115,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(in)) {
-            parse(systemId, doc, sheetName, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(in, systemId)) {
+            parse(systemId, doc, sheetName, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -130,8 +133,8 @@ public class OdsSheetParser implements SheetParser {
                       int headers,
                       TableHandler handler) throws IOException {
         // TODO use password ?
-        try (final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(in)) {
-            parse(systemId, doc, sheetIndex, headers, handler);
+        try (final OdfSpreadsheetDocument doc = loadDocument(in, systemId)) {
+            parse(systemId, doc, sheetIndex, headers, JfrTableMetrics.wrap(handler, PARSER));
         } catch (final IOException e) {
             throw e;
         } catch (final Exception e) {
@@ -139,6 +142,34 @@ public class OdsSheetParser implements SheetParser {
         }
     }
 
+    private static OdfSpreadsheetDocument loadDocument(File file) throws Exception {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(file);
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = file.getPath();
+            event.kind = WorkbookKind.ODS.name();
+            event.size = file.length();
+            event.commit();
+        }
+        return doc;
+    }
+
+    private static OdfSpreadsheetDocument loadDocument(InputStream in,
+                                                       String systemId) throws Exception {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final OdfSpreadsheetDocument doc = OdfSpreadsheetDocument.loadDocument(in);
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.kind = WorkbookKind.ODS.name();
+            event.commit();
+        }
+        return doc;
+    }
+
     private static void parse(String systemId,
                               OdfSpreadsheetDocument doc,
                               int headers,
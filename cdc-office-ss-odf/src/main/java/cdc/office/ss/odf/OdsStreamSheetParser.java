@@ -0,0 +1,637 @@
+package cdc.office.ss.odf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.jfr.WorkbookOpenEvent;
+import cdc.office.tables.CellType;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.TypedRow;
+import cdc.office.tables.jfr.JfrTableMetrics;
+import cdc.util.lang.Checks;
+
+/**
+ * Streaming implementation of SheetParser for Open Office files.
+ * <p>
+ * {@code content.xml} is read from the zip with StAX, and rows are passed to the handler as they are read,
+ * in constant memory. No document model is built.
+ * <ul>
+ * <li>Repeated rows and cells ({@code table:number-rows-repeated} and {@code table:number-columns-repeated})
+ * are not expanded: a repeated row is built once and passed several times.
+ * <li>Trailing empty rows of a table and trailing empty cells of a row are ignored.
+ * <li>Floats are the raw {@code office:value}, booleans are {@code TRUE} or {@code FALSE}.
+ * Other values are the displayed text.
+ * <li>If {@link SheetParserFactory.Feature#TYPED_ROWS} is enabled, rows are {@link TypedRow TypedRows}:
+ * floats, percentages, currencies, dates and booleans are also passed as typed values.
+ * <li>If a {@link SheetParserFactory#getRegion() region} is set, rows before it and cells outside it are skipped
+ * without reading their content. Once the region is read, the rest of the table is skipped.
+ * </ul>
+ *
+ * @author Damien Carbonne
+ */
+public class OdsStreamSheetParser implements SheetParser {
+    private static final String PARSER = "OdsStream";
+    static final String CONTENT = "content.xml";
+
+    private static final String FILE = "file";
+    private static final String HANDLER = "handler";
+    private static final String IN = "in";
+    private static final String SHEET_NAME = "sheetName";
+
+    static final String OFFICE_NS = "urn:oasis:names:tc:opendocument:xmlns:office:1.0";
+    static final String TABLE_NS = "urn:oasis:names:tc:opendocument:xmlns:table:1.0";
+    static final String TEXT_NS = "urn:oasis:names:tc:opendocument:xmlns:text:1.0";
+
+    static final XMLInputFactory FACTORY = newFactory();
+
+    private final boolean typedRows;
+    private final CellAddressRange region;
+
+    public OdsStreamSheetParser() {
+        this.typedRows = false;
+        this.region = null;
+    }
+
+    public OdsStreamSheetParser(SheetParserFactory factory,
+                                WorkbookKind kind) {
+        this.typedRows = factory.isEnabled(SheetParserFactory.Feature.TYPED_ROWS);
+        this.region = factory.getRegion();
+    }
+
+    private static XMLInputFactory newFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (final ZipFile zip = open(file)) {
+            final TablesHandler h = JfrTableMetrics.wrap(handler, PARSER);
+            h.processBeginTables(file.getPath());
+            parse(zip, null, -1, headers, h);
+            h.processEndTables(file.getPath());
+        }
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isNotNull(handler, HANDLER);
+
+        final TablesHandler h = JfrTableMetrics.wrap(handler, PARSER);
+        h.processBeginTables(systemId);
+        parse(open(in, systemId), null, -1, headers, h);
+        h.processEndTables(systemId);
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isNotNull(sheetName, SHEET_NAME);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (final ZipFile zip = open(file)) {
+            final TableHandler h = JfrTableMetrics.wrap(handler, PARSER);
+            TablesHandler.processBeginTables(h, file.getPath());
+            parse(zip, sheetName, -1, headers, h);
+            TablesHandler.processEndTables(h, file.getPath());
+        }
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(file, FILE);
+        Checks.isTrue(sheetIndex >= 0, "Invalid sheet index: " + sheetIndex);
+        Checks.isNotNull(handler, HANDLER);
+
+        try (final ZipFile zip = open(file)) {
+            final TableHandler h = JfrTableMetrics.wrap(handler, PARSER);
+            TablesHandler.processBeginTables(h, file.getPath());
+            parse(zip, null, sheetIndex, headers, h);
+            TablesHandler.processEndTables(h, file.getPath());
+        }
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isNotNull(sheetName, SHEET_NAME);
+        Checks.isNotNull(handler, HANDLER);
+
+        final TableHandler h = JfrTableMetrics.wrap(handler, PARSER);
+        TablesHandler.processBeginTables(h, systemId);
+        parse(open(in, systemId), sheetName, -1, headers, h);
+        TablesHandler.processEndTables(h, systemId);
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        Checks.isNotNull(in, IN);
+        Checks.isTrue(sheetIndex >= 0, "Invalid sheet index: " + sheetIndex);
+        Checks.isNotNull(handler, HANDLER);
+
+        final TableHandler h = JfrTableMetrics.wrap(handler, PARSER);
+        TablesHandler.processBeginTables(h, systemId);
+        parse(open(in, systemId), null, sheetIndex, headers, h);
+        TablesHandler.processEndTables(h, systemId);
+    }
+
+    private static ZipFile open(File file) throws IOException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        final ZipFile zip = new ZipFile(file);
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = file.getPath();
+            event.kind = WorkbookKind.ODS.name();
+            event.size = file.length();
+            event.commit();
+        }
+        return zip;
+    }
+
+    /**
+     * Positions a zip stream on the content entry.
+     *
+     * @param in The input stream. It is not closed.
+     * @param systemId The system id.
+     * @return A stream of the content entry.
+     * @throws IOException When an IO error occurs, or when there is no content entry.
+     */
+    private static InputStream open(InputStream in,
+                                    String systemId) throws IOException {
+        final WorkbookOpenEvent event = new WorkbookOpenEvent();
+        event.begin();
+        // Do not close zip, as this would close in
+        final ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null && !CONTENT.equals(entry.getName())) {
+            // Ignore
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.systemId = systemId;
+            event.kind = WorkbookKind.ODS.name();
+            event.commit();
+        }
+        if (entry == null) {
+            throw new IOException("No " + CONTENT + " found in " + systemId);
+        }
+        return zip;
+    }
+
+    private void parse(ZipFile zip,
+                       String sheetName,
+                       int sheetIndex,
+                       int headers,
+                       TableHandler handler) throws IOException {
+        final ZipEntry entry = zip.getEntry(CONTENT);
+        if (entry == null) {
+            throw new IOException("No " + CONTENT + " found in " + zip.getName());
+        }
+        try (final InputStream in = zip.getInputStream(entry)) {
+            parse(in, sheetName, sheetIndex, headers, handler);
+        }
+    }
+
+    /**
+     * Parses the content of a document.
+     *
+     * @param in The content.
+     * @param sheetName The name of the sheet to parse, or {@code null}.
+     * @param sheetIndex The index of the sheet to parse, or -1.
+     *            If {@code sheetName} is {@code null} and {@code sheetIndex} is -1, all sheets are parsed.
+     * @param headers The number of header rows.
+     * @param handler The handler.
+     * @throws IOException When an IO error occurs.
+     * @throws IllegalArgumentException When the requested sheet does not exist.
+     */
+    private void parse(InputStream in,
+                       String sheetName,
+                       int sheetIndex,
+                       int headers,
+                       TableHandler handler) throws IOException {
+        final boolean all = sheetName == null && sheetIndex < 0;
+        boolean found = false;
+        try {
+            final XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+            try {
+                int index = -1;
+                while (!found && reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && is(reader, TABLE_NS, "table")) {
+                        index++;
+                        final String name = reader.getAttributeValue(TABLE_NS, "name");
+                        if (all || index == sheetIndex || name != null && name.equals(sheetName)) {
+                            new TableReader(reader, headers, handler, typedRows, region).read(name, all);
+                            found = !all;
+                        } else {
+                            skip(reader);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+        if (!all && !found) {
+            throw new IllegalArgumentException(sheetName == null
+                    ? "Invalid sheet index: " + sheetIndex
+                    : "Invalid sheet name: " + sheetName);
+        }
+    }
+
+    static boolean is(XMLStreamReader reader,
+                      String namespace,
+                      String localName) {
+        return localName.equals(reader.getLocalName()) && namespace.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Skips the current element.
+     *
+     * @param reader The reader, positioned on a start element.
+     *            On return, it is positioned on the corresponding end element.
+     * @throws XMLStreamException When an XML error occurs.
+     */
+    static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    static int getRepeat(XMLStreamReader reader,
+                         String localName) {
+        final String s = reader.getAttributeValue(TABLE_NS, localName);
+        return s == null ? 1 : Math.max(1, Integer.parseInt(s));
+    }
+
+    /**
+     * Reader of a {@code table:table} element.
+     */
+    private static final class TableReader {
+        private final XMLStreamReader reader;
+        private final int headers;
+        private final TableHandler handler;
+        private final Row.Builder row = Row.builder();
+        /** Builder of typed rows, or {@code null}. */
+        private final TypedRow.Builder typedRow;
+        private final RowLocation.Builder location = RowLocation.builder();
+        private final StringBuilder text = new StringBuilder();
+        /** Type of last read cell, when rows are typed. */
+        private CellType cellType;
+        /** Number of last read cell, when rows are typed and it is a number or date. */
+        private double cellNumber;
+        /** Number of empty rows that have not yet been passed. */
+        private long emptyRows = 0L;
+        private boolean active = true;
+        /** Index of next row. */
+        private long rowIndex = 0L;
+        private final long firstRow;
+        private final long lastRow;
+        private final long firstColumn;
+        private final long lastColumn;
+
+        TableReader(XMLStreamReader reader,
+                    int headers,
+                    TableHandler handler,
+                    boolean typed,
+                    CellAddressRange region) {
+            this.reader = reader;
+            this.headers = headers;
+            this.handler = handler;
+            // All strings are known: the formatter is not used
+            this.typedRow = typed ? TypedRow.builder(TypedRow.GENERAL) : null;
+            if (region == null) {
+                this.firstRow = 0L;
+                this.lastRow = Long.MAX_VALUE;
+                this.firstColumn = 0L;
+                this.lastColumn = Long.MAX_VALUE;
+            } else {
+                this.firstRow = Math.max(0, region.getFirstRow());
+                this.lastRow = region.getLastRow() < 0 ? Long.MAX_VALUE : region.getLastRow();
+                this.firstColumn = Math.max(0, region.getFirstColumn());
+                this.lastColumn = region.getLastColumn() < 0 ? Long.MAX_VALUE : region.getLastColumn();
+            }
+        }
+
+        /**
+         * Reads the table.
+         *
+         * @param name The table name.
+         * @param consume If {@code true}, the table is read till its end.
+         *            Otherwise, reading stops after the last row of the region.
+         * @throws XMLStreamException When an XML error occurs.
+         */
+        void read(String name,
+                  boolean consume) throws XMLStreamException {
+            handler.processBeginTable(name, -1);
+            // Rows may be nested in header rows, row groups, ...
+            int depth = 1;
+            while (depth > 0) {
+                if (!consume && rowIndex > lastRow) {
+                    break;
+                }
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (!active || is(reader, TABLE_NS, "table")) {
+                        // Sub tables are ignored
+                        skip(reader);
+                    } else if (is(reader, TABLE_NS, "table-row")) {
+                        readRow();
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            handler.processEndTable(name);
+        }
+
+        private void process(Row r) {
+            location.incrementNumbers(headers);
+            active = TableHandler.processRow(handler, r, location.build()).isContinue();
+        }
+
+        /**
+         * @param index The index of the first row or column of a repetition.
+         * @param repeat The repetition count.
+         * @param first The index of the first row or column of the region.
+         * @param last The index of the last row or column of the region.
+         * @return The number of rows or columns of the repetition that are in the region.
+         */
+        private static long overlap(long index,
+                                    int repeat,
+                                    long first,
+                                    long last) {
+            return Math.max(0L, Math.min(index + repeat - 1, last) - Math.max(index, first) + 1);
+        }
+
+        private void readRow() throws XMLStreamException {
+            final int rowRepeat = getRepeat(reader, "number-rows-repeated");
+            final long repeat = overlap(rowIndex, rowRepeat, firstRow, lastRow);
+            rowIndex += rowRepeat;
+            if (repeat == 0L) {
+                skip(reader);
+                return;
+            }
+            if (typedRow == null) {
+                row.clear();
+            } else {
+                typedRow.clear();
+            }
+            long emptyCells = 0L;
+            long columnIndex = 0L;
+            int depth = 1;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (is(reader, TABLE_NS, "table-cell") || is(reader, TABLE_NS, "covered-table-cell")) {
+                        final int cellRepeat = getRepeat(reader, "number-columns-repeated");
+                        final long count = overlap(columnIndex, cellRepeat, firstColumn, lastColumn);
+                        columnIndex += cellRepeat;
+                        final String value = count == 0L ? null : readCell();
+                        if (count == 0L) {
+                            skip(reader);
+                        } else if (value == null) {
+                            emptyCells += count;
+                        } else {
+                            for (; emptyCells > 0L; emptyCells--) {
+                                addCell(null);
+                            }
+                            for (long index = 0; index < count; index++) {
+                                addCell(value);
+                            }
+                        }
+                    } else {
+                        skip(reader);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+
+            if (typedRow == null ? row.isEmpty() : typedRow.isEmpty()) {
+                // Trailing empty rows must be ignored
+                emptyRows += repeat;
+            } else {
+                for (; active && emptyRows > 0L; emptyRows--) {
+                    process(Row.EMPTY);
+                }
+                final Row r = typedRow == null ? row.build() : typedRow.build();
+                for (long index = 0; active && index < repeat; index++) {
+                    process(r);
+                }
+            }
+        }
+
+        private void addCell(String value) {
+            if (typedRow == null) {
+                row.addValue(value);
+            } else if (value == null) {
+                typedRow.addEmpty();
+            } else {
+                switch (cellType) {
+                case NUMBER:
+                    typedRow.addNumber(cellNumber, value);
+                    break;
+                case DATE:
+                    typedRow.addDate(cellNumber, value);
+                    break;
+                case BOOLEAN:
+                    typedRow.addBoolean("TRUE".equals(value));
+                    break;
+                default:
+                    typedRow.addString(value);
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Sets the typed value of last read cell, when rows are typed.
+         *
+         * @param type The cell type.
+         * @param value The attribute that contains the value, or {@code null}.
+         */
+        private void setTyped(CellType type,
+                              String value) {
+            cellType = CellType.STRING;
+            if (typedRow != null && value != null) {
+                try {
+                    if (type == CellType.DATE) {
+                        cellNumber = TypedRow.toSerial(value.indexOf('T') >= 0
+                                ? LocalDateTime.parse(value)
+                                : LocalDate.parse(value).atStartOfDay());
+                    } else {
+                        cellNumber = Double.parseDouble(value);
+                    }
+                    cellType = type;
+                } catch (final RuntimeException e) {
+                    // Keep the displayed text
+                }
+            }
+        }
+
+        /**
+         * Reads a cell.
+         * <p>
+         * When rows are typed, {@link #cellType} and {@link #cellNumber} are also set.
+         *
+         * @return The cell value, or {@code null}.
+         * @throws XMLStreamException When an XML error occurs.
+         */
+        private String readCell() throws XMLStreamException {
+            final String type = reader.getAttributeValue(OFFICE_NS, "value-type");
+            final String result;
+            cellType = CellType.STRING;
+            if (type == null) {
+                skip(reader);
+                result = null;
+            } else if ("float".equals(type)) {
+                result = reader.getAttributeValue(OFFICE_NS, "value");
+                setTyped(CellType.NUMBER, result);
+                skip(reader);
+            } else if ("boolean".equals(type)) {
+                result = "true".equals(reader.getAttributeValue(OFFICE_NS, "boolean-value")) ? "TRUE" : "FALSE";
+                cellType = CellType.BOOLEAN;
+                skip(reader);
+            } else if ("percentage".equals(type) || "currency".equals(type)) {
+                setTyped(CellType.NUMBER, reader.getAttributeValue(OFFICE_NS, "value"));
+                result = readText();
+            } else if ("date".equals(type)) {
+                setTyped(CellType.DATE, reader.getAttributeValue(OFFICE_NS, "date-value"));
+                result = readText();
+            } else {
+                final String s = reader.getAttributeValue(OFFICE_NS, "string-value");
+                if (s == null) {
+                    result = readText();
+                } else {
+                    result = s;
+                    skip(reader);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Reads the displayed text of a cell.
+         * <p>
+         * Paragraphs are separated by new lines. Annotations and drawings are ignored.
+         *
+         * @return The text of the cell.
+         * @throws XMLStreamException When an XML error occurs.
+         */
+        private String readText() throws XMLStreamException {
+            text.setLength(0);
+            int paragraphs = 0;
+            int depth = 1;
+            // Depth of current paragraph, or 0
+            int paragraph = 0;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (TEXT_NS.equals(reader.getNamespaceURI())) {
+                        depth++;
+                        switch (reader.getLocalName()) {
+                        case "p":
+                        case "h":
+                            if (paragraphs > 0) {
+                                text.append('\n');
+                            }
+                            paragraphs++;
+                            paragraph = depth;
+                            break;
+                        case "s":
+                            final String c = reader.getAttributeValue(TEXT_NS, "c");
+                            for (int count = c == null ? 1 : Integer.parseInt(c); count > 0; count--) {
+                                text.append(' ');
+                            }
+                            break;
+                        case "tab":
+                            text.append('\t');
+                            break;
+                        case "line-break":
+                            text.append('\n');
+                            break;
+                        default:
+                            break;
+                        }
+                    } else {
+                        skip(reader);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == paragraph) {
+                        paragraph = 0;
+                    }
+                    depth--;
+                } else if (paragraph > 0 && (event == XMLStreamConstants.CHARACTERS
+                        || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE)) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            }
+            return text.toString();
+        }
+    }
+}
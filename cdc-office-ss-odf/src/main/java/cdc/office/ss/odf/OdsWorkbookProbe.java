@@ -0,0 +1,281 @@
+package cdc.office.ss.odf;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.util.lang.BlackHole;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of WorkbookProbe for Open Office files.
+ * <p>
+ * Ods files don't declare the dimension of tables. {@code content.xml} is scanned with StAX,
+ * as done by {@link OdsStreamSheetParser}, but the content of cells is skipped:
+ * only their type and repetition are read.
+ * <ul>
+ * <li>The dimension of a table is the range of its non-empty cells.
+ * <li>The number of rows (resp. columns) of a table is the index of its last non-empty row (resp. column) plus 1.
+ * This is the number of rows produced by {@link OdsStreamSheetParser}.
+ * </ul>
+ * Document properties are read from {@code meta.xml}.
+ *
+ * @author Damien Carbonne
+ */
+public class OdsWorkbookProbe implements WorkbookProbe {
+    private static final String META = "meta.xml";
+
+    private static final String DC_NS = "http://purl.org/dc/elements/1.1/";
+    private static final String META_NS = "urn:oasis:names:tc:opendocument:xmlns:meta:1.0";
+
+    public OdsWorkbookProbe() {
+        super();
+    }
+
+    public OdsWorkbookProbe(SheetParserFactory factory,
+                            WorkbookKind kind) {
+        BlackHole.discard(factory);
+        BlackHole.discard(kind);
+    }
+
+    @Override
+    public WorkbookInfo probe(File file) throws IOException {
+        Checks.isNotNull(file, "file");
+        final WorkbookInfo.Builder builder = WorkbookInfo.builder().systemId(file.getPath()).kind(WorkbookKind.ODS);
+        try (final ZipFile zip = new ZipFile(file)) {
+            final ZipEntry content = zip.getEntry(OdsStreamSheetParser.CONTENT);
+            if (content == null) {
+                throw new IOException("No " + OdsStreamSheetParser.CONTENT + " found in " + file);
+            }
+            try (final InputStream in = zip.getInputStream(content)) {
+                readContent(in, builder);
+            }
+            final ZipEntry meta = zip.getEntry(META);
+            if (meta != null) {
+                try (final InputStream in = zip.getInputStream(meta)) {
+                    readMeta(in, builder);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public WorkbookInfo probe(InputStream in,
+                              String systemId,
+                              WorkbookKind kind) throws IOException {
+        Checks.isNotNull(in, "in");
+        final WorkbookInfo.Builder builder = WorkbookInfo.builder().systemId(systemId).kind(kind);
+        // Do not close zip, as this would close in
+        final ZipInputStream zip = new ZipInputStream(in);
+        // The XML reader may close the entry stream when it reaches its end
+        final InputStream entryIn = new FilterInputStream(zip) {
+            @Override
+            public void close() {
+                // Ignore
+            }
+        };
+        boolean found = false;
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (OdsStreamSheetParser.CONTENT.equals(entry.getName())) {
+                readContent(entryIn, builder);
+                found = true;
+            } else if (META.equals(entry.getName())) {
+                readMeta(entryIn, builder);
+            }
+        }
+        if (!found) {
+            throw new IOException("No " + OdsStreamSheetParser.CONTENT + " found in " + systemId);
+        }
+        return builder.build();
+    }
+
+    private static void readContent(InputStream in,
+                                    WorkbookInfo.Builder builder) throws IOException {
+        try {
+            final XMLStreamReader reader = OdsStreamSheetParser.FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && OdsStreamSheetParser.is(reader, OdsStreamSheetParser.TABLE_NS, "table")) {
+                        final String name = reader.getAttributeValue(OdsStreamSheetParser.TABLE_NS, "name");
+                        builder.sheet(new TableScanner(reader).scan(builder.getNumberOfSheets(), name));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void readMeta(InputStream in,
+                                 WorkbookInfo.Builder builder) throws IOException {
+        try {
+            final XMLStreamReader reader = OdsStreamSheetParser.FACTORY.createXMLStreamReader(in);
+            try {
+                final StringBuilder keywords = new StringBuilder();
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        if (OdsStreamSheetParser.is(reader, META_NS, "keyword")) {
+                            if (keywords.length() > 0) {
+                                keywords.append(", ");
+                            }
+                            keywords.append(reader.getElementText().trim());
+                        } else {
+                            final WorkbookInfo.Property property = getProperty(reader);
+                            if (property != null) {
+                                builder.property(property, reader.getElementText().trim());
+                            }
+                        }
+                    }
+                }
+                builder.property(WorkbookInfo.Property.KEYWORDS, keywords.toString());
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static WorkbookInfo.Property getProperty(XMLStreamReader reader) {
+        if (DC_NS.equals(reader.getNamespaceURI())) {
+            switch (reader.getLocalName()) {
+            case "title":
+                return WorkbookInfo.Property.TITLE;
+            case "subject":
+                return WorkbookInfo.Property.SUBJECT;
+            case "description":
+                return WorkbookInfo.Property.DESCRIPTION;
+            case "creator":
+                return WorkbookInfo.Property.LAST_MODIFIED_BY;
+            case "date":
+                return WorkbookInfo.Property.MODIFIED;
+            default:
+                return null;
+            }
+        } else if (META_NS.equals(reader.getNamespaceURI())) {
+            switch (reader.getLocalName()) {
+            case "initial-creator":
+                return WorkbookInfo.Property.CREATOR;
+            case "creation-date":
+                return WorkbookInfo.Property.CREATED;
+            case "generator":
+                return WorkbookInfo.Property.APPLICATION;
+            default:
+                return null;
+            }
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Scanner of a {@code table:table} element, that computes the range of its non-empty cells.
+     */
+    private static final class TableScanner {
+        private final XMLStreamReader reader;
+        private long rowIndex = 0L;
+        private long firstRow = Long.MAX_VALUE;
+        private long lastRow = -1L;
+        private long firstColumn = Long.MAX_VALUE;
+        private long lastColumn = -1L;
+
+        TableScanner(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        private static int toInt(long value) {
+            return (int) Math.min(Integer.MAX_VALUE, value);
+        }
+
+        /**
+         * Scans the table.
+         *
+         * @param index The table index.
+         * @param name The table name.
+         * @return The description of the table.
+         * @throws XMLStreamException When an XML error occurs.
+         */
+        SheetInfo scan(int index,
+                       String name) throws XMLStreamException {
+            // Rows may be nested in header rows, row groups, ...
+            int depth = 1;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (OdsStreamSheetParser.is(reader, OdsStreamSheetParser.TABLE_NS, "table")) {
+                        // Sub tables are ignored
+                        OdsStreamSheetParser.skip(reader);
+                    } else if (OdsStreamSheetParser.is(reader, OdsStreamSheetParser.TABLE_NS, "table-row")) {
+                        scanRow();
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            if (lastRow < 0L) {
+                return new SheetInfo(index, name, null, 0, 0);
+            } else {
+                return new SheetInfo(index,
+                                     name,
+                                     new CellAddressRange(toInt(firstRow),
+                                                          toInt(lastRow),
+                                                          toInt(firstColumn),
+                                                          toInt(lastColumn)),
+                                     toInt(lastRow + 1),
+                                     toInt(lastColumn + 1));
+            }
+        }
+
+        private void scanRow() throws XMLStreamException {
+            final int rowRepeat = OdsStreamSheetParser.getRepeat(reader, "number-rows-repeated");
+            long columnIndex = 0L;
+            boolean empty = true;
+            int depth = 1;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (OdsStreamSheetParser.is(reader, OdsStreamSheetParser.TABLE_NS, "table-cell")
+                            || OdsStreamSheetParser.is(reader, OdsStreamSheetParser.TABLE_NS, "covered-table-cell")) {
+                        final int cellRepeat = OdsStreamSheetParser.getRepeat(reader, "number-columns-repeated");
+                        // Same criteria as OdsStreamSheetParser
+                        if (reader.getAttributeValue(OdsStreamSheetParser.OFFICE_NS, "value-type") != null) {
+                            empty = false;
+                            firstColumn = Math.min(firstColumn, columnIndex);
+                            lastColumn = Math.max(lastColumn, columnIndex + cellRepeat - 1);
+                        }
+                        columnIndex += cellRepeat;
+                    }
+                    OdsStreamSheetParser.skip(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            if (!empty) {
+                firstRow = Math.min(firstRow, rowIndex);
+                lastRow = rowIndex + rowRepeat - 1;
+            }
+            rowIndex += rowRepeat;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package cdc.office.ss.odf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.RegionSheetParser;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.tables.CellType;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.TypedRow;
+import cdc.util.function.Evaluation;
+
+class OdsStreamSheetParserTest {
+    private static class Recorder implements TablesHandler {
+        final List<String> names = new ArrayList<>();
+        final List<List<Row>> tables = new ArrayList<>();
+
+        @Override
+        public void processBeginTable(String name,
+                                      int numberOfRows) {
+            names.add(name);
+            tables.add(new ArrayList<>());
+        }
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            tables.get(tables.size() - 1).add(header);
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            tables.get(tables.size() - 1).add(data);
+            return Evaluation.CONTINUE;
+        }
+
+        /**
+         * Removes trailing empty rows, and replaces numbers by their value.
+         */
+        void normalize() {
+            for (int index = 0; index < tables.size(); index++) {
+                final List<Row> rows = tables.get(index);
+                while (!rows.isEmpty() && rows.get(rows.size() - 1).isEmpty()) {
+                    rows.remove(rows.size() - 1);
+                }
+                final List<Row> tmp = new ArrayList<>();
+                for (final Row row : rows) {
+                    final Row.Builder builder = Row.builder();
+                    for (final String value : row.getValues()) {
+                        builder.addValue(normalize(value));
+                    }
+                    tmp.add(builder.build());
+                }
+                tables.set(index, tmp);
+            }
+        }
+
+        private static String normalize(String value) {
+            if (value != null && value.matches("-?[0-9]+([.,][0-9]+)?")) {
+                return Double.toString(Double.parseDouble(value.replace(',', '.')));
+            } else {
+                return value;
+            }
+        }
+    }
+
+    private static SheetParser create(boolean streaming) {
+        return create(streaming, false);
+    }
+
+    private static SheetParser create(boolean streaming,
+                                      boolean typed) {
+        final SheetParserFactory factory = new SheetParserFactory();
+        factory.setEnabled(SheetParserFactory.Feature.ODS_STREAMING, streaming);
+        factory.setEnabled(SheetParserFactory.Feature.TYPED_ROWS, typed);
+        return factory.create(WorkbookKind.ODS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "file1.ods", "file2.ods" })
+    void testCompare(String filename) throws IOException {
+        final File file = new File("src/test/resources", filename);
+        final Recorder expected = new Recorder();
+        create(false).parse(file, null, 1, expected);
+        expected.normalize();
+
+        final SheetParser parser = create(true);
+        assertEquals(OdsStreamSheetParser.class, parser.getClass());
+        final Recorder actual = new Recorder();
+        parser.parse(file, null, 1, actual);
+        actual.normalize();
+        assertEquals(expected.names, actual.names);
+        assertEquals(expected.tables, actual.tables);
+
+        final Recorder typed = new Recorder();
+        create(true, true).parse(file, null, 1, typed);
+        typed.normalize();
+        assertEquals(expected.tables, typed.tables);
+
+        final Recorder stream = new Recorder();
+        try (final InputStream in = new FileInputStream(file)) {
+            parser.parse(in, file.getPath(), WorkbookKind.ODS, null, 1, stream);
+        }
+        stream.normalize();
+        assertEquals(expected.tables, stream.tables);
+
+        for (int index = 0; index < expected.names.size(); index++) {
+            final MemoryTableHandler byIndex = new MemoryTableHandler();
+            parser.parse(file, null, index, 1, byIndex);
+            final MemoryTableHandler byName = new MemoryTableHandler();
+            parser.parse(file, null, expected.names.get(index), 1, byName);
+            assertEquals(byIndex.getRows(), byName.getRows());
+            assertEquals(actual.tables.get(index).size(), byIndex.getRowsCount());
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> parser.parse(file, null, "?", 1, new MemoryTableHandler()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parser.parse(file, null, 100, 1, new MemoryTableHandler()));
+    }
+
+    /**
+     * @param rows The rows.
+     * @param region The region.
+     * @return The rows of {@code rows} that are in {@code region}, without trailing empty values and rows.
+     */
+    private static List<Row> restrict(List<Row> rows,
+                                      CellAddressRange region) {
+        final List<Row> result = new ArrayList<>();
+        for (int index = 0; index < rows.size(); index++) {
+            if (region == null || region.containsRow(index)) {
+                final Row row = rows.get(index);
+                final Row.Builder builder = Row.builder();
+                int size = 0;
+                for (int column = region == null ? 0 : region.getFirstColumn(); column < row.size()
+                        && (region == null || region.containsColumn(column)); column++) {
+                    final String value = row.getValue(column);
+                    builder.addValue(value);
+                    if (value != null && !value.isEmpty()) {
+                        size = builder.build().size();
+                    }
+                }
+                result.add(Row.builder().addValues(builder.build().getValues().subList(0, size)).build());
+            }
+        }
+        while (!result.isEmpty() && result.get(result.size() - 1).isEmpty()) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void testRegion(boolean streaming) throws IOException {
+        final File file = new File("src/test/resources", "file1.ods");
+        final Recorder expected = new Recorder();
+        create(streaming).parse(file, null, 0, expected);
+        expected.normalize();
+
+        for (final CellAddressRange region : new CellAddressRange[] {
+                new CellAddressRange(0, 2, 0, -1),
+                new CellAddressRange(1, 3, 1, 2),
+                new CellAddressRange(2, -1, 0, 0),
+                new CellAddressRange(1000, 2000, 0, -1) }) {
+            final SheetParserFactory factory = new SheetParserFactory();
+            factory.setEnabled(SheetParserFactory.Feature.ODS_STREAMING, streaming);
+            factory.setRegion(region);
+            final SheetParser parser = factory.create(WorkbookKind.ODS);
+            assertEquals(streaming ? OdsStreamSheetParser.class : RegionSheetParser.class, parser.getClass());
+
+            final Recorder actual = new Recorder();
+            parser.parse(file, null, 0, actual);
+            actual.normalize();
+            assertEquals(expected.names, actual.names);
+            for (int index = 0; index < expected.tables.size(); index++) {
+                assertEquals(restrict(expected.tables.get(index), region),
+                             restrict(actual.tables.get(index), null));
+            }
+        }
+        assertTrue(expected.tables.stream().anyMatch(rows -> rows.size() > 3));
+    }
+
+    private static byte[] zip(String content) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("mimetype"));
+            zip.write("application/vnd.oasis.opendocument.spreadsheet".getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("content.xml"));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testRepeated() throws IOException {
+        final String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\""
+                + " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\""
+                + " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\">"
+                + "<office:body><office:spreadsheet>"
+                + "<table:table table:name=\"S1\">"
+                + "<table:table-column table:number-columns-repeated=\"16384\"/>"
+                + "<table:table-header-rows><table:table-row>"
+                + "<table:table-cell office:value-type=\"string\"><text:p>A<text:s text:c=\"2\"/>B</text:p><text:p>C</text:p></table:table-cell>"
+                + "<table:table-cell table:number-columns-repeated=\"2\"/>"
+                + "<table:table-cell office:value-type=\"float\" office:value=\"1.5\"><text:p>1,50</text:p></table:table-cell>"
+                + "<table:table-cell table:number-columns-repeated=\"16380\"/>"
+                + "</table:table-row></table:table-header-rows>"
+                + "<table:table-row table:number-rows-repeated=\"3\">"
+                + "<table:table-cell office:value-type=\"boolean\" office:boolean-value=\"true\" table:number-columns-repeated=\"2\"/>"
+                + "</table:table-row>"
+                + "<table:table-row table:number-rows-repeated=\"2\"><table:table-cell table:number-columns-repeated=\"16384\"/></table:table-row>"
+                + "<table:table-row><table:table-cell office:value-type=\"string\">"
+                + "<office:annotation><text:p>Note</text:p></office:annotation><text:p><text:span>X</text:span></text:p>"
+                + "</table:table-cell></table:table-row>"
+                + "<table:table-row table:number-rows-repeated=\"1048570\"><table:table-cell table:number-columns-repeated=\"16384\"/></table:table-row>"
+                + "</table:table>"
+                + "<table:table table:name=\"S2\"><table:table-row><table:table-cell office:value-type=\"string\"><text:p>Y</text:p></table:table-cell></table:table-row></table:table>"
+                + "</office:spreadsheet></office:body></office:document-content>";
+        final byte[] bytes = zip(content);
+        final SheetParser parser = create(true);
+
+        final MemoryTableHandler handler = new MemoryTableHandler(false);
+        parser.parse(new ByteArrayInputStream(bytes), "test.ods", WorkbookKind.ODS, null, 0, 1, handler);
+        assertEquals(7, handler.getRowsCount());
+        assertEquals(Row.builder("A  B\nC", null, null, "1.5").build(), handler.getRow(0));
+        for (int index = 1; index <= 3; index++) {
+            assertEquals(Row.builder("TRUE", "TRUE").build(), handler.getRow(index));
+        }
+        assertEquals(Row.EMPTY, handler.getRow(4));
+        assertEquals(Row.EMPTY, handler.getRow(5));
+        assertEquals(Row.builder("X").build(), handler.getRow(6));
+
+        final MemoryTableHandler typed = new MemoryTableHandler(false);
+        create(true, true).parse(new ByteArrayInputStream(bytes), "test.ods", WorkbookKind.ODS, null, 0, 1, typed);
+        assertEquals(handler.getRows(), typed.getRows());
+        final TypedRow header = (TypedRow) typed.getRow(0);
+        assertEquals(CellType.STRING, header.getType(0));
+        assertEquals(CellType.EMPTY, header.getType(1));
+        assertEquals(1.5, header.getNumber(3));
+        assertEquals(CellType.BOOLEAN, ((TypedRow) typed.getRow(1)).getType(1));
+
+        final MemoryTableHandler second = new MemoryTableHandler(false);
+        parser.parse(new ByteArrayInputStream(bytes), "test.ods", WorkbookKind.ODS, null, "S2", 1, second);
+        assertEquals(1, second.getRowsCount());
+        assertEquals("Y", second.getRow(0).getValue(0));
+    }
+}
@@ -0,0 +1,102 @@
+package cdc.office.ss.odf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import cdc.office.ss.CellAddressRange;
+import cdc.office.ss.SheetInfo;
+import cdc.office.ss.SheetParser;
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.ss.WorkbookInfo;
+import cdc.office.ss.WorkbookKind;
+import cdc.office.ss.WorkbookProbe;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+
+class OdsWorkbookProbeTest {
+    @ParameterizedTest
+    @ValueSource(strings = { "file1.ods", "file2.ods" })
+    void testCompare(String filename) throws IOException {
+        final File file = new File("src/test/resources", filename);
+        final SheetParserFactory factory = new SheetParserFactory().setEnabled(SheetParserFactory.Feature.ODS_STREAMING, true);
+        final WorkbookProbe probe = factory.createProbe(file);
+        assertEquals(OdsWorkbookProbe.class, probe.getClass());
+        final WorkbookInfo info = probe.probe(file);
+        assertEquals(WorkbookKind.ODS, info.getKind());
+
+        final SheetParser parser = factory.create(file);
+        final List<String> names = new ArrayList<>();
+        parser.parse(file, null, 0, name -> {
+            names.add(name);
+            return new MemoryTableHandler();
+        });
+        assertEquals(names, info.getSheetNames());
+        for (final SheetInfo sheet : info.getSheets()) {
+            final MemoryTableHandler handler = new MemoryTableHandler(false);
+            parser.parse(file, null, sheet.getIndex(), 0, handler);
+            assertEquals(handler.getRowsCount(), sheet.getNumberOfRows());
+            assertEquals(handler.getRows().stream().mapToInt(Row::size).max().orElse(0), sheet.getNumberOfColumns());
+        }
+
+        try (final InputStream in = new FileInputStream(file)) {
+            final WorkbookInfo stream = probe.probe(in, file.getPath(), WorkbookKind.ODS);
+            assertEquals(info.getSheets(), stream.getSheets());
+            assertEquals(info.getProperties(), stream.getProperties());
+        }
+    }
+
+    @Test
+    void testProperties() throws IOException {
+        final File file = new File("src/test/resources/file1.ods");
+        final WorkbookInfo info = new OdsWorkbookProbe().probe(file);
+        assertEquals("Damien", info.getProperty(WorkbookInfo.Property.LAST_MODIFIED_BY));
+        assertEquals("2021-10-02T10:35:31.124763210", info.getProperty(WorkbookInfo.Property.MODIFIED));
+        assertEquals("LibreOffice/6.4.7.2$Linux_X86_64 LibreOffice_project/40$Build-2",
+                     info.getProperty(WorkbookInfo.Property.APPLICATION));
+    }
+
+    @Test
+    void testRepeated() throws IOException {
+        final String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\""
+                + " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\""
+                + " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\">"
+                + "<office:body><office:spreadsheet>"
+                + "<table:table table:name=\"S1\">"
+                + "<table:table-row table:number-rows-repeated=\"2\"><table:table-cell table:number-columns-repeated=\"16384\"/></table:table-row>"
+                + "<table:table-row table:number-rows-repeated=\"3\">"
+                + "<table:table-cell/>"
+                + "<table:table-cell office:value-type=\"float\" office:value=\"1\" table:number-columns-repeated=\"2\"/>"
+                + "<table:table-cell table:number-columns-repeated=\"16381\"/>"
+                + "</table:table-row>"
+                + "<table:table-row table:number-rows-repeated=\"1048570\"><table:table-cell table:number-columns-repeated=\"16384\"/></table:table-row>"
+                + "</table:table>"
+                + "<table:table table:name=\"S2\"/>"
+                + "</office:spreadsheet></office:body></office:document-content>";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("content.xml"));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        final WorkbookInfo info =
+                new OdsWorkbookProbe().probe(new ByteArrayInputStream(out.toByteArray()), "test.ods", WorkbookKind.ODS);
+        assertEquals(new SheetInfo(0, "S1", new CellAddressRange(2, 4, 1, 2), 5, 3), info.getSheet("S1"));
+        assertEquals(new SheetInfo(1, "S2", null, 0, 0), info.getSheet("S2"));
+        assertEquals(0, info.getProperties().size());
+    }
+}
@@ -1,5 +1,15 @@
 package cdc.office.ss;
 
+import java.util.Objects;
+
+/**
+ * Rectangular range of cells.
+ * <p>
+ * Row and column indices are 0-based and inclusive.
+ * A negative last row (resp. last column) means that the range is not bounded.
+ *
+ * @author Damien Carbonne
+ */
 public class CellAddressRange {
     private final int firstRow;
     private final int lastRow;
@@ -40,4 +50,67 @@ public class CellAddressRange {
         return lastColumn >= 0 ? lastColumn : kind.getMaxColumns() - 1;
     }
 
-}
\ No newline at end of file
+    /**
+     * @param row The 0-based row index.
+     * @return {@code true} if {@code row} is in the rows of this range.
+     */
+    public boolean containsRow(int row) {
+        return row >= firstRow && (lastRow < 0 || row <= lastRow);
+    }
+
+    /**
+     * @param row The 0-based row index.
+     * @return {@code true} if {@code row} is after the last row of this range.
+     */
+    public boolean isAfterLastRow(int row) {
+        return lastRow >= 0 && row > lastRow;
+    }
+
+    /**
+     * @param column The 0-based column index.
+     * @return {@code true} if {@code column} is in the columns of this range.
+     */
+    public boolean containsColumn(int column) {
+        return column >= firstColumn && (lastColumn < 0 || column <= lastColumn);
+    }
+
+    /**
+     * Restricts an (estimated) number of rows of a sheet to this range.
+     *
+     * @param numberOfRows The number of rows of a sheet, or a negative number if it is unknown.
+     * @return The number of rows of the sheet that are in this range,
+     *         or -1 if it is unknown.
+     */
+    public int getNumberOfRows(int numberOfRows) {
+        if (numberOfRows < 0) {
+            return -1;
+        }
+        final int last = lastRow >= 0 ? Math.min(lastRow + 1, numberOfRows) : numberOfRows;
+        return Math.max(0, last - firstRow);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(firstRow, lastRow, firstColumn, lastColumn);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CellAddressRange)) {
+            return false;
+        }
+        final CellAddressRange other = (CellAddressRange) object;
+        return firstRow == other.firstRow
+                && lastRow == other.lastRow
+                && firstColumn == other.firstColumn
+                && lastColumn == other.lastColumn;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + firstRow + ":" + lastRow + ", " + firstColumn + ":" + lastColumn + "]";
+    }
+}
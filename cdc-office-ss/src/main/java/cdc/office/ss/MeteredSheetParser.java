@@ -0,0 +1,140 @@
+package cdc.office.ss;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.metrics.MeteredInputStream;
+import cdc.office.tables.metrics.MeteredTableHandler;
+import cdc.office.tables.metrics.TableMetrics;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of {@link SheetParser} that records metrics and delegates parsing to another parser.
+ * <p>
+ * Handlers are wrapped into a {@link MeteredTableHandler}.
+ * When a dedicated handler is used for each sheet, sheets may be parsed concurrently: each handler is then wrapped
+ * into a {@link MeteredTableHandler} that records metrics through {@link TableMetrics#synchronizedMetrics(TableMetrics)}.<br>
+ * Input streams are wrapped into a {@link MeteredInputStream}.
+ * When a file is parsed, its length is recorded as consumed bytes.
+ *
+ * @author Damien Carbonne
+ */
+public class MeteredSheetParser implements SheetParser {
+    private final SheetParser delegate;
+    private final TableMetrics metrics;
+
+    public MeteredSheetParser(SheetParser delegate,
+                              TableMetrics metrics) {
+        this.delegate = Checks.isNotNull(delegate, "delegate");
+        this.metrics = Checks.isNotNull(metrics, "metrics");
+    }
+
+    public SheetParser getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void clearCache() {
+        delegate.clearCache();
+    }
+
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        delegate.parse(file, password, headers, MeteredTableHandler.wrap(handler, metrics));
+        metrics.recordBytes(file.length());
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      Function<String, ? extends TableHandler> handlers) throws IOException {
+        Checks.isNotNull(handlers, "handlers");
+        final TableMetrics shared = TableMetrics.synchronizedMetrics(metrics);
+        delegate.parse(file,
+                       password,
+                       headers,
+                       name -> MeteredTableHandler.wrap(handlers.apply(name), shared));
+        shared.recordBytes(file.length());
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        delegate.parse(MeteredInputStream.wrap(in, metrics),
+                       systemId,
+                       kind,
+                       password,
+                       headers,
+                       MeteredTableHandler.wrap(handler, metrics));
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(file, password, sheetName, headers, MeteredTableHandler.wrap(handler, metrics));
+        metrics.recordBytes(file.length());
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(file, password, sheetIndex, headers, MeteredTableHandler.wrap(handler, metrics));
+        metrics.recordBytes(file.length());
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(MeteredInputStream.wrap(in, metrics),
+                       systemId,
+                       kind,
+                       password,
+                       sheetName,
+                       headers,
+                       MeteredTableHandler.wrap(handler, metrics));
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(MeteredInputStream.wrap(in, metrics),
+                       systemId,
+                       kind,
+                       password,
+                       sheetIndex,
+                       headers,
+                       MeteredTableHandler.wrap(handler, metrics));
+    }
+}
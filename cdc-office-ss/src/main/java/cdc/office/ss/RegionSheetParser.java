@@ -0,0 +1,170 @@
+package cdc.office.ss;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TableSection;
+import cdc.office.tables.TablesHandler;
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of {@link SheetParser} that only passes a region of sheets to handlers,
+ * and delegates parsing to another parser.
+ * <p>
+ * It is used with parsers that don't natively support {@link SheetParserFactory#getRegion() regions}.
+ * Rows before the region are built by the delegate parser and ignored.
+ * {@link Evaluation#STOP} is returned to the delegate parser after the last row of the region.
+ *
+ * @author Damien Carbonne
+ */
+public class RegionSheetParser implements SheetParser {
+    private final SheetParser delegate;
+    private final CellAddressRange region;
+
+    public RegionSheetParser(SheetParser delegate,
+                             CellAddressRange region) {
+        this.delegate = Checks.isNotNull(delegate, "delegate");
+        this.region = Checks.isNotNull(region, "region");
+    }
+
+    public SheetParser getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void clearCache() {
+        delegate.clearCache();
+    }
+
+    public CellAddressRange getRegion() {
+        return region;
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        delegate.parse(file, password, 0, new Handler(handler, headers));
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int headers,
+                      TablesHandler handler) throws IOException {
+        delegate.parse(in, systemId, kind, password, 0, new Handler(handler, headers));
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(file, password, sheetName, 0, new Handler(handler, headers));
+    }
+
+    @Override
+    public void parse(File file,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(file, password, sheetIndex, 0, new Handler(handler, headers));
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      String sheetName,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(in, systemId, kind, password, sheetName, 0, new Handler(handler, headers));
+    }
+
+    @Override
+    public void parse(InputStream in,
+                      String systemId,
+                      WorkbookKind kind,
+                      String password,
+                      int sheetIndex,
+                      int headers,
+                      TableHandler handler) throws IOException {
+        delegate.parse(in, systemId, kind, password, sheetIndex, 0, new Handler(handler, headers));
+    }
+
+    /**
+     * Handler that receives all rows of sheets, as data rows, and passes rows of the region to a delegate.
+     */
+    private final class Handler implements TablesHandler {
+        private final TableHandler delegate;
+        private final int headers;
+        private final Row.Builder row = Row.builder();
+        private final RowLocation.Builder location = RowLocation.builder();
+
+        Handler(TableHandler delegate,
+                int headers) {
+            this.delegate = Checks.isNotNull(delegate, "handler");
+            this.headers = headers;
+        }
+
+        @Override
+        public void processBeginTables(String systemId) {
+            TablesHandler.processBeginTables(delegate, systemId);
+        }
+
+        @Override
+        public void processBeginTable(String name,
+                                      int numberOfRows) {
+            location.set(TableSection.HEADER, 0, 0);
+            delegate.processBeginTable(name, region.getNumberOfRows(numberOfRows));
+        }
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            return processData(header, location);
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            final int index = location.getGlobalNumber() - 1;
+            if (region.isAfterLastRow(index)) {
+                return Evaluation.STOP;
+            } else if (!region.containsRow(index)) {
+                return Evaluation.CONTINUE;
+            }
+            row.clear();
+            for (int column = Math.max(0, region.getFirstColumn()); column < data.size(); column++) {
+                if (!region.containsColumn(column)) {
+                    break;
+                }
+                row.addValue(data.getValue(column));
+            }
+            this.location.incrementNumbers(headers);
+            final Evaluation evaluation = TableHandler.processRow(delegate, row.build(), this.location.build());
+            return region.isAfterLastRow(index + 1) ? Evaluation.STOP : evaluation;
+        }
+
+        @Override
+        public void processEndTable(String name) {
+            delegate.processEndTable(name);
+        }
+
+        @Override
+        public void processEndTables(String systemId) {
+            TablesHandler.processEndTables(delegate, systemId);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package cdc.office.ss;
+
+import java.util.Objects;
+
+import cdc.util.lang.Checks;
+
+/**
+ * Description of a sheet, produced by a {@link WorkbookProbe}.
+ *
+ * @author Damien Carbonne
+ */
+public final class SheetInfo {
+    private final int index;
+    private final String name;
+    private final CellAddressRange dimension;
+    private final int numberOfRows;
+    private final int numberOfColumns;
+
+    /**
+     * Creates a sheet description.
+     *
+     * @param index The 0-based sheet index.
+     * @param name The sheet name. It is {@code null} for CSV files.
+     * @param dimension The range of used cells, or {@code null} if it is unknown or the sheet is empty.
+     * @param numberOfRows The estimated number of rows, or -1 if it is unknown.
+     * @param numberOfColumns The estimated number of columns, or -1 if it is unknown.
+     * @throws IllegalArgumentException When {@code index} is negative.
+     */
+    public SheetInfo(int index,
+                     String name,
+                     CellAddressRange dimension,
+                     int numberOfRows,
+                     int numberOfColumns) {
+        Checks.isTrue(index >= 0, "Invalid index");
+        this.index = index;
+        this.name = name;
+        this.dimension = dimension;
+        this.numberOfRows = Math.max(-1, numberOfRows);
+        this.numberOfColumns = Math.max(-1, numberOfColumns);
+    }
+
+    /**
+     * @return The 0-based index of this sheet.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The name of this sheet. It is {@code null} for CSV files.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The range of used cells, as declared in the workbook, or {@code null} if it is unknown or the sheet is empty.
+     */
+    public CellAddressRange getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns the estimated number of rows of this sheet.
+     * <p>
+     * Empty rows that precede the first used row are counted, as parsers generate them.
+     *
+     * @return The estimated number of rows, or -1 if it is unknown.
+     */
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * @return The estimated number of columns, or -1 if it is unknown.
+     */
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, name, dimension, numberOfRows, numberOfColumns);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof SheetInfo)) {
+            return false;
+        }
+        final SheetInfo other = (SheetInfo) object;
+        return index == other.index
+                && Objects.equals(name, other.name)
+                && Objects.equals(dimension, other.dimension)
+                && numberOfRows == other.numberOfRows
+                && numberOfColumns == other.numberOfColumns;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + index + " " + name + " " + dimension + " " + numberOfRows + "x" + numberOfColumns + "]";
+    }
+}
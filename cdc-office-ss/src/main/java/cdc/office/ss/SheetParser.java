@@ -3,9 +3,14 @@ package cdc.office.ss;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.function.Function;
 
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
 import cdc.office.tables.TableHandler;
 import cdc.office.tables.TablesHandler;
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
 
 /**
  * Base interface of objects that can be used to parse spread sheets using a stream-like API.
@@ -33,6 +38,57 @@ public interface SheetParser {
                       int headers,
                       TablesHandler handler) throws IOException;
 
+    /**
+     * Parses a file and extracts all sheets, passing rows of each sheet to a dedicated handler.
+     * <p>
+     * {@code handlers} is called in sheet order, by the calling thread.
+     * Depending on implementation and configuration, sheets may be parsed concurrently:
+     * each created handler is then called by the thread that parses its sheet.<br>
+     * The default implementation parses sheets sequentially, in the calling thread.
+     *
+     * @param file The file.
+     * @param password The optional password. Used by some implementations.
+     * @param headers The number of header rows in the sheets.
+     * @param handlers The function that creates the handler of a sheet, from its name.
+     * @throws IOException When an IO exception occurs.
+     */
+    public default void parse(File file,
+                              String password,
+                              int headers,
+                              Function<String, ? extends TableHandler> handlers) throws IOException {
+        Checks.isNotNull(handlers, "handlers");
+        parse(file,
+              password,
+              headers,
+              new TablesHandler() {
+                  private TableHandler delegate;
+
+                  @Override
+                  public void processBeginTable(String name,
+                                                int numberOfRows) {
+                      delegate = handlers.apply(name);
+                      delegate.processBeginTable(name, numberOfRows);
+                  }
+
+                  @Override
+                  public Evaluation processHeader(Row header,
+                                                  RowLocation location) {
+                      return delegate.processHeader(header, location);
+                  }
+
+                  @Override
+                  public Evaluation processData(Row data,
+                                                RowLocation location) {
+                      return delegate.processData(data, location);
+                  }
+
+                  @Override
+                  public void processEndTable(String name) {
+                      delegate.processEndTable(name);
+                  }
+              });
+    }
+
     /**
      * Parses an input stream and extracts all sheets.
      *
@@ -122,4 +178,15 @@ public interface SheetParser {
                       int sheetIndex,
                       int headers,
                       TableHandler handler) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Releases data that is cached by this parser between successive parsings.
+     * <p>
+     * Some implementations keep data of the last parsed file, so that successive parsings of the same file are faster.
+     * This data is reloaded when needed.<br>
+     * The default implementation does nothing.
+     */
+    public default void clearCache() {
+        // Ignore
+    }
+}
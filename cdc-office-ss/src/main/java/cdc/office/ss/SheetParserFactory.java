@@ -10,6 +10,8 @@ import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import cdc.office.tables.metrics.TableMetrics;
+import cdc.util.lang.Checks;
 import cdc.util.lang.FailureReaction;
 import cdc.util.lang.Introspection;
 import cdc.util.lang.UnexpectedValueException;
@@ -21,6 +23,10 @@ public class SheetParserFactory {
     private char separator = ';';
     /** CSV charset. */
     private Charset charset = null;
+    private TableMetrics metrics = null;
+    private int sharedStringsCacheSize = 4096;
+    private int parallelism = 1;
+    private CellAddressRange region = null;
     // TODO Locale
 
     public enum Feature {
@@ -48,12 +54,58 @@ public class SheetParserFactory {
          */
         POI_SAX,
 
+        /**
+         * If enabled, use a lightweight parser that reads Excel files without POI package and object models.
+         * <p>
+         * This works for xlsx and xlsm formats.
+         * It has a lower startup cost and memory footprint than other parsers, and produces the same values
+         * as {@link #POI_STREAMING}.
+         */
+        NATIVE,
+
+        /**
+         * If enabled, use a streaming parser for Open Office files.
+         * <p>
+         * This works for ods format.
+         * Rows are read in constant memory, and repeated rows and cells are not expanded.
+         */
+        ODS_STREAMING,
+
         /**
          * If enabled, and a formula is found, evaluate it.
          * Otherwise, cached value is used.
          */
         EVALUATE_FORMULA,
 
+        /**
+         * If enabled, shared strings of xlsx and xlsm files are streamed once into a compact
+         * memory-mapped temporary file, instead of being loaded in memory.
+         * <p>
+         * This is useful with huge workbooks that contain millions of unique strings.
+         * Recently used strings are cached in memory.
+         *
+         * @see SheetParserFactory#setSharedStringsCacheSize(int)
+         */
+        COMPACT_SHARED_STRINGS,
+
+        /**
+         * If enabled, the shared strings and styles of the last parsed xlsx or xlsm file are kept by
+         * {@link #POI_STREAMING} parsers, so that successive parsings of sheets of the same file load them once.
+         * <p>
+         * They are released by {@link SheetParser#clearCache()}.
+         * Otherwise, they are released when each parsing ends.
+         */
+        CACHE_WORKBOOK_PARTS,
+
+        /**
+         * If enabled, parsers that support it pass {@link cdc.office.tables.TypedRow TypedRows} to handlers.
+         * <p>
+         * Numbers, dates and booleans are then stored as primitives, and numbers and dates are only formatted
+         * when their string value is needed.<br>
+         * This is currently supported by {@link #NATIVE} and {@link #ODS_STREAMING} parsers, and ignored by others.
+         */
+        TYPED_ROWS,
+
         /**
          * If enabled, vulnerability protections are disabled.
          * <p>
@@ -127,11 +179,131 @@ public class SheetParserFactory {
         return this;
     }
 
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics that created parsers must record.
+     *
+     * @param metrics The metrics. If {@code null}, no metrics are recorded.
+     * @return This factory.
+     */
+    public SheetParserFactory setMetrics(TableMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return The number of shared strings cached in memory when {@link Feature#COMPACT_SHARED_STRINGS}
+     *         is enabled. Default to 4096.
+     */
+    public int getSharedStringsCacheSize() {
+        return sharedStringsCacheSize;
+    }
+
+    /**
+     * Sets the number of shared strings cached in memory when {@link Feature#COMPACT_SHARED_STRINGS}
+     * is enabled.
+     *
+     * @param sharedStringsCacheSize The cache size. It is rounded to a power of 2. If 0, no cache is used.
+     * @return This factory.
+     * @throws IllegalArgumentException When {@code sharedStringsCacheSize} is negative.
+     */
+    public SheetParserFactory setSharedStringsCacheSize(int sharedStringsCacheSize) {
+        Checks.isTrue(sharedStringsCacheSize >= 0, "Invalid sharedStringsCacheSize");
+        this.sharedStringsCacheSize = sharedStringsCacheSize;
+        return this;
+    }
+
+    /**
+     * @return The maximum number of sheets parsed concurrently. Default to 1.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of sheets parsed concurrently when all sheets of a workbook are parsed.
+     * <p>
+     * This is currently supported for xlsx and xlsm files, with {@link Feature#POI_SAX} and {@link Feature#POI_STREAMING}.
+     * When a {@link cdc.office.tables.TablesHandler TablesHandler} is used, rows are still passed to it by the calling thread, in sheet order.
+     *
+     * @param parallelism The parallelism. If less than 2, sheets are parsed sequentially.
+     * @return This factory.
+     * @throws IllegalArgumentException When {@code parallelism} is less than 1.
+     * @see SheetParser#parse(File, String, int, java.util.function.Function)
+     */
+    public SheetParserFactory setParallelism(int parallelism) {
+        Checks.isTrue(parallelism >= 1, "Invalid parallelism");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @return The region of sheets that must be parsed, or {@code null} if sheets must be entirely parsed.
+     *         Default to {@code null}.
+     */
+    public CellAddressRange getRegion() {
+        return region;
+    }
+
+    /**
+     * Sets the region of sheets that must be parsed.
+     * <p>
+     * Rows and cells that are outside {@code region} are ignored. The first row of {@code region} is
+     * the first row of the table passed to handlers, and its first column is the first column of rows.
+     * Headers are the first rows of {@code region}.<br>
+     * Depending on implementation, rows before {@code region} are skipped without building their cells,
+     * and parsing of a sheet stops after the last row of {@code region}.
+     * Empty rows at the end of {@code region} may be omitted.
+     *
+     * @param region The region. If {@code null}, sheets are entirely parsed.
+     * @return This factory.
+     */
+    public SheetParserFactory setRegion(CellAddressRange region) {
+        this.region = region;
+        return this;
+    }
+
+    /**
+     * Sets the rows of sheets that must be parsed.
+     * <p>
+     * This is equivalent to {@code setRegion(new CellAddressRange(from, to - 1, 0, -1))}.
+     *
+     * @param from The 0-based index of the first row that must be parsed (inclusive).
+     * @param to The 0-based index of the last row that must be parsed (exclusive).
+     *            If negative, all rows after {@code from} are parsed.
+     * @return This factory.
+     * @throws IllegalArgumentException When {@code from} is negative, or {@code to} is positive and not greater than {@code from}.
+     * @see #setRegion(CellAddressRange)
+     */
+    public SheetParserFactory setRows(int from,
+                                      int to) {
+        Checks.isTrue(from >= 0, "Invalid from");
+        Checks.isTrue(to < 0 || to > from, "Invalid to");
+        return setRegion(new CellAddressRange(from, to < 0 ? -1 : to - 1, 0, -1));
+    }
+
+    /**
+     * Creates a parser.
+     *
+     * @param className The parser class name.
+     * @param kind The workbook kind.
+     * @param regionSupport {@code true} if the parser supports {@link #getRegion() region}.
+     *            If {@code false}, and a region is set, the parser is wrapped in a {@link RegionSheetParser}.
+     * @return A new parser.
+     */
     private SheetParser create(String className,
-                               WorkbookKind kind) {
+                               WorkbookKind kind,
+                               boolean regionSupport) {
         final Class<? extends SheetParser> cls = Introspection.getClass(className, SheetParser.class, FailureReaction.FAIL);
         final Class<?>[] parameterTypes = { SheetParserFactory.class, WorkbookKind.class };
-        return Introspection.newInstance(cls, parameterTypes, FailureReaction.FAIL, this, kind);
+        SheetParser parser = Introspection.newInstance(cls, parameterTypes, FailureReaction.FAIL, this, kind);
+        if (region != null && !regionSupport) {
+            parser = new RegionSheetParser(parser, region);
+        }
+        return metrics == null ? parser : new MeteredSheetParser(parser, metrics);
     }
 
     public SheetParser create(WorkbookKind kind) {
@@ -147,22 +319,31 @@ public class SheetParserFactory {
         if (isEnabled(Feature.POI_SAX) && kind == WorkbookKind.XLS) {
             LOGGER.warn("SAX is not available for xls.");
         }
+        if (isEnabled(Feature.NATIVE) && kind == WorkbookKind.XLS) {
+            LOGGER.warn("Native parser is not available for xls.");
+        }
 
         switch (kind) {
         case CSV:
-            return create("cdc.office.ss.csv.CsvSheetParser", WorkbookKind.CSV);
+            return create("cdc.office.ss.csv.CsvSheetParser", WorkbookKind.CSV, false);
         case ODS:
-            return create("cdc.office.ss.odf.OdsSheetParser", WorkbookKind.ODS);
+            if (isEnabled(Feature.ODS_STREAMING)) {
+                return create("cdc.office.ss.odf.OdsStreamSheetParser", WorkbookKind.ODS, true);
+            } else {
+                return create("cdc.office.ss.odf.OdsSheetParser", WorkbookKind.ODS, false);
+            }
         case XLS:
         case XLSM:
         case XLSX:
             if (isEnabled(Feature.POI_STANDARD) || kind == WorkbookKind.XLS) {
-                return create("cdc.office.ss.excel.PoiStandardSheetParser", kind);
+                return create("cdc.office.ss.excel.PoiStandardSheetParser", kind, false);
             } else if (isEnabled(Feature.POI_SAX)) {
-                return create("cdc.office.ss.excel.PoiSaxSheetParser", kind);
+                return create("cdc.office.ss.excel.PoiSaxSheetParser", kind, true);
+            } else if (isEnabled(Feature.NATIVE)) {
+                return create("cdc.office.ss.excel.NativeSheetParser", kind, true);
             } else {
                 // At the moment, when no feature is enabled, use STREAMING
-                return create("cdc.office.ss.excel.PoiStreamSheetParser", kind);
+                return create("cdc.office.ss.excel.PoiStreamSheetParser", kind, true);
             }
         default:
             throw new UnexpectedValueException(kind);
@@ -173,4 +354,42 @@ public class SheetParserFactory {
         final WorkbookKind kind = WorkbookKind.from(file);
         return create(kind);
     }
+
+    /**
+     * Creates a probe.
+     * <p>
+     * Probes take into account the CSV {@link #getSeparator() separator} and {@link #getCharset() charset},
+     * and {@link Feature#DISABLE_VULNERABILITY_PROTECTIONS}.
+     *
+     * @param kind The workbook kind.
+     * @return A new probe for {@code kind} workbooks.
+     */
+    public WorkbookProbe createProbe(WorkbookKind kind) {
+        final String className;
+        switch (kind) {
+        case CSV:
+            className = "cdc.office.ss.csv.CsvWorkbookProbe";
+            break;
+        case ODS:
+            className = "cdc.office.ss.odf.OdsWorkbookProbe";
+            break;
+        case XLS:
+            className = "cdc.office.ss.excel.XlsWorkbookProbe";
+            break;
+        case XLSM:
+        case XLSX:
+            className = "cdc.office.ss.excel.XlsxWorkbookProbe";
+            break;
+        default:
+            throw new UnexpectedValueException(kind);
+        }
+        final Class<? extends WorkbookProbe> cls = Introspection.getClass(className, WorkbookProbe.class, FailureReaction.FAIL);
+        final Class<?>[] parameterTypes = { SheetParserFactory.class, WorkbookKind.class };
+        return Introspection.newInstance(cls, parameterTypes, FailureReaction.FAIL, this, kind);
+    }
+
+    public WorkbookProbe createProbe(File file) {
+        final WorkbookKind kind = WorkbookKind.from(file);
+        return createProbe(kind);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package cdc.office.ss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import cdc.util.lang.Checks;
+
+/**
+ * Description of a workbook, produced by a {@link WorkbookProbe}.
+ * <p>
+ * It contains the description of each sheet, in workbook order, and document properties.
+ *
+ * @author Damien Carbonne
+ */
+public final class WorkbookInfo {
+    private final String systemId;
+    private final WorkbookKind kind;
+    private final List<SheetInfo> sheets;
+    private final Map<Property, String> properties;
+
+    /**
+     * Enumeration of document properties.
+     * <p>
+     * Dates are ISO 8601 strings, as stored in xlsx and ods files.
+     */
+    public enum Property {
+        TITLE,
+        SUBJECT,
+        DESCRIPTION,
+        KEYWORDS,
+        /** The initial author. */
+        CREATOR,
+        /** The last author. */
+        LAST_MODIFIED_BY,
+        CREATED,
+        MODIFIED,
+        /** The application that created or saved the document. */
+        APPLICATION
+    }
+
+    private WorkbookInfo(Builder builder) {
+        this.systemId = builder.systemId;
+        this.kind = builder.kind;
+        this.sheets = Collections.unmodifiableList(new ArrayList<>(builder.sheets));
+        this.properties = builder.properties.isEmpty()
+                ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(builder.properties));
+    }
+
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public WorkbookKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The sheets, in workbook order.
+     */
+    public List<SheetInfo> getSheets() {
+        return sheets;
+    }
+
+    /**
+     * @return The names of sheets, in workbook order.
+     */
+    public List<String> getSheetNames() {
+        final List<String> result = new ArrayList<>(sheets.size());
+        for (final SheetInfo sheet : sheets) {
+            result.add(sheet.getName());
+        }
+        return result;
+    }
+
+    /**
+     * @param name The sheet name.
+     * @return The sheet named {@code name}, or {@code null}.
+     */
+    public SheetInfo getSheet(String name) {
+        for (final SheetInfo sheet : sheets) {
+            if (sheet.getName() != null && sheet.getName().equals(name)) {
+                return sheet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The document properties that are defined.
+     */
+    public Map<Property, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param property The property.
+     * @return The value of {@code property}, or {@code null}.
+     */
+    public String getProperty(Property property) {
+        return properties.get(property);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + systemId + " " + kind + " " + sheets + " " + properties + "]";
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private String systemId;
+        private WorkbookKind kind;
+        private final List<SheetInfo> sheets = new ArrayList<>();
+        private final Map<Property, String> properties = new EnumMap<>(Property.class);
+
+        Builder() {
+            super();
+        }
+
+        public Builder systemId(String systemId) {
+            this.systemId = systemId;
+            return this;
+        }
+
+        public Builder kind(WorkbookKind kind) {
+            this.kind = kind;
+            return this;
+        }
+
+        /**
+         * Adds a sheet.
+         *
+         * @param sheet The sheet.
+         * @return This builder.
+         * @throws IllegalArgumentException When {@code sheet} is {@code null},
+         *             or its index is not the number of already added sheets.
+         */
+        public Builder sheet(SheetInfo sheet) {
+            Checks.isNotNull(sheet, "sheet");
+            Checks.isTrue(sheet.getIndex() == sheets.size(), "Invalid sheet index: " + sheet.getIndex());
+            sheets.add(sheet);
+            return this;
+        }
+
+        /**
+         * Sets a property.
+         *
+         * @param property The property.
+         * @param value The value. If {@code null} or empty, {@code property} is removed.
+         * @return This builder.
+         */
+        public Builder property(Property property,
+                                String value) {
+            Checks.isNotNull(property, "property");
+            if (value == null || value.isEmpty()) {
+                properties.remove(property);
+            } else {
+                properties.put(property, value);
+            }
+            return this;
+        }
+
+        /**
+         * @return The number of added sheets.
+         */
+        public int getNumberOfSheets() {
+            return sheets.size();
+        }
+
+        public WorkbookInfo build() {
+            return new WorkbookInfo(this);
+        }
+    }
+}
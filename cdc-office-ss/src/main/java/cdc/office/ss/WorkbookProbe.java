@@ -0,0 +1,46 @@
+package cdc.office.ss;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface of objects that can be used to describe a workbook without parsing the cells of its sheets.
+ * <p>
+ * Implementations only read the parts of a workbook that declare its sheets and properties,
+ * and the beginning of each sheet when its dimension is declared there.
+ * They are much cheaper than a {@link SheetParser} when one only needs to list sheets,
+ * for example to let a user select the sheet to parse.
+ * <p>
+ * <b>WARNING:</b> dimensions and numbers of rows and columns are estimations.
+ * They are read from what the writer of the workbook declared, and can differ from what a {@link SheetParser} produces.
+ *
+ * @author Damien Carbonne
+ * @see SheetParserFactory#createProbe(WorkbookKind)
+ */
+public interface WorkbookProbe {
+    /**
+     * Probes a file.
+     *
+     * @param file The file.
+     * @return The description of {@code file}.
+     * @throws IOException When an IO exception occurs, or when {@code file} is not a valid workbook.
+     */
+    public WorkbookInfo probe(File file) throws IOException;
+
+    /**
+     * Probes an InputStream.
+     * <p>
+     * Depending on implementation, this can be less efficient than probing a file,
+     * as the stream may have to be read till its end.
+     *
+     * @param in The input stream. It is not closed.
+     * @param systemId The system id.
+     * @param kind The workbook kind.
+     * @return The description of {@code in}.
+     * @throws IOException When an IO exception occurs, or when {@code in} is not a valid workbook.
+     */
+    public WorkbookInfo probe(InputStream in,
+                              String systemId,
+                              WorkbookKind kind) throws IOException;
+}
@@ -0,0 +1,23 @@
+package cdc.office.ss.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when columns of a sheet have been auto sized.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.AutoSize")
+@Label("Auto Size")
+@Category({ "CDC", "Office", "Workbooks" })
+@Description("Auto sizing of columns of a sheet")
+public class AutoSizeEvent extends jdk.jfr.Event {
+    @Label("Sheet")
+    public String sheet;
+
+    @Label("Columns")
+    public long columns;
+}
@@ -0,0 +1,34 @@
+package cdc.office.ss.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when compact shared strings of a workbook are closed.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.SharedStringsCache")
+@Label("Shared Strings Cache")
+@Category({ "CDC", "Office", "Workbooks" })
+@Description("Use of the cache of compact shared strings of a workbook")
+public class SharedStringsCacheEvent extends jdk.jfr.Event {
+    @Label("Unique Strings")
+    public long uniqueCount;
+
+    @Label("Store Size")
+    @DataAmount
+    public long storeSize;
+
+    @Label("Cache Size")
+    public long cacheSize;
+
+    @Label("Cache Hits")
+    public long cacheHits;
+
+    @Label("Cache Misses")
+    public long cacheMisses;
+}
@@ -0,0 +1,23 @@
+package cdc.office.ss.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when the shared strings of a workbook have been loaded.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.SharedStringsLoad")
+@Label("Shared Strings Load")
+@Category({ "CDC", "Office", "Workbooks" })
+@Description("Loading of shared strings of a workbook")
+public class SharedStringsLoadEvent extends jdk.jfr.Event {
+    @Label("System Id")
+    public String systemId;
+
+    @Label("Unique Strings")
+    public long uniqueCount;
+}
@@ -0,0 +1,29 @@
+package cdc.office.ss.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when a sheet has been written.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.SheetWrite")
+@Label("Sheet Write")
+@Category({ "CDC", "Office", "Workbooks" })
+@Description("Writing of a sheet")
+public class SheetWriteEvent extends jdk.jfr.Event {
+    @Label("Writer")
+    public String writer;
+
+    @Label("Sheet")
+    public String sheet;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Columns")
+    public long columns;
+}
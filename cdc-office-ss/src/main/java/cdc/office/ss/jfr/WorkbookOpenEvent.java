@@ -0,0 +1,29 @@
+package cdc.office.ss.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when a workbook has been opened for parsing.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.WorkbookOpen")
+@Label("Workbook Open")
+@Category({ "CDC", "Office", "Workbooks" })
+@Description("Opening of a workbook")
+public class WorkbookOpenEvent extends jdk.jfr.Event {
+    @Label("System Id")
+    public String systemId;
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Size")
+    @Description("Size of the workbook file, or -1")
+    @DataAmount
+    public long size = -1L;
+}
@@ -0,0 +1,29 @@
+package cdc.office.tables;
+
+/**
+ * Enumeration of types of cells of a {@link TypedRow}.
+ *
+ * @author Damien Carbonne
+ */
+public enum CellType {
+    /** The cell is empty. Its value is {@code null}. */
+    EMPTY,
+
+    /** The cell contains a string. */
+    STRING,
+
+    /** The cell contains a number. */
+    NUMBER,
+
+    /**
+     * The cell contains a date, stored as a number of days since 1899-12-30
+     * (1900 date system of spreadsheets).
+     */
+    DATE,
+
+    /** The cell contains a boolean. Its value is {@code TRUE} or {@code FALSE}. */
+    BOOLEAN,
+
+    /** The cell contains an error. */
+    ERROR
+}
@@ -0,0 +1,192 @@
+package cdc.office.tables;
+
+import java.util.Arrays;
+
+import cdc.util.lang.Checks;
+
+/**
+ * Compact hash index that associates 64 bits fingerprints to non-negative int values.
+ * <p>
+ * It uses open addressing with linear probing in primitive arrays.
+ * Each slot costs 12 bytes (a fingerprint and a value), and at most half of slots are used,
+ * which costs between 24 and 48 bytes per entry.<br>
+ * Several values can be associated to the same fingerprint. They are then enumerated in insertion order:
+ * <pre>
+ * for (int slot = index.getFirstSlot(fp); slot &gt;= 0; slot = index.getNextSlot(fp, slot)) {
+ *     final int value = index.getValue(slot);
+ *     ...
+ * }
+ * </pre>
+ * Typically, values are ordinals of rows and fingerprints are computed with {@link Fingerprints}.
+ * As fingerprints are not unique, values must be checked by caller.
+ *
+ * @author Damien Carbonne
+ */
+public final class FingerprintIndex {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] fingerprints;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Creates an index sized for an expected number of entries.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    public FingerprintIndex(int expectedSize) {
+        Checks.isTrue(expectedSize >= 0, "Invalid expected size");
+        allocate(capacityFor(expectedSize));
+    }
+
+    public FingerprintIndex() {
+        this(0);
+    }
+
+    private static int capacityFor(int size) {
+        // Load factor <= 0.5
+        final long min = Math.max(MIN_CAPACITY, 2L * size);
+        long capacity = Long.highestOneBit(min);
+        if (capacity < min) {
+            capacity <<= 1;
+        }
+        Checks.isTrue(capacity <= (1 << 30), "Too many entries");
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        this.fingerprints = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        this.mask = capacity - 1;
+    }
+
+    private int slotOf(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private void grow() {
+        final long[] oldFingerprints = fingerprints;
+        final int[] oldValues = values;
+        allocate(fingerprints.length * 2);
+        // Re-inserting in old slot order would not preserve insertion order of equal fingerprints
+        // when a chain wraps around the end of the array. Start from an empty slot to avoid that.
+        int start = 0;
+        while (oldValues[start] != EMPTY) {
+            start++;
+        }
+        for (int i = 1; i <= oldValues.length; i++) {
+            final int slot = (start + i) & (oldValues.length - 1);
+            if (oldValues[slot] != EMPTY) {
+                insert(oldFingerprints[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void insert(long fingerprint,
+                        int value) {
+        int slot = slotOf(fingerprint);
+        while (values[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        values[slot] = value;
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @param fingerprint The fingerprint.
+     * @param value The value.
+     * @throws IllegalArgumentException When {@code value} is negative.
+     */
+    public void add(long fingerprint,
+                    int value) {
+        Checks.isTrue(value >= 0, "Invalid value");
+        if (2 * (size + 1) > values.length) {
+            grow();
+        }
+        insert(fingerprint, value);
+        size++;
+    }
+
+    /**
+     * Returns the slot of the first entry that has a fingerprint.
+     *
+     * @param fingerprint The fingerprint.
+     * @return The slot of the first entry whose fingerprint is {@code fingerprint}, or -1.
+     */
+    public int getFirstSlot(long fingerprint) {
+        return find(fingerprint, slotOf(fingerprint));
+    }
+
+    /**
+     * Returns the slot of the next entry that has a fingerprint.
+     *
+     * @param fingerprint The fingerprint.
+     * @param slot The slot returned by a previous call to {@link #getFirstSlot(long)}
+     *            or {@link #getNextSlot(long, int)}.
+     * @return The slot of the entry that follows {@code slot} and whose fingerprint is {@code fingerprint}, or -1.
+     */
+    public int getNextSlot(long fingerprint,
+                           int slot) {
+        return find(fingerprint, (slot + 1) & mask);
+    }
+
+    private int find(long fingerprint,
+                     int from) {
+        int slot = from;
+        while (values[slot] != EMPTY) {
+            if (fingerprints[slot] == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param slot The slot.
+     * @return The value stored in {@code slot}.
+     */
+    public int getValue(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * @param fingerprint The fingerprint.
+     * @return {@code true} if this index contains an entry whose fingerprint is {@code fingerprint}.
+     */
+    public boolean contains(long fingerprint) {
+        return getFirstSlot(fingerprint) >= 0;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return An estimation of the number of bytes used by this index.
+     *         This is the size of its arrays: 12 bytes per slot, whether it is used or not.
+     */
+    public long getMemory() {
+        return 12L * values.length;
+    }
+}
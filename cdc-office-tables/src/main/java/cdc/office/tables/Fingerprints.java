@@ -0,0 +1,133 @@
+package cdc.office.tables;
+
+import java.util.Objects;
+
+/**
+ * Utilities used to compute 64 bits fingerprints of row values.
+ * <p>
+ * A fingerprint is a hash of a sequence of values.<br>
+ * {@code null} and empty values produce different fingerprints, and so do
+ * sequences whose concatenation would be identical (for example {@code ["ab", ""]} and {@code ["a", "b"]}).
+ * <p>
+ * Fingerprints are not unique: two different sequences of values may have the same fingerprint.
+ * When exact results are required, equality of values must be checked when fingerprints are equal.
+ *
+ * @author Damien Carbonne
+ */
+public final class Fingerprints {
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final long NULL = 0x9e3779b97f4a7c15L;
+
+    private Fingerprints() {
+    }
+
+    private static long mix(long hash,
+                            String value) {
+        if (value == null) {
+            return (hash ^ NULL) * PRIME;
+        } else {
+            long h = hash;
+            for (int index = 0; index < value.length(); index++) {
+                h = (h ^ value.charAt(index)) * PRIME;
+            }
+            // Separator between values
+            return (h ^ value.length()) * PRIME;
+        }
+    }
+
+    /**
+     * Finalization step of MurmurHash3, to spread all bits.
+     *
+     * @param hash The hash.
+     * @return The finalized hash.
+     */
+    private static long spread(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the fingerprint of the values of some columns of a row.
+     * <p>
+     * A missing column is handled as a {@code null} value.
+     *
+     * @param row The row.
+     * @param columns The columns, in order.
+     * @return The fingerprint of values of {@code columns} in {@code row}.
+     */
+    public static long of(Row row,
+                          int... columns) {
+        long hash = OFFSET;
+        for (final int column : columns) {
+            hash = mix(hash, row.getValue(column, null));
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Returns the fingerprint of a sequence of values.
+     * <p>
+     * It is equal to the fingerprint of the columns of a row that contain the same values.
+     *
+     * @param values The values.
+     * @return The fingerprint of {@code values}.
+     */
+    public static long of(String... values) {
+        long hash = OFFSET;
+        for (final String value : values) {
+            hash = mix(hash, value);
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Returns the fingerprint of all values of a row.
+     * <p>
+     * Trailing {@code null} values are ignored.
+     *
+     * @param row The row.
+     * @return The fingerprint of all values of {@code row}.
+     */
+    public static long of(Row row) {
+        final int size = Rows.getTrimmedSize(row);
+        long hash = OFFSET;
+        for (int column = 0; column < size; column++) {
+            hash = mix(hash, row.getValue(column, null));
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Returns {@code true} when the values of some columns of 2 rows are equal.
+     * <p>
+     * This can be used to check that 2 rows whose fingerprints are equal actually match.
+     *
+     * @param row1 The first row.
+     * @param columns1 The columns of {@code row1}.
+     * @param row2 The second row.
+     * @param columns2 The columns of {@code row2}.
+     * @return {@code true} when values of {@code columns1} in {@code row1}
+     *         and values of {@code columns2} in {@code row2} are equal.
+     */
+    public static boolean equals(Row row1,
+                                 int[] columns1,
+                                 Row row2,
+                                 int[] columns2) {
+        if (columns1.length != columns2.length) {
+            return false;
+        }
+        for (int index = 0; index < columns1.length; index++) {
+            if (!Objects.equals(row1.getValue(columns1[index], null),
+                                row2.getValue(columns2[index], null))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
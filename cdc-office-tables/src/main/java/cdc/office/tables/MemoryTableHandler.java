@@ -15,8 +15,13 @@ import cdc.util.function.Evaluation;
  */
 public class MemoryTableHandler implements TableHandler {
     private static final Logger LOGGER = LogManager.getLogger(MemoryTableHandler.class);
+    /**
+     * Maximum capacity allocated when a table begins.
+     * This protects against wrong estimations of the number of rows, and matches the maximum number of rows of a sheet.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
     private final boolean removeEmptyTrailingRows;
-    private final List<Row> rows = new ArrayList<>();
+    private final ArrayList<Row> rows = new ArrayList<>();
     private int headers = 0;
 
     /**
@@ -153,6 +158,10 @@ public class MemoryTableHandler implements TableHandler {
         LOGGER.trace("processBeginTable({}, {})", name, numberOfRows);
         headers = 0;
         rows.clear();
+        if (numberOfRows > 0) {
+            // Allocate once when the number of rows is known
+            rows.ensureCapacity(Math.min(numberOfRows, MAX_INITIAL_CAPACITY));
+        }
     }
 
     @Override
@@ -36,23 +36,27 @@ final class RowImpl implements Row {
         if (object == this) {
             return true;
         }
-        if (!(object instanceof RowImpl)) {
+        if (!(object instanceof RowImpl || object instanceof TypedRow)) {
             return false;
         }
-        final RowImpl other = (RowImpl) object;
-        return values.equals(other.values);
+        final Row other = (Row) object;
+        return values.equals(other.getValues());
     }
 
     @Override
     public String toString() {
+        return toString(this);
+    }
+
+    static String toString(Row row) {
         final StringBuilder builder = new StringBuilder();
 
         builder.append('[');
-        for (int column = 0; column < size(); column++) {
+        for (int column = 0; column < row.size(); column++) {
             if (column > 0) {
                 builder.append(';');
             }
-            final String value = getValue(column, null);
+            final String value = row.getValue(column, null);
             if (value == null) {
                 builder.append("null");
             } else {
@@ -1,5 +1,17 @@
 package cdc.office.tables;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import cdc.util.lang.Checks;
+import cdc.util.lang.InvalidDataException;
+import cdc.util.strings.StringComparison;
+
 /**
  * Rows utilities.
  *
@@ -7,6 +19,17 @@ package cdc.office.tables;
  *
  */
 public final class Rows {
+    /**
+     * Comparator of key values.
+     * <p>
+     * Values are ordered with {@link StringComparison#compareDecimalDigits(String, String)},
+     * ties being broken by natural {@link String} order. It is therefore consistent with
+     * {@link String#equals(Object)}: {@code "01"} and {@code "1"} are different keys.<br>
+     * {@code null} values are placed first.
+     */
+    public static final Comparator<String> KEY_VALUE_COMPARATOR =
+            Comparator.nullsFirst(((Comparator<String>) StringComparison::compareDecimalDigits).thenComparing(Comparator.naturalOrder()));
+
     private Rows() {
     }
 
@@ -31,4 +54,135 @@ public final class Rows {
         }
         return builder.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of columns of a row, ignoring trailing {@code null} values.
+     *
+     * @param row The row.
+     * @return The number of columns of {@code row}, ignoring trailing {@code null} values.
+     */
+    public static int getTrimmedSize(Row row) {
+        int size = row.size();
+        while (size > 0 && row.getValue(size - 1, null) == null) {
+            size--;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the indices of columns designated by names in a header row.
+     *
+     * @param header The header row. It may be {@code null}.
+     * @param names The column names.
+     * @return The indices of {@code names} in {@code header}.
+     * @throws InvalidDataException When {@code header} is {@code null} and {@code names} is not empty,
+     *             or when a name is not found in {@code header}.
+     */
+    public static int[] getColumns(Row header,
+                                   List<String> names) {
+        if (header == null && !names.isEmpty()) {
+            throw new InvalidDataException("No header to resolve column names " + names);
+        }
+        final int[] columns = new int[names.size()];
+        for (int index = 0; index < columns.length; index++) {
+            final String name = names.get(index);
+            columns[index] = header.getValues().indexOf(name);
+            if (columns[index] < 0) {
+                throw new InvalidDataException("Column '" + name + "' not found in header " + header);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns a comparator of rows that compares values of some columns, in order.
+     * <p>
+     * Values are compared with {@link #KEY_VALUE_COMPARATOR}.<br>
+     * A missing column is handled as a {@code null} value.
+     *
+     * @param columns The indices of compared columns.
+     * @return A comparator of rows that compares values of {@code columns}.
+     */
+    public static Comparator<Row> keyComparator(int... columns) {
+        Checks.isNotNull(columns, "columns");
+        final int[] cols = columns.clone();
+        final Comparator<String> comparator = KEY_VALUE_COMPARATOR;
+        return (r1,
+                r2) -> {
+            for (final int column : cols) {
+                final int cmp = comparator.compare(r1.getValue(column, null), r2.getValue(column, null));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Returns a rough estimation of the number of bytes used in memory by a row.
+     * <p>
+     * This is intended to control memory budgets, not to give an exact measure.
+     *
+     * @param row The row.
+     * @return An estimation of the number of bytes used by {@code row}.
+     */
+    public static long estimateMemory(Row row) {
+        // Row, list and array headers
+        long size = 64L + 4L * row.size();
+        for (final String value : row.getValues()) {
+            if (value != null) {
+                // String and array headers, and (at most) 2 bytes per char
+                size += 40L + 2L * value.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes a row to a DataOutput.
+     * <p>
+     * The row can be read back with {@link #read(DataInput)}.<br>
+     * {@code null} values are preserved.
+     *
+     * @param out The DataOutput.
+     * @param row The row.
+     * @throws IOException When an IO error occurs.
+     */
+    public static void write(DataOutput out,
+                             Row row) throws IOException {
+        out.writeInt(row.size());
+        for (final String value : row.getValues()) {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads a row that was written with {@link #write(DataOutput, Row)}.
+     *
+     * @param in The DataInput.
+     * @return The read row.
+     * @throws IOException When an IO error occurs.
+     */
+    public static Row read(DataInput in) throws IOException {
+        final int size = in.readInt();
+        final List<String> values = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            final int length = in.readInt();
+            if (length < 0) {
+                values.add(null);
+            } else {
+                final byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                values.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return new RowImpl(values);
+    }
+}
@@ -0,0 +1,343 @@
+package cdc.office.tables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of {@link TableHandler} that detects duplicate keys, or duplicate rows, in one pass.
+ * <p>
+ * When key columns are set, 2 data rows are duplicates when their key values are equal.
+ * Otherwise, 2 data rows are duplicates when all their values are equal (trailing {@code null} values are ignored).<br>
+ * When key columns are designated by names, they are searched in the last header row.
+ * <p>
+ * Only the first occurrence of each key is kept. It is indexed by its 64 bits fingerprint in a {@link FingerprintIndex}.<br>
+ * In exact mode (default), key values of first occurrences are also stored, encoded in UTF-8, in a compact byte buffer,
+ * and are compared when fingerprints are equal. Values are encoded character by character, without allocation. Otherwise, equality of fingerprints is considered sufficient,
+ * which uses less memory but may (very rarely) report false duplicates.
+ * <p>
+ * Each duplicate is passed to a {@link Listener}, with its location and the location of the first occurrence.
+ *
+ * @author Damien Carbonne
+ */
+public final class TableDuplicatesDetector implements TableHandler {
+    /**
+     * Interface used to receive detected duplicates.
+     */
+    @FunctionalInterface
+    public static interface Listener {
+        /**
+         * Called when a duplicate data row is detected.
+         *
+         * @param row The duplicate row.
+         * @param location The location of {@code row}.
+         * @param firstLocation The location of the first row that has the same key.
+         */
+        public void processDuplicate(Row row,
+                                     RowLocation location,
+                                     RowLocation firstLocation);
+    }
+
+    private final List<String> keyNames;
+    private final int[] keyColumns;
+    private final boolean exact;
+    private final Listener listener;
+
+    private final FingerprintIndex index = new FingerprintIndex();
+    private final Arena arena = new Arena();
+    /** Global numbers of first occurrences, indexed by ordinal. */
+    private int[] firstNumbers = new int[1024];
+    /** Data numbers of first occurrences, indexed by ordinal. */
+    private int[] firstDataNumbers = new int[1024];
+    private int distinctCount = 0;
+    private int duplicatesCount = 0;
+    private Row lastHeader = null;
+    private int[] columns = null;
+    private byte[] buffer = new byte[256];
+    private int length = 0;
+
+    private TableDuplicatesDetector(Builder builder) {
+        Checks.isTrue(builder.keyNames.isEmpty() || builder.keyColumns.length == 0,
+                      "Key names and key columns can not be both set");
+        this.keyNames = Collections.unmodifiableList(new ArrayList<>(builder.keyNames));
+        this.keyColumns = builder.keyColumns.clone();
+        this.exact = builder.exact;
+        this.listener = Checks.isNotNull(builder.listener, "listener");
+    }
+
+    /**
+     * @return {@code true} if keys are compared exactly.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return The number of distinct keys of last table.
+     */
+    public int getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * @return The number of duplicate data rows of last table.
+     */
+    public int getDuplicatesCount() {
+        return duplicatesCount;
+    }
+
+    /**
+     * @return {@code true} if last table contains duplicates.
+     */
+    public boolean hasDuplicates() {
+        return duplicatesCount > 0;
+    }
+
+    @Override
+    public void processBeginTable(String name,
+                                  int numberOfRows) {
+        index.clear();
+        arena.clear();
+        distinctCount = 0;
+        duplicatesCount = 0;
+        lastHeader = null;
+        columns = null;
+    }
+
+    @Override
+    public Evaluation processHeader(Row header,
+                                    RowLocation location) {
+        lastHeader = header;
+        return Evaluation.CONTINUE;
+    }
+
+    @Override
+    public Evaluation processData(Row data,
+                                  RowLocation location) {
+        if (columns == null && (!keyNames.isEmpty() || keyColumns.length > 0)) {
+            columns = keyNames.isEmpty() ? keyColumns : Rows.getColumns(lastHeader, keyNames);
+        }
+        final long fingerprint = columns == null ? Fingerprints.of(data) : Fingerprints.of(data, columns);
+        if (exact) {
+            encode(data);
+        }
+        for (int slot = index.getFirstSlot(fingerprint); slot >= 0; slot = index.getNextSlot(fingerprint, slot)) {
+            final int ordinal = index.getValue(slot);
+            if (!exact || arena.equals(ordinal, buffer, length)) {
+                duplicatesCount++;
+                listener.processDuplicate(data,
+                                          location,
+                                          RowLocation.builder()
+                                                     .set(TableSection.DATA, firstDataNumbers[ordinal], firstNumbers[ordinal])
+                                                     .build());
+                return Evaluation.CONTINUE;
+            }
+        }
+
+        // First occurrence
+        if (distinctCount == firstNumbers.length) {
+            firstNumbers = Arrays.copyOf(firstNumbers, 2 * firstNumbers.length);
+            firstDataNumbers = Arrays.copyOf(firstDataNumbers, 2 * firstDataNumbers.length);
+        }
+        firstNumbers[distinctCount] = location.getGlobalNumber();
+        firstDataNumbers[distinctCount] = location.getSectionNumber();
+        index.add(fingerprint, distinctCount);
+        if (exact) {
+            arena.add(buffer, length);
+        }
+        distinctCount++;
+        return Evaluation.CONTINUE;
+    }
+
+    private void encode(Row data) {
+        length = 0;
+        if (columns == null) {
+            final int size = Rows.getTrimmedSize(data);
+            for (int column = 0; column < size; column++) {
+                encode(data.getValue(column, null));
+            }
+        } else {
+            for (final int column : columns) {
+                encode(data.getValue(column, null));
+            }
+        }
+    }
+
+    private void encode(String value) {
+        if (value == null) {
+            // A null value is encoded as 1 byte that can not start a UTF-8 sequence
+            ensureCapacity(1);
+            buffer[length++] = (byte) 0xFF;
+        } else {
+            // Length is written when known
+            ensureCapacity(4 + 3 * value.length());
+            final int start = length;
+            length += 4;
+            for (int index = 0; index < value.length(); index++) {
+                final char c = value.charAt(index);
+                if (c < 0x80) {
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xC0 | (c >>> 6));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c)
+                        && index + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    final int cp = Character.toCodePoint(c, value.charAt(++index));
+                    buffer[length++] = (byte) (0xF0 | (cp >>> 18));
+                    buffer[length++] = (byte) (0x80 | ((cp >>> 12) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | ((cp >>> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    // Unpaired surrogates are encoded as other chars, which keeps encoding injective
+                    buffer[length++] = (byte) (0xE0 | (c >>> 12));
+                    buffer[length++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            final int size = length - start - 4;
+            buffer[start] = (byte) (size >>> 24);
+            buffer[start + 1] = (byte) (size >>> 16);
+            buffer[start + 2] = (byte) (size >>> 8);
+            buffer[start + 3] = (byte) size;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + extra));
+        }
+    }
+
+    /**
+     * Append-only storage of byte sequences, in chunks.
+     */
+    private static final class Arena {
+        private static final int CHUNK_SIZE = 1 << 20;
+        private final List<byte[]> chunks = new ArrayList<>();
+        /** Positions of sequences: chunk index (high 32 bits) and offset in chunk (low 32 bits). */
+        private long[] positions = new long[1024];
+        private int[] lengths = new int[1024];
+        private int count = 0;
+        private int offset = CHUNK_SIZE;
+
+        void clear() {
+            chunks.clear();
+            count = 0;
+            offset = CHUNK_SIZE;
+        }
+
+        void add(byte[] bytes,
+                 int length) {
+            if (offset + length > CHUNK_SIZE || chunks.isEmpty()) {
+                chunks.add(new byte[Math.max(CHUNK_SIZE, length)]);
+                offset = 0;
+            }
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * count);
+                lengths = Arrays.copyOf(lengths, 2 * count);
+            }
+            final byte[] chunk = chunks.get(chunks.size() - 1);
+            System.arraycopy(bytes, 0, chunk, offset, length);
+            positions[count] = ((long) (chunks.size() - 1) << 32) | offset;
+            lengths[count] = length;
+            count++;
+            offset += length;
+        }
+
+        boolean equals(int ordinal,
+                       byte[] bytes,
+                       int length) {
+            if (lengths[ordinal] != length) {
+                return false;
+            }
+            final byte[] chunk = chunks.get((int) (positions[ordinal] >>> 32));
+            final int from = (int) positions[ordinal];
+            return Arrays.equals(chunk, from, from + length, bytes, 0, length);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of {@link TableDuplicatesDetector}.
+     *
+     * @author Damien Carbonne
+     */
+    public static final class Builder {
+        private final List<String> keyNames = new ArrayList<>();
+        private int[] keyColumns = new int[0];
+        private boolean exact = true;
+        private Listener listener = (r,
+                                     l,
+                                     f) -> {
+            // Ignore
+        };
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the names of key columns.
+         * <p>
+         * If no key names or key columns are set, full rows are compared.
+         *
+         * @param keyNames The key names.
+         * @return This builder.
+         */
+        public Builder keyNames(List<String> keyNames) {
+            this.keyNames.clear();
+            this.keyNames.addAll(keyNames);
+            return this;
+        }
+
+        public Builder keyNames(String... keyNames) {
+            return keyNames(Arrays.asList(keyNames));
+        }
+
+        /**
+         * Sets the indices of key columns.
+         * <p>
+         * If no key names or key columns are set, full rows are compared.
+         *
+         * @param keyColumns The key columns (0-based).
+         * @return This builder.
+         */
+        public Builder keyColumns(int... keyColumns) {
+            this.keyColumns = keyColumns.clone();
+            return this;
+        }
+
+        /**
+         * Sets whether keys must be compared exactly when fingerprints are equal.
+         *
+         * @param exact If {@code true}, keys are stored and compared exactly.
+         * @return This builder.
+         */
+        public Builder exact(boolean exact) {
+            this.exact = exact;
+            return this;
+        }
+
+        /**
+         * Sets the listener of duplicates.
+         *
+         * @param listener The listener.
+         * @return This builder.
+         */
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public TableDuplicatesDetector build() {
+            return new TableDuplicatesDetector(this);
+        }
+    }
+}
@@ -0,0 +1,743 @@
+package cdc.office.tables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
+import cdc.util.lang.ExceptionWrapper;
+
+/**
+ * Hash join of 2 tables on key columns.
+ * <p>
+ * The build table (normally the smaller one) must be passed first to {@link #getBuildHandler()}.
+ * Its rows are stored in memory and indexed with a {@link FingerprintIndex}.<br>
+ * The probe table is then passed to this handler. Each probe data row is joined with matching build data rows,
+ * and the joined rows are passed to the delegate.<br>
+ * Key values are compared exactly. Fingerprints are only used to find candidates.
+ * <p>
+ * A joined row contains values of the probe row, padded or truncated to the width of the last probe header row
+ * (if any), followed by values of the build row.<br>
+ * Header rows are joined by position: probe header row {@code n} is joined with build header row {@code n}.
+ * <p>
+ * When the estimated memory used by build rows exceeds a budget, the join switches to a grace hash join:
+ * build and probe rows are distributed into partitions saved to temporary files,
+ * and partitions are joined one after the other when the probe table ends.
+ * A partition whose build rows still exceed the budget is split again, with other fingerprint bits.
+ * If it can not be split (for example because all its build rows have the same key),
+ * it is joined with a block nested loop: build rows are loaded by blocks that fit into the budget,
+ * and probe rows of the partition are read once per block.<br>
+ * In that case, the order of joined data rows does not follow the order of probe rows,
+ * and the build table must be passed again before joining another probe table.
+ *
+ * @author Damien Carbonne
+ */
+public final class TableJoiner extends AbstractTableFilter {
+    private static final Logger LOGGER = LogManager.getLogger(TableJoiner.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Default memory budget: a quarter of max memory.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+    /**
+     * Default number of partitions used when the build table does not fit into memory budget.
+     */
+    public static final int DEFAULT_PARTITIONS = 32;
+
+    /** Maximum number of times a partition is split. */
+    private static final int MAX_LEVEL = 3;
+
+    /**
+     * Enumeration of join types.
+     */
+    public enum Type {
+        /**
+         * Only probe rows that match at least one build row are kept.
+         */
+        INNER,
+
+        /**
+         * All probe rows are kept.
+         * Probe rows that match no build row are passed without build values.
+         */
+        LEFT
+    }
+
+    private final Type type;
+    private final List<String> buildKeyNames;
+    private final int[] buildKeyColumns;
+    private final List<String> probeKeyNames;
+    private final int[] probeKeyColumns;
+    private final long memoryBudget;
+    private final int partitionsCount;
+    private final File tempDir;
+    private final BuildHandler buildHandler = new BuildHandler();
+
+    /** Build header rows. */
+    private final List<Row> buildHeaders = new ArrayList<>();
+    /** Build data rows (of current partition when partitioned). */
+    private final List<Row> buildRows = new ArrayList<>();
+    /** Index of build data rows. */
+    private final FingerprintIndex index = new FingerprintIndex();
+    private int[] buildColumns = null;
+    private long buildMemory = 0L;
+    private boolean built = false;
+    /** Partitions, empty when join is done in memory. */
+    private final List<Partition> partitions = new ArrayList<>();
+
+    private Row lastProbeHeader = null;
+    private int[] probeColumns = null;
+    private int probeWidth = 0;
+    private int probeHeaders = 0;
+    private RowLocation.Builder location = RowLocation.builder();
+    private final Row.Builder rowBuilder = Row.builder();
+
+    private TableJoiner(Builder builder) {
+        super(builder.delegate);
+        this.type = Checks.isNotNull(builder.type, "type");
+        Checks.isTrue(builder.buildKeyNames.isEmpty() != (builder.buildKeyColumns.length == 0),
+                      "Either build key names or build key columns must be set");
+        Checks.isTrue(builder.probeKeyNames.isEmpty() != (builder.probeKeyColumns.length == 0),
+                      "Either probe key names or probe key columns must be set");
+        Checks.isTrue(builder.memoryBudget > 0L, "Invalid memory budget");
+        Checks.isTrue(builder.partitionsCount > 0, "Invalid partitions count");
+        this.buildKeyNames = Collections.unmodifiableList(new ArrayList<>(builder.buildKeyNames));
+        this.buildKeyColumns = builder.buildKeyColumns.clone();
+        this.probeKeyNames = Collections.unmodifiableList(new ArrayList<>(builder.probeKeyNames));
+        this.probeKeyColumns = builder.probeKeyColumns.clone();
+        this.memoryBudget = builder.memoryBudget;
+        this.partitionsCount = builder.partitionsCount;
+        this.tempDir = builder.tempDir;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The handler that must receive the build table.
+     */
+    public TableHandler getBuildHandler() {
+        return buildHandler;
+    }
+
+    /**
+     * @return {@code true} if the join is done with partitions saved to temporary files.
+     */
+    public boolean isPartitioned() {
+        return !partitions.isEmpty();
+    }
+
+    private void clearBuild() {
+        buildHeaders.clear();
+        buildRows.clear();
+        index.clear();
+        buildColumns = null;
+        buildMemory = 0L;
+        built = false;
+        deletePartitions();
+    }
+
+    private void deletePartitions() {
+        for (final Partition partition : partitions) {
+            partition.delete();
+        }
+        partitions.clear();
+    }
+
+    private void addBuildRow(Row row) {
+        if (isPartitioned()) {
+            partitions.get(partitionOf(Fingerprints.of(row, buildColumns))).writeBuild(row);
+        } else {
+            index.add(Fingerprints.of(row, buildColumns), buildRows.size());
+            buildRows.add(row);
+            buildMemory += Rows.estimateMemory(row);
+            if (buildMemory + index.getMemory() > memoryBudget) {
+                partition();
+            }
+        }
+    }
+
+    private int partitionOf(long fingerprint) {
+        return partitionOf(fingerprint, 0);
+    }
+
+    /**
+     * @param fingerprint The fingerprint.
+     * @param level The partitioning level, 0 for the first partitioning.
+     * @return The partition of {@code fingerprint} at {@code level}.
+     */
+    private int partitionOf(long fingerprint,
+                            int level) {
+        // Use high bits, index uses low bits. Each level uses other bits.
+        return (int) ((Long.rotateLeft(fingerprint, 13 * level) >>> 40) % partitionsCount);
+    }
+
+    /**
+     * @param rows The number of rows.
+     * @param rowsMemory The estimated memory used by rows.
+     * @return {@code true} if {@code rows} rows using {@code rowsMemory} bytes and their index fit into memory budget.
+     */
+    private boolean fits(int rows,
+                         long rowsMemory) {
+        // An index uses at most 48 bytes per entry
+        return rowsMemory + 48L * rows <= memoryBudget;
+    }
+
+    /**
+     * Switches to grace hash join: moves all build rows to partitions.
+     */
+    private void partition() {
+        LOGGER.debug("partition build table ({} rows)", buildRows.size());
+        try {
+            for (int i = 0; i < partitionsCount; i++) {
+                partitions.add(new Partition());
+            }
+        } catch (final IOException e) {
+            throw new ExceptionWrapper(e);
+        }
+        for (final Row row : buildRows) {
+            partitions.get(partitionOf(Fingerprints.of(row, buildColumns))).writeBuild(row);
+        }
+        buildRows.clear();
+        index.clear();
+        buildMemory = 0L;
+    }
+
+    /**
+     * Handler of the build table.
+     */
+    private final class BuildHandler implements TableHandler {
+        private Row lastHeader = null;
+
+        @Override
+        public void processBeginTable(String name,
+                                      int numberOfRows) {
+            clearBuild();
+            lastHeader = null;
+        }
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            buildHeaders.add(header);
+            lastHeader = header;
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            if (buildColumns == null) {
+                buildColumns = buildKeyNames.isEmpty() ? buildKeyColumns : Rows.getColumns(lastHeader, buildKeyNames);
+            }
+            addBuildRow(data);
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public void processEndTable(String name) {
+            for (final Partition partition : partitions) {
+                partition.closeOutput();
+            }
+            built = true;
+        }
+    }
+
+    private Row join(Row probe,
+                     Row build) {
+        rowBuilder.clear();
+        if (build == null) {
+            rowBuilder.addValues(probe.getValues());
+        } else {
+            if (probeHeaders == 0) {
+                rowBuilder.addValues(probe.getValues());
+            } else {
+                // Build values must start at the same column in all rows
+                for (int i = 0; i < probeWidth; i++) {
+                    rowBuilder.addValue(probe.getValue(i));
+                }
+            }
+            rowBuilder.addValues(build.getValues());
+        }
+        return rowBuilder.build();
+    }
+
+    /**
+     * Joins a probe row with in-memory build rows.
+     *
+     * @param probe The probe row.
+     * @return The evaluation returned by delegate.
+     */
+    private Evaluation probe(Row probe) {
+        final Evaluation evaluation = probeMatches(probe);
+        if (evaluation == null) {
+            return type == Type.LEFT
+                    ? delegate.processData(join(probe, null), location.incrementNumbers(TableSection.DATA).build())
+                    : Evaluation.CONTINUE;
+        }
+        return evaluation;
+    }
+
+    /**
+     * Joins a probe row with matching in-memory build rows.
+     *
+     * @param probe The probe row.
+     * @return {@code null} if no build row matches {@code probe},
+     *         or the evaluation returned by delegate.
+     */
+    private Evaluation probeMatches(Row probe) {
+        final long fingerprint = Fingerprints.of(probe, probeColumns);
+        Evaluation result = null;
+        for (int slot = index.getFirstSlot(fingerprint); slot >= 0; slot = index.getNextSlot(fingerprint, slot)) {
+            final Row build = buildRows.get(index.getValue(slot));
+            if (Fingerprints.equals(build, buildColumns, probe, probeColumns)) {
+                result = delegate.processData(join(probe, build), location.incrementNumbers(TableSection.DATA).build());
+                if (!result.isContinue()) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void processBeginTable(String name,
+                                  int numberOfRows) {
+        if (!built) {
+            throw new IllegalStateException("Build table has not been processed");
+        }
+        lastProbeHeader = null;
+        probeColumns = null;
+        probeWidth = 0;
+        probeHeaders = 0;
+        location = RowLocation.builder();
+        super.processBeginTable(name, -1);
+    }
+
+    @Override
+    public Evaluation processHeader(Row header,
+                                    RowLocation location) {
+        lastProbeHeader = header;
+        probeWidth = header.size();
+        final Row build = probeHeaders < buildHeaders.size() ? buildHeaders.get(probeHeaders) : Row.EMPTY;
+        probeHeaders++;
+        return delegate.processHeader(join(header, build), this.location.incrementNumbers(TableSection.HEADER).build());
+    }
+
+    @Override
+    public Evaluation processData(Row data,
+                                  RowLocation location) {
+        if (probeColumns == null) {
+            probeColumns = probeKeyNames.isEmpty() ? probeKeyColumns : Rows.getColumns(lastProbeHeader, probeKeyNames);
+            Checks.isTrue(buildColumns == null || probeColumns.length == buildColumns.length,
+                          "Build and probe keys don't have the same size");
+        }
+        if (isPartitioned()) {
+            partitions.get(partitionOf(Fingerprints.of(data, probeColumns))).writeProbe(data);
+            return Evaluation.CONTINUE;
+        } else {
+            return probe(data);
+        }
+    }
+
+    @Override
+    public void processEndTable(String name) {
+        try {
+            if (isPartitioned()) {
+                joinPartitions();
+            }
+        } finally {
+            super.processEndTable(name);
+        }
+    }
+
+    private void joinPartitions() {
+        try {
+            for (final Partition partition : partitions) {
+                partition.closeOutput();
+                if (!joinPartition(partition, 0)) {
+                    break;
+                }
+            }
+        } catch (final IOException e) {
+            throw new ExceptionWrapper(e);
+        } finally {
+            // Partitions of probe table are consumed: the build table must be processed again
+            clearBuild();
+        }
+    }
+
+    private void loadBuild(Row row) {
+        index.add(Fingerprints.of(row, buildColumns), buildRows.size());
+        buildRows.add(row);
+    }
+
+    /**
+     * Joins a closed partition.
+     *
+     * @param partition The partition.
+     * @param level The partitioning level of {@code partition}.
+     * @return {@code true} if joining must continue.
+     * @throws IOException When an IO error occurs.
+     */
+    private boolean joinPartition(Partition partition,
+                                  int level) throws IOException {
+        if (partition.probeCount == 0 || type == Type.INNER && partition.buildCount == 0) {
+            return true;
+        }
+        if (fits(partition.buildCount, partition.buildMemory)) {
+            buildRows.clear();
+            index.clear();
+            partition.readBuild(this::loadBuild);
+            return partition.readProbe(this::probe);
+        } else if (level < MAX_LEVEL) {
+            return splitPartition(partition, level);
+        } else {
+            return nestedLoopJoin(partition);
+        }
+    }
+
+    /**
+     * Splits a partition whose build rows don't fit into memory budget, and joins its sub partitions.
+     *
+     * @param partition The partition.
+     * @param level The partitioning level of {@code partition}.
+     * @return {@code true} if joining must continue.
+     * @throws IOException When an IO error occurs.
+     */
+    private boolean splitPartition(Partition partition,
+                                   int level) throws IOException {
+        LOGGER.debug("split partition ({} build rows) at level {}", partition.buildCount, level + 1);
+        final List<Partition> subs = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitionsCount; i++) {
+                subs.add(new Partition());
+            }
+            partition.readBuild(row -> subs.get(partitionOf(Fingerprints.of(row, buildColumns), level + 1)).writeBuild(row));
+            partition.readProbe(row -> {
+                subs.get(partitionOf(Fingerprints.of(row, probeColumns), level + 1)).writeProbe(row);
+                return Evaluation.CONTINUE;
+            });
+            for (final Partition sub : subs) {
+                sub.closeOutput();
+            }
+            for (final Partition sub : subs) {
+                // When all build rows fall into the same partition, splitting again is useless
+                final int next = sub.buildCount == partition.buildCount ? MAX_LEVEL : level + 1;
+                if (!joinPartition(sub, next)) {
+                    return false;
+                }
+                sub.delete();
+            }
+            return true;
+        } finally {
+            for (final Partition sub : subs) {
+                sub.delete();
+            }
+        }
+    }
+
+    /**
+     * Joins a partition with a block nested loop.
+     * <p>
+     * Build rows are loaded by blocks that fit into memory budget, and probe rows are read once per block.
+     * With a {@link Type#LEFT LEFT} join, probe rows that matched no block are passed at the end.
+     *
+     * @param partition The partition.
+     * @return {@code true} if joining must continue.
+     * @throws IOException When an IO error occurs.
+     */
+    private boolean nestedLoopJoin(Partition partition) throws IOException {
+        LOGGER.debug("nested loop join of partition ({} build rows)", partition.buildCount);
+        final BitSet matched = new BitSet(partition.probeCount);
+        try (final DataInputStream in = partition.openBuild()) {
+            int remaining = partition.buildCount;
+            while (remaining > 0) {
+                buildRows.clear();
+                index.clear();
+                long memory = 0L;
+                // A block contains at least one row
+                do {
+                    final Row row = Rows.read(in);
+                    loadBuild(row);
+                    memory += Rows.estimateMemory(row);
+                    remaining--;
+                } while (remaining > 0 && fits(buildRows.size() + 1, memory));
+
+                final int[] number = { 0 };
+                final boolean more = partition.readProbe(row -> {
+                    final Evaluation evaluation = probeMatches(row);
+                    if (evaluation != null) {
+                        matched.set(number[0]);
+                    }
+                    number[0]++;
+                    return evaluation == null ? Evaluation.CONTINUE : evaluation;
+                });
+                if (!more) {
+                    return false;
+                }
+            }
+        }
+        if (type == Type.LEFT) {
+            final int[] number = { 0 };
+            return partition.readProbe(row -> {
+                final boolean done = matched.get(number[0]++);
+                return done
+                        ? Evaluation.CONTINUE
+                        : delegate.processData(join(row, null), location.incrementNumbers(TableSection.DATA).build());
+            });
+        }
+        return true;
+    }
+
+    /**
+     * A partition of build and probe rows, saved to temporary files.
+     */
+    private final class Partition {
+        private final File buildFile;
+        private final File probeFile;
+        private DataOutputStream buildOut;
+        private DataOutputStream probeOut = null;
+        private int buildCount = 0;
+        private int probeCount = 0;
+        /** Estimated memory of build rows. */
+        private long buildMemory = 0L;
+
+        Partition() throws IOException {
+            this.buildFile = File.createTempFile("cdc-table-joiner-", ".rows", tempDir);
+            this.probeFile = File.createTempFile("cdc-table-joiner-", ".rows", tempDir);
+            this.buildOut = open(buildFile);
+        }
+
+        private DataOutputStream open(File file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        }
+
+        void writeBuild(Row row) {
+            try {
+                Rows.write(buildOut, row);
+                buildCount++;
+                buildMemory += Rows.estimateMemory(row);
+            } catch (final IOException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        void writeProbe(Row row) {
+            try {
+                if (probeOut == null) {
+                    probeOut = open(probeFile);
+                }
+                Rows.write(probeOut, row);
+                probeCount++;
+            } catch (final IOException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        void closeOutput() {
+            try {
+                if (buildOut != null) {
+                    buildOut.close();
+                    buildOut = null;
+                }
+                if (probeOut != null) {
+                    probeOut.close();
+                    probeOut = null;
+                }
+            } catch (final IOException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        DataInputStream openBuild() throws IOException {
+            return new DataInputStream(new BufferedInputStream(new FileInputStream(buildFile), BUFFER_SIZE));
+        }
+
+        void readBuild(Consumer<Row> consumer) throws IOException {
+            try (final DataInputStream in = openBuild()) {
+                for (int i = 0; i < buildCount; i++) {
+                    consumer.accept(Rows.read(in));
+                }
+            }
+        }
+
+        boolean readProbe(Function<Row, Evaluation> function) throws IOException {
+            if (probeCount == 0) {
+                return true;
+            }
+            try (final DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(new FileInputStream(probeFile), BUFFER_SIZE))) {
+                for (int i = 0; i < probeCount; i++) {
+                    if (!function.apply(Rows.read(in)).isContinue()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void delete() {
+            try {
+                closeOutput();
+            } finally {
+                try {
+                    java.nio.file.Files.deleteIfExists(buildFile.toPath());
+                    java.nio.file.Files.deleteIfExists(probeFile.toPath());
+                } catch (final IOException e) {
+                    LOGGER.warn("Failed to delete {} or {}", buildFile, probeFile);
+                }
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of {@link TableJoiner}.
+     *
+     * @author Damien Carbonne
+     */
+    public static final class Builder {
+        private TableHandler delegate;
+        private Type type = Type.INNER;
+        private final List<String> buildKeyNames = new ArrayList<>();
+        private int[] buildKeyColumns = new int[0];
+        private final List<String> probeKeyNames = new ArrayList<>();
+        private int[] probeKeyColumns = new int[0];
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+        private int partitionsCount = DEFAULT_PARTITIONS;
+        private File tempDir = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the delegate that will receive joined rows.
+         *
+         * @param delegate The delegate.
+         * @return This builder.
+         */
+        public Builder delegate(TableHandler delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder type(Type type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Sets the names of key columns in the build table.
+         *
+         * @param keyNames The key names.
+         * @return This builder.
+         */
+        public Builder buildKeyNames(List<String> keyNames) {
+            this.buildKeyNames.clear();
+            this.buildKeyNames.addAll(keyNames);
+            return this;
+        }
+
+        public Builder buildKeyNames(String... keyNames) {
+            return buildKeyNames(Arrays.asList(keyNames));
+        }
+
+        /**
+         * Sets the indices of key columns in the build table.
+         *
+         * @param keyColumns The key columns (0-based).
+         * @return This builder.
+         */
+        public Builder buildKeyColumns(int... keyColumns) {
+            this.buildKeyColumns = keyColumns.clone();
+            return this;
+        }
+
+        /**
+         * Sets the names of key columns in the probe table.
+         *
+         * @param keyNames The key names, in the same order as build key names.
+         * @return This builder.
+         */
+        public Builder probeKeyNames(List<String> keyNames) {
+            this.probeKeyNames.clear();
+            this.probeKeyNames.addAll(keyNames);
+            return this;
+        }
+
+        public Builder probeKeyNames(String... keyNames) {
+            return probeKeyNames(Arrays.asList(keyNames));
+        }
+
+        /**
+         * Sets the indices of key columns in the probe table.
+         *
+         * @param keyColumns The key columns (0-based), in the same order as build key columns.
+         * @return This builder.
+         */
+        public Builder probeKeyColumns(int... keyColumns) {
+            this.probeKeyColumns = keyColumns.clone();
+            return this;
+        }
+
+        /**
+         * Sets the memory budget of build rows and their index.
+         *
+         * @param memoryBudget The memory budget (in bytes).
+         * @return This builder.
+         */
+        public Builder memoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Sets the number of partitions used when build rows exceed memory budget.
+         *
+         * @param partitionsCount The number of partitions.
+         * @return This builder.
+         */
+        public Builder partitionsCount(int partitionsCount) {
+            this.partitionsCount = partitionsCount;
+            return this;
+        }
+
+        /**
+         * Sets the directory where temporary files are created.
+         *
+         * @param tempDir The directory. If {@code null}, the default temporary directory is used.
+         * @return This builder.
+         */
+        public Builder tempDir(File tempDir) {
+            this.tempDir = tempDir;
+            return this;
+        }
+
+        public TableJoiner build() {
+            return new TableJoiner(this);
+        }
+    }
+}
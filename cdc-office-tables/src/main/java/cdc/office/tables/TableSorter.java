@@ -0,0 +1,518 @@
+package cdc.office.tables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
+import cdc.util.lang.ExceptionWrapper;
+
+/**
+ * Implementation of {@link TableHandler} that sorts data rows using key columns and passes them to a delegate.
+ * <p>
+ * Header rows are immediately passed to the delegate.<br>
+ * Data rows are accumulated in memory. Each time the estimated memory used by accumulated rows exceeds a budget,
+ * they are sorted and saved to a temporary file (a run).<br>
+ * When the table ends, runs are merged and data rows are passed to the delegate in sorted order.
+ * Temporary files are then deleted.
+ * <p>
+ * Key values are compared with {@link Rows#keyComparator(int...)}, which uses
+ * {@link Rows#KEY_VALUE_COMPARATOR}.<br>
+ * The sort is stable: data rows that have equal keys are passed in the order they were received.<br>
+ * Locations of data rows passed to delegate are renumbered to match their sorted position.
+ * <p>
+ * When key columns are designated by names, they are searched in the last header row.
+ * <p>
+ * When merge is {@link Builder#deferMerge(boolean) deferred}, sorted data rows are not passed to the delegate.
+ * They are read from runs, as they are merged, with the iterator returned by {@link #getSortedRows()}.
+ * This avoids copying them to another temporary file when they must be pulled by the consumer.
+ *
+ * @author Damien Carbonne
+ */
+public final class TableSorter extends AbstractTableFilter {
+    private static final Logger LOGGER = LogManager.getLogger(TableSorter.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Default memory budget: a quarter of max memory.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+    private final List<String> keyNames;
+    private final int[] keyColumns;
+    private final long memoryBudget;
+    private final File tempDir;
+    private final boolean deferMerge;
+
+    private Row lastHeader = null;
+    private int headers = 0;
+    private Comparator<Row> comparator = null;
+    private final List<Row> rows = new ArrayList<>();
+    private long memory = 0L;
+    private final List<FileRun> fileRuns = new ArrayList<>();
+    private int runsCount = 0;
+    /** The merger of runs of last table, when merge is deferred. */
+    private Merger merger = null;
+
+    private TableSorter(Builder builder) {
+        super(builder.delegate);
+        Checks.isTrue(builder.keyNames.isEmpty() != (builder.keyColumns.length == 0),
+                      "Either key names or key columns must be set");
+        Checks.isTrue(builder.memoryBudget > 0L, "Invalid memory budget");
+        this.keyNames = Collections.unmodifiableList(new ArrayList<>(builder.keyNames));
+        this.keyColumns = builder.keyColumns.clone();
+        this.memoryBudget = builder.memoryBudget;
+        this.tempDir = builder.tempDir;
+        this.deferMerge = builder.deferMerge;
+    }
+
+    /**
+     * @return The key names.
+     */
+    public List<String> getKeyNames() {
+        return keyNames;
+    }
+
+    /**
+     * @return The memory budget (in bytes).
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return The directory where temporary files are created,
+     *         {@code null} for the default temporary directory.
+     */
+    public File getTempDir() {
+        return tempDir;
+    }
+
+    /**
+     * @return {@code true} if merge of sorted runs is deferred.
+     */
+    public boolean isMergeDeferred() {
+        return deferMerge;
+    }
+
+    /**
+     * @return The number of runs that were saved to temporary files during the last sort.
+     */
+    public int getRunsCount() {
+        return runsCount;
+    }
+
+    private int[] resolveKeyColumns() {
+        return keyNames.isEmpty() ? keyColumns : Rows.getColumns(lastHeader, keyNames);
+    }
+
+    private void reset() {
+        if (merger != null) {
+            merger.close();
+            merger = null;
+        }
+        lastHeader = null;
+        headers = 0;
+        comparator = null;
+        rows.clear();
+        memory = 0L;
+        for (final FileRun run : fileRuns) {
+            run.delete();
+        }
+        fileRuns.clear();
+    }
+
+    @Override
+    public void processBeginTable(String name,
+                                  int numberOfRows) {
+        reset();
+        runsCount = 0;
+        super.processBeginTable(name, numberOfRows);
+    }
+
+    @Override
+    public Evaluation processHeader(Row header,
+                                    RowLocation location) {
+        lastHeader = header;
+        headers++;
+        return delegate.processHeader(header, location);
+    }
+
+    @Override
+    public Evaluation processData(Row data,
+                                  RowLocation location) {
+        if (comparator == null) {
+            comparator = Rows.keyComparator(resolveKeyColumns());
+        }
+        rows.add(data);
+        memory += Rows.estimateMemory(data);
+        if (memory > memoryBudget) {
+            spill();
+        }
+        return Evaluation.CONTINUE;
+    }
+
+    @Override
+    public void processEndTable(String name) {
+        try {
+            if (deferMerge) {
+                // Runs are kept until next table or clear
+                merger = new Merger();
+            } else {
+                if (!rows.isEmpty() || !fileRuns.isEmpty()) {
+                    merge();
+                }
+                reset();
+            }
+        } finally {
+            super.processEndTable(name);
+        }
+    }
+
+    /**
+     * Returns an iterator on the sorted data rows of the last table, when merge is deferred.
+     * <p>
+     * Rows are read from runs as they are iterated. It can be called once per table, after the table ended.
+     *
+     * @return An iterator on the sorted data rows of the last table.
+     * @throws IllegalStateException When merge is not deferred, when no table ended,
+     *             or when this method was already called for the last table.
+     */
+    public Iterator<Row> getSortedRows() {
+        if (merger == null || merger.started) {
+            throw new IllegalStateException("No sorted rows available");
+        }
+        merger.started = true;
+        return merger;
+    }
+
+    /**
+     * Releases runs of the last table, and deletes temporary files.
+     * <p>
+     * It should be called when merge is deferred and sorted rows are no longer needed.
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Sorts accumulated rows and saves them to a temporary file.
+     */
+    private void spill() {
+        rows.sort(comparator);
+        try {
+            final File file = File.createTempFile("cdc-table-sorter-", ".rows", tempDir);
+            final FileRun run = new FileRun(fileRuns.size(), file, rows.size());
+            fileRuns.add(run);
+            LOGGER.debug("spill {} rows to {}", rows.size(), file);
+            try (final DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+                for (final Row row : rows) {
+                    Rows.write(out, row);
+                }
+            }
+        } catch (final IOException e) {
+            throw new ExceptionWrapper(e);
+        }
+        rows.clear();
+        memory = 0L;
+        runsCount++;
+    }
+
+    /**
+     * Merges runs and passes sorted rows to delegate.
+     */
+    private void merge() {
+        final Merger m = new Merger();
+        try {
+            final RowLocation.Builder location = RowLocation.builder();
+            location.set(TableSection.HEADER, headers, headers);
+            while (m.hasNext()) {
+                final Evaluation evaluation =
+                        delegate.processData(m.next(), location.incrementNumbers(TableSection.DATA).build());
+                if (!evaluation.isContinue()) {
+                    break;
+                }
+            }
+        } finally {
+            m.close();
+        }
+    }
+
+    /**
+     * Iterator on rows of all runs, in sorted order.
+     */
+    private final class Merger implements Iterator<Row> {
+        private final List<Run> runs;
+        private final PriorityQueue<Run> queue;
+        /** {@code true} when this merger was returned by {@link TableSorter#getSortedRows()}. */
+        boolean started = false;
+
+        Merger() {
+            this.runs = new ArrayList<>(fileRuns);
+            if (comparator == null) {
+                // No data rows
+                this.queue = new PriorityQueue<>();
+                return;
+            }
+            rows.sort(comparator);
+            // The in-memory run contains the last received rows
+            runs.add(new MemoryRun(fileRuns.size(), rows.iterator()));
+
+            final Comparator<Run> runComparator =
+                    Comparator.<Run, Row> comparing(r -> r.current, comparator)
+                              .thenComparingInt(r -> r.index);
+            this.queue = new PriorityQueue<>(runs.size(), runComparator);
+            try {
+                for (final Run run : runs) {
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+            } catch (final IOException e) {
+                close();
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Row next() {
+            final Run run = queue.poll();
+            if (run == null) {
+                throw new NoSuchElementException();
+            }
+            final Row row = run.current;
+            try {
+                if (run.next()) {
+                    queue.add(run);
+                }
+            } catch (final IOException e) {
+                throw new ExceptionWrapper(e);
+            }
+            return row;
+        }
+
+        void close() {
+            queue.clear();
+            for (final Run run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Base class of sorted runs.
+     */
+    private abstract static class Run {
+        /** Index of the run, used to preserve order of equal rows. */
+        final int index;
+        /** Current row. */
+        Row current = null;
+
+        protected Run(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Moves to next row.
+         *
+         * @return {@code true} if there is a current row.
+         * @throws IOException When an IO error occurs.
+         */
+        abstract boolean next() throws IOException;
+
+        void close() {
+            // Ignore
+        }
+    }
+
+    private static final class MemoryRun extends Run {
+        private final Iterator<Row> iterator;
+
+        MemoryRun(int index,
+                  Iterator<Row> iterator) {
+            super(index);
+            this.iterator = iterator;
+        }
+
+        @Override
+        boolean next() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+    }
+
+    private static final class FileRun extends Run {
+        private final File file;
+        private int remaining;
+        private DataInputStream in = null;
+
+        FileRun(int index,
+                File file,
+                int size) {
+            super(index);
+            this.file = file;
+            this.remaining = size;
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                close();
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            }
+            current = Rows.read(in);
+            remaining--;
+            return true;
+        }
+
+        @Override
+        void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (final IOException e) {
+                    LOGGER.catching(e);
+                }
+                in = null;
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                java.nio.file.Files.deleteIfExists(file.toPath());
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to delete {}", file);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of {@link TableSorter}.
+     *
+     * @author Damien Carbonne
+     */
+    public static final class Builder {
+        private TableHandler delegate;
+        private final List<String> keyNames = new ArrayList<>();
+        private int[] keyColumns = new int[0];
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+        private File tempDir = null;
+        private boolean deferMerge = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the delegate that will receive sorted rows.
+         *
+         * @param delegate The delegate.
+         * @return This builder.
+         */
+        public Builder delegate(TableHandler delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Sets the names of key columns.
+         *
+         * @param keyNames The key names, in comparison order.
+         * @return This builder.
+         */
+        public Builder keyNames(List<String> keyNames) {
+            this.keyNames.clear();
+            this.keyNames.addAll(keyNames);
+            return this;
+        }
+
+        public Builder keyNames(String... keyNames) {
+            return keyNames(Arrays.asList(keyNames));
+        }
+
+        /**
+         * Sets the indices of key columns.
+         *
+         * @param keyColumns The key columns (0-based), in comparison order.
+         * @return This builder.
+         */
+        public Builder keyColumns(int... keyColumns) {
+            this.keyColumns = keyColumns.clone();
+            return this;
+        }
+
+        /**
+         * Sets the memory budget.
+         * <p>
+         * When the estimated memory used by accumulated rows exceeds this budget,
+         * rows are saved to a temporary file.
+         *
+         * @param memoryBudget The memory budget (in bytes).
+         * @return This builder.
+         */
+        public Builder memoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Sets the directory where temporary files are created.
+         *
+         * @param tempDir The directory. If {@code null}, the default temporary directory is used.
+         * @return This builder.
+         */
+        public Builder tempDir(File tempDir) {
+            this.tempDir = tempDir;
+            return this;
+        }
+
+        /**
+         * Sets whether merge of sorted runs is deferred.
+         * <p>
+         * If {@code true}, sorted data rows are not passed to the delegate when a table ends:
+         * they must be pulled with {@link TableSorter#getSortedRows()}.
+         *
+         * @param deferMerge {@code true} if merge must be deferred.
+         * @return This builder.
+         */
+        public Builder deferMerge(boolean deferMerge) {
+            this.deferMerge = deferMerge;
+            return this;
+        }
+
+        public TableSorter build() {
+            return new TableSorter(this);
+        }
+    }
+}
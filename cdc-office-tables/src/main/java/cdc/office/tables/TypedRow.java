@@ -0,0 +1,433 @@
+package cdc.office.tables;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import cdc.util.lang.FailureReaction;
+
+/**
+ * Implementation of Row whose cells are typed.
+ * <p>
+ * Numbers, dates and booleans are stored as primitives, with a {@link CellType} per cell.
+ * The string value of a number or date cell is only computed, with a {@link Formatter}, when it is needed:
+ * {@link #getValue(int)}, {@link #getValues()}, ...<br>
+ * Conversion functions such as {@link #getValueAsDouble(int, Double)} directly use the typed value when possible,
+ * without formatting and parsing it.
+ * <p>
+ * A TypedRow is equal to any row that has the same values.
+ * <p>
+ * <b>Note:</b> Formatters are generally not thread-safe. Formatting is synchronized on the formatter.
+ *
+ * @author Damien Carbonne
+ */
+public final class TypedRow implements Row {
+    private static final CellType[] TYPES = CellType.values();
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1899, 12, 30, 0, 0);
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+    /** First serial date that is not impacted by the 1900 leap year bug. */
+    private static final int MARCH_1_1900 = 61;
+
+    /**
+     * Formatter used by a default {@code General} format: integers have no fractional part.
+     */
+    public static final Formatter GENERAL = (type,
+                                             value,
+                                             style) -> value == Math.rint(value) && Math.abs(value) < 1.0e15
+                                                     ? Long.toString((long) value)
+                                                     : Double.toString(value);
+
+    private final byte[] types;
+    private final double[] numbers;
+    private final int[] styles;
+    /** Strings of cells. Strings of numbers and dates are lazily computed. */
+    private final String[] texts;
+    private final Formatter formatter;
+    /** Cached values, {@code null} if not yet computed. */
+    private volatile List<String> values = null;
+
+    /**
+     * Interface used to format numbers and dates.
+     */
+    @FunctionalInterface
+    public static interface Formatter {
+        /**
+         * Formats a number or date.
+         *
+         * @param type The cell type: {@link CellType#NUMBER} or {@link CellType#DATE}.
+         * @param value The value.
+         * @param style The style (format) of the cell, as passed to {@link Builder#addNumber(double, int)}
+         *            or {@link Builder#addDate(double, int)}.
+         * @return The string representation of {@code value}.
+         */
+        public String format(CellType type,
+                             double value,
+                             int style);
+    }
+
+    private TypedRow(Builder builder) {
+        this.types = Arrays.copyOf(builder.types, builder.size);
+        this.numbers = Arrays.copyOf(builder.numbers, builder.size);
+        this.styles = Arrays.copyOf(builder.styles, builder.size);
+        this.texts = Arrays.copyOf(builder.texts, builder.size);
+        this.formatter = builder.formatter;
+    }
+
+    private boolean isValid(int column) {
+        return column >= 0 && column < types.length;
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return The type of cell at {@code column}, {@link CellType#EMPTY} if {@code column} is invalid.
+     */
+    public CellType getType(int column) {
+        return isValid(column) ? TYPES[types[column]] : CellType.EMPTY;
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return {@code true} if cell at {@code column} is a number or a date.
+     */
+    private boolean isNumeric(int column) {
+        final CellType type = getType(column);
+        return type == CellType.NUMBER || type == CellType.DATE;
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return The numeric value of cell at {@code column} if it is a number or a date, {@code NaN} otherwise.
+     */
+    public double getNumber(int column) {
+        return isNumeric(column) ? numbers[column] : Double.NaN;
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return {@code true} if cell at {@code column} is a {@code true} boolean.
+     */
+    public boolean getBoolean(int column) {
+        return getType(column) == CellType.BOOLEAN && numbers[column] != 0.0;
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return The date of cell at {@code column} if it is a date, {@code null} otherwise.
+     */
+    public LocalDateTime getDate(int column) {
+        return getType(column) == CellType.DATE ? toLocalDateTime(numbers[column]) : null;
+    }
+
+    private String getText(int column) {
+        String text = texts[column];
+        if (text == null && isNumeric(column)) {
+            synchronized (formatter) {
+                text = formatter.format(TYPES[types[column]], numbers[column], styles[column]);
+            }
+            texts[column] = text;
+        }
+        return text;
+    }
+
+    @Override
+    public List<String> getValues() {
+        List<String> result = values;
+        if (result == null) {
+            final String[] tmp = new String[types.length];
+            for (int column = 0; column < tmp.length; column++) {
+                tmp[column] = getText(column);
+            }
+            result = Collections.unmodifiableList(Arrays.asList(tmp));
+            values = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return types.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    @Override
+    public String getValue(int column,
+                           String def) {
+        if (isValid(column)) {
+            final String value = getText(column);
+            return value == null ? def : value;
+        } else {
+            return def;
+        }
+    }
+
+    @Override
+    public Boolean getValueAsBoolean(int column,
+                                     Boolean def,
+                                     FailureReaction reaction) {
+        if (getType(column) == CellType.BOOLEAN) {
+            return getBoolean(column);
+        } else {
+            return Row.super.getValueAsBoolean(column, def, reaction);
+        }
+    }
+
+    @Override
+    public Double getValueAsDouble(int column,
+                                   Double def,
+                                   FailureReaction reaction) {
+        if (isNumeric(column)) {
+            return numbers[column];
+        } else {
+            return Row.super.getValueAsDouble(column, def, reaction);
+        }
+    }
+
+    /**
+     * @param column The column index (0-based).
+     * @return {@code true} if cell at {@code column} is a number that is an integer in the range of longs.
+     */
+    private boolean isLong(int column) {
+        return getType(column) == CellType.NUMBER
+                && numbers[column] == Math.rint(numbers[column])
+                && Math.abs(numbers[column]) < 0x1p63;
+    }
+
+    @Override
+    public Long getValueAsLong(int column,
+                               Long def,
+                               FailureReaction reaction) {
+        if (isLong(column)) {
+            return (long) numbers[column];
+        } else {
+            return Row.super.getValueAsLong(column, def, reaction);
+        }
+    }
+
+    @Override
+    public Integer getValueAsInteger(int column,
+                                     Integer def,
+                                     FailureReaction reaction) {
+        if (isLong(column) && numbers[column] >= Integer.MIN_VALUE && numbers[column] <= Integer.MAX_VALUE) {
+            return (int) numbers[column];
+        } else {
+            return Row.super.getValueAsInteger(column, def, reaction);
+        }
+    }
+
+    @Override
+    public LocalDateTime getValueAsLocalDateTime(int column,
+                                                 LocalDateTime def,
+                                                 FailureReaction reaction) {
+        if (getType(column) == CellType.DATE) {
+            return getDate(column);
+        } else {
+            return Row.super.getValueAsLocalDateTime(column, def, reaction);
+        }
+    }
+
+    @Override
+    public LocalDate getValueAsLocalDate(int column,
+                                         LocalDate def,
+                                         FailureReaction reaction) {
+        if (getType(column) == CellType.DATE) {
+            return getDate(column).toLocalDate();
+        } else {
+            return Row.super.getValueAsLocalDate(column, def, reaction);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return getValues().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (!(object instanceof TypedRow || object instanceof RowImpl)) {
+            return false;
+        }
+        final Row other = (Row) object;
+        return getValues().equals(other.getValues());
+    }
+
+    @Override
+    public String toString() {
+        return RowImpl.toString(this);
+    }
+
+    /**
+     * Converts a serial date to a LocalDateTime.
+     *
+     * @param serial The number of days since 1899-12-30.
+     *            Serial dates before 1900-03-01 take into account the fictive 1900-02-29.
+     * @return The LocalDateTime corresponding to {@code serial}.
+     */
+    public static LocalDateTime toLocalDateTime(double serial) {
+        long days = (long) Math.floor(serial);
+        long millis = Math.round((serial - days) * MILLIS_PER_DAY);
+        if (millis == MILLIS_PER_DAY) {
+            days++;
+            millis = 0L;
+        }
+        if (days < MARCH_1_1900) {
+            days++;
+        }
+        return EPOCH.plusDays(days).plus(millis, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Converts a LocalDateTime to a serial date.
+     *
+     * @param date The LocalDateTime.
+     * @return The serial date of {@code date}: the number of days since 1899-12-30.
+     *         Serial dates before 1900-03-01 take into account the fictive 1900-02-29.
+     */
+    public static double toSerial(LocalDateTime date) {
+        long days = ChronoUnit.DAYS.between(EPOCH.toLocalDate(), date.toLocalDate());
+        if (days < MARCH_1_1900) {
+            days--;
+        }
+        return days + date.toLocalTime().toNanoOfDay() / (MILLIS_PER_DAY * 1.0e6);
+    }
+
+    /**
+     * Creates a TypedRow builder.
+     *
+     * @param formatter The formatter of numbers and dates.
+     * @return A new TypedRow builder.
+     */
+    public static Builder builder(Formatter formatter) {
+        return new Builder(formatter);
+    }
+
+    /**
+     * TypedRow builder.
+     * <p>
+     * It can be reused to build several rows.
+     *
+     * @author Damien Carbonne
+     */
+    public static final class Builder {
+        private final Formatter formatter;
+        private byte[] types = new byte[16];
+        private double[] numbers = new double[16];
+        private int[] styles = new int[16];
+        private String[] texts = new String[16];
+        private int size = 0;
+
+        private Builder(Formatter formatter) {
+            this.formatter = formatter;
+        }
+
+        private Builder add(CellType type,
+                            double number,
+                            int style,
+                            String text) {
+            if (size == types.length) {
+                final int capacity = 2 * size;
+                types = Arrays.copyOf(types, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+                styles = Arrays.copyOf(styles, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            types[size] = (byte) type.ordinal();
+            numbers[size] = number;
+            styles[size] = style;
+            texts[size] = text;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public Builder clear() {
+            Arrays.fill(texts, 0, size, null);
+            size = 0;
+            return this;
+        }
+
+        public Builder addEmpty() {
+            return add(CellType.EMPTY, 0.0, 0, null);
+        }
+
+        public Builder addString(String value) {
+            return value == null ? addEmpty() : add(CellType.STRING, 0.0, 0, value);
+        }
+
+        public Builder addBoolean(boolean value) {
+            return add(CellType.BOOLEAN, value ? 1.0 : 0.0, 0, value ? "TRUE" : "FALSE");
+        }
+
+        public Builder addError(String value) {
+            return add(CellType.ERROR, 0.0, 0, value);
+        }
+
+        /**
+         * Adds a number that will be lazily formatted.
+         *
+         * @param value The number.
+         * @param style The style passed to the formatter.
+         * @return This builder.
+         */
+        public Builder addNumber(double value,
+                                 int style) {
+            return add(CellType.NUMBER, value, style, null);
+        }
+
+        /**
+         * Adds a number whose string representation is already known.
+         *
+         * @param value The number.
+         * @param text The string representation of {@code value}.
+         * @return This builder.
+         */
+        public Builder addNumber(double value,
+                                 String text) {
+            return add(CellType.NUMBER, value, 0, text);
+        }
+
+        /**
+         * Adds a date that will be lazily formatted.
+         *
+         * @param serial The serial date.
+         * @param style The style passed to the formatter.
+         * @return This builder.
+         */
+        public Builder addDate(double serial,
+                               int style) {
+            return add(CellType.DATE, serial, style, null);
+        }
+
+        /**
+         * Adds a date whose string representation is already known.
+         *
+         * @param serial The serial date.
+         * @param text The string representation of {@code serial}.
+         * @return This builder.
+         */
+        public Builder addDate(double serial,
+                               String text) {
+            return add(CellType.DATE, serial, 0, text);
+        }
+
+        public TypedRow build() {
+            return new TypedRow(this);
+        }
+    }
+}
@@ -71,18 +71,26 @@ public class CellDiff {
                     String right) {
         this.left = left;
         this.right = right;
+        this.kind = getKind(left, right);
+    }
+
+    /**
+     * Returns the kind of difference between 2 values, without creating a {@link CellDiff}.
+     *
+     * @param left The left value.
+     * @param right The right value.
+     * @return The kind of difference between {@code left} and {@code right}.
+     */
+    public static CellDiffKind getKind(String left,
+                                       String right) {
         if (Objects.equals(left, right)) {
-            if (left == null) {
-                this.kind = CellDiffKind.NULL;
-            } else {
-                this.kind = CellDiffKind.SAME;
-            }
+            return left == null ? CellDiffKind.NULL : CellDiffKind.SAME;
         } else if (left == null) {
-            this.kind = CellDiffKind.ADDED;
+            return CellDiffKind.ADDED;
         } else if (right == null) {
-            this.kind = CellDiffKind.REMOVED;
+            return CellDiffKind.REMOVED;
         } else {
-            this.kind = CellDiffKind.CHANGED;
+            return CellDiffKind.CHANGED;
         }
     }
 
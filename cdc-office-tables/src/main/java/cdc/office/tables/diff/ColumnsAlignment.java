@@ -0,0 +1,153 @@
+package cdc.office.tables.diff;
+
+import java.util.Arrays;
+
+import cdc.office.tables.Header;
+import cdc.office.tables.Row;
+import cdc.util.lang.Checks;
+
+/**
+ * Alignment of the columns of two headers, used to compare rows by column name.
+ * <p>
+ * Aligned columns are ordered as follows:
+ * <ul>
+ * <li>Columns of right header, in their order. Their matching left column, if any, is searched in left header.
+ * <li>Columns of left header that don't match any column of right header, in their order.
+ * </ul>
+ * An alignment is computed once and reused for all compared rows, so that no header lookup is necessary
+ * when rows are compared.
+ *
+ * @author Damien Carbonne
+ */
+public final class ColumnsAlignment {
+    private final Header leftHeader;
+    private final Header rightHeader;
+    private final String[] names;
+    private final int[] leftColumns;
+    private final int[] rightColumns;
+    private final boolean identity;
+
+    /**
+     * Creates the alignment of two headers.
+     *
+     * @param leftHeader The left header.
+     * @param rightHeader The right header.
+     * @throws IllegalArgumentException When {@code leftHeader} or {@code rightHeader} is {@code null}.
+     */
+    public ColumnsAlignment(Header leftHeader,
+                            Header rightHeader) {
+        this.leftHeader = Checks.isNotNull(leftHeader, "leftHeader");
+        this.rightHeader = Checks.isNotNull(rightHeader, "rightHeader");
+
+        final int max = leftHeader.size() + rightHeader.size();
+        final String[] n = new String[max];
+        final int[] l = new int[max];
+        final int[] r = new int[max];
+        int size = 0;
+
+        // Start with right names
+        for (int rightCol = 0; rightCol < rightHeader.size(); rightCol++) {
+            final String name = rightHeader.getNameAt(rightCol);
+            n[size] = name;
+            l[size] = leftHeader.getMatchingIndex(name);
+            r[size] = rightCol;
+            size++;
+        }
+
+        // Finish with left specific names
+        for (int leftCol = 0; leftCol < leftHeader.size(); leftCol++) {
+            final String name = leftHeader.getNameAt(leftCol);
+            if (!rightHeader.matches(name)) {
+                n[size] = name;
+                l[size] = leftCol;
+                r[size] = -1;
+                size++;
+            }
+        }
+
+        this.names = Arrays.copyOf(n, size);
+        this.leftColumns = Arrays.copyOf(l, size);
+        this.rightColumns = Arrays.copyOf(r, size);
+
+        boolean id = size == leftHeader.size();
+        for (int ordinal = 0; id && ordinal < size; ordinal++) {
+            id = leftColumns[ordinal] == ordinal && rightColumns[ordinal] == ordinal;
+        }
+        this.identity = id;
+    }
+
+    /**
+     * @return The left header.
+     */
+    public Header getLeftHeader() {
+        return leftHeader;
+    }
+
+    /**
+     * @return The right header.
+     */
+    public Header getRightHeader() {
+        return rightHeader;
+    }
+
+    /**
+     * @return {@code true} when left and right headers have the same names, in the same order.
+     *         The aligned column at a given ordinal is then the column at that index in both headers.
+     */
+    public boolean isIdentity() {
+        return identity;
+    }
+
+    /**
+     * @return The number of aligned columns.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param ordinal The ordinal of the aligned column.
+     * @return The name of aligned column at {@code ordinal}.
+     */
+    public String getName(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * @param ordinal The ordinal of the aligned column.
+     * @return The index of aligned column at {@code ordinal} in left header, or -1.
+     */
+    public int getLeftColumn(int ordinal) {
+        return leftColumns[ordinal];
+    }
+
+    /**
+     * @param ordinal The ordinal of the aligned column.
+     * @return The index of aligned column at {@code ordinal} in right header, or -1.
+     */
+    public int getRightColumn(int ordinal) {
+        return rightColumns[ordinal];
+    }
+
+    /**
+     * @param row The left row.
+     * @param ordinal The ordinal of the aligned column.
+     * @return The value of {@code row} for aligned column at {@code ordinal}, or {@code null}.
+     */
+    public String getLeftValue(Row row,
+                               int ordinal) {
+        final int column = leftColumns[ordinal];
+        return column < 0 ? null : row.getValue(column);
+    }
+
+    /**
+     * @param row The right row.
+     * @param ordinal The ordinal of the aligned column.
+     * @return The value of {@code row} for aligned column at {@code ordinal}, or {@code null}.
+     */
+    public String getRightValue(Row row,
+                                int ordinal) {
+        final int column = rightColumns[ordinal];
+        return column < 0 ? null : row.getValue(column);
+    }
+}
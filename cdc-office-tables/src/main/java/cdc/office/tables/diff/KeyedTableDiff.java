@@ -2,14 +2,22 @@ package cdc.office.tables.diff;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
+import cdc.office.tables.FingerprintIndex;
+import cdc.office.tables.Fingerprints;
 import cdc.office.tables.Header;
 import cdc.office.tables.Row;
+import cdc.office.tables.jfr.DiffBuildEvent;
 import cdc.tuples.CTupleN;
 import cdc.tuples.TupleN;
 import cdc.util.lang.Checks;
@@ -22,6 +30,11 @@ import cdc.util.lang.UnexpectedValueException;
  * @author Damien Carbonne
  */
 public class KeyedTableDiff {
+    /** Number of rows processed by a task when keys are computed in parallel. */
+    private static final int GRAIN = 4096;
+    /** Number of partitions per thread, to balance load in parallel builds. */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
     /** The left SystemId. */
     private final String leftSystemId;
     /** The right SystemId. */
@@ -36,6 +49,8 @@ public class KeyedTableDiff {
     private final int[] leftKeyColumns;
     /** Indices in right header of key columns. */
     private final int[] rightKeyColumns;
+    /** The alignment of left and right columns. */
+    private final ColumnsAlignment alignment;
 
     /**
      * The list of all keys.
@@ -43,12 +58,14 @@ public class KeyedTableDiff {
      * Some may be left or right only, some may be common.
      */
     private final List<CTupleN<String>> keys = new ArrayList<>();
-    /** Maps from keys to row differences. */
-    private final Map<CTupleN<String>, RowDiff> diffs = new HashMap<>();
+    /** The list of row differences, with the same order as keys. */
+    private final List<RowDiff> diffs = new ArrayList<>();
+    /** Index from key fingerprints to key ordinals. */
+    private final FingerprintIndex keyIndex = new FingerprintIndex();
     /** The synthesis of differences. */
     private final Synthesis synthesis = new Synthesis();
-    private final int leftIgnored;
-    private final int rightIgnored;
+    private int leftIgnored;
+    private int rightIgnored;
 
     protected KeyedTableDiff(Builder builder) {
         this.leftSystemId = builder.leftSystemId;
@@ -57,60 +74,105 @@ public class KeyedTableDiff {
         this.rightHeader = Checks.isNotNull(builder.rightHeader, "rightHeader");
         this.keyNames = builder.keyNames;
 
+        final DiffBuildEvent event = new DiffBuildEvent();
+        event.begin();
+
         this.leftKeyColumns = buildKeyColumns(leftHeader, keyNames);
         this.rightKeyColumns = buildKeyColumns(rightHeader, keyNames);
+        this.alignment = new ColumnsAlignment(leftHeader, rightHeader);
+
+        if (builder.parallelism > 1) {
+            buildParallel(builder);
+        } else {
+            buildSequential(builder);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = builder.parallelism > 1 ? "parallel" : "keyed";
+            event.leftRows = builder.leftRows.size();
+            event.rightRows = builder.rightRows.size();
+            event.keys = keys.size();
+            event.addedRows = synthesis.getLinesCount(Synthesis.Action.ADDED);
+            event.removedRows = synthesis.getLinesCount(Synthesis.Action.REMOVED);
+            event.changedRows = synthesis.getLinesCount(Synthesis.Action.CHANGED);
+            event.commit();
+        }
+    }
+
+    /**
+     * Builds differences sequentially.
+     * <p>
+     * Rows are indexed by the fingerprint of their key, and keys are compared only when fingerprints are equal.
+     * Each key is computed once.
+     *
+     * @param builder The builder.
+     */
+    private void buildSequential(Builder builder) {
+        final List<Row> leftRows = builder.leftRows;
+        final List<Row> rightRows = builder.rightRows;
 
         // The number of left rows that are empty and ignored
         int leftEmpty = 0;
 
-        // Map from left keys to left rows
-        final Map<CTupleN<String>, Row> leftMap = new HashMap<>();
-        for (int number = 0; number < builder.leftRows.size(); number++) {
-            final Row row = builder.leftRows.get(number);
+        // Index from left key fingerprints to left row numbers
+        final FingerprintIndex leftIndex = new FingerprintIndex(leftRows.size());
+        for (int number = 0; number < leftRows.size(); number++) {
+            final Row row = leftRows.get(number);
             if (row.isEmpty()) {
                 leftEmpty++;
             } else {
                 // Ignore empty rows
-                final CTupleN<String> key = getKey(Side.LEFT, row, number);
-                if (leftMap.containsKey(key)) {
-                    throw new InvalidDataException("Duplicate key " + key + locate(Side.LEFT, row, number));
+                final long fp = Fingerprints.of(row, leftKeyColumns);
+                if (find(leftIndex, fp, leftRows, leftKeyColumns, row, leftKeyColumns) >= 0) {
+                    throw new InvalidDataException("Duplicate key " + getKey(Side.LEFT, row, number)
+                            + locate(Side.LEFT, row, number));
                 }
-                leftMap.put(key, row);
+                leftIndex.add(fp, number);
             }
         }
 
         // The number of right rows that are empty and ignored
         int rightEmpty = 0;
+        // Left rows that match a right row
+        final BitSet matched = new BitSet(leftRows.size());
+        // Index from right key fingerprints to right row numbers
+        final FingerprintIndex rightIndex = new FingerprintIndex(rightRows.size());
 
         // Compare right rows to left ones
-        for (int number = 0; number < builder.rightRows.size(); number++) {
-            final Row right = builder.rightRows.get(number);
+        for (int number = 0; number < rightRows.size(); number++) {
+            final Row right = rightRows.get(number);
             if (right.isEmpty()) {
                 rightEmpty++;
             } else {
                 // Ignore empty rows
+                final long fp = Fingerprints.of(right, rightKeyColumns);
                 final CTupleN<String> key = getKey(Side.RIGHT, right, number);
-                final Row left = leftMap.getOrDefault(key, Row.EMPTY);
-                if (diffs.containsKey(key)) {
+                if (find(rightIndex, fp, rightRows, rightKeyColumns, right, rightKeyColumns) >= 0) {
                     throw new InvalidDataException("Duplicate key " + key + locate(Side.RIGHT, right, number));
                 }
-
-                final RowDiff diff = new RowDiff(leftHeader, left, rightHeader, right);
-                diffs.put(key, diff);
-                keys.add(key);
+                rightIndex.add(fp, number);
+
+                final int leftNumber = find(leftIndex, fp, leftRows, leftKeyColumns, right, rightKeyColumns);
+                final Row left;
+                if (leftNumber >= 0) {
+                    left = leftRows.get(leftNumber);
+                    matched.set(leftNumber);
+                } else {
+                    left = Row.EMPTY;
+                }
+                add(fp, key, new RowDiff(alignment, left, right));
             }
         }
 
         // Add all left rows that are not in right rows
-        for (int number = 0; number < builder.leftRows.size(); number++) {
-            final Row left = builder.leftRows.get(number);
-            if (!left.isEmpty()) {
+        for (int number = 0; number < leftRows.size(); number++) {
+            final Row left = leftRows.get(number);
+            if (!left.isEmpty() && !matched.get(number)) {
                 // Ignore empty rows
-                final CTupleN<String> key = getKey(Side.LEFT, left, number);
-                diffs.computeIfAbsent(key, k -> {
-                    keys.add(k);
-                    return new RowDiff(leftHeader, left, rightHeader, Row.EMPTY);
-                });
+                add(Fingerprints.of(left, leftKeyColumns),
+                    getKey(Side.LEFT, left, number),
+                    new RowDiff(alignment, left, Row.EMPTY));
             }
         }
 
@@ -120,6 +182,274 @@ public class KeyedTableDiff {
         this.synthesis.compute(this);
     }
 
+    /**
+     * Builds differences in parallel.
+     * <p>
+     * Keys of both sides are computed in parallel, and rows are partitioned by key fingerprint.
+     * Each partition is compared independently. Results are then merged in the same order
+     * as {@link #buildSequential(Builder)}, so that both methods produce identical results.
+     *
+     * @param builder The builder.
+     */
+    private void buildParallel(Builder builder) {
+        final List<Row> leftRows = builder.leftRows;
+        final List<Row> rightRows = builder.rightRows;
+        final int partitionsCount = builder.parallelism * PARTITIONS_PER_THREAD;
+
+        final List<CTupleN<String>> leftKeys = Arrays.asList(newKeys(leftRows.size()));
+        final List<CTupleN<String>> rightKeys = Arrays.asList(newKeys(rightRows.size()));
+        final long[] leftFps = new long[leftRows.size()];
+        final long[] rightFps = new long[rightRows.size()];
+        final int[] leftPartitions = new int[leftRows.size()];
+        final int[] rightPartitions = new int[rightRows.size()];
+        // Left rows that match a right row (each partition writes its own rows)
+        final boolean[] leftMatched = new boolean[leftRows.size()];
+        final RowDiff[] leftDiffs = new RowDiff[leftRows.size()];
+        final RowDiff[] rightDiffs = new RowDiff[rightRows.size()];
+        final Synthesis[] syntheses = new Synthesis[partitionsCount];
+        // Number of the first duplicate row of each partition, or -1
+        final int[] leftDuplicates = new int[partitionsCount];
+        final int[] rightDuplicates = new int[partitionsCount];
+        Arrays.fill(leftDuplicates, -1);
+        Arrays.fill(rightDuplicates, -1);
+
+        final ForkJoinPool pool = new ForkJoinPool(builder.parallelism);
+        try {
+            // Compute keys, fingerprints and partitions of rows
+            pool.invoke(new RangeTask(0, leftRows.size(), GRAIN, number -> {
+                final Row row = leftRows.get(number);
+                if (row.isEmpty()) {
+                    leftPartitions[number] = -1;
+                } else {
+                    leftKeys.set(number, getKey(Side.LEFT, row, number));
+                    leftFps[number] = Fingerprints.of(row, leftKeyColumns);
+                    leftPartitions[number] = getPartition(leftFps[number], partitionsCount);
+                }
+            }));
+            pool.invoke(new RangeTask(0, rightRows.size(), GRAIN, number -> {
+                final Row row = rightRows.get(number);
+                if (row.isEmpty()) {
+                    rightPartitions[number] = -1;
+                } else {
+                    rightKeys.set(number, getKey(Side.RIGHT, row, number));
+                    rightFps[number] = Fingerprints.of(row, rightKeyColumns);
+                    rightPartitions[number] = getPartition(rightFps[number], partitionsCount);
+                }
+            }));
+
+            final int[][] leftNumbers = bucket(leftPartitions, partitionsCount);
+            final int[][] rightNumbers = bucket(rightPartitions, partitionsCount);
+
+            // Compare partitions
+            pool.invoke(new RangeTask(0, partitionsCount, 1, partition -> {
+                final Synthesis s = new Synthesis();
+                s.init(alignment);
+                syntheses[partition] = s;
+
+                // Index from left key fingerprints to left row numbers
+                final FingerprintIndex leftIndex = new FingerprintIndex(leftNumbers[partition].length);
+                for (final int number : leftNumbers[partition]) {
+                    final Row row = leftRows.get(number);
+                    if (find(leftIndex, leftFps[number], leftRows, leftKeyColumns, row, leftKeyColumns) >= 0) {
+                        leftDuplicates[partition] = number;
+                        return;
+                    }
+                    leftIndex.add(leftFps[number], number);
+                }
+
+                // Compare right rows to left ones
+                final FingerprintIndex rightIndex = new FingerprintIndex(rightNumbers[partition].length);
+                for (final int number : rightNumbers[partition]) {
+                    final Row right = rightRows.get(number);
+                    if (find(rightIndex, rightFps[number], rightRows, rightKeyColumns, right, rightKeyColumns) >= 0) {
+                        rightDuplicates[partition] = number;
+                        return;
+                    }
+                    rightIndex.add(rightFps[number], number);
+                    final int leftNumber = find(leftIndex, rightFps[number], leftRows, leftKeyColumns, right, rightKeyColumns);
+                    final Row left;
+                    if (leftNumber >= 0) {
+                        left = leftRows.get(leftNumber);
+                        leftMatched[leftNumber] = true;
+                    } else {
+                        left = Row.EMPTY;
+                    }
+                    rightDiffs[number] = new RowDiff(alignment, left, right);
+                    s.add(rightDiffs[number]);
+                }
+
+                // Remaining left rows are not in right rows
+                for (final int number : leftNumbers[partition]) {
+                    if (!leftMatched[number]) {
+                        leftDiffs[number] = new RowDiff(alignment, leftRows.get(number), Row.EMPTY);
+                        s.add(leftDiffs[number]);
+                    }
+                }
+            }));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Report the first duplicate, as the sequential build would do
+        final int leftDuplicate = min(leftDuplicates);
+        if (leftDuplicate >= 0) {
+            throw new InvalidDataException("Duplicate key " + leftKeys.get(leftDuplicate)
+                    + locate(Side.LEFT, leftRows.get(leftDuplicate), leftDuplicate));
+        }
+        final int rightDuplicate = min(rightDuplicates);
+        if (rightDuplicate >= 0) {
+            throw new InvalidDataException("Duplicate key " + rightKeys.get(rightDuplicate)
+                    + locate(Side.RIGHT, rightRows.get(rightDuplicate), rightDuplicate));
+        }
+
+        // Merge results: right keys first, then left only keys
+        int rightEmpty = 0;
+        for (int number = 0; number < rightRows.size(); number++) {
+            if (rightDiffs[number] == null) {
+                rightEmpty++;
+            } else {
+                add(rightFps[number], rightKeys.get(number), rightDiffs[number]);
+            }
+        }
+        int leftEmpty = 0;
+        for (int number = 0; number < leftRows.size(); number++) {
+            if (leftKeys.get(number) == null) {
+                leftEmpty++;
+            } else if (leftDiffs[number] != null) {
+                add(leftFps[number], leftKeys.get(number), leftDiffs[number]);
+            }
+        }
+
+        this.leftIgnored = leftEmpty;
+        this.rightIgnored = rightEmpty;
+
+        this.synthesis.init(alignment);
+        for (final Synthesis s : syntheses) {
+            this.synthesis.merge(s);
+        }
+    }
+
+    /**
+     * Searches an indexed row whose key is equal to the key of a row.
+     *
+     * @param index The index of row numbers.
+     * @param fp The fingerprint of the key of {@code row}.
+     * @param rows The indexed rows.
+     * @param columns The key columns of indexed rows.
+     * @param row The row.
+     * @param rowColumns The key columns of {@code row}.
+     * @return The number of the indexed row whose key equals the key of {@code row}, or -1.
+     */
+    private static int find(FingerprintIndex index,
+                            long fp,
+                            List<Row> rows,
+                            int[] columns,
+                            Row row,
+                            int[] rowColumns) {
+        for (int slot = index.getFirstSlot(fp); slot >= 0; slot = index.getNextSlot(fp, slot)) {
+            final int number = index.getValue(slot);
+            if (Fingerprints.equals(rows.get(number), columns, row, rowColumns)) {
+                return number;
+            }
+        }
+        return -1;
+    }
+
+    private void add(long fp,
+                     CTupleN<String> key,
+                     RowDiff diff) {
+        keyIndex.add(fp, keys.size());
+        keys.add(key);
+        diffs.add(diff);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CTupleN<String>[] newKeys(int size) {
+        return new CTupleN[size];
+    }
+
+    private static int getPartition(long fp,
+                                    int partitionsCount) {
+        return (int) ((fp >>> 1) % partitionsCount);
+    }
+
+    /**
+     * Distributes row numbers into partitions.
+     *
+     * @param partitions The partition of each row, or -1 for ignored rows.
+     * @param partitionsCount The number of partitions.
+     * @return The increasing row numbers of each partition.
+     */
+    private static int[][] bucket(int[] partitions,
+                                  int partitionsCount) {
+        final int[] sizes = new int[partitionsCount];
+        for (final int partition : partitions) {
+            if (partition >= 0) {
+                sizes[partition]++;
+            }
+        }
+        final int[][] result = new int[partitionsCount][];
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            result[partition] = new int[sizes[partition]];
+        }
+        Arrays.fill(sizes, 0);
+        for (int number = 0; number < partitions.length; number++) {
+            final int partition = partitions[number];
+            if (partition >= 0) {
+                result[partition][sizes[partition]++] = number;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param values The values.
+     * @return The smallest non-negative value of {@code values}, or -1.
+     */
+    private static int min(int[] values) {
+        int result = -1;
+        for (final int value : values) {
+            if (value >= 0 && (result < 0 || value < result)) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fork/join task that applies an action to a range of indices.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final transient IntConsumer action;
+
+        RangeTask(int from,
+                  int to,
+                  int grain,
+                  IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int index = from; index < to; index++) {
+                    action.accept(index);
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, grain, action),
+                          new RangeTask(middle, to, grain, action));
+            }
+        }
+    }
+
     private int[] getKeyColumns(Side side) {
         return side == Side.LEFT ? leftKeyColumns : rightKeyColumns;
     }
@@ -185,6 +515,13 @@ public class KeyedTableDiff {
         return side == Side.LEFT ? leftHeader : rightHeader;
     }
 
+    /**
+     * @return The alignment of left and right columns.
+     */
+    public ColumnsAlignment getAlignment() {
+        return alignment;
+    }
+
     /**
      * @return A list of key names.
      */
@@ -204,14 +541,25 @@ public class KeyedTableDiff {
      * @return The {@link RowDiff} associated to {@code key}.
      */
     public RowDiff getDiff(TupleN<String> key) {
-        return diffs.get(key);
+        final String[] values = new String[key.size()];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = key.getValue(index);
+        }
+        final long fp = Fingerprints.of(values);
+        for (int slot = keyIndex.getFirstSlot(fp); slot >= 0; slot = keyIndex.getNextSlot(fp, slot)) {
+            final int ordinal = keyIndex.getValue(slot);
+            if (key.equals(keys.get(ordinal))) {
+                return diffs.get(ordinal);
+            }
+        }
+        return null;
     }
 
     /**
      * @return A collections of all row differences.
      */
     public Collection<RowDiff> getDiffs() {
-        return diffs.values();
+        return diffs;
     }
 
     /**
@@ -248,6 +596,7 @@ public class KeyedTableDiff {
         private final List<String> keyNames = new ArrayList<>();
         private final List<Row> leftRows = new ArrayList<>();
         private final List<Row> rightRows = new ArrayList<>();
+        private int parallelism = 1;
 
         protected Builder() {
         }
@@ -314,6 +663,23 @@ public class KeyedTableDiff {
             return this;
         }
 
+        /**
+         * Sets the number of threads used to compare rows.
+         * <p>
+         * With 1 (default), comparison is sequential.<br>
+         * Otherwise, rows are partitioned by key, and partitions are compared by a fork/join pool
+         * of {@code parallelism} threads. Results are identical to a sequential comparison.
+         *
+         * @param parallelism The number of threads.
+         * @return This builder.
+         * @throws IllegalArgumentException When {@code parallelism < 1}.
+         */
+        public Builder parallelism(int parallelism) {
+            Checks.isTrue(parallelism >= 1, "Invalid parallelism");
+            this.parallelism = parallelism;
+            return this;
+        }
+
         public KeyedTableDiff build() {
             return new KeyedTableDiff(this);
         }
@@ -343,80 +709,144 @@ public class KeyedTableDiff {
         private final int[] lines = new int[Action.values().length];
         /** Counts of cell. */
         private final int[] cells = new int[Action.values().length];
-        /** Counts of cells by column. */
-        private final Map<String, int[]> columnToCells = new HashMap<>();
         /** The list of all (left and right) column names. */
         private final List<String> columnNames = new ArrayList<>();
-
-        private void compute(KeyedTableDiff diffs) {
+        /** Map from column names to their ordinal in columnNames. */
+        private final Map<String, Integer> columnToOrdinal = new HashMap<>();
+        /** Counts of cells by column ordinal. */
+        private int[][] columnCells;
+
+        /** The alignment of left and right columns. */
+        private ColumnsAlignment alignment;
+        /** Ordinals of left header columns. */
+        private int[] leftOrdinals;
+        /** Ordinals of right header columns. */
+        private int[] rightOrdinals;
+        /** Ordinals of aligned columns. */
+        private int[] alignedOrdinals;
+
+        /**
+         * Initializes column names and counters from an alignment of left and right headers.
+         *
+         * @param alignment The alignment of left and right columns.
+         */
+        void init(ColumnsAlignment alignment) {
+            this.alignment = alignment;
+            final Header leftHeader = alignment.getLeftHeader();
+            final Header rightHeader = alignment.getRightHeader();
             // retrieve all column names.
-            this.columnNames.addAll(diffs.leftHeader.getSortedNames());
-            for (final String name : diffs.rightHeader.getSortedNames()) {
-                if (!columnNames.contains(name)) {
-                    columnNames.add(name);
-                }
+            for (final String name : leftHeader.getSortedNames()) {
+                addColumn(name);
+            }
+            for (final String name : rightHeader.getSortedNames()) {
+                addColumn(name);
             }
-            // Initialize map
-            for (final String name : columnNames) {
-                columnToCells.put(name, new int[Action.values().length]);
+            this.columnCells = new int[columnNames.size()][Action.values().length];
+
+            this.leftOrdinals = new int[leftHeader.size()];
+            for (int column = 0; column < leftOrdinals.length; column++) {
+                leftOrdinals[column] = columnToOrdinal.get(leftHeader.getNameAt(column));
+            }
+            this.rightOrdinals = new int[rightHeader.size()];
+            for (int column = 0; column < rightOrdinals.length; column++) {
+                rightOrdinals[column] = columnToOrdinal.get(rightHeader.getNameAt(column));
+            }
+            this.alignedOrdinals = new int[alignment.size()];
+            for (int ordinal = 0; ordinal < alignedOrdinals.length; ordinal++) {
+                alignedOrdinals[ordinal] = columnToOrdinal.get(alignment.getName(ordinal));
+            }
+        }
+
+        private void addColumn(String name) {
+            if (!columnToOrdinal.containsKey(name)) {
+                columnToOrdinal.put(name, columnNames.size());
+                columnNames.add(name);
             }
+        }
 
+        private void compute(KeyedTableDiff diffs) {
+            init(diffs.alignment);
             for (final RowDiff rdiff : diffs.getDiffs()) {
-                switch (rdiff.getKind()) {
-                case ADDED:
-                    lines[Action.ADDED.ordinal()]++;
-                    cells[Action.ADDED.ordinal()] += diffs.rightHeader.size();
-                    for (final String name : diffs.rightHeader.getDeclaredNames()) {
-                        final int[] counts = columnToCells.get(name);
-                        counts[Action.ADDED.ordinal()]++;
+                add(rdiff);
+            }
+        }
+
+        private static Action toAction(CellDiffKind kind) {
+            switch (kind) {
+            case ADDED:
+                return Action.ADDED;
+            case CHANGED:
+                return Action.CHANGED;
+            case REMOVED:
+                return Action.REMOVED;
+            case SAME:
+            case NULL:
+                return Action.SAME;
+            default:
+                throw new UnexpectedValueException(kind);
+            }
+        }
+
+        private void count(int[] ordinals,
+                           Action action) {
+            lines[action.ordinal()]++;
+            cells[action.ordinal()] += ordinals.length;
+            for (final int ordinal : ordinals) {
+                columnCells[ordinal][action.ordinal()]++;
+            }
+        }
+
+        /**
+         * Adds a row difference to counters.
+         *
+         * @param rdiff The row difference.
+         */
+        void add(RowDiff rdiff) {
+            switch (rdiff.getKind()) {
+            case ADDED:
+                count(rightOrdinals, Action.ADDED);
+                break;
+            case CHANGED:
+                lines[Action.CHANGED.ordinal()]++;
+                if (rdiff.getAlignment() == alignment) {
+                    for (int ordinal = 0; ordinal < alignedOrdinals.length; ordinal++) {
+                        final Action action = toAction(rdiff.getCellKind(ordinal));
+                        cells[action.ordinal()]++;
+                        columnCells[alignedOrdinals[ordinal]][action.ordinal()]++;
                     }
-                    break;
-                case CHANGED:
-                    lines[Action.CHANGED.ordinal()]++;
+                } else {
                     for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
-                        final int[] counts = columnToCells.get(lcdiff.getKey());
-                        switch (lcdiff.getDiff().getKind()) {
-                        case ADDED:
-                            cells[Action.ADDED.ordinal()]++;
-                            counts[Action.ADDED.ordinal()]++;
-                            break;
-                        case CHANGED:
-                            cells[Action.CHANGED.ordinal()]++;
-                            counts[Action.CHANGED.ordinal()]++;
-                            break;
-                        case REMOVED:
-                            cells[Action.REMOVED.ordinal()]++;
-                            counts[Action.REMOVED.ordinal()]++;
-                            break;
-                        case SAME:
-                        case NULL:
-                            cells[Action.SAME.ordinal()]++;
-                            counts[Action.SAME.ordinal()]++;
-                            break;
-                        default:
-                            throw new UnexpectedValueException(lcdiff.getDiff().getKind());
-                        }
-                    }
-                    break;
-                case REMOVED:
-                    lines[Action.REMOVED.ordinal()]++;
-                    cells[Action.REMOVED.ordinal()] += diffs.leftHeader.size();
-                    for (final String name : diffs.leftHeader.getDeclaredNames()) {
-                        final int[] counts = columnToCells.get(name);
-                        counts[Action.REMOVED.ordinal()]++;
+                        final Action action = toAction(lcdiff.getDiff().getKind());
+                        cells[action.ordinal()]++;
+                        columnCells[columnToOrdinal.get(lcdiff.getKey())][action.ordinal()]++;
                     }
-                    break;
-                case SAME:
-                    lines[Action.SAME.ordinal()]++;
-                    // left and right header have the same size
-                    cells[Action.SAME.ordinal()] += diffs.leftHeader.size();
-                    for (final String name : diffs.leftHeader.getDeclaredNames()) {
-                        final int[] counts = columnToCells.get(name);
-                        counts[Action.SAME.ordinal()]++;
-                    }
-                    break;
-                default:
-                    throw new UnexpectedValueException(rdiff.getKind());
+                }
+                break;
+            case REMOVED:
+                count(leftOrdinals, Action.REMOVED);
+                break;
+            case SAME:
+                // left and right header have the same size
+                count(leftOrdinals, Action.SAME);
+                break;
+            default:
+                throw new UnexpectedValueException(rdiff.getKind());
+            }
+        }
+
+        /**
+         * Adds counters of another synthesis, built with the same headers, to this one.
+         *
+         * @param other The other synthesis.
+         */
+        void merge(Synthesis other) {
+            for (int index = 0; index < lines.length; index++) {
+                lines[index] += other.lines[index];
+                cells[index] += other.cells[index];
+            }
+            for (int ordinal = 0; ordinal < columnCells.length; ordinal++) {
+                for (int index = 0; index < lines.length; index++) {
+                    columnCells[ordinal][index] += other.columnCells[ordinal][index];
                 }
             }
         }
@@ -435,7 +865,7 @@ public class KeyedTableDiff {
 
         public int getColumnCellsCount(String columnName,
                                        Action action) {
-            return columnToCells.get(columnName)[action.ordinal()];
+            return columnCells[columnToOrdinal.get(columnName)][action.ordinal()];
         }
 
         public void print(PrintStream out) {
@@ -2,20 +2,36 @@ package cdc.office.tables.diff;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import cdc.office.tables.Header;
 import cdc.office.tables.Row;
+import cdc.util.lang.Checks;
 
 /**
  * Class used to compare two rows.
+ * <p>
+ * Only references to compared rows (and to the alignment of their columns) are stored.
+ * The kind of difference is computed once, when the comparison is created, without creating cell differences.<br>
+ * Cell differences are created on demand, each time {@link #getDiffs()} is called.
+ * <p>
+ * When cells are compared by index, or when headers are identical, values are first compared with
+ * {@link String#equals(Object)}: when they are all equal, the kind is {@link RowDiffKind#SAME}
+ * and no cell difference is counted.
  *
  * @author Damien Carbonne
  */
 public class RowDiff {
-    private final List<LocalizedCellDiff> diffs = new ArrayList<>();
+    /** The columns alignment, or {@code null} when cells are compared by column index. */
+    private final ColumnsAlignment alignment;
+    private final Row leftRow;
+    private final Row rightRow;
+    private final RowDiffKind kind;
 
     /**
      * Compare cells that have the same header name.
+     * <p>
+     * When many rows are compared, {@link #RowDiff(ColumnsAlignment, Row, Row)} should be preferred.
      *
      * @param leftHeader The left header.
      * @param leftRow The left row.
@@ -26,30 +42,33 @@ public class RowDiff {
                    Row leftRow,
                    Header rightHeader,
                    Row rightRow) {
-        // Start comparison with right names
-        for (int rightCol = 0; rightCol < rightHeader.size(); rightCol++) {
-            final String name = rightHeader.getNameAt(rightCol);
-            final int leftCol = leftHeader.getMatchingIndex(name);
-            final CellDiff diff;
-            if (leftCol >= 0) {
-                // column name is present left and right
-                diff = new CellDiff(leftRow.getValue(leftCol), rightRow.getValue(rightCol, null));
-            } else {
-                // column name is specific to right
-                diff = new CellDiff(null, rightRow.getValue(rightCol, null));
-            }
-            diffs.add(new LocalizedCellDiff(diff, name));
+        this(new ColumnsAlignment(leftHeader, rightHeader), leftRow, rightRow);
+    }
+
+    /**
+     * Compare cells that are aligned by header name.
+     *
+     * @param alignment The alignment of left and right columns.
+     * @param leftRow The left row.
+     * @param rightRow The right row.
+     */
+    public RowDiff(ColumnsAlignment alignment,
+                   Row leftRow,
+                   Row rightRow) {
+        this.alignment = Checks.isNotNull(alignment, "alignment");
+        this.leftRow = leftRow;
+        this.rightRow = rightRow;
+
+        if (alignment.isIdentity() && isSame(leftRow, rightRow)) {
+            this.kind = RowDiffKind.SAME;
+            return;
         }
 
-        // Finish comparison with left specific names
-        for (int leftCol = 0; leftCol < leftHeader.size(); leftCol++) {
-            final String name = leftHeader.getNameAt(leftCol);
-            if (!rightHeader.matches(name)) {
-                // column name is specific to left
-                final CellDiff diff = new CellDiff(leftRow.getValue(leftCol), null);
-                diffs.add(new LocalizedCellDiff(diff, name));
-            }
+        final int[] counts = new int[CellDiffKind.values().length];
+        for (int ordinal = 0; ordinal < alignment.size(); ordinal++) {
+            counts[getCellKind(ordinal).ordinal()]++;
         }
+        this.kind = getKind(counts);
     }
 
     /**
@@ -62,39 +81,146 @@ public class RowDiff {
      */
     public RowDiff(Row leftRow,
                    Row rightRow) {
-        final int min = Math.min(leftRow.size(), rightRow.size());
+        this.alignment = null;
+        this.leftRow = leftRow;
+        this.rightRow = rightRow;
+
+        if (isSame(leftRow, rightRow)) {
+            this.kind = RowDiffKind.SAME;
+            return;
+        }
+
+        final int[] counts = new int[CellDiffKind.values().length];
         final int max = Math.max(leftRow.size(), rightRow.size());
+        for (int column = 0; column < max; column++) {
+            counts[CellDiff.getKind(leftRow.getValue(column), rightRow.getValue(column)).ordinal()]++;
+        }
+        this.kind = getKind(counts);
+    }
 
-        for (int column = 0; column < min; column++) {
-            final CellDiff diff = new CellDiff(leftRow.getValue(column), rightRow.getValue(column));
-            diffs.add(new LocalizedCellDiff(diff, column));
+    /**
+     * Returns {@code true} when 2 rows are known to have the same values.
+     * <p>
+     * Trailing {@code null} values are ignored.
+     *
+     * @param leftRow The left row.
+     * @param rightRow The right row.
+     * @return {@code true} when {@code leftRow} and {@code rightRow} are the same object,
+     *         or have equal values.
+     */
+    private static boolean isSame(Row leftRow,
+                                  Row rightRow) {
+        if (leftRow == rightRow) {
+            return true;
+        }
+        final int max = Math.max(leftRow.size(), rightRow.size());
+        for (int column = 0; column < max; column++) {
+            if (!Objects.equals(leftRow.getValue(column), rightRow.getValue(column))) {
+                return false;
+            }
         }
-        if (max > min) {
-            if (leftRow.size() == max) {
-                for (int col = min; col < max; col++) {
-                    final CellDiff diff = new CellDiff(leftRow.getValue(col), null);
-                    diffs.add(new LocalizedCellDiff(diff, col));
+        return true;
+    }
+
+    private static RowDiffKind getKind(int[] counts) {
+        final int added = counts[CellDiffKind.ADDED.ordinal()];
+        final int changed = counts[CellDiffKind.CHANGED.ordinal()];
+        final int same = counts[CellDiffKind.SAME.ordinal()];
+        final int removed = counts[CellDiffKind.REMOVED.ordinal()];
+        if (changed == 0) {
+            if (added == 0 && removed == 0) {
+                return RowDiffKind.SAME;
+            } else if (same == 0) {
+                if (added > 0 && removed == 0) {
+                    return RowDiffKind.ADDED;
+                } else if (added == 0/* && removed > 0 */) { // removed > 0
+                    return RowDiffKind.REMOVED;
+                } else {
+                    return RowDiffKind.CHANGED;
                 }
             } else {
-                for (int col = min; col < max; col++) {
-                    final CellDiff diff = new CellDiff(null, rightRow.getValue(col));
-                    diffs.add(new LocalizedCellDiff(diff, col));
-                }
+                return RowDiffKind.CHANGED;
             }
+        } else {
+            return RowDiffKind.CHANGED;
         }
     }
 
+    /**
+     * @return The alignment of columns, or {@code null} when cells are compared by column index.
+     */
+    public ColumnsAlignment getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * Returns the kind of difference of an aligned column.
+     *
+     * @param ordinal The ordinal of the aligned column.
+     * @return The kind of difference of aligned column at {@code ordinal}.
+     * @throws NullPointerException When cells are compared by column index.
+     */
+    CellDiffKind getCellKind(int ordinal) {
+        return CellDiff.getKind(alignment.getLeftValue(leftRow, ordinal),
+                                alignment.getRightValue(rightRow, ordinal));
+    }
+
+    /**
+     * @return The left row.
+     */
+    public Row getLeftRow() {
+        return leftRow;
+    }
+
+    /**
+     * @return The right row.
+     */
+    public Row getRightRow() {
+        return rightRow;
+    }
+
+    /**
+     * Returns the cell differences.
+     * <p>
+     * They are created on each call.
+     *
+     * @return The list of cell differences.
+     */
     public List<LocalizedCellDiff> getDiffs() {
+        final List<LocalizedCellDiff> diffs = new ArrayList<>();
+        if (alignment == null) {
+            final int min = Math.min(leftRow.size(), rightRow.size());
+            final int max = Math.max(leftRow.size(), rightRow.size());
+
+            for (int column = 0; column < min; column++) {
+                final CellDiff diff = new CellDiff(leftRow.getValue(column), rightRow.getValue(column));
+                diffs.add(new LocalizedCellDiff(diff, column));
+            }
+            if (max > min) {
+                if (leftRow.size() == max) {
+                    for (int col = min; col < max; col++) {
+                        final CellDiff diff = new CellDiff(leftRow.getValue(col), null);
+                        diffs.add(new LocalizedCellDiff(diff, col));
+                    }
+                } else {
+                    for (int col = min; col < max; col++) {
+                        final CellDiff diff = new CellDiff(null, rightRow.getValue(col));
+                        diffs.add(new LocalizedCellDiff(diff, col));
+                    }
+                }
+            }
+        } else {
+            for (int ordinal = 0; ordinal < alignment.size(); ordinal++) {
+                final CellDiff diff = new CellDiff(alignment.getLeftValue(leftRow, ordinal),
+                                                   alignment.getRightValue(rightRow, ordinal));
+                diffs.add(new LocalizedCellDiff(diff, alignment.getName(ordinal)));
+            }
+        }
         return diffs;
     }
 
     public boolean containsDifferences() {
-        for (final LocalizedCellDiff diff : diffs) {
-            if (diff.getDiff().getKind().isNeitherSameNorNull()) {
-                return true;
-            }
-        }
-        return false;
+        return kind != RowDiffKind.SAME;
     }
 
     /**
@@ -150,45 +276,7 @@ public class RowDiff {
      * @return The row difference kind.
      */
     public RowDiffKind getKind() {
-        int added = 0;
-        int changed = 0;
-        int same = 0;
-        int removed = 0;
-        for (final LocalizedCellDiff diff : diffs) {
-            switch (diff.getDiff().getKind()) {
-            case ADDED:
-                added++;
-                break;
-            case CHANGED:
-                changed++;
-                break;
-            case REMOVED:
-                removed++;
-                break;
-            case NULL:
-                break;
-            case SAME:
-                same++;
-                break;
-            }
-        }
-        if (changed == 0) {
-            if (added == 0 && removed == 0) {
-                return RowDiffKind.SAME;
-            } else if (same == 0) {
-                if (added > 0 && removed == 0) {
-                    return RowDiffKind.ADDED;
-                } else if (added == 0/* && removed > 0 */) { // removed > 0
-                    return RowDiffKind.REMOVED;
-                } else {
-                    return RowDiffKind.CHANGED;
-                }
-            } else {
-                return RowDiffKind.CHANGED;
-            }
-        } else {
-            return RowDiffKind.CHANGED;
-        }
+        return kind;
     }
 
     @Override
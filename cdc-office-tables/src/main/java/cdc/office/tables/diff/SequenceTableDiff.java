@@ -0,0 +1,534 @@
+package cdc.office.tables.diff;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import cdc.office.tables.Fingerprints;
+import cdc.office.tables.Header;
+import cdc.office.tables.Row;
+import cdc.office.tables.diff.KeyedTableDiff.Synthesis;
+import cdc.office.tables.jfr.DiffBuildEvent;
+import cdc.util.lang.Checks;
+
+/**
+ * Comparison of 2 tables whose rows are not identified by keys.
+ * <p>
+ * Rows are compared as sequences, using Myers' diff algorithm on row fingerprints, in its linear space variant:
+ * <ul>
+ * <li>Common prefix and suffix are first removed.
+ * <li>The remaining ranges are recursively split at the middle of an optimal edit script.
+ * </ul>
+ * Memory is proportional to the number of rows, and time to the number of rows multiplied by the number of
+ * inserted or removed rows.<br>
+ * As this is quadratic for mostly different tables, the cost of the search is bounded by {@link Builder#maxCost(long)}.
+ * The cost is the number of visited diagonals and matched rows. When it is exceeded, each remaining range is reported,
+ * after removal of its common prefix and suffix, as removed rows followed by added rows.
+ * The edit script is then valid but may not be optimal ({@link #isOptimal()} returns {@code false}).
+ * <p>
+ * Row fingerprints are computed on columns that exist in both headers. Matched rows are then compared cell by cell,
+ * by column name.<br>
+ * In the edit script, each run of removed and inserted rows between 2 matched rows is reported as a sequence of
+ * {@link RowDiffKind#CHANGED CHANGED} rows, followed by remaining {@link RowDiffKind#REMOVED REMOVED}
+ * or {@link RowDiffKind#ADDED ADDED} rows.
+ * <p>
+ * Empty rows are ignored.
+ *
+ * @author Damien Carbonne
+ */
+public class SequenceTableDiff {
+    /**
+     * Default maximum cost of the search of the edit script.
+     */
+    public static final long DEFAULT_MAX_COST = 100_000_000L;
+
+    private static final int MATCH = 0;
+    private static final int COMPARE = 1;
+
+    /** The left SystemId. */
+    private final String leftSystemId;
+    /** The right SystemId. */
+    private final String rightSystemId;
+    /** The alignment of left and right columns. */
+    private final ColumnsAlignment alignment;
+    /** The row differences, in sequence order. */
+    private final List<RowDiff> diffs = new ArrayList<>();
+    /** The synthesis of differences. */
+    private final Synthesis synthesis = new Synthesis();
+    private final int leftIgnored;
+    private final int rightIgnored;
+
+    /** The non empty left rows. */
+    private final List<Row> left = new ArrayList<>();
+    /** The non empty right rows. */
+    private final List<Row> right = new ArrayList<>();
+    /** Fingerprints of non empty left rows. */
+    private final long[] leftFps;
+    /** Fingerprints of non empty right rows. */
+    private final long[] rightFps;
+    /** Numbers of pending removed rows. */
+    private int[] removed = new int[16];
+    private int removedCount = 0;
+    /** Numbers of pending inserted rows. */
+    private int[] inserted = new int[16];
+    private int insertedCount = 0;
+    /** The maximum cost of the search. */
+    private final long maxCost;
+    /** The current cost of the search. */
+    private long cost = 0L;
+
+    protected SequenceTableDiff(Builder builder) {
+        this.leftSystemId = builder.leftSystemId;
+        this.maxCost = builder.maxCost;
+        this.rightSystemId = builder.rightSystemId;
+        this.alignment = new ColumnsAlignment(Checks.isNotNull(builder.leftHeader, "leftHeader"),
+                                              Checks.isNotNull(builder.rightHeader, "rightHeader"));
+
+        final DiffBuildEvent event = new DiffBuildEvent();
+        event.begin();
+
+        this.leftIgnored = filter(builder.leftRows, left);
+        this.rightIgnored = filter(builder.rightRows, right);
+
+        // Columns that exist in both headers
+        int common = 0;
+        final int[] leftColumns = new int[alignment.size()];
+        final int[] rightColumns = new int[alignment.size()];
+        for (int ordinal = 0; ordinal < alignment.size(); ordinal++) {
+            if (alignment.getLeftColumn(ordinal) >= 0 && alignment.getRightColumn(ordinal) >= 0) {
+                leftColumns[common] = alignment.getLeftColumn(ordinal);
+                rightColumns[common] = alignment.getRightColumn(ordinal);
+                common++;
+            }
+        }
+        this.leftFps = fingerprints(left, alignment.isIdentity() ? null : Arrays.copyOf(leftColumns, common));
+        this.rightFps = fingerprints(right, alignment.isIdentity() ? null : Arrays.copyOf(rightColumns, common));
+
+        this.synthesis.init(alignment);
+        build();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = "sequence";
+            event.leftRows = builder.leftRows.size();
+            event.rightRows = builder.rightRows.size();
+            event.keys = diffs.size();
+            event.addedRows = synthesis.getLinesCount(Synthesis.Action.ADDED);
+            event.removedRows = synthesis.getLinesCount(Synthesis.Action.REMOVED);
+            event.changedRows = synthesis.getLinesCount(Synthesis.Action.CHANGED);
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds non empty rows of a list to another list.
+     *
+     * @param rows The rows.
+     * @param nonEmpty The list of non empty rows.
+     * @return The number of empty rows.
+     */
+    private static int filter(List<Row> rows,
+                              List<Row> nonEmpty) {
+        for (final Row row : rows) {
+            if (!row.isEmpty()) {
+                nonEmpty.add(row);
+            }
+        }
+        return rows.size() - nonEmpty.size();
+    }
+
+    /**
+     * @param rows The rows.
+     * @param columns The columns to use, or {@code null} to use all columns.
+     * @return The fingerprints of {@code rows}.
+     */
+    private static long[] fingerprints(List<Row> rows,
+                                       int[] columns) {
+        final long[] result = new long[rows.size()];
+        for (int index = 0; index < result.length; index++) {
+            final Row row = rows.get(index);
+            result[index] = columns == null ? Fingerprints.of(row) : Fingerprints.of(row, columns);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the edit script and the row differences.
+     * <p>
+     * Ranges are processed in order with an explicit stack, in order to produce differences in sequence order
+     * without deep recursion.
+     */
+    private void build() {
+        // Reused work vectors, large enough for any range
+        final int max = (left.size() + right.size() + 1) / 2 + 1;
+        final int[] forward = new int[2 * max + 2];
+        final int[] backward = new int[2 * max + 2];
+
+        // Each item is {kind, leftFrom, leftTo, rightFrom, rightTo}
+        final Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { COMPARE, 0, left.size(), 0, right.size() });
+        while (!stack.isEmpty()) {
+            final int[] item = stack.pop();
+            if (item[0] == MATCH) {
+                for (int index = 0; index < item[2] - item[1]; index++) {
+                    match(item[1] + index, item[3] + index);
+                }
+            } else {
+                compare(item[1], item[2], item[3], item[4], forward, backward, stack);
+            }
+        }
+        flush();
+    }
+
+    private void compare(int leftFrom,
+                         int leftTo,
+                         int rightFrom,
+                         int rightTo,
+                         int[] forward,
+                         int[] backward,
+                         Deque<int[]> stack) {
+        // Common prefix
+        while (leftFrom < leftTo && rightFrom < rightTo && leftFps[leftFrom] == rightFps[rightFrom]) {
+            match(leftFrom, rightFrom);
+            leftFrom++;
+            rightFrom++;
+        }
+        // Common suffix, processed after the middle part
+        int suffix = 0;
+        while (leftFrom < leftTo - suffix && rightFrom < rightTo - suffix
+                && leftFps[leftTo - suffix - 1] == rightFps[rightTo - suffix - 1]) {
+            suffix++;
+        }
+        if (suffix > 0) {
+            stack.push(new int[] { MATCH, leftTo - suffix, leftTo, rightTo - suffix, rightTo });
+            leftTo -= suffix;
+            rightTo -= suffix;
+        }
+
+        if (leftFrom == leftTo) {
+            for (int number = rightFrom; number < rightTo; number++) {
+                insert(number);
+            }
+        } else if (rightFrom == rightTo) {
+            for (int number = leftFrom; number < leftTo; number++) {
+                remove(number);
+            }
+        } else {
+            final long split = bisect(leftFrom, leftTo, rightFrom, rightTo, forward, backward);
+            if (split < 0L) {
+                for (int number = leftFrom; number < leftTo; number++) {
+                    remove(number);
+                }
+                for (int number = rightFrom; number < rightTo; number++) {
+                    insert(number);
+                }
+            } else {
+                final int x = leftFrom + (int) (split >>> 32);
+                final int y = rightFrom + (int) split;
+                stack.push(new int[] { COMPARE, x, leftTo, y, rightTo });
+                stack.push(new int[] { COMPARE, leftFrom, x, rightFrom, y });
+            }
+        }
+    }
+
+    /**
+     * Finds the middle of an optimal edit script of 2 non empty ranges.
+     *
+     * @param leftFrom The first left index (inclusive).
+     * @param leftTo The last left index (exclusive).
+     * @param rightFrom The first right index (inclusive).
+     * @param rightTo The last right index (exclusive).
+     * @param v1 The forward work vector.
+     * @param v2 The backward work vector.
+     * @return The relative split point, with left offset in high 32 bits and right offset in low 32 bits,
+     *         or -1 if ranges have nothing in common or the maximum cost is exceeded.
+     */
+    private long bisect(int leftFrom,
+                        int leftTo,
+                        int rightFrom,
+                        int rightTo,
+                        int[] v1,
+                        int[] v2) {
+        final int n = leftTo - leftFrom;
+        final int m = rightTo - rightFrom;
+        final int maxD = (n + m + 1) / 2;
+        final int offset = maxD;
+        final int length = 2 * maxD;
+        Arrays.fill(v1, 0, length + 2, -1);
+        Arrays.fill(v2, 0, length + 2, -1);
+        v1[offset + 1] = 0;
+        v2[offset + 1] = 0;
+        final int delta = n - m;
+        // If the total number of rows is odd, the front path collides with the reverse path
+        final boolean front = (delta % 2) != 0;
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD && cost <= maxCost; d++) {
+            // Walk the front path one step
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                final int k1Offset = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+                    x1 = v1[k1Offset + 1];
+                } else {
+                    x1 = v1[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                final int x1start = x1;
+                while (x1 < n && y1 < m && leftFps[leftFrom + x1] == rightFps[rightFrom + y1]) {
+                    x1++;
+                    y1++;
+                }
+                cost += 1 + x1 - x1start;
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    // Ran off the right of the graph
+                    k1end += 2;
+                } else if (y1 > m) {
+                    // Ran off the bottom of the graph
+                    k1start += 2;
+                } else if (front) {
+                    final int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && v2[k2Offset] != -1) {
+                        // Mirror x2 onto top-left coordinate system
+                        final int x2 = n - v2[k2Offset];
+                        if (x1 >= x2) {
+                            return ((long) x1 << 32) | y1;
+                        }
+                    }
+                }
+            }
+
+            // Walk the reverse path one step
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                final int k2Offset = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+                    x2 = v2[k2Offset + 1];
+                } else {
+                    x2 = v2[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                final int x2start = x2;
+                while (x2 < n && y2 < m && leftFps[leftTo - x2 - 1] == rightFps[rightTo - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                cost += 1 + x2 - x2start;
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    // Ran off the left of the graph
+                    k2end += 2;
+                } else if (y2 > m) {
+                    // Ran off the top of the graph
+                    k2start += 2;
+                } else if (!front) {
+                    final int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && v1[k1Offset] != -1) {
+                        final int x1 = v1[k1Offset];
+                        final int y1 = offset + x1 - k1Offset;
+                        // Mirror x2 onto top-left coordinate system
+                        if (x1 >= n - x2) {
+                            return ((long) x1 << 32) | y1;
+                        }
+                    }
+                }
+            }
+        }
+        return -1L;
+    }
+
+    private void match(int leftNumber,
+                       int rightNumber) {
+        flush();
+        add(new RowDiff(alignment, left.get(leftNumber), right.get(rightNumber)));
+    }
+
+    private void remove(int leftNumber) {
+        if (removedCount == removed.length) {
+            removed = Arrays.copyOf(removed, 2 * removedCount);
+        }
+        removed[removedCount++] = leftNumber;
+    }
+
+    private void insert(int rightNumber) {
+        if (insertedCount == inserted.length) {
+            inserted = Arrays.copyOf(inserted, 2 * insertedCount);
+        }
+        inserted[insertedCount++] = rightNumber;
+    }
+
+    /**
+     * Converts the pending run of removed and inserted rows to row differences.
+     */
+    private void flush() {
+        final int changed = Math.min(removedCount, insertedCount);
+        for (int index = 0; index < changed; index++) {
+            add(new RowDiff(alignment, left.get(removed[index]), right.get(inserted[index])));
+        }
+        for (int index = changed; index < removedCount; index++) {
+            add(new RowDiff(alignment, left.get(removed[index]), Row.EMPTY));
+        }
+        for (int index = changed; index < insertedCount; index++) {
+            add(new RowDiff(alignment, Row.EMPTY, right.get(inserted[index])));
+        }
+        removedCount = 0;
+        insertedCount = 0;
+    }
+
+    private void add(RowDiff diff) {
+        diffs.add(diff);
+        synthesis.add(diff);
+    }
+
+    /**
+     * @param side The side.
+     * @return The SystemId associated to {@code side}. May be {@code null}.
+     */
+    public String getSystemId(Side side) {
+        return side == Side.LEFT ? leftSystemId : rightSystemId;
+    }
+
+    /**
+     * @param side The side.
+     * @return The {@link Header} associated to {@code side}.
+     */
+    public Header getHeader(Side side) {
+        return side == Side.LEFT ? alignment.getLeftHeader() : alignment.getRightHeader();
+    }
+
+    /**
+     * @return The alignment of left and right columns.
+     */
+    public ColumnsAlignment getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * @return The list of row differences, in sequence order.
+     */
+    public List<RowDiff> getDiffs() {
+        return diffs;
+    }
+
+    /**
+     * @param side The side.
+     * @return The number of ignored rows on {@code side}.
+     */
+    public int getNumberOfIgnoredRows(Side side) {
+        return side == Side.LEFT ? leftIgnored : rightIgnored;
+    }
+
+    public int getNumberOfIgnoredRows() {
+        return leftIgnored + rightIgnored;
+    }
+
+    /**
+     * @return {@code true} if the edit script is optimal, {@code false} if the maximum cost was exceeded.
+     */
+    public boolean isOptimal() {
+        return cost <= maxCost;
+    }
+
+    /**
+     * @return A {@link Synthesis} of differences.
+     */
+    public Synthesis getSynthesis() {
+        return synthesis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of {@link SequenceTableDiff}.
+     */
+    public static class Builder {
+        private String leftSystemId;
+        private String rightSystemId;
+        private Header leftHeader;
+        private Header rightHeader;
+        private final List<Row> leftRows = new ArrayList<>();
+        private final List<Row> rightRows = new ArrayList<>();
+        private long maxCost = DEFAULT_MAX_COST;
+
+        protected Builder() {
+        }
+
+        public Builder leftSystemId(String systemId) {
+            this.leftSystemId = systemId;
+            return this;
+        }
+
+        public Builder rightSystemId(String systemId) {
+            this.rightSystemId = systemId;
+            return this;
+        }
+
+        public Builder header(Header header) {
+            this.leftHeader = header;
+            this.rightHeader = header;
+            return this;
+        }
+
+        public Builder leftHeader(Header leftHeader) {
+            this.leftHeader = leftHeader;
+            return this;
+        }
+
+        public Builder rightHeader(Header rightHeader) {
+            this.rightHeader = rightHeader;
+            return this;
+        }
+
+        public Builder leftRows(List<Row> leftRows) {
+            this.leftRows.clear();
+            this.leftRows.addAll(leftRows);
+            return this;
+        }
+
+        public Builder leftRows(Row... leftRows) {
+            this.leftRows.clear();
+            Collections.addAll(this.leftRows, leftRows);
+            return this;
+        }
+
+        public Builder rightRows(List<Row> rightRows) {
+            this.rightRows.clear();
+            this.rightRows.addAll(rightRows);
+            return this;
+        }
+
+        public Builder rightRows(Row... rightRows) {
+            this.rightRows.clear();
+            Collections.addAll(this.rightRows, rightRows);
+            return this;
+        }
+
+        /**
+         * Sets the maximum cost of the search of the edit script.
+         * <p>
+         * The cost is the number of visited diagonals and matched rows.
+         * Time is roughly proportional to it, and is typically below 1 second for the default value.
+         *
+         * @param maxCost The maximum cost.
+         * @return This builder.
+         * @throws IllegalArgumentException When {@code maxCost} is negative.
+         */
+        public Builder maxCost(long maxCost) {
+            Checks.isTrue(maxCost >= 0L, "Invalid max cost: " + maxCost);
+            this.maxCost = maxCost;
+            return this;
+        }
+
+        public SequenceTableDiff build() {
+            return new SequenceTableDiff(this);
+        }
+    }
+}
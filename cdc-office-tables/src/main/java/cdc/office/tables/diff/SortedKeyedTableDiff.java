@@ -0,0 +1,410 @@
+package cdc.office.tables.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import cdc.office.tables.Header;
+import cdc.office.tables.Row;
+import cdc.office.tables.Rows;
+import cdc.office.tables.diff.KeyedTableDiff.Synthesis;
+import cdc.office.tables.jfr.DiffBuildEvent;
+import cdc.tuples.CTupleN;
+import cdc.util.lang.Checks;
+import cdc.util.lang.InvalidDataException;
+
+/**
+ * Class used to compare two sequences of rows that are sorted by a set of keys.
+ * <p>
+ * Both sequences are walked in lockstep (sort-merge), and each {@link RowDiff} is immediately
+ * passed to a {@link Listener}, in increasing key order.<br>
+ * Only the current row of each side is retained, so memory does not depend on the number of rows.
+ * A {@link Synthesis} is computed incrementally.
+ * <p>
+ * Key values are compared with the same ordering as {@link Rows#keyComparator(int...)}.
+ * Two keys match only when their values are equal strings, as with {@link KeyedTableDiff}.
+ * On each side, keys must be strictly increasing: an {@link InvalidDataException} is raised
+ * when a key is duplicate or out of order.<br>
+ * Empty rows are ignored.
+ * <p>
+ * Sequences can be sorted beforehand with a {@link cdc.office.tables.TableSorter}.
+ * <p>
+ * The comparison is done when {@link Builder#build()} is called.
+ *
+ * @author Damien Carbonne
+ */
+public final class SortedKeyedTableDiff {
+    /**
+     * Interface used to receive row differences.
+     */
+    @FunctionalInterface
+    public static interface Listener {
+        /**
+         * Called for each compared key, in increasing key order.
+         *
+         * @param key The key.
+         * @param diff The {@link RowDiff} associated to {@code key}.
+         */
+        public void processRowDiff(CTupleN<String> key,
+                                   RowDiff diff);
+    }
+
+    /** The left SystemId. */
+    private final String leftSystemId;
+    /** The right SystemId. */
+    private final String rightSystemId;
+    /** The left header. */
+    private final Header leftHeader;
+    /** The right header. */
+    private final Header rightHeader;
+    /** The names of key columns. */
+    private final List<String> keyNames;
+    /** Indices in left header of key columns. */
+    private final int[] leftKeyColumns;
+    /** Indices in right header of key columns. */
+    private final int[] rightKeyColumns;
+    /** The alignment of left and right columns. */
+    private final ColumnsAlignment alignment;
+    private final Listener listener;
+    /** The synthesis of differences. */
+    private final Synthesis synthesis = new Synthesis();
+    private int keysCount = 0;
+    private int leftIgnored = 0;
+    private int rightIgnored = 0;
+
+    /**
+     * Cursor on a sorted sequence of rows.
+     */
+    private final class Cursor {
+        private final Side side;
+        private final Iterator<Row> rows;
+        private final int[] keyColumns;
+        /** Number of the current row (0-based, empty rows included). */
+        private int number = -1;
+        private Row row = null;
+        private String[] key = null;
+
+        Cursor(Side side,
+               Iterator<Row> rows,
+               int[] keyColumns) {
+            this.side = side;
+            this.rows = rows;
+            this.keyColumns = keyColumns;
+        }
+
+        boolean hasRow() {
+            return row != null;
+        }
+
+        /**
+         * Moves to next non empty row, and checks its key is greater than previous one.
+         */
+        void next() {
+            final String[] previous = key;
+            row = null;
+            key = null;
+            while (rows.hasNext()) {
+                final Row next = rows.next();
+                number++;
+                if (next.isEmpty()) {
+                    if (side == Side.LEFT) {
+                        leftIgnored++;
+                    } else {
+                        rightIgnored++;
+                    }
+                } else {
+                    row = next;
+                    key = getKey(next, keyColumns);
+                    if (previous != null) {
+                        final int cmp = compare(previous, key);
+                        if (cmp == 0) {
+                            throw new InvalidDataException("Duplicate key " + new CTupleN<>(key) + locate(side, row, number));
+                        } else if (cmp > 0) {
+                            throw new InvalidDataException("Unsorted key " + new CTupleN<>(key) + locate(side, row, number));
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private SortedKeyedTableDiff(Builder builder) {
+        this.leftSystemId = builder.leftSystemId;
+        this.rightSystemId = builder.rightSystemId;
+        this.leftHeader = Checks.isNotNull(builder.leftHeader, "leftHeader");
+        this.rightHeader = Checks.isNotNull(builder.rightHeader, "rightHeader");
+        this.keyNames = Collections.unmodifiableList(new ArrayList<>(builder.keyNames));
+        this.listener = Checks.isNotNull(builder.listener, "listener");
+        Checks.isNotNull(builder.leftRows, "leftRows");
+        Checks.isNotNull(builder.rightRows, "rightRows");
+
+        final DiffBuildEvent event = new DiffBuildEvent();
+        event.begin();
+
+        this.leftKeyColumns = buildKeyColumns(leftHeader, keyNames);
+        this.rightKeyColumns = buildKeyColumns(rightHeader, keyNames);
+        this.alignment = new ColumnsAlignment(leftHeader, rightHeader);
+        this.synthesis.init(alignment);
+
+        final Cursor left = new Cursor(Side.LEFT, builder.leftRows, leftKeyColumns);
+        final Cursor right = new Cursor(Side.RIGHT, builder.rightRows, rightKeyColumns);
+        left.next();
+        right.next();
+        while (left.hasRow() || right.hasRow()) {
+            final int cmp;
+            if (!left.hasRow()) {
+                cmp = 1;
+            } else if (!right.hasRow()) {
+                cmp = -1;
+            } else {
+                cmp = compare(left.key, right.key);
+            }
+            if (cmp < 0) {
+                // left only
+                emit(left.key, new RowDiff(alignment, left.row, Row.EMPTY));
+                left.next();
+            } else if (cmp > 0) {
+                // right only
+                emit(right.key, new RowDiff(alignment, Row.EMPTY, right.row));
+                right.next();
+            } else {
+                emit(right.key, new RowDiff(alignment, left.row, right.row));
+                left.next();
+                right.next();
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = "sorted";
+            event.leftRows = left.number + 1;
+            event.rightRows = right.number + 1;
+            event.keys = keysCount;
+            event.addedRows = synthesis.getLinesCount(Synthesis.Action.ADDED);
+            event.removedRows = synthesis.getLinesCount(Synthesis.Action.REMOVED);
+            event.changedRows = synthesis.getLinesCount(Synthesis.Action.CHANGED);
+            event.commit();
+        }
+    }
+
+    private void emit(String[] key,
+                      RowDiff diff) {
+        keysCount++;
+        synthesis.add(diff);
+        listener.processRowDiff(new CTupleN<>(key), diff);
+    }
+
+    private static int[] buildKeyColumns(Header header,
+                                         List<String> keyNames) {
+        final int[] result = new int[keyNames.size()];
+        for (int index = 0; index < keyNames.size(); index++) {
+            final int column = header.getMatchingIndex(keyNames.get(index));
+            if (column < 0) {
+                throw new IllegalArgumentException("Key '" + keyNames.get(index) + "' missing in " + header);
+            }
+            result[index] = column;
+        }
+        return result;
+    }
+
+    private static String[] getKey(Row row,
+                                   int[] keyColumns) {
+        final String[] values = new String[keyColumns.length];
+        for (int index = 0; index < keyColumns.length; index++) {
+            values[index] = row.getValue(keyColumns[index], null);
+        }
+        return values;
+    }
+
+    private static int compare(String[] key1,
+                               String[] key2) {
+        for (int index = 0; index < key1.length; index++) {
+            final int cmp = Rows.KEY_VALUE_COMPARATOR.compare(key1[index], key2[index]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private String locate(Side side,
+                          Row row,
+                          int number) {
+        final String systemId = getSystemId(side);
+        final StringBuilder builder = new StringBuilder();
+        builder.append(" in ")
+               .append(side)
+               .append(" row ")
+               .append(row)
+               .append(", line ")
+               .append(number + 2);
+        if (systemId != null) {
+            builder.append(" (")
+                   .append(systemId)
+                   .append(')');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param side The side.
+     * @return The SystemId associated to {@code side}. May be {@code null}.
+     */
+    public String getSystemId(Side side) {
+        return side == Side.LEFT ? leftSystemId : rightSystemId;
+    }
+
+    /**
+     * @param side The side.
+     * @return The {@link Header} associated to {@code side}.
+     */
+    public Header getHeader(Side side) {
+        return side == Side.LEFT ? leftHeader : rightHeader;
+    }
+
+    /**
+     * @return The alignment of left and right columns.
+     */
+    public ColumnsAlignment getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * @return A list of key names.
+     */
+    public List<String> getKeyNames() {
+        return keyNames;
+    }
+
+    /**
+     * @return The number of compared keys. Some may be left-only or right-only.
+     */
+    public int getKeysCount() {
+        return keysCount;
+    }
+
+    /**
+     * @param side The side.
+     * @return The number of ignored rows on {@code side}.
+     */
+    public int getNumberOfIgnoredRows(Side side) {
+        return side == Side.LEFT ? leftIgnored : rightIgnored;
+    }
+
+    public int getNumberOfIgnoredRows() {
+        return leftIgnored + rightIgnored;
+    }
+
+    /**
+     * @return A {@link Synthesis} of differences.
+     */
+    public Synthesis getSynthesis() {
+        return synthesis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of {@link SortedKeyedTableDiff}.
+     */
+    public static class Builder {
+        private String leftSystemId;
+        private String rightSystemId;
+        private Header leftHeader;
+        private Header rightHeader;
+        private final List<String> keyNames = new ArrayList<>();
+        private Iterator<Row> leftRows;
+        private Iterator<Row> rightRows;
+        private Listener listener;
+
+        protected Builder() {
+        }
+
+        public Builder leftSystemId(String systemId) {
+            this.leftSystemId = systemId;
+            return this;
+        }
+
+        public Builder rightSystemId(String systemId) {
+            this.rightSystemId = systemId;
+            return this;
+        }
+
+        public Builder header(Header header) {
+            this.leftHeader = header;
+            this.rightHeader = header;
+            return this;
+        }
+
+        public Builder leftHeader(Header leftHeader) {
+            this.leftHeader = leftHeader;
+            return this;
+        }
+
+        public Builder rightHeader(Header rightHeader) {
+            this.rightHeader = rightHeader;
+            return this;
+        }
+
+        public Builder keyNames(List<String> keyNames) {
+            this.keyNames.clear();
+            this.keyNames.addAll(keyNames);
+            return this;
+        }
+
+        public Builder keyNames(String... keyNames) {
+            this.keyNames.clear();
+            Collections.addAll(this.keyNames, keyNames);
+            return this;
+        }
+
+        /**
+         * Sets the left rows.
+         *
+         * @param leftRows The left rows, sorted by keys. They are consumed once.
+         * @return This builder.
+         */
+        public Builder leftRows(Iterator<Row> leftRows) {
+            this.leftRows = leftRows;
+            return this;
+        }
+
+        public Builder leftRows(Iterable<Row> leftRows) {
+            return leftRows(leftRows.iterator());
+        }
+
+        /**
+         * Sets the right rows.
+         *
+         * @param rightRows The right rows, sorted by keys. They are consumed once.
+         * @return This builder.
+         */
+        public Builder rightRows(Iterator<Row> rightRows) {
+            this.rightRows = rightRows;
+            return this;
+        }
+
+        public Builder rightRows(Iterable<Row> rightRows) {
+            return rightRows(rightRows.iterator());
+        }
+
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Compares left and right rows and passes differences to the listener.
+         *
+         * @return The resulting {@link SortedKeyedTableDiff}.
+         * @throws InvalidDataException When a key is duplicate or out of order.
+         */
+        public SortedKeyedTableDiff build() {
+            return new SortedKeyedTableDiff(this);
+        }
+    }
+}
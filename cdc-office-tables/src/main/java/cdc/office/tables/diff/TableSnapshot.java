@@ -0,0 +1,488 @@
+package cdc.office.tables.diff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import cdc.office.tables.FingerprintIndex;
+import cdc.office.tables.Fingerprints;
+import cdc.office.tables.Header;
+import cdc.office.tables.Row;
+import cdc.office.tables.Rows;
+import cdc.util.lang.Checks;
+import cdc.util.lang.InvalidDataException;
+
+/**
+ * Snapshot of a table whose rows are identified by a set of keys.
+ * <p>
+ * For each non empty data row, it stores the values of its key, the {@link Fingerprints#of(Row) fingerprint}
+ * of the row, and the number of the row in the table. Header and key names are also stored.<br>
+ * When saved, a snapshot also contains the values of all non empty rows. They are not loaded with the snapshot:
+ * in memory, a loaded snapshot typically uses 12 bytes per row, plus its key values.
+ * <p>
+ * A snapshot of a baseline table can be used to compare a new table to the baseline, loading only
+ * the baseline rows that are necessary:
+ * <ol>
+ * <li>{@link #getRowsToLoad(Header, List)} returns the numbers of baseline rows whose key is missing
+ * in the new table, or whose fingerprint changed.
+ * <li>Those rows are loaded from the saved snapshot with {@link #loadRows(File, BitSet)}, or from the baseline table.
+ * <li>{@link #getBaselineRows(Header, List, IntFunction)} returns a list of rows that, compared to the new rows
+ * with a {@link KeyedTableDiff}, gives the same result as the complete baseline.
+ * </ol>
+ * Row numbers are 0-based indices of data rows, including empty rows.
+ * <p>
+ * Keys are indexed by their fingerprint, and their values are always compared: keys are matched exactly.<br>
+ * Row values are not compared: a baseline row whose key is present in the new table is considered unchanged
+ * when the fingerprints of its old and new values are equal. As fingerprints are 64 bits hashes
+ * (not cryptographic ones), a changed row can then be considered as unchanged, with a probability of about
+ * 2<sup>-64</sup> for each changed row.
+ *
+ * @author Damien Carbonne
+ */
+public final class TableSnapshot {
+    private static final int MAGIC = 0x43445453;
+    private static final int VERSION = 2;
+
+    private final Header header;
+    private final List<String> keyNames;
+    /** Key values of all rows: values of row at ordinal o are at [o * keyNames.size(), (o + 1) * keyNames.size()[. */
+    private final String[] keys;
+    private final long[] rowFps;
+    private final int[] numbers;
+    /** Index from key fingerprints to ordinals. */
+    private final FingerprintIndex index;
+    /** The rows of the table, when this snapshot was created from them, {@code null} when it was loaded. */
+    private final List<Row> rows;
+
+    private TableSnapshot(Header header,
+                          List<String> keyNames,
+                          String[] keys,
+                          long[] rowFps,
+                          int[] numbers,
+                          List<Row> rows) {
+        this.header = header;
+        this.keyNames = Collections.unmodifiableList(new ArrayList<>(keyNames));
+        this.keys = keys;
+        this.rowFps = rowFps;
+        this.numbers = numbers;
+        this.rows = rows;
+        this.index = new FingerprintIndex(numbers.length);
+        final String[] key = new String[keyNames.size()];
+        for (int ordinal = 0; ordinal < numbers.length; ordinal++) {
+            System.arraycopy(keys, ordinal * key.length, key, 0, key.length);
+            final long fp = Fingerprints.of(key);
+            for (int slot = index.getFirstSlot(fp); slot >= 0; slot = index.getNextSlot(fp, slot)) {
+                if (sameKey(index.getValue(slot), ordinal)) {
+                    throw new InvalidDataException("Duplicate key " + Arrays.toString(key) + " at row " + numbers[ordinal]);
+                }
+            }
+            index.add(fp, ordinal);
+        }
+    }
+
+    /**
+     * Creates the snapshot of a table.
+     * <p>
+     * The snapshot retains {@code rows}, so that they can be saved.
+     *
+     * @param header The table header.
+     * @param keyNames The key names.
+     * @param rows The data rows.
+     * @return The snapshot of {@code rows}.
+     * @throws IllegalArgumentException When a key name is missing in {@code header}.
+     * @throws InvalidDataException When a key is duplicate.
+     */
+    public static TableSnapshot of(Header header,
+                                   List<String> keyNames,
+                                   List<Row> rows) {
+        Checks.isNotNull(header, "header");
+        Checks.isNotNull(keyNames, "keyNames");
+        Checks.isNotNull(rows, "rows");
+
+        final int[] keyColumns = getKeyColumns(header, keyNames);
+        int count = 0;
+        for (final Row row : rows) {
+            if (!row.isEmpty()) {
+                count++;
+            }
+        }
+        final String[] keys = new String[count * keyColumns.length];
+        final long[] rowFps = new long[count];
+        final int[] numbers = new int[count];
+        int ordinal = 0;
+        for (int number = 0; number < rows.size(); number++) {
+            final Row row = rows.get(number);
+            if (!row.isEmpty()) {
+                for (int index = 0; index < keyColumns.length; index++) {
+                    keys[ordinal * keyColumns.length + index] = row.getValue(keyColumns[index], null);
+                }
+                rowFps[ordinal] = Fingerprints.of(row);
+                numbers[ordinal] = number;
+                ordinal++;
+            }
+        }
+        return new TableSnapshot(header, keyNames, keys, rowFps, numbers, rows);
+    }
+
+    private static int[] getKeyColumns(Header header,
+                                       List<String> keyNames) {
+        final int[] result = new int[keyNames.size()];
+        for (int index = 0; index < keyNames.size(); index++) {
+            final int column = header.getMatchingIndex(keyNames.get(index));
+            if (column < 0) {
+                throw new IllegalArgumentException("Key '" + keyNames.get(index) + "' missing in " + header);
+            }
+            result[index] = column;
+        }
+        return result;
+    }
+
+    /**
+     * @return The header of the table.
+     */
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * @return The key names.
+     */
+    public List<String> getKeyNames() {
+        return keyNames;
+    }
+
+    /**
+     * @return The number of non empty rows of the table.
+     */
+    public int size() {
+        return numbers.length;
+    }
+
+    private boolean sameKey(int ordinal1,
+                            int ordinal2) {
+        final int size = keyNames.size();
+        for (int index = 0; index < size; index++) {
+            if (!Objects.equals(keys[ordinal1 * size + index], keys[ordinal2 * size + index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ordinal of the baseline row that has the key of a row.
+     *
+     * @param row The row.
+     * @param keyColumns The key columns of {@code row}.
+     * @return The ordinal of the baseline row whose key values are those of {@code row}, or -1.
+     */
+    private int find(Row row,
+                     int[] keyColumns) {
+        final long fp = Fingerprints.of(row, keyColumns);
+        for (int slot = index.getFirstSlot(fp); slot >= 0; slot = index.getNextSlot(fp, slot)) {
+            final int ordinal = index.getValue(slot);
+            if (hasKey(ordinal, row, keyColumns)) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasKey(int ordinal,
+                           Row row,
+                           int[] keyColumns) {
+        for (int index = 0; index < keyColumns.length; index++) {
+            if (!Objects.equals(keys[ordinal * keyColumns.length + index], row.getValue(keyColumns[index], null))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares new rows to this snapshot.
+     *
+     * @param header The header of new rows.
+     * @param rows The new rows.
+     * @param unchanged The new rows whose key and row fingerprint are those of a baseline row,
+     *            or {@code null}.
+     * @return The numbers of baseline rows that must be loaded.
+     */
+    private BitSet compare(Header header,
+                           List<Row> rows,
+                           List<Row> unchanged) {
+        final boolean sameHeader = header.getSortedNames().equals(this.header.getSortedNames());
+        final int[] keyColumns = getKeyColumns(header, keyNames);
+        final BitSet matched = new BitSet(size());
+        final BitSet result = new BitSet();
+        for (final Row row : rows) {
+            if (!row.isEmpty()) {
+                final int ordinal = find(row, keyColumns);
+                if (ordinal >= 0) {
+                    matched.set(ordinal);
+                    if (sameHeader && rowFps[ordinal] == Fingerprints.of(row)) {
+                        if (unchanged != null) {
+                            unchanged.add(row);
+                        }
+                    } else {
+                        result.set(numbers[ordinal]);
+                    }
+                }
+            }
+        }
+        // Baseline rows whose key is missing
+        for (int ordinal = matched.nextClearBit(0); ordinal < size(); ordinal = matched.nextClearBit(ordinal + 1)) {
+            result.set(numbers[ordinal]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the numbers of baseline rows that must be loaded to compare new rows to the baseline.
+     * <p>
+     * They are the rows whose key is missing in new rows, and the rows whose fingerprint changed.
+     * If {@code header} differs from the baseline header, all rows whose key is present in new rows must be loaded.
+     *
+     * @param header The header of new rows.
+     * @param rows The new rows.
+     * @return The numbers of baseline rows that must be loaded.
+     * @throws IllegalArgumentException When a key name is missing in {@code header}.
+     */
+    public BitSet getRowsToLoad(Header header,
+                                List<Row> rows) {
+        return compare(header, rows, null);
+    }
+
+    /**
+     * Returns a list of rows that can be compared to new rows instead of the complete baseline.
+     * <p>
+     * It contains the baseline rows designated by {@link #getRowsToLoad(Header, List)}, in baseline order,
+     * followed by the new rows that are unchanged.
+     *
+     * @param header The header of new rows.
+     * @param rows The new rows.
+     * @param loader A function that returns the baseline row that has a number.<br>
+     *            It is only called with numbers returned by {@link #getRowsToLoad(Header, List)}.
+     * @return A list of rows equivalent to the baseline when compared to {@code rows}.
+     * @throws IllegalArgumentException When a key name is missing in {@code header}.
+     */
+    public List<Row> getBaselineRows(Header header,
+                                     List<Row> rows,
+                                     IntFunction<Row> loader) {
+        final List<Row> unchanged = new ArrayList<>();
+        final BitSet toLoad = compare(header, rows, unchanged);
+        final List<Row> result = new ArrayList<>(toLoad.cardinality() + unchanged.size());
+        for (int number = toLoad.nextSetBit(0); number >= 0; number = toLoad.nextSetBit(number + 1)) {
+            result.add(Checks.isNotNull(loader.apply(number), "row " + number));
+        }
+        result.addAll(unchanged);
+        return result;
+    }
+
+    /**
+     * Saves this snapshot to an OutputStream.
+     * <p>
+     * The values of all non empty rows are saved with the snapshot.
+     *
+     * @param out The OutputStream. It is not closed.
+     * @throws IOException When an IO error occurs.
+     * @throws IllegalStateException When this snapshot was loaded, and therefore does not retain rows.
+     */
+    public void save(OutputStream out) throws IOException {
+        if (rows == null) {
+            throw new IllegalStateException("Can not save a loaded snapshot");
+        }
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        Rows.write(data, Row.builder(header.getSortedNames()).build());
+        Rows.write(data, Row.builder(keyNames).build());
+        data.writeInt(numbers.length);
+
+        // Index, preceded by its size so that it can be skipped
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream bufferData = new DataOutputStream(buffer);
+        final int size = keyNames.size();
+        for (int ordinal = 0; ordinal < numbers.length; ordinal++) {
+            bufferData.writeLong(rowFps[ordinal]);
+            bufferData.writeInt(numbers[ordinal]);
+            Rows.write(bufferData, Row.builder(Arrays.asList(keys).subList(ordinal * size, (ordinal + 1) * size)).build());
+        }
+        data.writeInt(buffer.size());
+        buffer.writeTo(data);
+
+        // Rows, each one preceded by its size so that it can be skipped
+        for (int ordinal = 0; ordinal < numbers.length; ordinal++) {
+            buffer.reset();
+            Rows.write(bufferData, rows.get(numbers[ordinal]));
+            data.writeInt(buffer.size());
+            buffer.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * Saves this snapshot to a file.
+     *
+     * @param file The file.
+     * @throws IOException When an IO error occurs.
+     * @throws IllegalStateException When this snapshot was loaded, and therefore does not retain rows.
+     */
+    public void save(File file) throws IOException {
+        try (final OutputStream out = new FileOutputStream(file)) {
+            save(out);
+        }
+    }
+
+    /**
+     * Reads the beginning of a saved snapshot, up to its number of rows.
+     *
+     * @param data The DataInputStream.
+     * @return The header row, the key names row.
+     * @throws IOException When an IO error occurs.
+     * @throws InvalidDataException When {@code data} does not contain a valid snapshot.
+     */
+    private static Row[] readPrologue(DataInputStream data) throws IOException {
+        if (data.readInt() != MAGIC) {
+            throw new InvalidDataException("Not a table snapshot");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new InvalidDataException("Unsupported table snapshot version " + version);
+        }
+        return new Row[] { Rows.read(data), Rows.read(data) };
+    }
+
+    private static void skip(DataInputStream data,
+                             int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = data.skipBytes(remaining);
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else {
+                // Throws an EOFException at end of stream
+                data.readByte();
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot from an InputStream.
+     * <p>
+     * Row values are not loaded.
+     *
+     * @param in The InputStream. It is not closed.
+     * @return The loaded snapshot.
+     * @throws IOException When an IO error occurs.
+     * @throws InvalidDataException When {@code in} does not contain a valid snapshot.
+     */
+    public static TableSnapshot load(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        final Row[] prologue = readPrologue(data);
+        final Header header = Header.builder().names(prologue[0]).build();
+        final List<String> keyNames = prologue[1].getValues();
+        final int size = keyNames.size();
+        final int count = data.readInt();
+        data.readInt(); // Size of index
+        final String[] keys = new String[count * size];
+        final long[] rowFps = new long[count];
+        final int[] numbers = new int[count];
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            rowFps[ordinal] = data.readLong();
+            numbers[ordinal] = data.readInt();
+            final Row key = Rows.read(data);
+            for (int index = 0; index < size; index++) {
+                keys[ordinal * size + index] = key.getValue(index, null);
+            }
+        }
+        return new TableSnapshot(header, keyNames, keys, rowFps, numbers, null);
+    }
+
+    /**
+     * Loads a snapshot from a file.
+     * <p>
+     * Row values are not loaded.
+     *
+     * @param file The file.
+     * @return The loaded snapshot.
+     * @throws IOException When an IO error occurs.
+     * @throws InvalidDataException When {@code file} does not contain a valid snapshot.
+     */
+    public static TableSnapshot load(File file) throws IOException {
+        try (final InputStream in = new FileInputStream(file)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Loads some baseline rows from the saved snapshot.
+     * <p>
+     * Other rows are skipped without being decoded.
+     *
+     * @param in The InputStream that contains the saved snapshot. It is not closed.
+     * @param numbers The numbers of rows to load, typically returned by {@link #getRowsToLoad(Header, List)}.
+     * @return A map from numbers to loaded rows.
+     * @throws IOException When an IO error occurs.
+     * @throws InvalidDataException When {@code in} does not contain a valid snapshot,
+     *             or contains another snapshot than this one.
+     */
+    public Map<Integer, Row> loadRows(InputStream in,
+                                      BitSet numbers) throws IOException {
+        Checks.isNotNull(numbers, "numbers");
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        final Row[] prologue = readPrologue(data);
+        if (!prologue[0].getValues().equals(header.getSortedNames())
+                || !prologue[1].getValues().equals(keyNames)
+                || data.readInt() != size()) {
+            throw new InvalidDataException("Rows do not belong to this table snapshot");
+        }
+        skip(data, data.readInt());
+        final Map<Integer, Row> result = new HashMap<>();
+        final int last = numbers.length() - 1;
+        for (int ordinal = 0; ordinal < this.numbers.length && this.numbers[ordinal] <= last; ordinal++) {
+            final int length = data.readInt();
+            if (numbers.get(this.numbers[ordinal])) {
+                result.put(this.numbers[ordinal], Rows.read(data));
+            } else {
+                skip(data, length);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads some baseline rows from the file of the saved snapshot.
+     *
+     * @param file The file that contains the saved snapshot.
+     * @param numbers The numbers of rows to load, typically returned by {@link #getRowsToLoad(Header, List)}.
+     * @return A map from numbers to loaded rows.
+     * @throws IOException When an IO error occurs.
+     * @throws InvalidDataException When {@code file} does not contain a valid snapshot,
+     *             or contains another snapshot than this one.
+     */
+    public Map<Integer, Row> loadRows(File file,
+                                      BitSet numbers) throws IOException {
+        try (final InputStream in = new FileInputStream(file)) {
+            return loadRows(in, numbers);
+        }
+    }
+}
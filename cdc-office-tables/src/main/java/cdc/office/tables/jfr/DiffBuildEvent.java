@@ -0,0 +1,38 @@
+package cdc.office.tables.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when a table diff has been built.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.DiffBuild")
+@Label("Diff Build")
+@Category({ "CDC", "Office", "Diff" })
+@Description("Computation of differences between 2 tables")
+public class DiffBuildEvent extends jdk.jfr.Event {
+    @Label("Mode")
+    public String mode;
+
+    @Label("Left Rows")
+    public long leftRows;
+
+    @Label("Right Rows")
+    public long rightRows;
+
+    @Label("Keys")
+    public long keys;
+
+    @Label("Added Rows")
+    public long addedRows;
+
+    @Label("Removed Rows")
+    public long removedRows;
+
+    @Label("Changed Rows")
+    public long changedRows;
+}
@@ -0,0 +1,29 @@
+package cdc.office.tables.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when a table diff has been exported.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.DiffExport")
+@Label("Diff Export")
+@Category({ "CDC", "Office", "Diff" })
+@Description("Export of differences between 2 tables")
+public class DiffExportEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Columns")
+    public long columns;
+}
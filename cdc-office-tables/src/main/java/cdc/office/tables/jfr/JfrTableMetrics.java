@@ -0,0 +1,134 @@
+package cdc.office.tables.jfr;
+
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TableSection;
+import cdc.office.tables.TablesHandler;
+import cdc.office.tables.metrics.MeteredTableHandler;
+import cdc.office.tables.metrics.TableMetrics;
+import jdk.jfr.EventType;
+
+/**
+ * Implementation of {@link TableMetrics} that emits {@link TableParseEvent TableParseEvents}
+ * and {@link RowBatchEvent RowBatchEvents}.
+ * <p>
+ * Parsers should use {@link #wrap(TableHandler, String)} or {@link #wrap(TablesHandler, String)}.
+ * When those events are disabled (which is the case when no recording is active), handlers are returned unchanged
+ * and there is no overhead.
+ *
+ * @author Damien Carbonne
+ */
+public final class JfrTableMetrics implements TableMetrics {
+    /**
+     * Number of rows of a batch.
+     */
+    public static final int BATCH_SIZE = 4096;
+
+    private static final EventType TABLE_PARSE_TYPE = EventType.getEventType(TableParseEvent.class);
+    private static final EventType ROW_BATCH_TYPE = EventType.getEventType(RowBatchEvent.class);
+
+    private final String parser;
+    private String table;
+    private TableParseEvent tableEvent = null;
+    private RowBatchEvent batchEvent = null;
+    private long rows;
+
+    private JfrTableMetrics(String parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @return {@code true} if table events are enabled.
+     */
+    public static boolean isEnabled() {
+        return TABLE_PARSE_TYPE.isEnabled() || ROW_BATCH_TYPE.isEnabled();
+    }
+
+    /**
+     * Returns a handler that emits table events, or the handler itself if they are disabled.
+     *
+     * @param handler The handler.
+     * @param parser The parser name.
+     * @return A handler that emits events and passes events to {@code handler}, or {@code handler}.
+     */
+    public static TableHandler wrap(TableHandler handler,
+                                    String parser) {
+        return isEnabled() ? new MeteredTableHandler(handler, new JfrTableMetrics(parser)) : handler;
+    }
+
+    /**
+     * Returns a handler that emits table events, or the handler itself if they are disabled.
+     *
+     * @param handler The handler.
+     * @param parser The parser name.
+     * @return A handler that emits events and passes events to {@code handler}, or {@code handler}.
+     */
+    public static TablesHandler wrap(TablesHandler handler,
+                                     String parser) {
+        return isEnabled() ? new MeteredTableHandler(handler, new JfrTableMetrics(parser)) : handler;
+    }
+
+    @Override
+    public void beginTable(String name) {
+        table = name;
+        rows = 0L;
+        tableEvent = new TableParseEvent();
+        tableEvent.begin();
+        batchEvent = null;
+    }
+
+    @Override
+    public void recordRow(TableSection section,
+                          int cells,
+                          long parserNanos,
+                          long delegateNanos) {
+        rows++;
+        if (tableEvent != null) {
+            if (section == TableSection.HEADER) {
+                tableEvent.headerRows++;
+            } else {
+                tableEvent.dataRows++;
+            }
+            tableEvent.cells += cells;
+            tableEvent.parserTime += parserNanos;
+            tableEvent.handlerTime += delegateNanos;
+        }
+        if (batchEvent == null) {
+            batchEvent = new RowBatchEvent();
+            batchEvent.begin();
+            batchEvent.firstRow = rows;
+        }
+        batchEvent.rows++;
+        batchEvent.cells += cells;
+        batchEvent.parserTime += parserNanos;
+        batchEvent.handlerTime += delegateNanos;
+        if (batchEvent.rows == BATCH_SIZE) {
+            commitBatch();
+        }
+    }
+
+    private void commitBatch() {
+        if (batchEvent != null) {
+            batchEvent.end();
+            if (batchEvent.shouldCommit()) {
+                batchEvent.parser = parser;
+                batchEvent.table = table;
+                batchEvent.commit();
+            }
+            batchEvent = null;
+        }
+    }
+
+    @Override
+    public void endTable(String name) {
+        commitBatch();
+        if (tableEvent != null) {
+            tableEvent.end();
+            if (tableEvent.shouldCommit()) {
+                tableEvent.parser = parser;
+                tableEvent.table = name;
+                tableEvent.commit();
+            }
+            tableEvent = null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cdc.office.tables.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted for each batch of consecutive rows of a table.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.RowBatch")
+@Label("Row Batch")
+@Category({ "CDC", "Office", "Tables" })
+@Description("Parsing and handling of a batch of consecutive rows")
+public class RowBatchEvent extends jdk.jfr.Event {
+    @Label("Parser")
+    public String parser;
+
+    @Label("Table")
+    public String table;
+
+    @Label("First Row")
+    @Description("Global number of the first row of the batch")
+    public long firstRow;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Cells")
+    public long cells;
+
+    @Label("Parser Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long parserTime;
+
+    @Label("Handler Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long handlerTime;
+}
@@ -0,0 +1,41 @@
+package cdc.office.tables.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted when a table (sheet) has been parsed.
+ *
+ * @author Damien Carbonne
+ */
+@Name("cdc.office.TableParse")
+@Label("Table Parse")
+@Category({ "CDC", "Office", "Tables" })
+@Description("Parsing of a table or sheet")
+public class TableParseEvent extends jdk.jfr.Event {
+    @Label("Parser")
+    public String parser;
+
+    @Label("Table")
+    public String table;
+
+    @Label("Header Rows")
+    public long headerRows;
+
+    @Label("Data Rows")
+    public long dataRows;
+
+    @Label("Cells")
+    public long cells;
+
+    @Label("Parser Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long parserTime;
+
+    @Label("Handler Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long handlerTime;
+}
@@ -0,0 +1,196 @@
+package cdc.office.tables.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import cdc.office.tables.TableSection;
+
+/**
+ * Basic implementation of {@link TableMetrics} that accumulates counts, times and latency histograms.
+ * <p>
+ * Metrics of successive tables are accumulated. Elapsed time is the time during which at least one table is parsed,
+ * so that tables that are parsed concurrently are not counted twice.<br>
+ * This class is not thread-safe: use {@link TableMetrics#synchronizedMetrics(TableMetrics)} when tables are parsed
+ * concurrently.
+ *
+ * @author Damien Carbonne
+ */
+public class BasicTableMetrics implements TableMetrics {
+    private long tablesCount = 0L;
+    private long headerRowsCount = 0L;
+    private long dataRowsCount = 0L;
+    private long cellsCount = 0L;
+    private long bytesCount = 0L;
+    private long elapsedNanos = 0L;
+    private long beginNanos = -1L;
+    /** Number of tables whose parsing has begun and not ended. */
+    private int activeTables = 0;
+    private final LatencyHistogram parserLatencies = new LatencyHistogram();
+    private final LatencyHistogram delegateLatencies = new LatencyHistogram();
+
+    public BasicTableMetrics() {
+        super();
+    }
+
+    @Override
+    public void beginTable(String name) {
+        if (activeTables == 0) {
+            beginNanos = System.nanoTime();
+        }
+        activeTables++;
+    }
+
+    @Override
+    public void recordRow(TableSection section,
+                          int cells,
+                          long parserNanos,
+                          long delegateNanos) {
+        if (section == TableSection.HEADER) {
+            headerRowsCount++;
+        } else {
+            dataRowsCount++;
+        }
+        cellsCount += cells;
+        parserLatencies.record(parserNanos);
+        delegateLatencies.record(delegateNanos);
+    }
+
+    @Override
+    public void recordBytes(long bytes) {
+        bytesCount += bytes;
+    }
+
+    @Override
+    public void endTable(String name) {
+        if (activeTables > 0) {
+            activeTables--;
+        }
+        if (activeTables == 0 && beginNanos >= 0L) {
+            elapsedNanos += System.nanoTime() - beginNanos;
+            beginNanos = -1L;
+        }
+        tablesCount++;
+    }
+
+    /**
+     * Resets all metrics.
+     */
+    public void clear() {
+        tablesCount = 0L;
+        headerRowsCount = 0L;
+        dataRowsCount = 0L;
+        cellsCount = 0L;
+        bytesCount = 0L;
+        elapsedNanos = 0L;
+        beginNanos = -1L;
+        activeTables = 0;
+        parserLatencies.clear();
+        delegateLatencies.clear();
+    }
+
+    public long getTablesCount() {
+        return tablesCount;
+    }
+
+    public long getHeaderRowsCount() {
+        return headerRowsCount;
+    }
+
+    public long getDataRowsCount() {
+        return dataRowsCount;
+    }
+
+    public long getRowsCount() {
+        return headerRowsCount + dataRowsCount;
+    }
+
+    public long getCellsCount() {
+        return cellsCount;
+    }
+
+    public long getBytesCount() {
+        return bytesCount;
+    }
+
+    /**
+     * @return The time (in nanoseconds) elapsed between beginning and end of tables.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The time (in nanoseconds) spent by parsers to produce rows.
+     */
+    public long getParserNanos() {
+        return parserLatencies.getTotal();
+    }
+
+    /**
+     * @return The time (in nanoseconds) spent by handlers to process rows.
+     */
+    public long getDelegateNanos() {
+        return delegateLatencies.getTotal();
+    }
+
+    /**
+     * @return The histogram of times spent by parsers to produce rows.
+     */
+    public LatencyHistogram getParserLatencies() {
+        return parserLatencies;
+    }
+
+    /**
+     * @return The histogram of times spent by handlers to process rows.
+     */
+    public LatencyHistogram getDelegateLatencies() {
+        return delegateLatencies;
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0L ? 0.0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return perSecond(getRowsCount());
+    }
+
+    public double getCellsPerSecond() {
+        return perSecond(cellsCount);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytesCount);
+    }
+
+    private static void print(PrintStream out,
+                              String title,
+                              LatencyHistogram histogram) {
+        out.println(title + " latencies (ns)");
+        out.printf("   %-10s %d%n", "total:", histogram.getTotal());
+        out.printf("   %-10s %.1f%n", "mean:", histogram.getMean());
+        out.printf("   %-10s %d%n", "min:", histogram.getMin());
+        out.printf("   %-10s %d%n", "p50:", histogram.getValueAtPercentile(50.0));
+        out.printf("   %-10s %d%n", "p90:", histogram.getValueAtPercentile(90.0));
+        out.printf("   %-10s %d%n", "p99:", histogram.getValueAtPercentile(99.0));
+        out.printf("   %-10s %d%n", "p99.9:", histogram.getValueAtPercentile(99.9));
+        out.printf("   %-10s %d%n", "max:", histogram.getMax());
+    }
+
+    public void print(PrintStream out) {
+        final String format = "   %-10s %d%n";
+        final String rateFormat = "   %-10s %.1f%n";
+        out.println("Counts");
+        out.printf(format, "tables:", getTablesCount());
+        out.printf(format, "headers:", getHeaderRowsCount());
+        out.printf(format, "rows:", getDataRowsCount());
+        out.printf(format, "cells:", getCellsCount());
+        out.printf(format, "bytes:", getBytesCount());
+        out.println("Rates (/s)");
+        out.printf(rateFormat, "rows:", getRowsPerSecond());
+        out.printf(rateFormat, "cells:", getCellsPerSecond());
+        out.printf(rateFormat, "bytes:", getBytesPerSecond());
+        print(out, "Parser", parserLatencies);
+        print(out, "Handler", delegateLatencies);
+    }
+}
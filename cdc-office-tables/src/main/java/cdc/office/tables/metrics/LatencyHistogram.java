@@ -0,0 +1,144 @@
+package cdc.office.tables.metrics;
+
+import java.util.Arrays;
+
+import cdc.util.lang.Checks;
+
+/**
+ * Histogram of non-negative long values (typically latencies in nanoseconds) with log-linear buckets.
+ * <p>
+ * Each power of 2 is split into 8 linear sub-buckets, which gives a relative precision of 12.5%.<br>
+ * Recording a value does not allocate memory. This class is not thread-safe.
+ *
+ * @author Damien Carbonne
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0L;
+    private long total = 0L;
+    private long min = Long.MAX_VALUE;
+    private long max = 0L;
+
+    public LatencyHistogram() {
+        super();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        final int exp = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long lowerBoundOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int exp = index / SUB_COUNT + SUB_BITS - 1;
+        final int sub = index % SUB_COUNT;
+        return (long) (SUB_COUNT + sub) << (exp - SUB_BITS);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value. A negative value is recorded as 0.
+     */
+    public void record(long value) {
+        final long v = Math.max(0L, value);
+        counts[indexOf(v)]++;
+        count++;
+        total += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Adds all values recorded by another histogram to this one.
+     *
+     * @param other The other histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int index = 0; index < BUCKETS; index++) {
+            counts[index] += other.counts[index];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0L);
+        count = 0L;
+        total = 0L;
+        min = Long.MAX_VALUE;
+        max = 0L;
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sum of recorded values.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The min recorded value, or 0.
+     */
+    public long getMin() {
+        return count == 0L ? 0L : min;
+    }
+
+    /**
+     * @return The max recorded value, or 0.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return The mean of recorded values, or 0.
+     */
+    public double getMean() {
+        return count == 0L ? 0.0 : (double) total / count;
+    }
+
+    /**
+     * Returns an approximation of the value at a percentile.
+     *
+     * @param percentile The percentile, in range [0, 100].
+     * @return An approximation (lower bound of the matching bucket) of the value at {@code percentile}, or 0.
+     */
+    public long getValueAtPercentile(double percentile) {
+        Checks.isTrue(percentile >= 0.0 && percentile <= 100.0, "Invalid percentile");
+        if (count == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long cumulated = 0L;
+        for (int index = 0; index < BUCKETS; index++) {
+            cumulated += counts[index];
+            if (cumulated >= rank) {
+                return Math.max(getMin(), Math.min(lowerBoundOf(index), max));
+            }
+        }
+        return max;
+    }
+}
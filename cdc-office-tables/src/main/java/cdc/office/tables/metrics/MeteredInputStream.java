@@ -0,0 +1,92 @@
+package cdc.office.tables.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cdc.util.lang.Checks;
+
+/**
+ * InputStream that records the number of consumed bytes into a {@link TableMetrics}.
+ *
+ * @author Damien Carbonne
+ */
+public class MeteredInputStream extends FilterInputStream {
+    private final TableMetrics metrics;
+    private long mark = -1L;
+    private long count = 0L;
+
+    public MeteredInputStream(InputStream in,
+                              TableMetrics metrics) {
+        super(in);
+        this.metrics = Checks.isNotNull(metrics, "metrics");
+    }
+
+    /**
+     * Returns a stream that records consumed bytes, or the stream itself.
+     *
+     * @param in The input stream.
+     * @param metrics The metrics, possibly {@code null}.
+     * @return {@code in} if {@code metrics} is {@code null},
+     *         or a {@link MeteredInputStream} wrapping {@code in}.
+     */
+    public static InputStream wrap(InputStream in,
+                                   TableMetrics metrics) {
+        return metrics == null ? in : new MeteredInputStream(in, metrics);
+    }
+
+    /**
+     * @return The number of consumed bytes.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void consumed(long bytes) {
+        if (bytes > 0L) {
+            count += bytes;
+            metrics.recordBytes(bytes);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) {
+            consumed(1L);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b,
+                    int off,
+                    int len) throws IOException {
+        final int n = super.read(b, off, len);
+        consumed(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long skipped = super.skip(n);
+        consumed(skipped);
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        super.mark(readlimit);
+        mark = count;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        super.reset();
+        if (mark >= 0L) {
+            // Bytes that will be read again must not be counted twice
+            metrics.recordBytes(mark - count);
+            count = mark;
+        }
+    }
+}
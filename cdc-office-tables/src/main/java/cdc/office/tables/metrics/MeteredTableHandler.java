@@ -0,0 +1,107 @@
+package cdc.office.tables.metrics;
+
+import cdc.office.tables.AbstractTableFilter;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TablesHandler;
+import cdc.util.function.Evaluation;
+import cdc.util.lang.Checks;
+
+/**
+ * Implementation of {@link TableHandler} that records metrics and passes events to a delegate.
+ * <p>
+ * For each row, it measures the time spent in the delegate, and the time spent by the parser
+ * since the previous callback returned.<br>
+ * Table set events are passed to the delegate if it is a {@link TablesHandler}.
+ *
+ * @author Damien Carbonne
+ */
+public class MeteredTableHandler extends AbstractTableFilter implements TablesHandler {
+    private final TableMetrics metrics;
+    private long last;
+
+    public MeteredTableHandler(TableHandler delegate,
+                               TableMetrics metrics) {
+        super(delegate);
+        this.metrics = Checks.isNotNull(metrics, "metrics");
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * Returns a handler that records metrics, or the handler itself.
+     *
+     * @param handler The handler.
+     * @param metrics The metrics, possibly {@code null}.
+     * @return {@code handler} if {@code metrics} is {@code null},
+     *         or a {@link MeteredTableHandler} wrapping {@code handler}.
+     */
+    public static TableHandler wrap(TableHandler handler,
+                                    TableMetrics metrics) {
+        return metrics == null ? handler : new MeteredTableHandler(handler, metrics);
+    }
+
+    /**
+     * Returns a handler that records metrics, or the handler itself.
+     *
+     * @param handler The handler.
+     * @param metrics The metrics, possibly {@code null}.
+     * @return {@code handler} if {@code metrics} is {@code null},
+     *         or a {@link MeteredTableHandler} wrapping {@code handler}.
+     */
+    public static TablesHandler wrap(TablesHandler handler,
+                                     TableMetrics metrics) {
+        return metrics == null ? handler : new MeteredTableHandler(handler, metrics);
+    }
+
+    public final TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void processBeginTables(String systemId) {
+        TablesHandler.processBeginTables(delegate, systemId);
+    }
+
+    @Override
+    public void processBeginTable(String name,
+                                  int numberOfRows) {
+        metrics.beginTable(name);
+        super.processBeginTable(name, numberOfRows);
+        last = System.nanoTime();
+    }
+
+    @Override
+    public Evaluation processHeader(Row header,
+                                    RowLocation location) {
+        final long start = System.nanoTime();
+        final long parser = start - last;
+        final Evaluation evaluation = delegate.processHeader(header, location);
+        last = System.nanoTime();
+        metrics.recordRow(location.getSection(), header.size(), parser, last - start);
+        return evaluation;
+    }
+
+    @Override
+    public Evaluation processData(Row data,
+                                  RowLocation location) {
+        final long start = System.nanoTime();
+        final long parser = start - last;
+        final Evaluation evaluation = delegate.processData(data, location);
+        last = System.nanoTime();
+        metrics.recordRow(location.getSection(), data.size(), parser, last - start);
+        return evaluation;
+    }
+
+    @Override
+    public void processEndTable(String name) {
+        super.processEndTable(name);
+        metrics.endTable(name);
+        last = System.nanoTime();
+    }
+
+    @Override
+    public void processEndTables(String systemId) {
+        TablesHandler.processEndTables(delegate, systemId);
+    }
+}
@@ -0,0 +1,109 @@
+package cdc.office.tables.metrics;
+
+import cdc.office.tables.TableSection;
+import cdc.util.lang.Checks;
+
+/**
+ * Interface used to collect metrics during table parsing.
+ * <p>
+ * Metrics are generally recorded by a {@link MeteredTableHandler} and a {@link MeteredInputStream}.<br>
+ * Default implementations of all methods do nothing.
+ *
+ * @author Damien Carbonne
+ */
+public interface TableMetrics {
+    /**
+     * Metrics that ignores everything.
+     */
+    public static final TableMetrics NONE = new TableMetrics() {
+        // Ignore
+    };
+
+    /**
+     * Returns a thread-safe metrics that passes calls to another metrics, synchronizing on it.
+     * <p>
+     * It can be used when tables are parsed concurrently.
+     *
+     * @param metrics The metrics.
+     * @return A thread-safe metrics backed by {@code metrics}.
+     */
+    public static TableMetrics synchronizedMetrics(TableMetrics metrics) {
+        Checks.isNotNull(metrics, "metrics");
+        return new TableMetrics() {
+            @Override
+            public void beginTable(String name) {
+                synchronized (metrics) {
+                    metrics.beginTable(name);
+                }
+            }
+
+            @Override
+            public void recordRow(TableSection section,
+                                  int cells,
+                                  long parserNanos,
+                                  long delegateNanos) {
+                synchronized (metrics) {
+                    metrics.recordRow(section, cells, parserNanos, delegateNanos);
+                }
+            }
+
+            @Override
+            public void recordBytes(long bytes) {
+                synchronized (metrics) {
+                    metrics.recordBytes(bytes);
+                }
+            }
+
+            @Override
+            public void endTable(String name) {
+                synchronized (metrics) {
+                    metrics.endTable(name);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called when parsing of a table starts.
+     *
+     * @param name The table name, possibly {@code null}.
+     */
+    public default void beginTable(String name) {
+        // Ignore
+    }
+
+    /**
+     * Called each time a row has been handled.
+     *
+     * @param section The row section.
+     * @param cells The number of cells of the row.
+     * @param parserNanos The time (in nanoseconds) spent by the parser to produce the row.<br>
+     *            This is the time elapsed since the previous callback returned.
+     * @param delegateNanos The time (in nanoseconds) spent by the handler to process the row.
+     */
+    public default void recordRow(TableSection section,
+                                  int cells,
+                                  long parserNanos,
+                                  long delegateNanos) {
+        // Ignore
+    }
+
+    /**
+     * Called when bytes have been consumed.
+     *
+     * @param bytes The number of consumed bytes.<br>
+     *            It is negative when a stream is reset to a previous mark.
+     */
+    public default void recordBytes(long bytes) {
+        // Ignore
+    }
+
+    /**
+     * Called when parsing of a table ends.
+     *
+     * @param name The table name, possibly {@code null}.
+     */
+    public default void endTable(String name) {
+        // Ignore
+    }
+}
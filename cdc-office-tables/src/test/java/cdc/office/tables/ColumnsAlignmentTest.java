@@ -0,0 +1,61 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.diff.ColumnsAlignment;
+import cdc.office.tables.diff.RowDiff;
+import cdc.office.tables.diff.RowDiffKind;
+
+class ColumnsAlignmentTest {
+    @Test
+    void test() {
+        final Header left = Header.builder().names("A", "B", "C").build();
+        final Header right = Header.builder().names("C", "D", "A").build();
+        final ColumnsAlignment alignment = new ColumnsAlignment(left, right);
+
+        assertEquals(4, alignment.size());
+        assertEquals("C", alignment.getName(0));
+        assertEquals("D", alignment.getName(1));
+        assertEquals("A", alignment.getName(2));
+        assertEquals("B", alignment.getName(3));
+
+        assertEquals(2, alignment.getLeftColumn(0));
+        assertEquals(-1, alignment.getLeftColumn(1));
+        assertEquals(0, alignment.getLeftColumn(2));
+        assertEquals(1, alignment.getLeftColumn(3));
+
+        assertEquals(0, alignment.getRightColumn(0));
+        assertEquals(1, alignment.getRightColumn(1));
+        assertEquals(2, alignment.getRightColumn(2));
+        assertEquals(-1, alignment.getRightColumn(3));
+
+        final Row row = Row.builder("a", "b", "c").build();
+        assertEquals("c", alignment.getLeftValue(row, 0));
+        assertNull(alignment.getLeftValue(row, 1));
+        assertEquals("b", alignment.getLeftValue(row, 3));
+        assertNull(alignment.getRightValue(row, 3));
+        assertFalse(alignment.isIdentity());
+    }
+
+    @Test
+    void testIdentity() {
+        final Header header = Header.builder().names("A", "B").build();
+        assertTrue(new ColumnsAlignment(header, Header.builder().names("A", "B").build()).isIdentity());
+        assertFalse(new ColumnsAlignment(header, Header.builder().names("B", "A").build()).isIdentity());
+        assertFalse(new ColumnsAlignment(header, Header.builder().names("A", "B", "C").build()).isIdentity());
+        assertFalse(new ColumnsAlignment(Header.builder().names("A", "B", "C").build(), header).isIdentity());
+
+        final ColumnsAlignment alignment = new ColumnsAlignment(header, header);
+        final Row row = Row.builder("a", "b").build();
+        assertSame(RowDiffKind.SAME, new RowDiff(alignment, row, Row.builder("a", "b", null).build()).getKind());
+        assertSame(RowDiffKind.SAME, new RowDiff(alignment, row, Row.builder("a", "b").build()).getKind());
+        assertSame(RowDiffKind.CHANGED, new RowDiff(alignment, row, Row.builder("a", "c").build()).getKind());
+        assertSame(RowDiffKind.ADDED, new RowDiff(alignment, Row.EMPTY, row).getKind());
+    }
+}
@@ -0,0 +1,55 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FingerprintIndexTest {
+    private static List<Integer> values(FingerprintIndex index,
+                                        long fingerprint) {
+        final List<Integer> list = new ArrayList<>();
+        for (int slot = index.getFirstSlot(fingerprint); slot >= 0; slot = index.getNextSlot(fingerprint, slot)) {
+            list.add(index.getValue(slot));
+        }
+        return list;
+    }
+
+    @Test
+    void testIndex() {
+        final FingerprintIndex index = new FingerprintIndex();
+        assertTrue(index.isEmpty());
+        for (int value = 0; value < 10000; value++) {
+            index.add(value % 100, value);
+        }
+        assertEquals(10000, index.size());
+        for (int fp = 0; fp < 100; fp++) {
+            final List<Integer> values = values(index, fp);
+            assertEquals(100, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(fp + 100 * i, values.get(i));
+            }
+        }
+        assertFalse(index.contains(100L));
+        index.clear();
+        assertTrue(index.isEmpty());
+        assertFalse(index.contains(0L));
+    }
+
+    @Test
+    void testFingerprints() {
+        final Row r1 = Row.builder("ab", "").build();
+        final Row r2 = Row.builder("a", "b").build();
+        final Row r3 = Row.builder("ab", null).build();
+        final Row r4 = Row.builder("ab").build();
+        assertNotEquals(Fingerprints.of(r1, 0, 1), Fingerprints.of(r2, 0, 1));
+        assertNotEquals(Fingerprints.of(r1, 0, 1), Fingerprints.of(r3, 0, 1));
+        assertEquals(Fingerprints.of(r3, 0, 1), Fingerprints.of(r4, 0, 1));
+        assertEquals(Fingerprints.of(r1, 0), Fingerprints.of(r3, 0));
+    }
+}
@@ -0,0 +1,112 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.diff.KeyedTableDiff;
+import cdc.office.tables.diff.KeyedTableDiff.Synthesis;
+import cdc.office.tables.diff.RowDiffKind;
+import cdc.office.tables.diff.Side;
+import cdc.tuples.CTupleN;
+import cdc.util.lang.InvalidDataException;
+
+class KeyedTableDiffTest {
+    private static final Header HEADER = Header.builder().names("K", "V1", "V2").build();
+
+    private static List<Row> rows(Random random,
+                                  int count) {
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            if (random.nextInt(10) == 0) {
+                rows.add(Row.EMPTY);
+            } else if (random.nextInt(4) != 0) {
+                rows.add(Row.builder("K" + index, "A" + random.nextInt(2), "B" + random.nextInt(2)).build());
+            }
+        }
+        return rows;
+    }
+
+    private static KeyedTableDiff diff(List<Row> left,
+                                       List<Row> right,
+                                       int parallelism) {
+        return KeyedTableDiff.builder()
+                             .header(HEADER)
+                             .keyNames("K")
+                             .leftRows(left)
+                             .rightRows(right)
+                             .parallelism(parallelism)
+                             .build();
+    }
+
+    @Test
+    void testParallel() {
+        final Random random = new Random(0L);
+        final List<Row> left = rows(random, 20000);
+        final List<Row> right = rows(random, 20000);
+
+        final KeyedTableDiff expected = diff(left, right, 1);
+        final KeyedTableDiff actual = diff(left, right, 4);
+
+        assertEquals(expected.getKeys(), actual.getKeys());
+        for (final CTupleN<String> key : expected.getKeys()) {
+            assertEquals(expected.getDiff(key).toString(), actual.getDiff(key).toString());
+        }
+        assertEquals(expected.getNumberOfIgnoredRows(Side.LEFT), actual.getNumberOfIgnoredRows(Side.LEFT));
+        assertEquals(expected.getNumberOfIgnoredRows(Side.RIGHT), actual.getNumberOfIgnoredRows(Side.RIGHT));
+        assertEquals(expected.getSynthesis().getColumnNames(), actual.getSynthesis().getColumnNames());
+        for (final Synthesis.Action action : Synthesis.Action.values()) {
+            assertEquals(expected.getSynthesis().getLinesCount(action), actual.getSynthesis().getLinesCount(action));
+            assertEquals(expected.getSynthesis().getCellsCount(action), actual.getSynthesis().getCellsCount(action));
+            for (final String name : expected.getSynthesis().getColumnNames()) {
+                assertEquals(expected.getSynthesis().getColumnCellsCount(name, action),
+                             actual.getSynthesis().getColumnCellsCount(name, action));
+            }
+        }
+    }
+
+    @Test
+    void testGetDiff() {
+        final Header header = Header.builder().names("K1", "K2", "V").build();
+        final KeyedTableDiff diff = KeyedTableDiff.builder()
+                                                  .header(header)
+                                                  .keyNames("K1", "K2")
+                                                  .leftRows(Row.builder("A", "1", "X").build(),
+                                                            Row.builder("A", null, "X").build(),
+                                                            Row.builder("B", "1", "X").build())
+                                                  .rightRows(Row.builder("A", "1", "Y").build(),
+                                                             Row.builder("A", "", "X").build())
+                                                  .build();
+        assertEquals(4, diff.getKeys().size());
+        assertEquals(4, diff.getDiffs().size());
+        assertEquals(RowDiffKind.CHANGED, diff.getDiff(new CTupleN<>("A", "1")).getKind());
+        assertEquals(RowDiffKind.ADDED, diff.getDiff(new CTupleN<>("A", "")).getKind());
+        assertEquals(RowDiffKind.REMOVED, diff.getDiff(new CTupleN<>("A", null)).getKind());
+        assertEquals(RowDiffKind.REMOVED, diff.getDiff(new CTupleN<>("B", "1")).getKind());
+        assertNull(diff.getDiff(new CTupleN<>("B", "2")));
+    }
+
+    @Test
+    void testParallelDuplicates() {
+        final List<Row> left = new ArrayList<>();
+        for (int index = 0; index < 100; index++) {
+            left.add(Row.builder("K" + index, "A").build());
+        }
+        left.add(Row.builder("K50", "B").build());
+        left.add(Row.builder("K10", "B").build());
+        final List<Row> right = new ArrayList<>();
+
+        final InvalidDataException expected = assertThrows(InvalidDataException.class, () -> diff(left, right, 1));
+        final InvalidDataException actual = assertThrows(InvalidDataException.class, () -> diff(left, right, 3));
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getMessage(),
+                     assertThrows(InvalidDataException.class, () -> diff(right, left, 3)).getMessage()
+                                                                                          .replace("RIGHT", "LEFT"));
+    }
+}
@@ -346,4 +346,20 @@ class RowDiffTest {
         check(h(A), r(FOO, FOO), h(A), r(FOO), RSAME, CSAME);
         check(h(A), r(FOO), h(A), r(FOO, FOO), RSAME, CSAME);
     }
-}
\ No newline at end of file
+
+    /**
+     * Row that is not a default row.
+     */
+    private static Row other(String... values) {
+        final Row row = r(values);
+        return () -> row.getValues();
+    }
+
+    @Test
+    void testOtherRows() {
+        check(other(FOO, BAR), r(FOO, BAR), RSAME, CSAME, CSAME);
+        check(other(FOO, BAR), other(BAR, FOO), RCHANGED, CCHANGED, CCHANGED);
+        check(other(FOO), r(FOO, BAR), RCHANGED, CSAME, CADDED);
+        check(h(A, B), other(FOO, BAR), h(A, B), r(FOO, FOO), RCHANGED, CSAME, CCHANGED);
+    }
+}
@@ -0,0 +1,186 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.diff.KeyedTableDiff.Synthesis;
+import cdc.office.tables.diff.RowDiff;
+import cdc.office.tables.diff.RowDiffKind;
+import cdc.office.tables.diff.SequenceTableDiff;
+import cdc.office.tables.diff.Side;
+
+class SequenceTableDiffTest {
+    private static final Header HEADER = Header.builder().names("V1", "V2").build();
+
+    private static List<Row> rows(String... values) {
+        final List<Row> rows = new ArrayList<>();
+        for (final String value : values) {
+            rows.add(value.isEmpty() ? Row.EMPTY : Row.builder(value, "X").build());
+        }
+        return rows;
+    }
+
+    private static SequenceTableDiff diff(List<Row> left,
+                                          List<Row> right) {
+        return SequenceTableDiff.builder()
+                                .header(HEADER)
+                                .leftRows(left)
+                                .rightRows(right)
+                                .build();
+    }
+
+    private static String kinds(SequenceTableDiff diff) {
+        final StringBuilder builder = new StringBuilder();
+        for (final RowDiff rdiff : diff.getDiffs()) {
+            builder.append(rdiff.getKind().name().charAt(0));
+        }
+        return builder.toString();
+    }
+
+    private static int lcs(List<Row> left,
+                           List<Row> right) {
+        final int[][] lengths = new int[left.size() + 1][right.size() + 1];
+        for (int i = left.size() - 1; i >= 0; i--) {
+            for (int j = right.size() - 1; j >= 0; j--) {
+                lengths[i][j] = left.get(i).equals(right.get(j))
+                        ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[0][0];
+    }
+
+    private static List<Row> random(Random random,
+                                    int count) {
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            rows.add(Row.builder("V" + random.nextInt(5), "X").build());
+        }
+        return rows;
+    }
+
+    @Test
+    void testBasic() {
+        assertEquals("SSS", kinds(diff(rows("A", "B", "C"), rows("A", "B", "C"))));
+        assertEquals("SAS", kinds(diff(rows("A", "C"), rows("A", "B", "C"))));
+        assertEquals("SRS", kinds(diff(rows("A", "B", "C"), rows("A", "C"))));
+        assertEquals("SCS", kinds(diff(rows("A", "B", "C"), rows("A", "D", "C"))));
+        assertEquals("SCCRS", kinds(diff(rows("A", "B", "C", "D", "E"), rows("A", "F", "G", "E"))));
+        assertEquals("AAA", kinds(diff(rows(), rows("A", "B", "C"))));
+        assertEquals("RRR", kinds(diff(rows("A", "B", "C"), rows())));
+
+        final SequenceTableDiff diff = diff(rows("A", "", "B"), rows("", "", "A", "B"));
+        assertEquals("SS", kinds(diff));
+        assertEquals(1, diff.getNumberOfIgnoredRows(Side.LEFT));
+        assertEquals(2, diff.getNumberOfIgnoredRows(Side.RIGHT));
+        assertEquals(2, diff.getSynthesis().getLinesCount(Synthesis.Action.SAME));
+    }
+
+    @Test
+    void testRandom() {
+        final Random random = new Random(0L);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            final List<Row> left = random(random, random.nextInt(40));
+            final List<Row> right = random(random, random.nextInt(40));
+            final SequenceTableDiff diff = diff(left, right);
+
+            // Both sequences are preserved
+            final List<Row> l = new ArrayList<>();
+            final List<Row> r = new ArrayList<>();
+            int same = 0;
+            for (final RowDiff rdiff : diff.getDiffs()) {
+                if (rdiff.getKind() != RowDiffKind.ADDED) {
+                    l.add(rdiff.getLeftRow());
+                }
+                if (rdiff.getKind() != RowDiffKind.REMOVED) {
+                    r.add(rdiff.getRightRow());
+                }
+                if (rdiff.getKind() == RowDiffKind.SAME) {
+                    same++;
+                }
+            }
+            assertEquals(left, l);
+            assertEquals(right, r);
+            // The edit script is optimal
+            assertTrue(same >= lcs(left, right));
+        }
+    }
+
+    @Test
+    void testLarge() {
+        final Random random = new Random(0L);
+        final List<Row> left = new ArrayList<>();
+        for (int index = 0; index < 200000; index++) {
+            left.add(Row.builder("L" + index, "X").build());
+        }
+        final List<Row> right = new ArrayList<>(left);
+        for (int index = 0; index < 100; index++) {
+            right.remove(random.nextInt(right.size()));
+            right.add(random.nextInt(right.size()), Row.builder("N" + index, "Y").build());
+        }
+        final SequenceTableDiff diff = diff(left, right);
+        assertTrue(diff.isOptimal());
+        assertTrue(diff.getSynthesis().getLinesCount(Synthesis.Action.SAME) >= 200000 - 200);
+    }
+
+    @Test
+    void testLargeDisjoint() {
+        final List<Row> left = new ArrayList<>();
+        final List<Row> right = new ArrayList<>();
+        for (int index = 0; index < 200000; index++) {
+            left.add(Row.builder("L" + index, "X").build());
+            // A few common rows
+            right.add(index % 1000 == 0 ? left.get(index) : Row.builder("R" + index, "X").build());
+        }
+        final SequenceTableDiff diff = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> diff(left, right));
+        assertFalse(diff.isOptimal());
+        assertEquals(200000, diff.getSynthesis().getLinesCount(Synthesis.Action.REMOVED)
+                + diff.getSynthesis().getLinesCount(Synthesis.Action.CHANGED)
+                + diff.getSynthesis().getLinesCount(Synthesis.Action.SAME));
+        assertEquals(400000 - diff.getSynthesis().getLinesCount(Synthesis.Action.SAME)
+                - diff.getSynthesis().getLinesCount(Synthesis.Action.CHANGED),
+                     diff.getDiffs().size());
+
+        // Sequences are preserved
+        final List<Row> l = new ArrayList<>();
+        final List<Row> r = new ArrayList<>();
+        for (final RowDiff rdiff : diff.getDiffs()) {
+            if (rdiff.getKind() != RowDiffKind.ADDED) {
+                l.add(rdiff.getLeftRow());
+            }
+            if (rdiff.getKind() != RowDiffKind.REMOVED) {
+                r.add(rdiff.getRightRow());
+            }
+        }
+        assertEquals(left, l);
+        assertEquals(right, r);
+    }
+
+    @Test
+    void testMaxCost() {
+        final List<Row> left = rows("A", "B", "C", "D", "E", "F");
+        final List<Row> right = rows("A", "C", "X", "Y", "E", "F");
+        final SequenceTableDiff optimal = diff(left, right);
+        assertTrue(optimal.isOptimal());
+        assertEquals("SRSCASS", kinds(optimal));
+
+        final SequenceTableDiff cut = SequenceTableDiff.builder()
+                                                       .header(HEADER)
+                                                       .leftRows(left)
+                                                       .rightRows(right)
+                                                       .maxCost(0L)
+                                                       .build();
+        assertFalse(cut.isOptimal());
+        // Common prefix and suffix are still matched
+        assertEquals("SCCCSS", kinds(cut));
+    }
+}
@@ -0,0 +1,155 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.diff.KeyedTableDiff;
+import cdc.office.tables.diff.KeyedTableDiff.Synthesis;
+import cdc.office.tables.diff.RowDiff;
+import cdc.office.tables.diff.RowDiffKind;
+import cdc.office.tables.diff.Side;
+import cdc.office.tables.diff.SortedKeyedTableDiff;
+import cdc.tuples.CTupleN;
+import cdc.util.lang.InvalidDataException;
+
+class SortedKeyedTableDiffTest {
+    private static final Header HEADER = Header.builder().names("K1", "K2", "V").build();
+
+    private static List<Row> rows(Random random,
+                                  int count) {
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            if (random.nextInt(4) != 0) {
+                rows.add(Row.builder("A" + (index % 7), Integer.toString(index), "V" + random.nextInt(3)).build());
+            }
+        }
+        rows.add(Row.EMPTY);
+        return rows;
+    }
+
+    private static List<Row> sorted(List<Row> rows) {
+        final List<Row> result = new ArrayList<>(rows);
+        result.sort(Rows.keyComparator(0, 1));
+        return result;
+    }
+
+    @Test
+    void testSameAsKeyed() {
+        final Random random = new Random(0L);
+        final List<Row> left = rows(random, 500);
+        final List<Row> right = rows(random, 500);
+
+        final KeyedTableDiff expected = KeyedTableDiff.builder()
+                                                      .header(HEADER)
+                                                      .keyNames("K1", "K2")
+                                                      .leftRows(left)
+                                                      .rightRows(right)
+                                                      .build();
+
+        final List<CTupleN<String>> keys = new ArrayList<>();
+        final List<RowDiff> diffs = new ArrayList<>();
+        final SortedKeyedTableDiff diff = SortedKeyedTableDiff.builder()
+                                                              .header(HEADER)
+                                                              .keyNames("K1", "K2")
+                                                              .leftRows(sorted(left))
+                                                              .rightRows(sorted(right))
+                                                              .listener((key,
+                                                                         d) -> {
+                                                                  keys.add(key);
+                                                                  diffs.add(d);
+                                                              })
+                                                              .build();
+
+        assertEquals(expected.getKeys().size(), diff.getKeysCount());
+        assertEquals(expected.getKeys().size(), keys.size());
+        assertEquals(expected.getNumberOfIgnoredRows(Side.LEFT), diff.getNumberOfIgnoredRows(Side.LEFT));
+        assertEquals(expected.getNumberOfIgnoredRows(Side.RIGHT), diff.getNumberOfIgnoredRows(Side.RIGHT));
+        for (int index = 0; index < keys.size(); index++) {
+            assertEquals(expected.getDiff(keys.get(index)).getKind(), diffs.get(index).getKind());
+        }
+        for (final Synthesis.Action action : Synthesis.Action.values()) {
+            assertEquals(expected.getSynthesis().getLinesCount(action), diff.getSynthesis().getLinesCount(action));
+            assertEquals(expected.getSynthesis().getCellsCount(action), diff.getSynthesis().getCellsCount(action));
+            for (final String name : expected.getSynthesis().getColumnNames()) {
+                assertEquals(expected.getSynthesis().getColumnCellsCount(name, action),
+                             diff.getSynthesis().getColumnCellsCount(name, action));
+            }
+        }
+
+        // Keys are passed in increasing order
+        for (int index = 1; index < keys.size(); index++) {
+            final Row prev = Row.builder(keys.get(index - 1).getValue(0), keys.get(index - 1).getValue(1)).build();
+            final Row next = Row.builder(keys.get(index).getValue(0), keys.get(index).getValue(1)).build();
+            assertTrue(Rows.keyComparator(0, 1).compare(prev, next) < 0);
+        }
+    }
+
+    @Test
+    void testInvalidOrder() {
+        final List<Row> unsorted = List.of(Row.builder("B", "1", "V").build(),
+                                           Row.builder("A", "1", "V").build());
+        final List<Row> duplicate = List.of(Row.builder("A", "1", "V").build(),
+                                            Row.builder("A", "1", "W").build());
+        assertThrows(InvalidDataException.class,
+                     () -> SortedKeyedTableDiff.builder()
+                                               .header(HEADER)
+                                               .keyNames("K1", "K2")
+                                               .leftRows(unsorted)
+                                               .rightRows(List.of())
+                                               .listener((k,
+                                                          d) -> {
+                                                   // Ignore
+                                               })
+                                               .build());
+        assertThrows(InvalidDataException.class,
+                     () -> SortedKeyedTableDiff.builder()
+                                               .header(HEADER)
+                                               .keyNames("K1", "K2")
+                                               .leftRows(List.of())
+                                               .rightRows(duplicate)
+                                               .listener((k,
+                                                          d) -> {
+                                                   // Ignore
+                                               })
+                                               .build());
+    }
+
+    @Test
+    void testDecimalEquivalentKeys() {
+        final List<Row> left = sorted(List.of(Row.builder("A", "1", "V").build(),
+                                              Row.builder("A", "01", "V").build(),
+                                              Row.builder("A", "2", "V").build()));
+        final List<Row> right = sorted(List.of(Row.builder("A", "1", "V").build(),
+                                               Row.builder("A", "002", "V").build()));
+        final List<String> keys = new ArrayList<>();
+        final List<RowDiffKind> kinds = new ArrayList<>();
+        SortedKeyedTableDiff.builder()
+                            .header(HEADER)
+                            .keyNames("K1", "K2")
+                            .leftRows(left)
+                            .rightRows(right)
+                            .listener((k,
+                                       d) -> {
+                                keys.add(k.getValue(1));
+                                kinds.add(d.getKind());
+                            })
+                            .build();
+        assertEquals(List.of("01", "1", "002", "2"), keys);
+        assertEquals(List.of(RowDiffKind.REMOVED, RowDiffKind.SAME, RowDiffKind.ADDED, RowDiffKind.REMOVED), kinds);
+
+        final KeyedTableDiff expected = KeyedTableDiff.builder()
+                                                      .header(HEADER)
+                                                      .keyNames("K1", "K2")
+                                                      .leftRows(left)
+                                                      .rightRows(right)
+                                                      .build();
+        assertEquals(4, expected.getKeys().size());
+    }
+}
@@ -0,0 +1,121 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TableDuplicatesDetectorTest {
+    private static void process(TableHandler handler,
+                                Row header,
+                                Row... rows) {
+        final RowLocation.Builder location = RowLocation.builder();
+        handler.processBeginTable("Test", -1);
+        handler.processHeader(header, location.incrementNumbers(TableSection.HEADER).build());
+        for (final Row row : rows) {
+            handler.processData(row, location.incrementNumbers(TableSection.DATA).build());
+        }
+        handler.processEndTable("Test");
+    }
+
+    @Test
+    void testKeys() {
+        final List<String> duplicates = new ArrayList<>();
+        final TableDuplicatesDetector detector =
+                TableDuplicatesDetector.builder()
+                                       .keyNames("K1", "K2")
+                                       .listener((r,
+                                                  l,
+                                                  f) -> duplicates.add(l.getSectionNumber() + ":" + f.getSectionNumber()
+                                                          + ":" + f.getGlobalNumber()))
+                                       .build();
+        process(detector,
+                Row.builder("K1", "V", "K2").build(),
+                Row.builder("a", "1", "b").build(),
+                Row.builder("ab", "2", "").build(),
+                Row.builder("ab", "3", null).build(),
+                Row.builder("a", "4", "b").build(),
+                Row.builder("ab", "5").build(),
+                Row.builder("a", "6", "b").build());
+        assertTrue(detector.hasDuplicates());
+        assertEquals(3, detector.getDistinctCount());
+        assertEquals(3, detector.getDuplicatesCount());
+        assertEquals(List.of("4:1:2", "5:3:4", "6:1:2"), duplicates);
+    }
+
+    @Test
+    void testRows() {
+        final TableDuplicatesDetector detector = TableDuplicatesDetector.builder().build();
+        process(detector,
+                Row.builder("K1", "V").build(),
+                Row.builder("a", "1").build(),
+                Row.builder("a", "1", null).build(),
+                Row.builder("a", "1", "").build());
+        assertEquals(2, detector.getDistinctCount());
+        assertEquals(1, detector.getDuplicatesCount());
+    }
+
+    @Test
+    void testMany() {
+        for (final boolean exact : new boolean[] { true, false }) {
+            final TableDuplicatesDetector detector = TableDuplicatesDetector.builder()
+                                                                            .keyColumns(0)
+                                                                            .exact(exact)
+                                                                            .build();
+            final Row[] rows = new Row[100000];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = Row.builder("Key" + (i % 60000), i).build();
+            }
+            process(detector, Row.builder("Key", "Value").build(), rows);
+            assertEquals(exact, detector.isExact());
+            assertEquals(60000, detector.getDistinctCount());
+            assertEquals(40000, detector.getDuplicatesCount());
+        }
+        final TableDuplicatesDetector detector = TableDuplicatesDetector.builder().build();
+        process(detector, Row.builder("Key").build());
+        assertFalse(detector.hasDuplicates());
+    }
+
+    @Test
+    void testFirstLocation() {
+        final List<String> duplicates = new ArrayList<>();
+        final TableDuplicatesDetector detector =
+                TableDuplicatesDetector.builder()
+                                       .keyColumns(0)
+                                       .listener((r,
+                                                  l,
+                                                  f) -> duplicates.add(l.getSectionNumber() + ":" + f.getSectionNumber()
+                                                          + ":" + f.getGlobalNumber()))
+                                       .build();
+        final RowLocation.Builder location = RowLocation.builder();
+        detector.processBeginTable("Test", -1);
+        detector.processHeader(Row.builder("K").build(), location.incrementNumbers(TableSection.HEADER).build());
+        detector.processData(Row.builder("a").build(), location.incrementNumbers(TableSection.DATA).build());
+        // A second header row after data
+        detector.processHeader(Row.builder("K").build(), location.incrementNumbers(TableSection.HEADER).build());
+        detector.processData(Row.builder("a").build(), location.incrementNumbers(TableSection.DATA).build());
+        detector.processEndTable("Test");
+        assertEquals(List.of("1:1:2"), duplicates);
+    }
+
+    @Test
+    void testNonAscii() {
+        final TableDuplicatesDetector detector = TableDuplicatesDetector.builder().build();
+        process(detector,
+                Row.builder("K").build(),
+                Row.builder("\u00e9").build(),
+                Row.builder("e\u0301").build(),
+                Row.builder("\ud83d\ude00").build(),
+                Row.builder("\ud83d").build(),
+                Row.builder("\ude00\ud83d").build(),
+                Row.builder("\u00e9").build(),
+                Row.builder("\ud83d\ude00").build(),
+                Row.builder("\ud83d").build());
+        assertEquals(5, detector.getDistinctCount());
+        assertEquals(3, detector.getDuplicatesCount());
+    }
+}
@@ -0,0 +1,175 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class TableJoinerTest {
+    private static void process(TableHandler handler,
+                                Row header,
+                                List<Row> rows) {
+        final RowLocation.Builder location = RowLocation.builder();
+        handler.processBeginTable("Test", -1);
+        handler.processHeader(header, location.incrementNumbers(TableSection.HEADER).build());
+        for (final Row row : rows) {
+            handler.processData(row, location.incrementNumbers(TableSection.DATA).build());
+        }
+        handler.processEndTable("Test");
+    }
+
+    private static List<Row> buildRows() {
+        final List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(Row.builder("R" + i, "Label " + i).build());
+        }
+        // Duplicate key
+        rows.add(Row.builder("R1", "Other 1").build());
+        return rows;
+    }
+
+    private static List<Row> probeRows() {
+        final List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(Row.builder(Integer.toString(i), "R" + (i % 600)).build());
+        }
+        return rows;
+    }
+
+    private static MemoryTableHandler join(TableJoiner.Type type,
+                                           long memoryBudget,
+                                           boolean partitioned) {
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableJoiner joiner = TableJoiner.builder()
+                                              .delegate(handler)
+                                              .type(type)
+                                              .buildKeyNames("Id")
+                                              .probeKeyNames("Ref")
+                                              .memoryBudget(memoryBudget)
+                                              .partitionsCount(4)
+                                              .build();
+        process(joiner.getBuildHandler(), Row.builder("Id", "Label").build(), buildRows());
+        assertEquals(partitioned, joiner.isPartitioned());
+        process(joiner, Row.builder("Num", "Ref", "Comment").build(), probeRows());
+        return handler;
+    }
+
+    private static void check(TableJoiner.Type type,
+                              long memoryBudget,
+                              boolean partitioned) {
+        final MemoryTableHandler handler = join(type, memoryBudget, partitioned);
+        assertEquals(Row.builder("Num", "Ref", "Comment", "Id", "Label").build(), handler.getRow(0));
+
+        final Set<Row> expected = new HashSet<>();
+        int count = 0;
+        for (final Row probe : probeRows()) {
+            boolean matched = false;
+            for (final Row build : buildRows()) {
+                if (build.getValue(0).equals(probe.getValue(1))) {
+                    expected.add(Row.builder(probe.getValue(0), probe.getValue(1), null, build.getValue(0), build.getValue(1))
+                                    .build());
+                    matched = true;
+                    count++;
+                }
+            }
+            if (!matched && type == TableJoiner.Type.LEFT) {
+                expected.add(probe);
+                count++;
+            }
+        }
+        assertEquals(count, handler.getDataRowsCount());
+        assertEquals(expected, new HashSet<>(handler.getRows().subList(1, handler.getRowsCount())));
+    }
+
+    @Test
+    void testInMemory() {
+        check(TableJoiner.Type.INNER, TableJoiner.DEFAULT_MEMORY_BUDGET, false);
+        check(TableJoiner.Type.LEFT, TableJoiner.DEFAULT_MEMORY_BUDGET, false);
+    }
+
+    @Test
+    void testPartitioned() {
+        check(TableJoiner.Type.INNER, 10000L, true);
+        check(TableJoiner.Type.LEFT, 10000L, true);
+    }
+
+    @Test
+    void testSplit() {
+        // Partitions exceed the budget and are split
+        check(TableJoiner.Type.INNER, 1000L, true);
+        check(TableJoiner.Type.LEFT, 1000L, true);
+    }
+
+    @Test
+    void testSameKey() {
+        // All build rows have the same key: partitions can not be split and are joined with nested loops
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableJoiner joiner = TableJoiner.builder()
+                                              .delegate(handler)
+                                              .type(TableJoiner.Type.LEFT)
+                                              .buildKeyColumns(0)
+                                              .probeKeyColumns(0)
+                                              .memoryBudget(2000L)
+                                              .partitionsCount(4)
+                                              .build();
+        final List<Row> build = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            build.add(Row.builder("K", "B" + i).build());
+        }
+        process(joiner.getBuildHandler(), Row.builder("Id", "Label").build(), build);
+        assertTrue(joiner.isPartitioned());
+        process(joiner, Row.builder("Id", "Num").build(), List.of(Row.builder("K", "1").build(),
+                                                                 Row.builder("L", "2").build(),
+                                                                 Row.builder("K", "3").build()));
+        assertEquals(201, handler.getDataRowsCount());
+        final Set<Row> expected = new HashSet<>();
+        for (final Row b : build) {
+            expected.add(Row.builder("K", "1", "K", b.getValue(1)).build());
+            expected.add(Row.builder("K", "3", "K", b.getValue(1)).build());
+        }
+        expected.add(Row.builder("L", "2").build());
+        assertEquals(expected, new HashSet<>(handler.getRows().subList(1, handler.getRowsCount())));
+    }
+
+    @Test
+    void testWideProbeRows() {
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableJoiner joiner = TableJoiner.builder()
+                                              .delegate(handler)
+                                              .buildKeyColumns(0)
+                                              .probeKeyColumns(0)
+                                              .build();
+        process(joiner.getBuildHandler(), Row.builder("Id", "Label").build(), List.of(Row.builder("K", "L").build()));
+        process(joiner, Row.builder("Id", "Num").build(), List.of(Row.builder("K", "1", "extra").build(),
+                                                                 Row.builder("K").build()));
+        assertEquals(Row.builder("Id", "Num", "Id", "Label").build(), handler.getRow(0));
+        assertEquals(Row.builder("K", "1", "K", "L").build(), handler.getRow(1));
+        assertEquals(Row.builder("K", null, "K", "L").build(), handler.getRow(2));
+    }
+
+    @Test
+    void testOrder() {
+        final MemoryTableHandler handler = join(TableJoiner.Type.LEFT, TableJoiner.DEFAULT_MEMORY_BUDGET, false);
+        assertEquals(Row.builder("0", "R0", null, "R0", "Label 0").build(), handler.getRow(1));
+        assertEquals(Row.builder("1", "R1", null, "R1", "Label 1").build(), handler.getRow(2));
+        assertEquals(Row.builder("1", "R1", null, "R1", "Other 1").build(), handler.getRow(3));
+    }
+
+    @Test
+    void testNotBuilt() {
+        final TableJoiner joiner = TableJoiner.builder()
+                                              .delegate(new MemoryTableHandler())
+                                              .buildKeyColumns(0)
+                                              .probeKeyColumns(0)
+                                              .build();
+        assertThrows(IllegalStateException.class,
+                     () -> process(joiner, Row.builder("Id").build(), List.of()));
+        assertEquals(TableJoiner.Type.INNER, joiner.getType());
+    }
+}
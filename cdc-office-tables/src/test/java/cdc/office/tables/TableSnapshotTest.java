@@ -0,0 +1,179 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.diff.KeyedTableDiff;
+import cdc.office.tables.diff.TableSnapshot;
+import cdc.tuples.CTupleN;
+import cdc.util.lang.InvalidDataException;
+
+class TableSnapshotTest {
+    private static final Header HEADER = Header.builder().names("K", "V1", "V2").build();
+    private static final List<String> KEYS = Arrays.asList("K");
+
+    private static List<Row> rows(Random random,
+                                  int count) {
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            if (random.nextInt(10) == 0) {
+                rows.add(Row.EMPTY);
+            } else if (random.nextInt(4) != 0) {
+                rows.add(Row.builder("K" + index, "A" + random.nextInt(2), "B" + random.nextInt(8)).build());
+            }
+        }
+        return rows;
+    }
+
+    private static KeyedTableDiff diff(Header leftHeader,
+                                       List<Row> left,
+                                       Header rightHeader,
+                                       List<Row> right) {
+        return KeyedTableDiff.builder()
+                             .leftHeader(leftHeader)
+                             .leftRows(left)
+                             .rightHeader(rightHeader)
+                             .rightRows(right)
+                             .keyNames(KEYS)
+                             .build();
+    }
+
+    private static byte[] save(TableSnapshot snapshot) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.save(out);
+        return out.toByteArray();
+    }
+
+    private static TableSnapshot reload(TableSnapshot snapshot) throws IOException {
+        return TableSnapshot.load(new ByteArrayInputStream(save(snapshot)));
+    }
+
+    private static void check(Header leftHeader,
+                              List<Row> left,
+                              Header rightHeader,
+                              List<Row> right) throws IOException {
+        final byte[] bytes = save(TableSnapshot.of(leftHeader, KEYS, left));
+        final TableSnapshot snapshot = TableSnapshot.load(new ByteArrayInputStream(bytes));
+        final Map<Integer, Row> loaded =
+                snapshot.loadRows(new ByteArrayInputStream(bytes), snapshot.getRowsToLoad(rightHeader, right));
+        final List<Row> baseline = snapshot.getBaselineRows(rightHeader, right, loaded::get);
+
+        final KeyedTableDiff expected = diff(leftHeader, left, rightHeader, right);
+        final KeyedTableDiff actual = diff(leftHeader, baseline, rightHeader, right);
+
+        assertEquals(expected.getKeys().size(), actual.getKeys().size());
+        for (final CTupleN<String> key : expected.getKeys()) {
+            assertEquals(expected.getDiff(key).toString(), actual.getDiff(key).toString());
+        }
+        for (final KeyedTableDiff.Synthesis.Action action : KeyedTableDiff.Synthesis.Action.values()) {
+            assertEquals(expected.getSynthesis().getLinesCount(action), actual.getSynthesis().getLinesCount(action));
+            assertEquals(expected.getSynthesis().getCellsCount(action), actual.getSynthesis().getCellsCount(action));
+        }
+    }
+
+    @Test
+    void testSaveLoad() throws IOException {
+        final List<Row> rows = rows(new Random(0L), 1000);
+        final TableSnapshot snapshot = TableSnapshot.of(HEADER, KEYS, rows);
+        final TableSnapshot loaded = reload(snapshot);
+        assertEquals(snapshot.getHeader(), loaded.getHeader());
+        assertEquals(snapshot.getKeyNames(), loaded.getKeyNames());
+        assertEquals(snapshot.size(), loaded.size());
+        assertEquals(new BitSet(), loaded.getRowsToLoad(HEADER, rows));
+    }
+
+    @Test
+    void testGetRowsToLoad() {
+        final List<Row> left = Arrays.asList(Row.builder("K1", "A", "B").build(),
+                                             Row.EMPTY,
+                                             Row.builder("K2", "A", "B").build(),
+                                             Row.builder("K3", "A", "B").build());
+        final List<Row> right = Arrays.asList(Row.builder("K3", "A", "B").build(),
+                                              Row.builder("K2", "A", "C").build(),
+                                              Row.builder("K4", "A", "B").build());
+        final TableSnapshot snapshot = TableSnapshot.of(HEADER, KEYS, left);
+        assertEquals(3, snapshot.size());
+        final BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, snapshot.getRowsToLoad(HEADER, right));
+
+        // All matching rows must be loaded when headers differ
+        final Header header = Header.builder().names("K", "V2", "V1").build();
+        expected.set(3);
+        assertEquals(expected, snapshot.getRowsToLoad(header, right));
+    }
+
+    @Test
+    void testBaselineRows() throws IOException {
+        final Random random = new Random(0L);
+        for (int index = 0; index < 10; index++) {
+            check(HEADER, rows(random, 2000), HEADER, rows(random, 2000));
+        }
+        check(HEADER, rows(random, 2000), Header.builder().names("K", "V2", "V3").build(), rows(random, 2000));
+    }
+
+    @Test
+    void testLoadRows() throws IOException {
+        final List<Row> rows = rows(new Random(1L), 1000);
+        final byte[] bytes = save(TableSnapshot.of(HEADER, KEYS, rows));
+        final TableSnapshot snapshot = TableSnapshot.load(new ByteArrayInputStream(bytes));
+        final BitSet numbers = new BitSet();
+        for (int number = 0; number < rows.size(); number += 7) {
+            if (!rows.get(number).isEmpty()) {
+                numbers.set(number);
+            }
+        }
+        final Map<Integer, Row> loaded = snapshot.loadRows(new ByteArrayInputStream(bytes), numbers);
+        assertEquals(numbers.cardinality(), loaded.size());
+        for (final Map.Entry<Integer, Row> entry : loaded.entrySet()) {
+            assertEquals(rows.get(entry.getKey()), entry.getValue());
+        }
+
+        // Rows of another snapshot
+        final byte[] other = save(TableSnapshot.of(HEADER, KEYS, rows.subList(0, 10)));
+        assertThrows(InvalidDataException.class, () -> snapshot.loadRows(new ByteArrayInputStream(other), numbers));
+        // A loaded snapshot does not retain rows
+        assertThrows(IllegalStateException.class, () -> snapshot.save(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testExactKeys() {
+        // Keys whose concatenations are equal
+        final Header header = Header.builder().names("K1", "K2", "V").build();
+        final List<String> keys = Arrays.asList("K1", "K2");
+        final List<Row> left = Arrays.asList(Row.builder("ab", "", "A").build(),
+                                             Row.builder("a", "b", "A").build(),
+                                             Row.builder("a", null, "A").build());
+        final TableSnapshot snapshot = TableSnapshot.of(header, keys, left);
+        assertEquals(3, snapshot.size());
+        final List<Row> right = Arrays.asList(Row.builder("a", "b", "A").build(),
+                                              Row.builder("a", "", "A").build());
+        final BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, snapshot.getRowsToLoad(header, right));
+    }
+
+    @Test
+    void testErrors() {
+        final List<Row> rows = Arrays.asList(Row.builder("K1", "A").build(),
+                                             Row.builder("K1", "B").build());
+        assertThrows(InvalidDataException.class, () -> TableSnapshot.of(HEADER, KEYS, rows));
+        assertThrows(IllegalArgumentException.class, () -> TableSnapshot.of(HEADER, Arrays.asList("X"), rows));
+        assertThrows(InvalidDataException.class,
+                     () -> TableSnapshot.load(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })));
+    }
+}
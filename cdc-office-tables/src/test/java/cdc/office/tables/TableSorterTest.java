@@ -0,0 +1,132 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.util.lang.InvalidDataException;
+
+class TableSorterTest {
+    private static void process(TableHandler handler,
+                                Row header,
+                                List<Row> rows) {
+        final RowLocation.Builder location = RowLocation.builder();
+        handler.processBeginTable("Test", -1);
+        if (header != null) {
+            handler.processHeader(header, location.incrementNumbers(TableSection.HEADER).build());
+        }
+        for (final Row row : rows) {
+            handler.processData(row, location.incrementNumbers(TableSection.DATA).build());
+        }
+        handler.processEndTable("Test");
+    }
+
+    private static void check(long memoryBudget) {
+        final Random random = new Random(0L);
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < 1000; index++) {
+            rows.add(Row.builder("K" + random.nextInt(100), Integer.toString(index)).build());
+        }
+        final List<Row> expected = new ArrayList<>(rows);
+        expected.sort(Rows.keyComparator(0));
+
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableSorter sorter = TableSorter.builder()
+                                              .delegate(handler)
+                                              .keyNames("Key")
+                                              .memoryBudget(memoryBudget)
+                                              .build();
+        final Row header = Row.builder("Key", "Value").build();
+        process(sorter, header, rows);
+
+        assertEquals(1, handler.getHeaderRowsCount());
+        assertEquals(header, handler.getRow(0));
+        assertEquals(expected, handler.getRows().subList(1, handler.getRowsCount()));
+    }
+
+    @Test
+    void testInMemory() {
+        check(TableSorter.DEFAULT_MEMORY_BUDGET);
+    }
+
+    @Test
+    void testSpill() {
+        check(1000L);
+    }
+
+    @Test
+    void testRuns() {
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 100; index > 0; index--) {
+            rows.add(Row.builder("A" + index, null, "").build());
+        }
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableSorter sorter = TableSorter.builder()
+                                              .delegate(handler)
+                                              .keyColumns(0)
+                                              .memoryBudget(500L)
+                                              .build();
+        process(sorter, null, rows);
+        assertTrue(sorter.getRunsCount() > 1);
+        assertEquals(100, handler.getRowsCount());
+        assertEquals(Row.builder("A1", null, "").build(), handler.getRow(0));
+        assertEquals(Row.builder("A2", null, "").build(), handler.getRow(1));
+        assertEquals(Row.builder("A100", null, "").build(), handler.getRow(99));
+    }
+
+    @Test
+    void testMissingKey() {
+        final TableSorter sorter = TableSorter.builder()
+                                              .delegate(new MemoryTableHandler())
+                                              .keyNames("Missing")
+                                              .build();
+        final List<Row> rows = List.of(Row.builder("a").build());
+        assertThrows(InvalidDataException.class,
+                     () -> process(sorter, Row.builder("Key").build(), rows));
+    }
+
+    @Test
+    void testDeferMerge() {
+        final Random random = new Random(0L);
+        final List<Row> rows = new ArrayList<>();
+        for (int index = 0; index < 1000; index++) {
+            rows.add(Row.builder("K" + random.nextInt(100), Integer.toString(index)).build());
+        }
+        final List<Row> expected = new ArrayList<>(rows);
+        expected.sort(Rows.keyComparator(0));
+
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        final TableSorter sorter = TableSorter.builder()
+                                              .delegate(handler)
+                                              .keyColumns(0)
+                                              .memoryBudget(1000L)
+                                              .deferMerge(true)
+                                              .build();
+        assertThrows(IllegalStateException.class, sorter::getSortedRows);
+        final Row header = Row.builder("Key", "Value").build();
+        process(sorter, header, rows);
+        assertTrue(sorter.getRunsCount() > 1);
+        // Only the header is passed to delegate
+        assertEquals(List.of(header), handler.getRows());
+
+        final List<Row> sorted = new ArrayList<>();
+        sorter.getSortedRows().forEachRemaining(sorted::add);
+        assertEquals(expected, sorted);
+        assertThrows(IllegalStateException.class, sorter::getSortedRows);
+
+        sorter.clear();
+        assertThrows(IllegalStateException.class, sorter::getSortedRows);
+
+        // Empty table
+        process(sorter, header, List.of());
+        assertFalse(sorter.getSortedRows().hasNext());
+        sorter.clear();
+    }
+}
@@ -0,0 +1,103 @@
+package cdc.office.tables;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.util.lang.FailureReaction;
+
+class TypedRowTest {
+    @Test
+    void testLazyFormatting() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TypedRow.Builder builder = TypedRow.builder((type,
+                                                           value,
+                                                           style) -> {
+            calls.incrementAndGet();
+            return type == CellType.DATE ? "D" + value : style + ":" + value;
+        });
+        final TypedRow row = builder.addString("A")
+                                    .addEmpty()
+                                    .addNumber(1.5, 2)
+                                    .addBoolean(true)
+                                    .addDate(43831.0, 0)
+                                    .addError("ERROR:#N/A")
+                                    .addNumber(3.0, "3")
+                                    .build();
+        assertEquals(7, row.size());
+        assertEquals(CellType.STRING, row.getType(0));
+        assertEquals(CellType.EMPTY, row.getType(1));
+        assertEquals(CellType.NUMBER, row.getType(2));
+        assertEquals(CellType.BOOLEAN, row.getType(3));
+        assertEquals(CellType.DATE, row.getType(4));
+        assertEquals(CellType.ERROR, row.getType(5));
+        assertEquals(CellType.EMPTY, row.getType(10));
+
+        // Typed accessors do not format
+        assertEquals(1.5, row.getValueAsDouble(2, null));
+        assertEquals(3, row.getValueAsInteger(6, null));
+        assertEquals(3L, row.getValueAsLong(6, null));
+        assertTrue(row.getBoolean(3));
+        assertTrue(row.getValueAsBoolean(3, null));
+        assertEquals(LocalDateTime.of(2020, 1, 1, 0, 0), row.getDate(4));
+        assertEquals(LocalDate.of(2020, 1, 1), row.getValueAsLocalDate(4, null));
+        assertTrue(Double.isNaN(row.getNumber(0)));
+        assertNull(row.getDate(2));
+        assertEquals(0, calls.get());
+
+        assertEquals("2:1.5", row.getValue(2));
+        assertEquals(1, calls.get());
+        assertEquals("2:1.5", row.getValue(2));
+        assertEquals(1, calls.get());
+
+        assertEquals(Arrays.asList("A", null, "2:1.5", "TRUE", "D43831.0", "ERROR:#N/A", "3"), row.getValues());
+        assertEquals(2, calls.get());
+        assertEquals("A", row.getValue(0));
+        assertEquals("x", row.getValue(1, "x"));
+
+        // Not an integer: default conversion is used
+        assertNull(row.getValueAsInteger(2, null, FailureReaction.DEFAULT));
+    }
+
+    @Test
+    void testEquality() {
+        final TypedRow.Builder builder = TypedRow.builder(TypedRow.GENERAL);
+        final TypedRow typed = builder.addString("A").addNumber(10.0, 0).addNumber(0.5, 0).addEmpty().build();
+        final Row row = Row.builder("A", "10", "0.5", null).build();
+        assertEquals(row, typed);
+        assertEquals(typed, row);
+        assertEquals(row.hashCode(), typed.hashCode());
+        assertEquals(Fingerprints.of(row), Fingerprints.of(typed));
+        assertEquals(row.toString(), typed.toString());
+        assertFalse(typed.isEmpty());
+
+        // The builder can be reused
+        builder.clear();
+        assertTrue(builder.isEmpty());
+        assertEquals(Row.EMPTY, builder.build());
+        assertEquals(builder.build(), Row.EMPTY);
+    }
+
+    @Test
+    void testSerialDates() {
+        assertEquals(1.0, TypedRow.toSerial(LocalDateTime.of(1900, 1, 1, 0, 0)));
+        assertEquals(59.0, TypedRow.toSerial(LocalDateTime.of(1900, 2, 28, 0, 0)));
+        assertEquals(61.0, TypedRow.toSerial(LocalDateTime.of(1900, 3, 1, 0, 0)));
+        assertEquals(43831.5, TypedRow.toSerial(LocalDateTime.of(2020, 1, 1, 12, 0)));
+        for (final LocalDateTime date : new LocalDateTime[] {
+                LocalDateTime.of(1900, 1, 1, 0, 0),
+                LocalDateTime.of(1900, 2, 28, 23, 59, 59),
+                LocalDateTime.of(1900, 3, 1, 0, 0),
+                LocalDateTime.of(2023, 6, 15, 10, 30, 15) }) {
+            assertEquals(date, TypedRow.toLocalDateTime(TypedRow.toSerial(date)));
+        }
+    }
+}
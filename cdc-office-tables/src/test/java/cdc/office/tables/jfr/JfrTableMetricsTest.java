@@ -0,0 +1,86 @@
+package cdc.office.tables.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TableSection;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrTableMetricsTest {
+    private static void process(TableHandler handler,
+                                int rows) {
+        final RowLocation.Builder location = RowLocation.builder();
+        handler.processBeginTable("Test", -1);
+        handler.processHeader(Row.builder("A", "B").build(), location.incrementNumbers(TableSection.HEADER).build());
+        for (int i = 0; i < rows; i++) {
+            handler.processData(Row.builder("a", "b").build(), location.incrementNumbers(TableSection.DATA).build());
+        }
+        handler.processEndTable("Test");
+    }
+
+    private static boolean isRecording() {
+        return FlightRecorder.isInitialized()
+                && FlightRecorder.getFlightRecorder()
+                                 .getRecordings()
+                                 .stream()
+                                 .anyMatch(r -> r.getState() == RecordingState.RUNNING);
+    }
+
+    @Test
+    void testDisabled() {
+        assumeFalse(isRecording(), "A recording is active");
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        assertSame(handler, JfrTableMetrics.wrap((TableHandler) handler, "Test"));
+    }
+
+    @Test
+    void testEvents() throws IOException {
+        final Path file = Files.createTempFile("cdc-jfr-", ".jfr");
+        final MemoryTableHandler delegate = new MemoryTableHandler();
+        try (final Recording recording = new Recording()) {
+            recording.enable(TableParseEvent.class);
+            recording.enable(RowBatchEvent.class);
+            recording.start();
+            process(JfrTableMetrics.wrap((TableHandler) delegate, "Test"), 10000);
+            recording.stop();
+            recording.dump(file);
+        }
+        assertEquals(10001, delegate.getRowsCount());
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        long batchRows = 0L;
+        int tables = 0;
+        for (final RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("cdc.office.RowBatch")) {
+                batchRows += event.getLong("rows");
+                assertTrue(event.getLong("rows") <= JfrTableMetrics.BATCH_SIZE);
+            } else if (event.getEventType().getName().equals("cdc.office.TableParse")) {
+                tables++;
+                assertEquals("Test", event.getString("parser"));
+                assertEquals(1L, event.getLong("headerRows"));
+                assertEquals(10000L, event.getLong("dataRows"));
+                assertEquals(20002L, event.getLong("cells"));
+            }
+        }
+        assertEquals(1, tables);
+        assertEquals(10001L, batchRows);
+    }
+}
@@ -0,0 +1,89 @@
+package cdc.office.tables.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableSection;
+
+class MeteredTableHandlerTest {
+    @Test
+    void testHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000L, histogram.getCount());
+        assertEquals(1L, histogram.getMin());
+        assertEquals(1000L, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        final long p50 = histogram.getValueAtPercentile(50.0);
+        assertTrue(p50 <= 500L && p50 >= 500L * 7 / 8, "p50: " + p50);
+        final long p99 = histogram.getValueAtPercentile(99.0);
+        assertTrue(p99 <= 990L && p99 >= 990L * 7 / 8, "p99: " + p99);
+        assertEquals(1L, histogram.getValueAtPercentile(0.0));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        histogram.clear();
+        assertEquals(0L, histogram.getCount());
+    }
+
+    @Test
+    void testHandler() {
+        final BasicTableMetrics metrics = new BasicTableMetrics();
+        final MemoryTableHandler delegate = new MemoryTableHandler();
+        final MeteredTableHandler handler = new MeteredTableHandler(delegate, metrics);
+        final RowLocation.Builder location = RowLocation.builder();
+        handler.processBeginTable("Test", -1);
+        handler.processHeader(Row.builder("A", "B").build(), location.incrementNumbers(TableSection.HEADER).build());
+        for (int i = 0; i < 100; i++) {
+            handler.processData(Row.builder("a" + i, "b" + i, "c").build(),
+                                location.incrementNumbers(TableSection.DATA).build());
+        }
+        handler.processEndTable("Test");
+
+        assertEquals(101, delegate.getRowsCount());
+        assertEquals(1L, metrics.getTablesCount());
+        assertEquals(1L, metrics.getHeaderRowsCount());
+        assertEquals(100L, metrics.getDataRowsCount());
+        assertEquals(302L, metrics.getCellsCount());
+        assertEquals(101L, metrics.getDelegateLatencies().getCount());
+        assertTrue(metrics.getElapsedNanos() >= metrics.getDelegateNanos());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8)) {
+            metrics.print(out);
+        }
+        final String text = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(text.matches("(?s).*rows:\\s+100\\R.*"), text);
+        assertTrue(text.matches("(?s).*cells:\\s+302\\R.*"), text);
+        assertTrue(text.contains("Handler latencies (ns)"), text);
+    }
+
+    @Test
+    void testInputStream() throws IOException {
+        final BasicTableMetrics metrics = new BasicTableMetrics();
+        try (final InputStream in = MeteredInputStream.wrap(new ByteArrayInputStream(new byte[100]), metrics)) {
+            in.read();
+            in.mark(100);
+            in.read(new byte[10]);
+            in.reset();
+            while (in.read() >= 0) {
+                // Ignore
+            }
+        }
+        assertEquals(100L, metrics.getBytesCount());
+    }
+}
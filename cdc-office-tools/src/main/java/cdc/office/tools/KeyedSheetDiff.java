@@ -5,7 +5,13 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
@@ -18,18 +24,27 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.io.IoBuilder;
 
 import cdc.office.ss.SheetLoader;
+import cdc.office.ss.SheetParser;
 import cdc.office.ss.SheetParserFactory;
 import cdc.office.ss.WorkbookWriterFeatures;
 import cdc.office.tables.Header;
 import cdc.office.tables.HeaderCell;
 import cdc.office.tables.HeaderMapper;
 import cdc.office.tables.Row;
+import cdc.office.tables.RowLocation;
+import cdc.office.tables.TableHandler;
+import cdc.office.tables.TableSorter;
 import cdc.office.tables.diff.KeyedTableDiff;
+import cdc.office.tables.diff.SequenceTableDiff;
+import cdc.office.tables.diff.SortedKeyedTableDiff;
 import cdc.office.tables.diff.Side;
+import cdc.office.tables.diff.TableSnapshot;
 import cdc.office.tools.KeyedSheetDiff.MainArgs.Feature;
 import cdc.util.cli.AbstractMainSupport;
 import cdc.util.cli.FeatureMask;
 import cdc.util.cli.OptionEnum;
+import cdc.util.function.Evaluation;
+import cdc.util.lang.ExceptionWrapper;
 import cdc.util.time.Chronometer;
 
 /**
@@ -76,6 +91,11 @@ public final class KeyedSheetDiff {
                                         + " Otherwise, show value 2 (with changed mark or color)."),
             SYNTHESIS("synthesis", "Print a synthesis of differences."),
             SAVE_SYNTHESIS("save-synthesis", "Save synthesis in output file, in a dedicated sheet."),
+            PARALLEL("parallel", "Compare rows in parallel, using all available processors. Needs keys."),
+            STREAMING("streaming",
+                      "Sort rows of input files by keys, using temporary files if necessary, compare them with a sort-merge,\n"
+                              + "and write each difference as soon as it is computed. Input files are not loaded in memory.\n"
+                              + "Lines are sorted by keys. Snapshot options are not supported."),
             VERBOSE("verbose", "Print progress messages.");
 
             private final String name;
@@ -103,6 +123,10 @@ public final class KeyedSheetDiff {
         public File file2;
         public String sheet2;
         public File output;
+        /** Snapshot of file1, saved by a previous run. */
+        public File snapshot1;
+        /** File where the snapshot of file2 must be saved. */
+        public File saveSnapshot;
         public String sheet;
         public final List<String> keys = new ArrayList<>();
         /** charset. */
@@ -128,32 +152,35 @@ public final class KeyedSheetDiff {
     }
 
     void execute() throws IOException {
-        final Chronometer chrono = new Chronometer();
-        // Load input files as rows
-        final SheetLoader loader = new SheetLoader();
-        loader.getFactory().setCharset(margs.charset);
-        loader.getFactory().setSeparator(margs.separator);
-        loader.getFactory()
-              .setEnabled(SheetParserFactory.Feature.DISABLE_VULNERABILITY_PROTECTIONS,
-                          margs.isEnabled(MainArgs.Feature.NO_VULNERABILITY_PROTECTIONS));
+        if (margs.isEnabled(Feature.STREAMING)) {
+            executeStreaming();
+            return;
+        }
 
-        chrono.start();
-        info("Load " + margs.file1);
-        final List<Row> rows1 =
-                margs.sheet1 == null
-                        ? loader.load(margs.file1, null, 0)
-                        : loader.load(margs.file1, null, margs.sheet1);
-        chrono.suspend();
-        info("Done (" + rows1.size() + " rows) " + chrono);
+        final Chronometer chrono = new Chronometer();
 
+        // Load input files as rows, concurrently
         chrono.start();
-        info("Load " + margs.file2);
-        final List<Row> rows2 =
-                margs.sheet2 == null
-                        ? loader.load(margs.file2, null, 0)
-                        : loader.load(margs.file2, null, margs.sheet2);
+        final List<Row> rows1;
+        final List<Row> rows2;
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            if (margs.snapshot1 == null) {
+                final Future<List<Row>> future1 = executor.submit(() -> load(margs.file1, margs.sheet1));
+                final Future<List<Row>> future2 = executor.submit(() -> load(margs.file2, margs.sheet2));
+                rows1 = get(future1);
+                rows2 = get(future2);
+            } else {
+                // Rows of file1 to load depend on rows of file2
+                final Future<TableSnapshot> future1 = executor.submit(this::loadSnapshot);
+                rows2 = load(margs.file2, margs.sheet2);
+                rows1 = loadBaseline(get(future1), rows2);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
         chrono.suspend();
-        info("Done (" + rows2.size() + " rows) " + chrono);
+        info("Loaded input files " + chrono);
 
         if (rows1.isEmpty()) {
             throw new IllegalArgumentException("No data in file1 sheet.");
@@ -166,23 +193,8 @@ public final class KeyedSheetDiff {
         final Header header2 = Header.builder().names(rows2.get(0)).build();
 
         // Check that both headers contain the expected keys
-        final Header expected = Header.builder().names(margs.keys).build();
-        final HeaderMapper mapper1 = HeaderMapper.builder().mandatory(expected).actual(header1).build();
-        final HeaderMapper mapper2 = HeaderMapper.builder().mandatory(expected).actual(header2).build();
-
-        if (!mapper1.hasAllMandatoryCells()) {
-            throw new IllegalArgumentException("Missing keys: "
-                    + mapper1.getMissingMandatoryCells().stream().map(HeaderCell::toString).sorted()
-                             .collect(Collectors.joining(",", "[", "]"))
-                    + " in file1 header: " + header1);
-        }
-
-        if (!mapper2.hasAllMandatoryCells()) {
-            throw new IllegalArgumentException("Missing keys: "
-                    + mapper2.getMissingMandatoryCells().stream().map(HeaderCell::toString).sorted()
-                             .collect(Collectors.joining(",", "[", "]"))
-                    + " in file2 header: " + header2);
-        }
+        checkKeys(header1, "file1");
+        checkKeys(header2, "file2");
 
         // Remove header in both input rows
         rows1.remove(0);
@@ -191,29 +203,225 @@ public final class KeyedSheetDiff {
         // Compare the data rows
         chrono.start();
         info("Compare rows");
-        final KeyedTableDiff diff = KeyedTableDiff.builder()
-                                                  .leftSystemId(margs.file1.getName()
-                                                          + (margs.sheet1 == null ? "" : ":" + margs.sheet1))
-                                                  .leftHeader(header1)
-                                                  .leftRows(rows1)
-                                                  .rightSystemId(margs.file2.getName()
-                                                          + (margs.sheet2 == null ? "" : ":" + margs.sheet2))
-                                                  .rightHeader(header2)
-                                                  .rightRows(rows2)
-                                                  .keyNames(margs.keys)
-                                                  .build();
+        final String systemId1 = margs.file1.getName() + (margs.sheet1 == null ? "" : ":" + margs.sheet1);
+        final String systemId2 = margs.file2.getName() + (margs.sheet2 == null ? "" : ":" + margs.sheet2);
+        final KeyedTableDiff diff;
+        final SequenceTableDiff sdiff;
+        if (margs.keys.isEmpty()) {
+            diff = null;
+            sdiff = SequenceTableDiff.builder()
+                                     .leftSystemId(systemId1)
+                                     .leftHeader(header1)
+                                     .leftRows(rows1)
+                                     .rightSystemId(systemId2)
+                                     .rightHeader(header2)
+                                     .rightRows(rows2)
+                                     .build();
+        } else {
+            sdiff = null;
+            diff = KeyedTableDiff.builder()
+                                 .leftSystemId(systemId1)
+                                 .leftHeader(header1)
+                                 .leftRows(rows1)
+                                 .rightSystemId(systemId2)
+                                 .rightHeader(header2)
+                                 .rightRows(rows2)
+                                 .keyNames(margs.keys)
+                                 .parallelism(margs.isEnabled(Feature.PARALLEL)
+                                         ? Runtime.getRuntime().availableProcessors()
+                                         : 1)
+                                 .build();
+        }
         chrono.suspend();
 
-        info("Done" + (diff.getNumberOfIgnoredRows() == 0
+        final int ignored1 = diff == null ? sdiff.getNumberOfIgnoredRows(Side.LEFT) : diff.getNumberOfIgnoredRows(Side.LEFT);
+        final int ignored2 = diff == null ? sdiff.getNumberOfIgnoredRows(Side.RIGHT) : diff.getNumberOfIgnoredRows(Side.RIGHT);
+        info("Done" + (ignored1 + ignored2 == 0
                 ? ""
-                : " (" + diff.getNumberOfIgnoredRows(Side.LEFT) + "/" + rows1.size() + " "
-                        + diff.getNumberOfIgnoredRows(Side.RIGHT) + "/" + rows2.size() + " ignored)")
+                : " (" + ignored1 + "/" + rows1.size() + " "
+                        + ignored2 + "/" + rows2.size() + " ignored)")
                 + " " + chrono);
 
         if (margs.isEnabled(MainArgs.Feature.SYNTHESIS)) {
-            diff.getSynthesis().print(OUT);
+            (diff == null ? sdiff.getSynthesis() : diff.getSynthesis()).print(OUT);
+        }
+
+        if (margs.saveSnapshot != null) {
+            chrono.start();
+            info("Save snapshot " + margs.saveSnapshot);
+            TableSnapshot.of(header2, margs.keys, rows2).save(margs.saveSnapshot);
+            chrono.suspend();
+            info("Done " + chrono);
+        }
+
+        final KeyedTableDiffExporter exporter = newExporter();
+
+        chrono.start();
+        info("Generate " + margs.output);
+        if (diff == null) {
+            exporter.save(sdiff, margs.output);
+        } else {
+            exporter.save(diff, margs.output);
+        }
+        chrono.suspend();
+        info("Done " + chrono);
+    }
+
+    /**
+     * Compares input sheets without loading them in memory.
+     * <p>
+     * Rows of each input sheet are sorted by keys, spilling to temporary files when necessary.
+     * Sorted runs are then merged while they are compared with a sort-merge, and each row difference
+     * is immediately written.
+     *
+     * @throws IOException When an IO error occurs.
+     */
+    private void executeStreaming() throws IOException {
+        final Chronometer chrono = new Chronometer();
+
+        // Sort input files by keys, concurrently
+        chrono.start();
+        SortedSheet sorted1 = null;
+        SortedSheet sorted2 = null;
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<SortedSheet> future1 = executor.submit(() -> sort(margs.file1, margs.sheet1));
+            final Future<SortedSheet> future2 = executor.submit(() -> sort(margs.file2, margs.sheet2));
+            try {
+                sorted1 = get(future1);
+            } finally {
+                sorted2 = get(future2);
+            }
+            chrono.suspend();
+            info("Sorted input files " + chrono);
+
+            if (sorted1.header == null) {
+                throw new IllegalArgumentException("No data in file1 sheet.");
+            } else if (sorted2.header == null) {
+                throw new IllegalArgumentException("No data in file2 sheet.");
+            }
+            final Header header1 = Header.builder().names(sorted1.header).build();
+            final Header header2 = Header.builder().names(sorted2.header).build();
+            checkKeys(header1, "file1");
+            checkKeys(header2, "file2");
+
+            chrono.start();
+            info("Compare rows and generate " + margs.output);
+            final SortedKeyedTableDiff diff;
+            try (final KeyedTableDiffExporter.Streamer streamer = newExporter().stream(header2, margs.output)) {
+                diff = SortedKeyedTableDiff.builder()
+                                           .leftSystemId(margs.file1.getName()
+                                                   + (margs.sheet1 == null ? "" : ":" + margs.sheet1))
+                                           .leftHeader(header1)
+                                           .leftRows(sorted1.sorter.getSortedRows())
+                                           .rightSystemId(margs.file2.getName()
+                                                   + (margs.sheet2 == null ? "" : ":" + margs.sheet2))
+                                           .rightHeader(header2)
+                                           .rightRows(sorted2.sorter.getSortedRows())
+                                           .keyNames(margs.keys)
+                                           .listener(streamer)
+                                           .build();
+                streamer.setSynthesis(diff.getSynthesis());
+            } catch (final ExceptionWrapper e) {
+                throw new IOException(e.getCause());
+            }
+            chrono.suspend();
+            info("Done (" + diff.getKeysCount() + " keys) " + chrono);
+
+            if (margs.isEnabled(MainArgs.Feature.SYNTHESIS)) {
+                diff.getSynthesis().print(OUT);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (sorted1 != null) {
+                sorted1.sorter.clear();
+            }
+            if (sorted2 != null) {
+                sorted2.sorter.clear();
+            }
+        }
+    }
+
+    /**
+     * Sorts the data rows of a sheet by keys.
+     * <p>
+     * Sorted runs are retained by the returned sorter, until it is cleared.<br>
+     * This can be called concurrently.
+     *
+     * @param file The file.
+     * @param sheet The sheet name, or {@code null}.
+     * @return The sorted sheet.
+     * @throws IOException When an IO error occurs.
+     */
+    private SortedSheet sort(File file,
+                             String sheet) throws IOException {
+        final Chronometer chrono = new Chronometer();
+        chrono.start();
+        info("Sort", file, sheet);
+        final SortedSheet result = new SortedSheet();
+        try {
+            final SheetParser parser = newLoader().getFactory().create(file);
+            if (sheet == null) {
+                parser.parse(file, null, 0, 1, result.sorter);
+            } else {
+                parser.parse(file, null, sheet, 1, result.sorter);
+            }
+        } catch (final IOException | RuntimeException e) {
+            result.sorter.clear();
+            throw e;
+        } catch (final Exception e) {
+            result.sorter.clear();
+            throw new IOException(e);
+        }
+        chrono.suspend();
+        info("Sorted", file, sheet, "(" + result.sorter.getRunsCount() + " runs) " + chrono);
+        return result;
+    }
+
+    /**
+     * Table handler that retains the header of a sheet, and the {@link TableSorter} that passes it.
+     * <p>
+     * Sorted data rows are not passed to this handler: they are pulled from the sorter.
+     */
+    private final class SortedSheet implements TableHandler {
+        final TableSorter sorter = TableSorter.builder()
+                                              .delegate(this)
+                                              .keyNames(margs.keys)
+                                              .deferMerge(true)
+                                              .build();
+        Row header = null;
+
+        @Override
+        public Evaluation processHeader(Row header,
+                                        RowLocation location) {
+            if (this.header == null) {
+                this.header = header;
+            }
+            return Evaluation.CONTINUE;
+        }
+
+        @Override
+        public Evaluation processData(Row data,
+                                      RowLocation location) {
+            // Not called, as merge is deferred
+            return Evaluation.CONTINUE;
         }
+    }
+
+    private void checkKeys(Header header,
+                           String name) {
+        final Header expected = Header.builder().names(margs.keys).build();
+        final HeaderMapper mapper = HeaderMapper.builder().mandatory(expected).actual(header).build();
 
+        if (!mapper.hasAllMandatoryCells()) {
+            throw new IllegalArgumentException("Missing keys: "
+                    + mapper.getMissingMandatoryCells().stream().map(HeaderCell::toString).sorted()
+                            .collect(Collectors.joining(",", "[", "]"))
+                    + " in " + name + " header: " + header);
+        }
+    }
+
+    private KeyedTableDiffExporter newExporter() {
         final KeyedTableDiffExporter exporter = new KeyedTableDiffExporter();
         exporter.setAddedMark(margs.isEnabled(Feature.NO_ADDED_OR_REMOVED_MARKS) ? "" : margs.addedMark)
                 .setChangedMark(margs.changedMark)
@@ -236,12 +444,127 @@ public final class KeyedSheetDiff {
                                                    .setEnabled(WorkbookWriterFeatures.Feature.RICH_TEXT,
                                                                !margs.features.contains(Feature.NO_COLORS))
                                                    .build());
+        return exporter;
+    }
+
+    private void info(String message,
+                      File file,
+                      String sheet) {
+        info(message + " " + file + (sheet == null ? "" : ":" + sheet));
+    }
+
+    private void info(String message,
+                      File file,
+                      String sheet,
+                      String details) {
+        info(message + " " + file + (sheet == null ? "" : ":" + sheet) + " " + details);
+    }
+
+    private SheetLoader newLoader() {
+        final SheetLoader loader = new SheetLoader();
+        loader.getFactory().setCharset(margs.charset);
+        loader.getFactory().setSeparator(margs.separator);
+        loader.getFactory()
+              .setEnabled(SheetParserFactory.Feature.DISABLE_VULNERABILITY_PROTECTIONS,
+                          margs.isEnabled(MainArgs.Feature.NO_VULNERABILITY_PROTECTIONS));
+        return loader;
+    }
+
+    /**
+     * Waits for the result of a load.
+     *
+     * @param <T> The result type.
+     * @param future The future result.
+     * @return The result of {@code future}.
+     * @throws IOException When the load failed with an IOException, or was interrupted.
+     */
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Loads a sheet as rows.
+     * <p>
+     * This can be called concurrently.
+     *
+     * @param file The file.
+     * @param sheet The sheet name, or {@code null}.
+     * @return The rows of the sheet, including its header.
+     * @throws IOException When an IO error occurs.
+     */
+    private List<Row> load(File file,
+                           String sheet) throws IOException {
+        final Chronometer chrono = new Chronometer();
+        chrono.start();
+        info("Load", file, sheet);
+        final SheetLoader loader = newLoader();
+        final List<Row> rows =
+                sheet == null
+                        ? loader.load(file, null, 0)
+                        : loader.load(file, null, sheet);
+        chrono.suspend();
+        info("Loaded", file, sheet, "(" + rows.size() + " rows) " + chrono);
+        return rows;
+    }
 
+    private TableSnapshot loadSnapshot() throws IOException {
+        final Chronometer chrono = new Chronometer();
         chrono.start();
-        info("Generate " + margs.output);
-        exporter.save(diff, margs.output);
+        info("Load snapshot " + margs.snapshot1);
+        final TableSnapshot snapshot = TableSnapshot.load(margs.snapshot1);
         chrono.suspend();
-        info("Done " + chrono);
+        info("Loaded snapshot " + margs.snapshot1 + " (" + snapshot.size() + " rows) " + chrono);
+        if (!snapshot.getKeyNames().equals(margs.keys)) {
+            throw new IllegalArgumentException("Snapshot keys " + snapshot.getKeyNames() + " differ from keys " + margs.keys);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads the rows of file1 that are necessary to compare it to file2, using the snapshot of file1.
+     * <p>
+     * Rows are read from the snapshot: file1 is not parsed.
+     *
+     * @param snapshot The snapshot of file1.
+     * @param rows2 The rows of file2, including its header.
+     * @return A list of rows that is equivalent to file1 rows when compared to {@code rows2}.
+     * @throws IOException When an IO error occurs.
+     */
+    private List<Row> loadBaseline(TableSnapshot snapshot,
+                                   List<Row> rows2) throws IOException {
+        if (rows2.isEmpty()) {
+            throw new IllegalArgumentException("No data in file2 sheet.");
+        }
+        final Header header2 = Header.builder().names(rows2.get(0)).build();
+        final List<Row> data2 = rows2.subList(1, rows2.size());
+
+        final Chronometer chrono = new Chronometer();
+        chrono.start();
+        final BitSet numbers = snapshot.getRowsToLoad(header2, data2);
+        info("Load rows of " + margs.snapshot1);
+        final Map<Integer, Row> loaded = snapshot.loadRows(margs.snapshot1, numbers);
+        final List<Row> rows1 = new ArrayList<>();
+        rows1.add(Row.builder(snapshot.getHeader().getSortedNames()).build());
+        rows1.addAll(snapshot.getBaselineRows(header2, data2, loaded::get));
+        chrono.suspend();
+        info("Loaded rows of " + margs.snapshot1 + " (" + loaded.size() + "/" + snapshot.size() + " rows) " + chrono);
+        return rows1;
     }
 
     String getLineMarkColumn() {
@@ -278,6 +601,8 @@ public final class KeyedSheetDiff {
         private static final String CHANGED_MARK = "changed-mark";
         private static final String UNCHANGED_MARK = "unchanged-mark";
         private static final String LINE_MARK_COLUMN = "line-mark-column";
+        private static final String SNAPSHOT1 = "snapshot1";
+        private static final String SAVE_SNAPSHOT = "save-snapshot";
 
         public MainSupport() {
             super(KeyedSheetDiff.class, LOGGER);
@@ -292,7 +617,8 @@ public final class KeyedSheetDiff {
         protected String getHelpHeader() {
             return KeyedSheetDiff.class.getSimpleName()
                     + " is used to compare two sheets (csv, xls, xlsx, xlsm  or ods).\n"
-                    + "Lines in sheets are matched by a set of key columns.\n"
+                    + "Lines in sheets are matched by a set of key columns,\n"
+                    + "or by position if no key column is given.\n"
                     + "Input and output files can use different formats.\n"
                     + "Differences are indicated with textual marks or colors (if output format supports it).\n";
         }
@@ -348,9 +674,9 @@ public final class KeyedSheetDiff {
 
             options.addOption(Option.builder()
                                     .longOpt(KEY)
-                                    .desc("Name of key column(s).")
+                                    .desc("Name of key column(s).\n"
+                                            + "If omitted, lines are compared as sequences, using their position.")
                                     .hasArgs()
-                                    .required()
                                     .build());
 
             options.addOption(Option.builder()
@@ -397,6 +723,20 @@ public final class KeyedSheetDiff {
                                     .hasArg()
                                     .build());
 
+            options.addOption(Option.builder()
+                                    .longOpt(SNAPSHOT1)
+                                    .desc("Optional name of a snapshot of the first input file, saved by a previous run with --"
+                                            + SAVE_SNAPSHOT + ".\n"
+                                            + "Only the rows of first input file that are necessary to the comparison are loaded from the snapshot.")
+                                    .hasArg()
+                                    .build());
+
+            options.addOption(Option.builder()
+                                    .longOpt(SAVE_SNAPSHOT)
+                                    .desc("Optional name of the file where a snapshot of the second input file must be saved.")
+                                    .hasArg()
+                                    .build());
+
             AbstractMainSupport.addNoArgOptions(options, MainArgs.Feature.class);
         }
 
@@ -417,11 +757,25 @@ public final class KeyedSheetDiff {
             margs.changedMark = AbstractMainSupport.getValueAsString(cl, CHANGED_MARK, MainArgs.DEFAULT_CHANGED_MARK);
             margs.unchangedMark = AbstractMainSupport.getValueAsString(cl, UNCHANGED_MARK, MainArgs.DEFAULT_UNCHANGED_MARK);
             margs.lineMarkColumn = AbstractMainSupport.getValueAsString(cl, LINE_MARK_COLUMN, null);
-
-            for (final String s : cl.getOptionValues(KEY)) {
-                margs.keys.add(s);
+            margs.snapshot1 = getValueAsResolvedFile(cl, SNAPSHOT1, AbstractMainSupport.IS_NULL_OR_FILE);
+            margs.saveSnapshot = getValueAsResolvedFile(cl, SAVE_SNAPSHOT);
+
+            if (cl.hasOption(KEY)) {
+                for (final String s : cl.getOptionValues(KEY)) {
+                    margs.keys.add(s);
+                }
+            } else if (margs.snapshot1 != null || margs.saveSnapshot != null) {
+                throw new ParseException("--" + SNAPSHOT1 + " and --" + SAVE_SNAPSHOT + " need --" + KEY);
             }
             AbstractMainSupport.setMask(cl, MainArgs.Feature.class, margs.features::setEnabled);
+            if (margs.isEnabled(MainArgs.Feature.STREAMING)
+                    && (margs.keys.isEmpty() || margs.snapshot1 != null || margs.saveSnapshot != null)) {
+                throw new ParseException("--" + MainArgs.Feature.STREAMING.getName() + " needs --" + KEY
+                        + " and does not support --" + SNAPSHOT1 + " or --" + SAVE_SNAPSHOT);
+            }
+            if (margs.isEnabled(MainArgs.Feature.PARALLEL) && margs.keys.isEmpty()) {
+                throw new ParseException("--" + MainArgs.Feature.PARALLEL.getName() + " needs --" + KEY);
+            }
             return margs;
         }
 
@@ -1,7 +1,9 @@
 package cdc.office.tools;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -24,6 +26,7 @@ import cdc.office.ss.excel.ExcelWorkbookWriter;
 import cdc.office.ss.odf.OdsWorkbookWriter;
 import cdc.office.tables.Header;
 import cdc.office.tables.HeaderCell;
+import cdc.office.tables.Rows;
 import cdc.office.tables.TableSection;
 import cdc.office.tables.diff.CellDiff;
 import cdc.office.tables.diff.CellDiffKind;
@@ -32,18 +35,29 @@ import cdc.office.tables.diff.KeyedTableDiff.Synthesis.Action;
 import cdc.office.tables.diff.LocalizedCellDiff;
 import cdc.office.tables.diff.RowDiff;
 import cdc.office.tables.diff.RowDiffKind;
+import cdc.office.tables.diff.SequenceTableDiff;
+import cdc.office.tables.diff.SortedKeyedTableDiff;
 import cdc.office.tables.diff.Side;
+import cdc.office.tables.jfr.DiffExportEvent;
 import cdc.tuples.CTupleN;
 import cdc.tuples.TupleN;
+import cdc.util.lang.ExceptionWrapper;
 import cdc.util.lang.UnexpectedValueException;
-import cdc.util.strings.StringComparison;
 
 /**
- * Class used to export a KeyedTableDiff to an Office file.
+ * Class used to export a KeyedTableDiff or a SequenceTableDiff to an Office file.
  *
  * @author Damien Carbonne
  */
 public class KeyedTableDiffExporter {
+    /**
+     * Order of keys when lines are sorted, for all output formats.
+     * <p>
+     * It is the order of {@link SortedKeyedTableDiff}, so that batch and streamed outputs are identical.
+     */
+    private static final Comparator<TupleN<String>> KEY_COMPARATOR =
+            TupleN.comparator(Rows.KEY_VALUE_COMPARATOR);
+
     private String lineMarkColumn;
     private String changedMark;
     private String addedMark;
@@ -96,6 +110,14 @@ public class KeyedTableDiffExporter {
         return this;
     }
 
+    /**
+     * Sets whether lines of a {@link KeyedTableDiff} are sorted by keys.
+     * <p>
+     * Key values are compared with {@link Rows#KEY_VALUE_COMPARATOR}, whatever the output format.
+     *
+     * @param sortLines {@code true} if lines must be sorted.
+     * @return This exporter.
+     */
     public KeyedTableDiffExporter setSortLines(boolean sortLines) {
         this.sortLines = sortLines;
         return this;
@@ -134,25 +156,201 @@ public class KeyedTableDiffExporter {
             throw new IOException("Unrecognized output format for " + file);
         }
 
-        final Header header = diff.getHeader(Side.RIGHT);
+        final List<CTupleN<String>> keys = new ArrayList<>(diff.getKeys());
+        if (sortLines) {
+            Collections.sort(keys, KEY_COMPARATOR);
+        }
+        final List<RowDiff> diffs = new ArrayList<>(keys.size());
+        for (final CTupleN<String> key : keys) {
+            diffs.add(diff.getDiff(key));
+        }
+
+        save(diff.getHeader(Side.RIGHT), diff.getSynthesis(), diffs, outputKind, file);
+    }
 
+    /**
+     * Exports a {@link SequenceTableDiff} to a file.
+     * <p>
+     * Rows are exported in sequence order: sort lines is ignored.
+     *
+     * @param diff The diff.
+     * @param file The output file.
+     * @throws IOException When an IO error occurs.
+     */
+    public void save(SequenceTableDiff diff,
+                     File file) throws IOException {
+        final WorkbookKind outputKind = WorkbookKind.from(file);
+
+        if (outputKind == null) {
+            throw new IOException("Unrecognized output format for " + file);
+        }
+
+        save(diff.getHeader(Side.RIGHT), diff.getSynthesis(), diff.getDiffs(), outputKind, file);
+    }
+
+    private Generator newGenerator(WorkbookKind outputKind,
+                                   File file) throws IOException {
         switch (outputKind) {
         case CSV:
-            new CsvGenerator().generate(file, header, diff);
-            break;
+            return new CsvGenerator(file);
         case XLS:
         case XLSX:
         case XLSM:
-            new ExcelGenerator().generate(file, header, diff);
-            break;
+            return new ExcelGenerator(file);
         case ODS:
-            new OdsGenerator().generate(file, header, diff);
-            break;
+            return new OdsGenerator(file);
         default:
             throw new UnexpectedValueException(outputKind);
         }
     }
 
+    private void save(Header header,
+                      KeyedTableDiff.Synthesis synthesis,
+                      List<RowDiff> diffs,
+                      WorkbookKind outputKind,
+                      File file) throws IOException {
+        final DiffExportEvent event = new DiffExportEvent();
+        event.begin();
+
+        try (final Generator generator = newGenerator(outputKind, file)) {
+            generator.generate(header, synthesis, diffs);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.format = outputKind.name();
+            event.rows = diffs.size();
+            event.columns = header.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates a {@link Streamer} that writes row differences to a file as soon as they are added.
+     * <p>
+     * Rows are written in the order they are added. With a {@link SortedKeyedTableDiff}, they are written in key order.<br>
+     * If sort lines is enabled, row differences must be passed to {@link Streamer#processRowDiff(CTupleN, RowDiff)}
+     * in increasing key order, as a {@link SortedKeyedTableDiff} does: an {@link IllegalStateException} is raised
+     * otherwise, and when {@link Streamer#add(RowDiff)} is called.<br>
+     * If save synthesis is enabled, the synthesis sheet is written after the delta sheet.
+     *
+     * @param header The header of the delta sheet. It is generally the right header.
+     * @param file The output file.
+     * @return A new {@link Streamer}. It must be closed.
+     * @throws IOException When an IO error occurs.
+     */
+    public Streamer stream(Header header,
+                           File file) throws IOException {
+        return new Streamer(header, file);
+    }
+
+    /**
+     * Export of row differences, that writes each one as soon as it is added.
+     * <p>
+     * It can be used as a {@link SortedKeyedTableDiff.Listener}, so that row differences are written while rows are
+     * compared, without retaining them.
+     */
+    public final class Streamer implements SortedKeyedTableDiff.Listener, Closeable {
+        private final File file;
+        private final WorkbookKind outputKind;
+        private final Header header;
+        private final Generator generator;
+        private final DiffExportEvent event = new DiffExportEvent();
+        private KeyedTableDiff.Synthesis synthesis = null;
+        private int rows = 0;
+        /** The last written key, used to check order when lines must be sorted. */
+        private CTupleN<String> lastKey = null;
+
+        Streamer(Header header,
+                 File file) throws IOException {
+            this.file = file;
+            this.outputKind = WorkbookKind.from(file);
+            this.header = header;
+            if (outputKind == null) {
+                throw new IOException("Unrecognized output format for " + file);
+            }
+            event.begin();
+            this.generator = newGenerator(outputKind, file);
+            try {
+                generator.beginDeltaSheet(header);
+            } catch (final IOException | RuntimeException e) {
+                generator.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Writes a row difference.
+         *
+         * @param rdiff The row difference.
+         * @throws IOException When an IO error occurs.
+         * @throws IllegalStateException When sort lines is enabled, as the key of {@code rdiff} is unknown.
+         */
+        public void add(RowDiff rdiff) throws IOException {
+            if (sortLines) {
+                throw new IllegalStateException("Sorted lines need keys");
+            }
+            write(rdiff);
+        }
+
+        private void write(RowDiff rdiff) throws IOException {
+            generator.addRow(rdiff);
+            rows++;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws IllegalStateException When sort lines is enabled and {@code key} is not greater than previous key.
+         */
+        @Override
+        public void processRowDiff(CTupleN<String> key,
+                                   RowDiff diff) {
+            if (sortLines) {
+                if (lastKey != null && KEY_COMPARATOR.compare(lastKey, key) >= 0) {
+                    throw new IllegalStateException("Can not sort lines: " + key + " is received after " + lastKey);
+                }
+                lastKey = key;
+            }
+            try {
+                write(diff);
+            } catch (final IOException e) {
+                throw new ExceptionWrapper(e);
+            }
+        }
+
+        /**
+         * Sets the synthesis that is written, if enabled, when this streamer is closed.
+         * <p>
+         * The synthesis of a {@link SortedKeyedTableDiff} can be set before comparison ends,
+         * as it is computed incrementally.
+         *
+         * @param synthesis The synthesis.
+         */
+        public void setSynthesis(KeyedTableDiff.Synthesis synthesis) {
+            this.synthesis = synthesis;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (final Generator g = generator) {
+                if (saveSynthesis && synthesis != null) {
+                    g.generateSynthesisSheet(synthesis);
+                }
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file.getPath();
+                event.format = outputKind.name();
+                event.rows = rows;
+                event.columns = header.size();
+                event.commit();
+            }
+        }
+    }
+
     protected String getMark(CellDiffKind kind) {
         switch (kind) {
         case ADDED:
@@ -169,17 +367,73 @@ public class KeyedTableDiffExporter {
         }
     }
 
-    private abstract class Generator {
-        public abstract void generate(File file,
-                                      Header header,
-                                      KeyedTableDiff diff) throws IOException;
+    /**
+     * Base class of generators.
+     * <p>
+     * A generator writes an optional synthesis sheet and a delta sheet.
+     * Rows of delta sheet are written as soon as they are added.
+     */
+    private abstract class Generator implements Closeable {
+        private final WorkbookWriter<?> writer;
+
+        protected Generator(WorkbookWriter<?> writer) {
+            this.writer = writer;
+        }
 
         protected String wrap(String s) {
             return s == null ? "" : s;
         }
 
-        protected void generateSynthesisSheet(KeyedTableDiff.Synthesis synthesis,
-                                              WorkbookWriter<?> writer) throws IOException {
+        /**
+         * Generates the cells of the header row of delta sheet.
+         *
+         * @param header The header.
+         * @throws IOException When an IO error occurs.
+         */
+        protected abstract void generateHeader(Header header) throws IOException;
+
+        /**
+         * Generates the cells of a data row of delta sheet.
+         *
+         * @param rdiff The row difference.
+         * @throws IOException When an IO error occurs.
+         */
+        protected abstract void generateRow(RowDiff rdiff) throws IOException;
+
+        /**
+         * Generates all sheets.
+         *
+         * @param header The header.
+         * @param synthesis The synthesis.
+         * @param diffs The row differences, in output order.
+         * @throws IOException When an IO error occurs.
+         */
+        public void generate(Header header,
+                             KeyedTableDiff.Synthesis synthesis,
+                             List<RowDiff> diffs) throws IOException {
+            if (saveSynthesis) {
+                generateSynthesisSheet(synthesis);
+            }
+            beginDeltaSheet(header);
+            for (final RowDiff rdiff : diffs) {
+                addRow(rdiff);
+            }
+        }
+
+        public void beginDeltaSheet(Header header) throws IOException {
+            writer.beginSheet(sheetName);
+            writer.beginRow(TableSection.HEADER);
+            generateHeader(header);
+        }
+
+        public void addRow(RowDiff rdiff) throws IOException {
+            if (rdiff.getKind() != RowDiffKind.SAME || showUnchangedLines) {
+                writer.beginRow(TableSection.DATA);
+                generateRow(rdiff);
+            }
+        }
+
+        public void generateSynthesisSheet(KeyedTableDiff.Synthesis synthesis) throws IOException {
             writer.beginSheet("Synthesis");
             writer.beginRow(TableSection.HEADER);
             writer.addCells("Item", Action.ADDED, Action.REMOVED, Action.CHANGED, Action.SAME);
@@ -207,69 +461,60 @@ public class KeyedTableDiffExporter {
                 writer.addCell(synthesis.getColumnCellsCount(name, Action.SAME));
             }
         }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
     }
 
     private final class CsvGenerator extends Generator {
-        public CsvGenerator() {
-            super();
-        }
+        private final WorkbookWriter<?> writer;
 
-        @Override
-        public void generate(File file,
-                             Header header,
-                             KeyedTableDiff diff) throws IOException {
-            try (final WorkbookWriter<?> writer = new CsvWorkbookWriter(file, features)) {
-                if (saveSynthesis) {
-                    generateSynthesisSheet(diff.getSynthesis(), writer);
-                }
+        public CsvGenerator(File file) throws IOException {
+            this(new CsvWorkbookWriter(file, features));
+        }
 
-                writer.beginSheet(sheetName);
+        private CsvGenerator(WorkbookWriter<?> writer) {
+            super(writer);
+            this.writer = writer;
+        }
 
-                // Header
-                writer.beginRow(TableSection.HEADER);
-                if (insertLineMarkColumn) {
-                    writer.addCell(lineMarkColumn);
-                }
-                writer.addCells(header.getSortedCells());
+        @Override
+        protected void generateHeader(Header header) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(lineMarkColumn);
+            }
+            writer.addCells(header.getSortedCells());
+        }
 
-                // Data
-                final List<CTupleN<String>> keys = diff.getKeys();
-                if (sortLines) {
-                    final Comparator<TupleN<String>> comparator = TupleN.comparator(StringComparison::compareDecimalDigits);
-                    Collections.sort(keys, comparator);
-                }
-                for (final CTupleN<String> key : keys) {
-                    final RowDiff rdiff = diff.getDiff(key);
-                    if (rdiff.getKind() != RowDiffKind.SAME || showUnchangedLines) {
-                        writer.beginRow(TableSection.DATA);
-                        if (insertLineMarkColumn) {
-                            writer.addCell(rdiff.getKind());
-                        }
-                        for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
-                            final CellDiff cdiff = lcdiff.getDiff();
-                            switch (cdiff.getKind()) {
-                            case ADDED:
-                            case SAME:
-                            case NULL:
-                                writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
-                                break;
-                            case CHANGED:
-                                if (showChangeDetails) {
-                                    writer.addCell(getMark(CellDiffKind.REMOVED) + wrap(cdiff.getLeft())
-                                            + "\n"
-                                            + getMark(CellDiffKind.ADDED) + wrap(cdiff.getRight()));
-                                } else {
-                                    writer.addCell(getMark(CellDiffKind.CHANGED) + wrap(cdiff.getRight()));
-                                }
-                                break;
-                            case REMOVED:
-                                writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
-                                break;
-                            default:
-                                throw new UnexpectedValueException(cdiff.getKind());
-                            }
-                        }
+        @Override
+        protected void generateRow(RowDiff rdiff) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(rdiff.getKind());
+            }
+            for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
+                final CellDiff cdiff = lcdiff.getDiff();
+                switch (cdiff.getKind()) {
+                case ADDED:
+                case SAME:
+                case NULL:
+                    writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
+                    break;
+                case CHANGED:
+                    if (showChangeDetails) {
+                        writer.addCell(getMark(CellDiffKind.REMOVED) + wrap(cdiff.getLeft())
+                                + "\n"
+                                + getMark(CellDiffKind.ADDED) + wrap(cdiff.getRight()));
+                    } else {
+                        writer.addCell(getMark(CellDiffKind.CHANGED) + wrap(cdiff.getRight()));
                     }
+                    break;
+                case REMOVED:
+                    writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
+                    break;
+                default:
+                    throw new UnexpectedValueException(cdiff.getKind());
                 }
             }
         }
@@ -298,6 +543,7 @@ public class KeyedTableDiffExporter {
      * @author Damien Carbonne
      */
     private final class ExcelGenerator extends Generator {
+        private final ExcelWorkbookWriter writer;
         private CellStyle addedStyle;
         private CellStyle removedStyle;
         private CellStyle changedStyle;
@@ -306,8 +552,14 @@ public class KeyedTableDiffExporter {
         private Font removedFont;
         private Font addedFont;
 
-        public ExcelGenerator() {
-            super();
+        public ExcelGenerator(File file) {
+            this(new ExcelWorkbookWriter(file, features, true));
+        }
+
+        private ExcelGenerator(ExcelWorkbookWriter writer) {
+            super(writer);
+            this.writer = writer;
+            createStyles(writer.getWorkbook());
         }
 
         private void createStyles(Workbook workbook) {
@@ -362,92 +614,67 @@ public class KeyedTableDiffExporter {
         }
 
         @Override
-        public void generate(File file,
-                             Header header,
-                             KeyedTableDiff diff) throws IOException {
-            try (final ExcelWorkbookWriter writer = new ExcelWorkbookWriter(file,
-                                                                            features,
-                                                                            true)) {
-                createStyles(writer.getWorkbook());
-
-                if (saveSynthesis) {
-                    generateSynthesisSheet(diff.getSynthesis(), writer);
-                }
-
-                writer.beginSheet(sheetName);
-
-                // Header
-                writer.beginRow(TableSection.HEADER);
-                if (insertLineMarkColumn) {
-                    writer.addCell(lineMarkColumn);
-                    writer.getCell().setCellStyle(headerStyle);
-                }
-                for (final HeaderCell cell : header.getSortedCells()) {
-                    writer.addCell(cell);
-                    writer.getCell().setCellStyle(headerStyle);
-                }
-
-                // Data
-                final List<CTupleN<String>> keys = diff.getKeys();
-                if (sortLines) {
-                    Collections.sort(keys);
-                }
+        protected void generateHeader(Header header) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(lineMarkColumn);
+                writer.getCell().setCellStyle(headerStyle);
+            }
+            for (final HeaderCell cell : header.getSortedCells()) {
+                writer.addCell(cell);
+                writer.getCell().setCellStyle(headerStyle);
+            }
+        }
 
-                for (final CTupleN<String> key : keys) {
-                    final RowDiff rdiff = diff.getDiff(key);
-                    if (rdiff.getKind() != RowDiffKind.SAME || showUnchangedLines) {
-                        writer.beginRow(TableSection.DATA);
-                        if (insertLineMarkColumn) {
-                            writer.addCell(rdiff.getKind().toString());
-                            writer.getCell().setCellStyle(getStyle(rdiff.getKind()));
+        @Override
+        protected void generateRow(RowDiff rdiff) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(rdiff.getKind().toString());
+                writer.getCell().setCellStyle(getStyle(rdiff.getKind()));
+            }
+            for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
+                final CellDiff cdiff = lcdiff.getDiff();
+                switch (cdiff.getKind()) {
+                case ADDED:
+                case CHANGED:
+                case SAME:
+                case NULL:
+                    if (cdiff.getKind() == CellDiffKind.CHANGED && showChangeDetails) {
+                        if (showColors) {
+                            // Set default style to removed and set font for added.
+                            // Otherwise, it seems some issues may arise with large files.
+                            final int leftLength = cdiff.getLeft().length();
+                            final String s = wrap(cdiff.getLeft()) + "\n" + wrap(cdiff.getRight());
+                            final RichTextString text =
+                                    writer.getWorkbook().getCreationHelper().createRichTextString(s);
+                            // text.applyFont(0, leftLength, removedFont);
+                            text.applyFont(leftLength, s.length(), addedFont);
+                            writer.addCell("");
+                            writer.getCell().setCellStyle(removedStyle);
+                            writer.getCell().setCellValue(text);
+                        } else {
+                            writer.addCell(getMark(CellDiffKind.REMOVED) + wrap(cdiff.getLeft())
+                                    + "\n"
+                                    + getMark(CellDiffKind.ADDED) + wrap(cdiff.getRight()));
                         }
-                        for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
-                            final CellDiff cdiff = lcdiff.getDiff();
-                            switch (cdiff.getKind()) {
-                            case ADDED:
-                            case CHANGED:
-                            case SAME:
-                            case NULL:
-                                if (cdiff.getKind() == CellDiffKind.CHANGED && showChangeDetails) {
-                                    if (showColors) {
-                                        // Set default style to removed and set font for added.
-                                        // Otherwise, it seems some issues may arise with large files.
-                                        final int leftLength = cdiff.getLeft().length();
-                                        final String s = wrap(cdiff.getLeft()) + "\n" + wrap(cdiff.getRight());
-                                        final RichTextString text =
-                                                writer.getWorkbook().getCreationHelper().createRichTextString(s);
-                                        // text.applyFont(0, leftLength, removedFont);
-                                        text.applyFont(leftLength, s.length(), addedFont);
-                                        writer.addCell("");
-                                        writer.getCell().setCellStyle(removedStyle);
-                                        writer.getCell().setCellValue(text);
-                                    } else {
-                                        writer.addCell(getMark(CellDiffKind.REMOVED) + wrap(cdiff.getLeft())
-                                                + "\n"
-                                                + getMark(CellDiffKind.ADDED) + wrap(cdiff.getRight()));
-                                    }
-                                } else {
-                                    if (showColors) {
-                                        writer.addCell(wrap(cdiff.getRight()));
-                                        writer.getCell().setCellStyle(getStyle(cdiff.getKind()));
-                                    } else {
-                                        writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
-                                    }
-                                }
-                                break;
-                            case REMOVED:
-                                if (showColors) {
-                                    writer.addCell(wrap(cdiff.getLeft()));
-                                    writer.getCell().setCellStyle(getStyle(cdiff.getKind()));
-                                } else {
-                                    writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
-                                }
-                                break;
-                            default:
-                                throw new UnexpectedValueException(cdiff.getKind());
-                            }
+                    } else {
+                        if (showColors) {
+                            writer.addCell(wrap(cdiff.getRight()));
+                            writer.getCell().setCellStyle(getStyle(cdiff.getKind()));
+                        } else {
+                            writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
                         }
                     }
+                    break;
+                case REMOVED:
+                    if (showColors) {
+                        writer.addCell(wrap(cdiff.getLeft()));
+                        writer.getCell().setCellStyle(getStyle(cdiff.getKind()));
+                    } else {
+                        writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
+                    }
+                    break;
+                default:
+                    throw new UnexpectedValueException(cdiff.getKind());
                 }
             }
         }
@@ -459,8 +686,15 @@ public class KeyedTableDiffExporter {
      * @author Damien Carbonne
      */
     private final class OdsGenerator extends Generator {
-        public OdsGenerator() {
-            super();
+        private final WorkbookWriter<?> writer;
+
+        public OdsGenerator(File file) throws IOException {
+            this(new OdsWorkbookWriter(file, features));
+        }
+
+        private OdsGenerator(WorkbookWriter<?> writer) {
+            super(writer);
+            this.writer = writer;
         }
 
         private void createStyle(OdfSpreadsheetDocument doc) {
@@ -470,76 +704,63 @@ public class KeyedTableDiffExporter {
         }
 
         @Override
-        public void generate(File file,
-                             Header header,
-                             KeyedTableDiff diff) throws IOException {
-            try (WorkbookWriter<?> writer = new OdsWorkbookWriter(file, features)) {
-                if (saveSynthesis) {
-                    generateSynthesisSheet(diff.getSynthesis(), writer);
-                }
-
-                writer.beginSheet(sheetName);
-
-                // Header
-                writer.beginRow(TableSection.HEADER);
-                if (insertLineMarkColumn) {
-                    writer.addCell(lineMarkColumn);
-                    // TODO style
-                }
-                for (final HeaderCell cell : header.getSortedCells()) {
-                    writer.addCell(cell);
-                    // TODO style
-                }
-
-                // Data
-                final List<CTupleN<String>> keys = diff.getKeys();
-                if (sortLines) {
-                    Collections.sort(keys);
-                }
+        public void generate(Header header,
+                             KeyedTableDiff.Synthesis synthesis,
+                             List<RowDiff> diffs) throws IOException {
+            try {
+                super.generate(header, synthesis, diffs);
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new IOException(e);
+            }
+        }
 
-                for (final CTupleN<String> key : keys) {
-                    final RowDiff rdiff = diff.getDiff(key);
-                    if (rdiff.getKind() != RowDiffKind.SAME || showUnchangedLines) {
-                        writer.beginRow(TableSection.DATA);
-                        if (insertLineMarkColumn) {
-                            writer.addCell(rdiff.getKind().toString());
-                            // TODO style
-                        }
+        @Override
+        protected void generateHeader(Header header) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(lineMarkColumn);
+                // TODO style
+            }
+            for (final HeaderCell cell : header.getSortedCells()) {
+                writer.addCell(cell);
+                // TODO style
+            }
+        }
 
-                        for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
-                            final CellDiff cdiff = lcdiff.getDiff();
-                            switch (cdiff.getKind()) {
-                            case ADDED:
-                            case CHANGED:
-                            case SAME:
-                            case NULL:
-                                if (showColors) {
-                                    writer.addCell(cdiff.getRight());
-                                    // TODO style
-                                } else {
-                                    writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
-                                }
-                                break;
-                            case REMOVED:
-                                if (showColors) {
-                                    writer.addCell(cdiff.getLeft());
-                                    // TODO style
-                                } else {
-                                    writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
-                                }
-                                break;
-                            default:
-                                throw new UnexpectedValueException(cdiff.getKind());
-                            }
-                        }
+        @Override
+        protected void generateRow(RowDiff rdiff) throws IOException {
+            if (insertLineMarkColumn) {
+                writer.addCell(rdiff.getKind().toString());
+                // TODO style
+            }
 
+            for (final LocalizedCellDiff lcdiff : rdiff.getDiffs()) {
+                final CellDiff cdiff = lcdiff.getDiff();
+                switch (cdiff.getKind()) {
+                case ADDED:
+                case CHANGED:
+                case SAME:
+                case NULL:
+                    if (showColors) {
+                        writer.addCell(cdiff.getRight());
+                        // TODO style
+                    } else {
+                        writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getRight()));
+                    }
+                    break;
+                case REMOVED:
+                    if (showColors) {
+                        writer.addCell(cdiff.getLeft());
+                        // TODO style
+                    } else {
+                        writer.addCell(getMark(cdiff.getKind()) + wrap(cdiff.getLeft()));
                     }
+                    break;
+                default:
+                    throw new UnexpectedValueException(cdiff.getKind());
                 }
-            } catch (final IOException e) {
-                throw e;
-            } catch (final Exception e) {
-                throw new IOException(e);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -86,6 +86,7 @@ public final class SheetExtractor {
         final SheetParserFactory parserFactory = new SheetParserFactory();
         parserFactory.setCharset(margs.charset);
         parserFactory.setSeparator(margs.separator);
+        parserFactory.setEnabled(SheetParserFactory.Feature.CACHE_WORKBOOK_PARTS, true);
         final SheetParser parser = parserFactory.create(margs.inputFile);
         final WorkbookWriterFactory workbookFactory = new WorkbookWriterFactory();
         final WorkbookWriterFeatures features = WorkbookWriterFeatures.builder()
@@ -121,10 +122,14 @@ public final class SheetExtractor {
                     return Evaluation.CONTINUE;
                 }
             };
-            for (final String sheetName : margs.sheetNames) {
-                LOGGER.info("Extract sheet '{}' from '{}'", sheetName, margs.inputFile);
-                writer.beginSheet(sheetName);
-                parser.parse(margs.inputFile, null, sheetName, 0, handler);
+            try {
+                for (final String sheetName : margs.sheetNames) {
+                    LOGGER.info("Extract sheet '{}' from '{}'", sheetName, margs.inputFile);
+                    writer.beginSheet(sheetName);
+                    parser.parse(margs.inputFile, null, sheetName, 0, handler);
+                }
+            } finally {
+                parser.clearCache();
             }
             writer.flush();
             LOGGER.info("Generated '{}'", margs.outputFile);
@@ -1,12 +1,19 @@
 package cdc.office.ss.tools;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import cdc.office.ss.SheetParserFactory;
+import cdc.office.tables.MemoryTableHandler;
+import cdc.office.tables.Row;
 import cdc.office.tools.KeyedSheetDiff;
 import cdc.util.files.Files;
 
@@ -99,4 +106,95 @@ class KeyedSheetDiffTest {
         assertThrows(IllegalArgumentException.class,
                      () -> KeyedSheetDiff.execute(margs));
     }
-}
\ No newline at end of file
+
+    private static List<Row> load(File file) throws IOException {
+        final MemoryTableHandler handler = new MemoryTableHandler();
+        new SheetParserFactory().create(file).parse(file, null, 0, 0, handler);
+        return handler.getRows();
+    }
+
+    /**
+     * Writes a CSV file whose keys are not in the same order with natural and decimal digits orderings.
+     */
+    private static File write(String name,
+                              int skipped,
+                              int changed) throws IOException {
+        final File file = new File("target", name);
+        file.getParentFile().mkdirs();
+        try (final PrintStream out = new PrintStream(file, StandardCharsets.UTF_8)) {
+            out.println("ID;V");
+            for (int id = 12; id >= 1; id--) {
+                if (id != skipped) {
+                    out.println(id + ";" + (id == changed ? "X" : "V" + id));
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void checkStreaming(String ext) throws IOException {
+        final KeyedSheetDiff.MainArgs margs = new KeyedSheetDiff.MainArgs();
+        margs.file1 = write("ksd-test-keys-file1.csv", 3, 0);
+        margs.file2 = write("ksd-test-keys-file2.csv", 11, 2);
+        margs.keys.add("ID");
+        margs.lineMarkColumn = "Diff";
+        margs.features.add(KeyedSheetDiff.MainArgs.Feature.SORT_LINES);
+        final File sorted = new File("target", "ksd-test-sorted." + ext);
+        margs.output = sorted;
+        KeyedSheetDiff.execute(margs);
+
+        margs.features.add(KeyedSheetDiff.MainArgs.Feature.STREAMING);
+        margs.output = new File("target", "ksd-test-streaming." + ext);
+        KeyedSheetDiff.execute(margs);
+
+        final List<Row> rows = load(sorted);
+        assertEquals(13, rows.size());
+        assertEquals("1", rows.get(1).getValue(1));
+        assertEquals("2", rows.get(2).getValue(1));
+        assertEquals("12", rows.get(12).getValue(1));
+        assertEquals(rows, load(margs.output));
+    }
+
+    @Test
+    void testStreaming() throws IOException {
+        checkStreaming("csv");
+        checkStreaming("xlsx");
+    }
+
+    @Test
+    void testSnapshot() throws IOException {
+        final File file0 = write("ksd-test-snapshot-file0.csv", 0, 0);
+        final File file1 = write("ksd-test-snapshot-file1.csv", 3, 5);
+        final File file2 = write("ksd-test-snapshot-file2.csv", 11, 2);
+        final File snapshot = new File("target", "ksd-test-snapshot.bin");
+
+        final KeyedSheetDiff.MainArgs margs = new KeyedSheetDiff.MainArgs();
+        margs.keys.add("ID");
+        margs.lineMarkColumn = "Diff";
+        margs.features.add(KeyedSheetDiff.MainArgs.Feature.SORT_LINES);
+        margs.file1 = file0;
+        margs.file2 = file1;
+        margs.output = new File("target", "ksd-test-snapshot-0-1.csv");
+        margs.saveSnapshot = snapshot;
+        KeyedSheetDiff.execute(margs);
+
+        final File full = new File("target", "ksd-test-snapshot-full.csv");
+        margs.file1 = file1;
+        margs.file2 = file2;
+        margs.output = full;
+        margs.saveSnapshot = null;
+        KeyedSheetDiff.execute(margs);
+
+        // file1 is not parsed when its snapshot is used
+        final File invalid = new File("target", "ksd-test-snapshot-invalid.csv");
+        try (final PrintStream out = new PrintStream(invalid, StandardCharsets.UTF_8)) {
+            out.println("X");
+        }
+        margs.file1 = invalid;
+        margs.snapshot1 = snapshot;
+        margs.output = new File("target", "ksd-test-snapshot-incremental.csv");
+        KeyedSheetDiff.execute(margs);
+
+        assertEquals(load(full), load(margs.output));
+    }
+}